@@ -0,0 +1,47 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.wpilibj.Filesystem;
+import frc.robot.subsystems.SwerveSubsystem;
+import java.io.File;
+
+/**
+ * Shared setup for benchmarks that need the simulated robot. JMH runs every benchmark method in its own forked JVM, so
+ * the drivebase is created at most once per JVM, like on the robot.
+ */
+public final class BenchmarkSupport
+{
+
+  private static SwerveSubsystem drivebase;
+
+  private BenchmarkSupport()
+  {
+  }
+
+  /**
+   * Start the simulated HAL. Safe to call more than once.
+   */
+  public static synchronized void initializeHal()
+  {
+    HAL.initialize(500, 0);
+  }
+
+  /**
+   * Get a simulated drivebase built from the deploy directory swerve JSON, the same way {@link RobotContainer} does.
+   *
+   * @return The shared {@link SwerveSubsystem}.
+   */
+  public static synchronized SwerveSubsystem getDrivebase()
+  {
+    if (drivebase == null)
+    {
+      initializeHal();
+      drivebase = new SwerveSubsystem(new File(Filesystem.getDeployDirectory(), "swerve"));
+    }
+    return drivebase;
+  }
+}
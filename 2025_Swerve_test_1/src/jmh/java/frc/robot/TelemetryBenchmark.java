@@ -0,0 +1,39 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot;
+
+import edu.wpi.first.wpilibj2.command.button.CommandXboxController;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The main thread side of telemetry: capturing the frame and handing it to the telemetry thread.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class TelemetryBenchmark
+{
+
+  private SwerveShuffleboardManager manager;
+
+  @Setup
+  public void setup()
+  {
+    manager = new SwerveShuffleboardManager(BenchmarkSupport.getDrivebase(), new CommandXboxController(0));
+  }
+
+  @Benchmark
+  public void updateTelemetry()
+  {
+    manager.updateTelemetry();
+  }
+}
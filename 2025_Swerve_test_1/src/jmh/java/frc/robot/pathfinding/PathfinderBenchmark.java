@@ -0,0 +1,120 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.pathfinding;
+
+import frc.robot.Constants.AutonConstants;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * {@link DStarLitePlanner} on a field sized grid with a stage-like wall layout: planning from scratch, repairing the
+ * search after a robot-sized obstacle appears on the path, and repairing it after the robot moved one cell.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class PathfinderBenchmark
+{
+
+  private static final double FIELD_LENGTH = 16.54; // meters
+  private static final double FIELD_WIDTH  = 8.21; // meters
+
+  /**
+   * Start and goal in meters, "startX,startY,goalX,goalY".
+   */
+  @Param({"1.5,5.5,6.0,4.1", "1.5,1.5,15.0,7.0", "2.0,7.0,14.5,1.0"})
+  public String route;
+
+  private NavGrid          grid;
+  private DStarLitePlanner planner;
+  private int[]            waypoints;
+  private int[]            changed;
+  private long[]           previousObstacles;
+  private int              start;
+  private int              nextStart;
+  private int              goal;
+  private double           obstacleX;
+  private double           obstacleY;
+
+  @Setup(Level.Trial)
+  public void setupGrid()
+  {
+    grid = new NavGrid(FIELD_LENGTH, FIELD_WIDTH, AutonConstants.NAVGRID_NODE_SIZE);
+    // Two walls across the middle of each half with a gap, and a block in the center
+    wall(5.0, 2.0, 5.4, 8.21);
+    wall(11.1, 0.0, 11.5, 6.2);
+    wall(7.8, 3.4, 8.7, 4.8);
+    waypoints = new int[grid.getCellCount()];
+    changed = new int[grid.getCellCount()];
+    previousObstacles = new long[grid.getWordCount()];
+
+    String[] values = route.split(",");
+    start = grid.cellAt(Double.parseDouble(values[0]), Double.parseDouble(values[1]));
+    goal = grid.cellAt(Double.parseDouble(values[2]), Double.parseDouble(values[3]));
+    nextStart = start + 1;
+  }
+
+  private void wall(double minX, double minY, double maxX, double maxY)
+  {
+    for (int y = (int) (minY / grid.getNodeSize()); y < Math.min(grid.getHeight(), maxY / grid.getNodeSize()); y++)
+    {
+      for (int x = (int) (minX / grid.getNodeSize()); x < maxX / grid.getNodeSize(); x++)
+      {
+        grid.setStaticObstacle(x, y, true);
+      }
+    }
+  }
+
+  @Setup(Level.Invocation)
+  public void setupSearch()
+  {
+    grid.clearDynamicObstacles();
+    planner = new DStarLitePlanner(grid);
+    planner.setStart(start);
+    planner.setGoal(goal);
+    planner.plan();
+    // An obstacle two thirds of the way to the first waypoint, where it forces a detour
+    int count = planner.getPath(waypoints);
+    int on    = waypoints[count > 1 ? 1 : 0];
+    obstacleX = (grid.centerX(start) + 2 * grid.centerX(on)) / 3;
+    obstacleY = (grid.centerY(start) + 2 * grid.centerY(on)) / 3;
+  }
+
+  @Benchmark
+  public int fullPlan()
+  {
+    DStarLitePlanner fresh = new DStarLitePlanner(grid);
+    fresh.setStart(start);
+    fresh.setGoal(goal);
+    fresh.plan();
+    return fresh.getPath(waypoints);
+  }
+
+  @Benchmark
+  public int obstacleReplan()
+  {
+    grid.copyDynamicObstacles(previousObstacles);
+    grid.addDynamicObstacle(obstacleX - 0.5, obstacleY - 0.5, obstacleX + 0.5, obstacleY + 0.5);
+    planner.cellsChanged(changed, grid.diffDynamicObstacles(previousObstacles, changed));
+    planner.plan();
+    return planner.getPath(waypoints);
+  }
+
+  @Benchmark
+  public int movedStartReplan()
+  {
+    planner.setStart(nextStart);
+    planner.plan();
+    return planner.getPath(waypoints);
+  }
+}
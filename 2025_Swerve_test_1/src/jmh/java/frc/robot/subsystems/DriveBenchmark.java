@@ -0,0 +1,75 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.subsystems;
+
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import frc.robot.BenchmarkSupport;
+import frc.robot.Constants;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import swervelib.SwerveController;
+import swervelib.math.SwerveMath;
+
+/**
+ * Drive command hot paths, called once per loop by the default drive command.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class DriveBenchmark
+{
+
+  private SwerveSubsystem drivebase;
+  private ChassisSpeeds   desiredSpeeds;
+
+  @Setup
+  public void setup()
+  {
+    drivebase = BenchmarkSupport.getDrivebase();
+    desiredSpeeds = drivebase.getTargetSpeeds(0.6, -0.4, 0.3, 0.9);
+  }
+
+  @Benchmark
+  public ChassisSpeeds getTargetSpeeds()
+  {
+    return drivebase.getTargetSpeeds(0.6, -0.4, 0.3, 0.9);
+  }
+
+  /**
+   * {@link SwerveMath#limitVelocity} with the arguments {@link frc.robot.commands.drivebase.AbsoluteDriveAdv} used to
+   * pass, kept as the baseline for {@link frc.robot.util.SetpointGeneratorBenchmark}.
+   */
+  @Benchmark
+  public Translation2d limitVelocity()
+  {
+    Translation2d translation = SwerveController.getTranslation2d(desiredSpeeds);
+    return SwerveMath.limitVelocity(translation, drivebase.getFieldVelocity(), drivebase.getPose(),
+                                    Constants.LOOP_TIME, Constants.ROBOT_MASS, List.of(Constants.CHASSIS),
+                                    drivebase.getSwerveDriveConfiguration());
+  }
+
+  /**
+   * A field relative drive through the setpoint generator down to the module setpoints.
+   */
+  @Benchmark
+  public void driveFieldOriented()
+  {
+    drivebase.driveFieldOriented(desiredSpeeds);
+  }
+
+  @Benchmark
+  public void periodic()
+  {
+    drivebase.periodic();
+  }
+}
@@ -0,0 +1,91 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.subsystems;
+
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Rotation3d;
+import edu.wpi.first.math.geometry.Transform3d;
+import edu.wpi.first.math.geometry.Translation3d;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N3;
+import edu.wpi.first.wpilibj.smartdashboard.Field2d;
+import frc.robot.BenchmarkSupport;
+import frc.robot.subsystems.Vision.Cameras;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.photonvision.EstimatedRobotPose;
+import org.photonvision.PhotonPoseEstimator.PoseStrategy;
+import org.photonvision.targeting.PhotonPipelineResult;
+import org.photonvision.targeting.PhotonTrackedTarget;
+import org.photonvision.targeting.TargetCorner;
+
+/**
+ * Vision pose estimation and filtering on synthetic pipeline results, one and two speaker tags in view.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class VisionBenchmark
+{
+
+  private static final Pose2d ROBOT_POSE = new Pose2d(2.5, 5.5, Rotation2d.fromDegrees(180));
+
+  private Vision               vision;
+  private PhotonPipelineResult singleTag;
+  private PhotonPipelineResult twoTags;
+  private EstimatedRobotPose   estimate;
+  private double               timestamp = 0;
+
+  @Setup
+  public void setup()
+  {
+    BenchmarkSupport.initializeHal();
+    vision = new Vision(() -> ROBOT_POSE, new Field2d());
+    List<PhotonTrackedTarget> speaker = List.of(target(7, 0.1), target(8, 0.15));
+    singleTag = new PhotonPipelineResult(20, List.of(speaker.get(0)));
+    twoTags = new PhotonPipelineResult(20, speaker);
+    estimate = new EstimatedRobotPose(new Pose3d(ROBOT_POSE), 0, speaker, PoseStrategy.LOWEST_AMBIGUITY);
+  }
+
+  private static PhotonTrackedTarget target(int id, double ambiguity)
+  {
+    Transform3d        cameraToTarget = new Transform3d(new Translation3d(2.5, 0.2, 0.8), new Rotation3d());
+    List<TargetCorner> corners = List.of(new TargetCorner(100, 100), new TargetCorner(200, 100),
+                                         new TargetCorner(200, 200), new TargetCorner(100, 200));
+    return new PhotonTrackedTarget(0, 0, 1, 0, id, cameraToTarget, cameraToTarget, ambiguity, corners, corners);
+  }
+
+  @Benchmark
+  public Optional<EstimatedRobotPose> filterSingleTag()
+  {
+    // The pose estimator skips results it has already seen, so every call gets a new timestamp.
+    singleTag.setTimestampSeconds(timestamp += 0.02);
+    return vision.getEstimatedGlobalPose(Cameras.LEFT_CAM, singleTag);
+  }
+
+  @Benchmark
+  public Optional<EstimatedRobotPose> filterTwoTags()
+  {
+    twoTags.setTimestampSeconds(timestamp += 0.02);
+    return vision.getEstimatedGlobalPose(Cameras.LEFT_CAM, twoTags);
+  }
+
+  @Benchmark
+  public Matrix<N3, N1> getEstimationStdDevs()
+  {
+    return vision.getEstimationStdDevs(Cameras.LEFT_CAM, estimate);
+  }
+}
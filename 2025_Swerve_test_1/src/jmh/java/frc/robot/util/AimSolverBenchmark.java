@@ -0,0 +1,42 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util;
+
+import frc.robot.Constants.AimConstants;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * {@link AimSolver} at the speaker while strafing, the per loop cost of aiming while driving. The robot alternates
+ * between two positions and velocities so the solution is not constant.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class AimSolverBenchmark
+{
+
+  private AimSolver solver;
+  private double    vy = 2;
+
+  @Setup
+  public void setup()
+  {
+    solver = AimSolver.constantSpeed(AimConstants.LATENCY, AimConstants.DEFAULT_SHOT_SPEED);
+  }
+
+  @Benchmark
+  public double solve()
+  {
+    vy = -vy;
+    return solver.solve(vy > 0 ? 3.0 : 4.0, 4.5, 1.0, vy, 0.0, 5.55);
+  }
+}
@@ -0,0 +1,69 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util;
+
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+import edu.wpi.first.math.util.Units;
+import frc.robot.Constants;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * {@link PrimitiveSwerveKinematics} against WPILib {@link SwerveDriveKinematics} for the same module layout. Each
+ * benchmark runs inverse kinematics, desaturation and forward kinematics once.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class KinematicsBenchmark
+{
+
+  private static final double OFFSET = Units.inchesToMeters(14.75);
+
+  private final double[] speeds        = new double[4];
+  private final double[] angles        = new double[4];
+  private final double[] chassisSpeeds = new double[3];
+
+  private SwerveDriveKinematics     wpilib;
+  private PrimitiveSwerveKinematics primitive;
+  private double                    omega = 1.5;
+
+  @Setup
+  public void setup()
+  {
+    wpilib = new SwerveDriveKinematics(new Translation2d(OFFSET, OFFSET), new Translation2d(OFFSET, -OFFSET),
+                                       new Translation2d(-OFFSET, OFFSET), new Translation2d(-OFFSET, -OFFSET));
+    primitive = new PrimitiveSwerveKinematics(new double[]{OFFSET, OFFSET, -OFFSET, -OFFSET},
+                                              new double[]{OFFSET, -OFFSET, OFFSET, -OFFSET});
+  }
+
+  @Benchmark
+  public ChassisSpeeds wpilibKinematics()
+  {
+    omega = -omega;
+    SwerveModuleState[] states = wpilib.toSwerveModuleStates(new ChassisSpeeds(3.0, -1.0, omega));
+    SwerveDriveKinematics.desaturateWheelSpeeds(states, Constants.MAX_SPEED);
+    return wpilib.toChassisSpeeds(states);
+  }
+
+  @Benchmark
+  public double[] primitiveKinematics()
+  {
+    omega = -omega;
+    primitive.toModuleStates(3.0, -1.0, omega, speeds, angles);
+    PrimitiveSwerveKinematics.desaturate(speeds, Constants.MAX_SPEED);
+    primitive.toChassisSpeeds(speeds, angles, chassisSpeeds);
+    return chassisSpeeds;
+  }
+}
@@ -0,0 +1,65 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util;
+
+import frc.robot.Constants.DrivebaseConstants;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * {@link PoseHistory} inserts and lookups with 250Hz odometry, the robot driving an arc.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class PoseHistoryBenchmark
+{
+
+  private static final double PERIOD = 0.004; // 250Hz
+
+  private final double[] sample = new double[PoseHistory.SAMPLE_SIZE];
+
+  private PoseHistory history;
+  private double      timestamp;
+  private double      lookback;
+
+  @Setup
+  public void setup()
+  {
+    history = new PoseHistory(DrivebaseConstants.POSE_HISTORY_CAPACITY);
+    for (int i = 0; i < DrivebaseConstants.POSE_HISTORY_CAPACITY; i++)
+    {
+      add();
+    }
+  }
+
+  private void add()
+  {
+    timestamp += PERIOD;
+    history.add(timestamp, 2 * Math.sin(timestamp), 2 - 2 * Math.cos(timestamp), timestamp, 2 * Math.cos(timestamp),
+                2 * Math.sin(timestamp), 1);
+  }
+
+  @Benchmark
+  public void insert()
+  {
+    add();
+  }
+
+  @Benchmark
+  public double[] query()
+  {
+    // Vision latencies from 0 to 1s, between samples so every lookup interpolates
+    lookback = lookback > 1 ? 0.0013 : lookback + 0.0371;
+    history.sample(timestamp - lookback, sample);
+    return sample;
+  }
+}
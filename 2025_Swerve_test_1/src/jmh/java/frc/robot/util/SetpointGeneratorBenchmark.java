@@ -0,0 +1,61 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util;
+
+import edu.wpi.first.math.system.plant.DCMotor;
+import edu.wpi.first.math.util.Units;
+import edu.wpi.first.wpilibj.Filesystem;
+import frc.robot.Constants;
+import frc.robot.Constants.DrivebaseConstants;
+import frc.robot.sim.DriveSimulation;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * {@link SwerveSetpointGenerator} on the robot's limits. The commanded velocity reverses every second and turns in
+ * between, so the steering, acceleration and stop-and-reverse paths all run.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class SetpointGeneratorBenchmark
+{
+
+  private static final double OFFSET = Units.inchesToMeters(14.75);
+
+  private SwerveSetpointGenerator generator;
+  private int                     loop = 0;
+
+  @Setup
+  public void setup() throws IOException
+  {
+    PrimitiveSwerveKinematics kinematics = new PrimitiveSwerveKinematics(new double[]{OFFSET, OFFSET, -OFFSET, -OFFSET},
+                                                                         new double[]{OFFSET, -OFFSET, OFFSET, -OFFSET});
+    double driveMetersPerRotation = DriveSimulation.loadDriveMetersPerRotation(
+        new File(Filesystem.getDeployDirectory(), "swerve"));
+    generator = new SwerveSetpointGenerator(kinematics, DCMotor.getNEO(1), driveMetersPerRotation,
+                                            Constants.ROBOT_MASS, Constants.MAX_SPEED,
+                                            DrivebaseConstants.MAX_DRIVE_ACCELERATION,
+                                            DrivebaseConstants.MAX_STEER_VELOCITY,
+                                            DrivebaseConstants.DRIVE_CURRENT_LIMIT);
+  }
+
+  @Benchmark
+  public double[] generate()
+  {
+    loop = (loop + 1) % 100;
+    double vx = loop < 50 ? 3 : -3;
+    generator.generate(vx, loop % 25 < 10 ? 1 : 0, loop % 10 == 0 ? 2 : 0, 0.02);
+    return generator.getModuleSpeeds();
+  }
+}
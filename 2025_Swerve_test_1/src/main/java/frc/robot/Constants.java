@@ -17,6 +17,7 @@ import com.pathplanner.lib.util.PIDConstants;
 
 import edu.wpi.first.math.geometry.Translation3d;
 import edu.wpi.first.math.util.Units;
+import frc.robot.telemetry.DebugTelemetry.Verbosity;
 import swervelib.math.Matter;
 
 public final class Constants {
@@ -32,6 +33,20 @@ public final class Constants {
 
     public static final PIDConstants TRANSLATION_PID = new PIDConstants(0.7, 0, 0);
     public static final PIDConstants ANGLE_PID       = new PIDConstants(0.4, 0, 0.01);
+    public static final double       MAX_MODULE_SPEED = 4.5; // m/s
+    // Pathfinding cell size when deploy has no navgrid.json, the same as the PathPlanner default
+    public static final double       NAVGRID_NODE_SIZE = 0.2; // meters
+  }
+
+  public static final class AimConstants
+  {
+
+    // Time from reading the pose to the heading command taking effect
+    public static final double LATENCY    = LOOP_TIME; // seconds
+    // Average game piece speed from release to the target, sets the time of flight. Tuned through the preference,
+    // set it to the distance over the time of flight measured on the shooter. The default only seeds a new roboRIO.
+    public static final String SHOT_SPEED_KEY     = "Aim/ShotSpeed";
+    public static final double DEFAULT_SHOT_SPEED = 12; // m/s
   }
 
   public static final class DrivebaseConstants
@@ -39,6 +54,76 @@ public final class Constants {
 
     // Hold time on motor brakes when disabled
     public static final double WHEEL_LOCK_TIME = 10; // seconds
+
+    // Samples fitted by the module acceleration and steering rate estimators, 100ms at 50Hz
+    public static final int MODULE_DERIVATIVE_WINDOW = 5;
+
+    // Odometry samples kept for pose lookups by timestamp, 2s at 250Hz
+    public static final int POSE_HISTORY_CAPACITY = 512;
+
+    // Odometry thread used with vision, period and readings queued for the main loop
+    public static final double ODOMETRY_PERIOD         = 0.004; // seconds, 250Hz
+    public static final int    ODOMETRY_QUEUE_CAPACITY = 32; // power of two, 128ms of readings
+
+    // Module setpoint generator limits, the drive reduction and wheel size come from the YAGSL conversion factor
+    public static final double DRIVE_CURRENT_LIMIT    = 40; // amps per drive motor
+    public static final double MAX_DRIVE_ACCELERATION = 8; // m/s^2, below the 11.7 traction limit of 1.19 grip
+    public static final double MAX_STEER_VELOCITY     = Units.rotationsToRadians(3); // rad/s, NEO at 25:1 frees at 3.8
+    public static final double SETPOINT_RESET_TIME    = 0.1; // seconds without a setpoint before reseeding from sensors
+
+    // Skew correction, rotates the commanded translation against the angular velocity. Start with a coefficient of 0.1.
+    public static final double ANGULAR_VELOCITY_COEFFICIENT = 0.1;
+
+    // Online drive feedforward fit per module, applied to the module once every 95% interval is inside its limit
+    public static final boolean FEEDFORWARD_AUTO_APPLY     = true;
+    public static final double  FEEDFORWARD_FORGETTING     = 0.9995; // per loop, about 40s of memory at 50Hz
+    public static final double  FEEDFORWARD_MIN_SPEED      = 0.1; // m/s, kS is not observable standing still
+    public static final double  FEEDFORWARD_MAX_STEER_RATE = 180; // deg/s, scrub while steering biases the fit
+    public static final double  FEEDFORWARD_ACCEL_DEADBAND = 0.5; // m/s^2, smoothed acceleration noise while cruising
+    public static final int     FEEDFORWARD_MIN_SAMPLES    = 250; // 5s of driving before a fit is applied
+    public static final double  FEEDFORWARD_KS_INTERVAL    = 0.05; // volts
+    public static final double  FEEDFORWARD_KV_INTERVAL    = 0.05; // volt seconds per meter
+    public static final double  FEEDFORWARD_KA_INTERVAL    = 0.05; // volt seconds squared per meter
+    public static final double  FEEDFORWARD_SWAP_PERIOD    = 2; // seconds between swaps on one module
+
+    // Module health monitor, rolling means over the window raise an alert above the limit and clear below half of it
+    public static final int    HEALTH_WINDOW         = 50; // loops, 1s at 50Hz
+    public static final int    HEALTH_MIN_SAMPLES    = 25; // loops in the window before an alert can be raised
+    public static final double HEALTH_SPEED_ERROR    = 0.5; // m/s between the commanded and measured wheel speed
+    public static final double HEALTH_ANGLE_ERROR    = 10; // degrees between the commanded and measured azimuth
+    public static final double HEALTH_ENCODER_ERROR  = 5; // degrees between the absolute and relative steer encoders
+    public static final double HEALTH_SLIP           = 0.3; // m/s of wheel velocity not explained by rigid body motion
+    public static final double HEALTH_YAW_RATE_ERROR = 0.3; // rad/s between the wheel and gyro rotation rates
+    public static final double HEALTH_MIN_SPEED      = 0.1; // m/s, the azimuth is held below this
+    public static final double HEALTH_MAX_STEER_RATE = 90; // deg/s, the encoders are read at different times
+    public static final double HEALTH_STALL_SPEED    = 0.5; // m/s commanded, measured below a fifth of it is a stall
+    public static final double HEALTH_STALL_TIME     = 0.5; // seconds
+  }
+
+  public static final class SimulationConstants
+  {
+
+    // Headless drivetrain physics, stepped at a fixed rate under a simulated clock
+    public static final double PHYSICS_STEP        = 0.001; // seconds
+    public static final double BATTERY_VOLTAGE     = 12.6; // volts, open circuit of a charged battery
+    public static final double BATTERY_RESISTANCE  = 0.02; // ohms, battery, main breaker and wiring
+    public static final double BROWNOUT_VOLTAGE    = 6.75; // volts, the roboRIO disables outputs below this
+    public static final double WHEEL_FRICTION      = 1.19; // matches physicalproperties.json
+    public static final double ROLLING_RESISTANCE  = 0.02; // fraction of the normal force
+    // Longitudinal tire force rises linearly with the slip ratio up to the full friction at this ratio and stays there
+    public static final double PEAK_SLIP           = 0.15;
+    public static final double SLIP_SPEED          = 0.1; // m/s, floor of the slip ratio's reference speed
+    // Drive rotor, reflected to the tread through the reduction. Not measured: a NEO rotor taken as a solid cylinder of
+    // about 0.25 kg and 2 cm radius. The wheel adds about 0.1 kg at the tread and is left out.
+    public static final double DRIVE_ROTOR_INERTIA = 5e-5; // kg m^2
+    public static final double STEER_GEAR_RATIO    = 25; // matches physicalproperties.json
+    public static final double STEER_CURRENT_LIMIT = 20; // amps, matches physicalproperties.json
+    // Module and steering rotor about the steering axis. Not measured on these modules: the value AdvantageKit's swerve
+    // template simulates for a NEO steered module. Steering SysId gives it as kA * Kt * STEER_GEAR_RATIO / R.
+    public static final double STEER_INERTIA       = 0.004; // kg m^2
+    // SparkMax onboard loops, duty cycle per unit of error, matches pidfproperties.json
+    public static final double DRIVE_KP            = 0.0020645; // per m/s
+    public static final double STEER_KP            = 0.01; // per degree
   }
 
   public static class OperatorConstants
@@ -52,6 +137,29 @@ public final class Constants {
 
   public static final class TelemetryConstants {
     public static final double TELEMETRY_UPDATE_RATE = 0.02; // 50Hz
+    public static final double SLOW_TELEMETRY_UPDATE_RATE = 0.5; // 2Hz, battery and PDH currents
+    public static final double BANDWIDTH_REPORT_PERIOD = 1.0; // seconds between bytes-per-second updates
+    public static final int TELEMETRY_QUEUE_CAPACITY = 8; // frames buffered for the telemetry thread, power of two
+    public static final long TELEMETRY_WORKER_IDLE_NANOS = 5_000_000; // worker park time when no frame is queued
+
+    // Change detection, values inside the deadband are only republished after the staleness interval
+    public static final double MAX_STALENESS = 1.0; // seconds
+    public static final double SPEED_DEADBAND = 0.01; // m/s
+    public static final double ANGLE_DEADBAND = 0.5; // degrees
+    public static final double POSITION_DEADBAND = 0.005; // meters
+    public static final double INPUT_DEADBAND = 0.01; // joystick units
+    public static final double FEEDFORWARD_DEADBAND = 0.001; // feedforward gain units
+
+    // On-robot DataLog recorder, files rotate once they reach the size cap
+    public static final long RECORDER_MAX_FILE_BYTES = 64L * 1024 * 1024;
+    public static final int RECORDER_MAX_FILES = 20; // oldest recorder files past this count are deleted
+    public static final int RECORDER_QUEUE_CAPACITY = 64; // power of two, records queued by the robot loop
+
+    // Main loop profiler, times subsystems, commands and telemetry into histograms
+    public static final boolean PROFILER_ENABLED = true;
+
+    // Debug telemetry and YAGSL telemetry verbosity, use LOW at competition
+    public static final Verbosity VERBOSITY = Verbosity.HIGH;
     
     public static final class ModuleConstants {
         public static final double MAX_MODULE_SPEED = 4.5;  // m/s
@@ -4,9 +4,12 @@
 
 package frc.robot;
 
+import edu.wpi.first.wpilibj.RobotController;
 import edu.wpi.first.wpilibj.TimedRobot;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import frc.robot.telemetry.DataLogRecorder;
+import frc.robot.telemetry.LoopProfiler;
 
 /**
  * The VM is configured to automatically run this class, and to call the functions corresponding to
@@ -19,6 +22,13 @@ public class Robot extends TimedRobot {
 
   private RobotContainer m_robotContainer;
 
+  private DataLogRecorder m_recorder;
+  private long m_lastLoopStartMicros = 0;
+
+  private LoopProfiler m_profiler;
+  private LoopProfiler.Section m_telemetrySection;
+  private boolean m_matchRunning = false;
+
   /**
    * This function is run when the robot is first started up and should be used for any
    * initialization code.
@@ -28,6 +38,32 @@ public class Robot extends TimedRobot {
     // Instantiate our RobotContainer.  This will perform all our button bindings, and put our
     // autonomous chooser on the dashboard.
     m_robotContainer = new RobotContainer();
+    m_recorder = DataLogRecorder.getInstance();
+
+    // Installed after RobotContainer so the command phase mark runs after the button bindings.
+    m_profiler = LoopProfiler.getInstance();
+    m_profiler.install();
+    m_telemetrySection = m_profiler.section("Telemetry");
+  }
+
+  /**
+   * Times the whole loop: mode transitions, the mode specific periodic functions, robotPeriodic(),
+   * the SmartDashboard, LiveWindow and Shuffleboard updates and simulationPeriodic().
+   */
+  @Override
+  protected void loopFunc() {
+    long loopStartMicros = RobotController.getFPGATime();
+    m_profiler.startLoop();
+
+    super.loopFunc();
+
+    // record loop timing, the period is measured between loop starts
+    if (m_lastLoopStartMicros != 0) {
+      m_recorder.recordLoopTiming((loopStartMicros - m_lastLoopStartMicros) / 1000.0,
+                                  (RobotController.getFPGATime() - loopStartMicros) / 1000.0);
+    }
+    m_lastLoopStartMicros = loopStartMicros;
+    m_profiler.endLoop(getPeriod());
   }
 
   /**
@@ -46,12 +82,20 @@ public class Robot extends TimedRobot {
     CommandScheduler.getInstance().run();
 
     //update telemetry
+    long telemetryStart = m_profiler.start();
     m_robotContainer.updateTelemetry();
+    m_profiler.stop(m_telemetrySection, telemetryStart);
   }
 
   /** This function is called once each time the robot enters Disabled mode. */
   @Override
-  public void disabledInit() {}
+  public void disabledInit() {
+    // dump the loop profile at the end of every match or enabled session
+    if (m_matchRunning) {
+      m_profiler.dump();
+      m_matchRunning = false;
+    }
+  }
 
   @Override
   public void disabledPeriodic() {}
@@ -59,6 +103,8 @@ public class Robot extends TimedRobot {
   /** This autonomous runs the autonomous command selected by your {@link RobotContainer} class. */
   @Override
   public void autonomousInit() {
+    startMatchProfile();
+    m_robotContainer.markAutonomousEnabled();
     m_autonomousCommand = m_robotContainer.getAutonomousCommand();
 
     // schedule the autonomous command (example)
@@ -73,6 +119,7 @@ public class Robot extends TimedRobot {
 
   @Override
   public void teleopInit() {
+    startMatchProfile();
     // This makes sure that the autonomous stops running when
     // teleop starts running. If you want the autonomous to
     // continue until interrupted by another command, remove
@@ -82,6 +129,14 @@ public class Robot extends TimedRobot {
     }
   }
 
+  // overrun counts are per match, so clear the profile when the robot is first enabled
+  private void startMatchProfile() {
+    if (!m_matchRunning) {
+      m_profiler.reset();
+      m_matchRunning = true;
+    }
+  }
+
   /** This function is called periodically during operator control. */
   @Override
   public void teleopPeriodic() {}
@@ -18,6 +18,7 @@ import edu.wpi.first.wpilibj2.command.Commands;
 import edu.wpi.first.wpilibj2.command.button.CommandXboxController;
 import edu.wpi.first.wpilibj2.command.button.Trigger;
 import frc.robot.Constants.OperatorConstants;
+import frc.robot.commands.auto.AutoRoutines;
 import frc.robot.commands.drivebase.AbsoluteDriveAdv;
 import frc.robot.subsystems.SwerveSubsystem;
 import java.io.File;
@@ -38,6 +39,8 @@ public class RobotContainer
                                                                          "swerve/neo"));
   // adds telemetry management
   private final SwerveShuffleboardManager telemetryManager;
+  // every auto, prebuilt at startup
+  private final AutoRoutines autoRoutines;
 
 
   // Applies deadbands and inverts controls because joysticks
@@ -96,7 +99,8 @@ public class RobotContainer
     
     // Initialize telemetry manager with controller and drivebase
     telemetryManager = new SwerveShuffleboardManager(drivebase, driverXbox);
-        
+    autoRoutines = new AutoRoutines(drivebase);
+
 
     configureBindings();
   }
@@ -133,7 +137,9 @@ public class RobotContainer
       driverXbox.start().whileTrue(Commands.none());
       driverXbox.back().whileTrue(Commands.none());
       driverXbox.leftBumper().whileTrue(Commands.runOnce(drivebase::lock, drivebase).repeatedly());
-      driverXbox.rightBumper().onTrue(Commands.none());
+      driverXbox.rightBumper().whileTrue(drivebase.aimAtTarget1WhileDriving(
+          () -> MathUtil.applyDeadband(driverXbox.getLeftY(), OperatorConstants.LEFT_Y_DEADBAND),
+          () -> MathUtil.applyDeadband(driverXbox.getLeftX(), OperatorConstants.LEFT_X_DEADBAND)));
       drivebase.setDefaultCommand(
           !RobotBase.isSimulation() ? driveFieldOrientedDirectAngle : driveFieldOrientedDirectAngleSim);
     }
@@ -146,8 +152,16 @@ public class RobotContainer
    */
   public Command getAutonomousCommand()
   {
-    // An example command will be run in autonomous
-    return drivebase.getAutonomousCommand("New Auto");
+    // The auto picked on the dashboard, built at startup
+    return autoRoutines.getSelected();
+  }
+
+  /**
+   * Start timing the autonomous start, call when autonomous is enabled.
+   */
+  public void markAutonomousEnabled()
+  {
+    autoRoutines.markEnabled();
   }
 
   public void setDriveMode()
@@ -163,5 +177,6 @@ public class RobotContainer
   // Method for telemetry management
   public void updateTelemetry() {
     telemetryManager.updateTelemetry();
+    autoRoutines.periodic();
   }
 }
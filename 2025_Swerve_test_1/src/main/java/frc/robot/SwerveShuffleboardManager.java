@@ -4,27 +4,42 @@
 
 package frc.robot;
 
-import edu.wpi.first.math.geometry.Pose2d;
-import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.networktables.DoubleArrayPublisher;
+import edu.wpi.first.networktables.DoublePublisher;
 import edu.wpi.first.networktables.GenericEntry;
+import edu.wpi.first.networktables.IntegerPublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
 import edu.wpi.first.wpilibj.shuffleboard.*;
 import edu.wpi.first.wpilibj.smartdashboard.Field2d;
 import java.util.Map;
-import edu.wpi.first.math.kinematics.SwerveModuleState;
 import edu.wpi.first.wpilibj.PowerDistribution;
 import frc.robot.subsystems.SwerveSubsystem;
+import frc.robot.telemetry.ChangeFilter;
+import frc.robot.telemetry.DataLogRecorder;
+import frc.robot.telemetry.DriveTelemetrySnapshot;
+import frc.robot.telemetry.PowerSampler;
+import frc.robot.telemetry.PowerSnapshot;
+import frc.robot.telemetry.TelemetryFrame;
+import frc.robot.telemetry.TelemetryScheduler;
+import frc.robot.telemetry.TelemetryTier;
+import frc.robot.telemetry.TelemetryWorker;
+import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj2.command.button.CommandXboxController;
-import edu.wpi.first.math.geometry.Rotation2d;
 
 import edu.wpi.first.util.sendable.Sendable;
 import edu.wpi.first.util.sendable.SendableBuilder;
-import java.util.LinkedList;
+import frc.robot.Constants.TelemetryConstants;
+import frc.robot.Constants.TelemetryConstants.ModuleConstants;
+import frc.robot.Constants.TelemetryConstants.PowerConstants;
+import frc.robot.util.DoubleRingBuffer;
+import frc.robot.util.EnergyAccumulator;
 
 
 
 public class SwerveShuffleboardManager {
     private final SwerveSubsystem swerve;
-    private final PowerDistribution pdh;
+    private final PowerSampler powerSampler;
     private final CommandXboxController driverController;
     
     // Shuffleboard tabs
@@ -34,6 +49,35 @@ public class SwerveShuffleboardManager {
     
     // Field widget
     private Field2d field;
+
+    // Publishers backing the field widget and raw module states, fed from reused arrays
+    private DoubleArrayPublisher robotPosePublisher;
+    private DoubleArrayPublisher modulePosesPublisher;
+    private DoubleArrayPublisher moduleStatesPublisher;
+    private final double[] robotPose = new double[3];
+    private final double[] modulePoses = new double[3 * DriveTelemetrySnapshot.MODULE_COUNT];
+    private final double[] moduleStates = new double[2 * DriveTelemetrySnapshot.MODULE_COUNT];
+
+    // Change detection for the fast tier, so values at rest are not resent every loop
+    private final ChangeFilter robotPoseFilter = new ChangeFilter("Field Robot",
+        TelemetryConstants.POSITION_DEADBAND, TelemetryConstants.MAX_STALENESS);
+    private final ChangeFilter modulePosesFilter = new ChangeFilter("Field Modules",
+        TelemetryConstants.POSITION_DEADBAND, TelemetryConstants.MAX_STALENESS);
+    private final ChangeFilter moduleStatesFilter = new ChangeFilter("Module States",
+        TelemetryConstants.SPEED_DEADBAND, TelemetryConstants.MAX_STALENESS);
+    private final ChangeFilter[] moduleSpeedFilters = new ChangeFilter[DriveTelemetrySnapshot.MODULE_COUNT];
+    private final ChangeFilter[] moduleAngleFilters = new ChangeFilter[DriveTelemetrySnapshot.MODULE_COUNT];
+    private final ChangeFilter[] controllerFilters = new ChangeFilter[4];
+
+    // Publishers for the custom widget values, written by the telemetry thread
+    private DoublePublisher gyroPublisher;
+    private VelocityWidget velocityWidget;
+    private PowerGraph powerGraph;
+    private IntegerPublisher pdhTotalReadsPublisher;
+
+    // Frame filled on the robot loop and handed off to the telemetry thread
+    private final TelemetryFrame frame = new TelemetryFrame();
+    private final TelemetryWorker worker;
     
     // Module state widgets
     private ModuleStateWidget[] moduleWidgets;
@@ -41,42 +85,77 @@ public class SwerveShuffleboardManager {
     // Cached entries for frequent updates
     private GenericEntry[] moduleSpeedEntries;
     private GenericEntry[] moduleAngleEntries;
+    private GenericEntry[] moduleDriveCurrentEntries;
+    private GenericEntry[] moduleTurnCurrentEntries;
+    private GenericEntry[] moduleEnergyEntries;
+    private GenericEntry totalEnergy;
+    private GenericEntry totalCharge;
     private GenericEntry batteryVoltage;
     private GenericEntry totalCurrent;
+    private GenericEntry[] controllerEntries;
+    private GenericEntry robotModeEntry;
+    private GenericEntry gyroZeroCountEntry;
+
+    // Last published on-change values
+    private String lastRobotMode = "";
+    private String lastPowerMode = "";
+    private int lastGyroZeroCount = -1;
     
     public SwerveShuffleboardManager(SwerveSubsystem swerve, CommandXboxController controller) {
         this.swerve = swerve;
         this.driverController = controller;
-        this.pdh = new PowerDistribution();
+        this.powerSampler = new PowerSampler(new PowerDistribution());
         
         // Create tabs
         driveTab = Shuffleboard.getTab("Drive");
         powerTab = Shuffleboard.getTab("Power");
         moduleTab = Shuffleboard.getTab("Modules");
         
-        // Initialize field widget
-        field = new Field2d();
-        driveTab.add("Field", field)
-                .withWidget(BuiltInWidgets.kField)
-                .withSize(6, 4)
-                .withPosition(0, 0);
-        
-        // Initialize module widgets
-        moduleWidgets = new ModuleStateWidget[4];
-        moduleSpeedEntries = new GenericEntry[4];
-        moduleAngleEntries = new GenericEntry[4];
-        
         initializeField();
         initializeModuleArrays();
         setupModuleWidgets();
         setupPowerTab();
         setupDriveTab();
+        registerTelemetry();
+
+        worker = new TelemetryWorker(TelemetryScheduler.getInstance());
+        worker.start();
+    }
+
+    // Declare the rate tier of every block of values this manager publishes
+    private void registerTelemetry() {
+        TelemetryScheduler scheduler = TelemetryScheduler.getInstance();
+        scheduler.register(TelemetryTier.FAST, this::updateField);
+        scheduler.register(TelemetryTier.FAST, this::updateModules);
+        scheduler.register(TelemetryTier.FAST, this::updateInputs);
+        scheduler.register(TelemetryTier.SLOW, this::updatePower);
+        scheduler.register(TelemetryTier.SLOW, f -> velocityWidget.publishHistory());
+        scheduler.register(TelemetryTier.ON_CHANGE, this::updateRobotMode);
+        scheduler.register(TelemetryTier.ON_CHANGE, this::updateGyroZeroCount);
+
+        // On-robot recording shares the frames, drive state at full rate and power when it is sampled.
+        // Records queued by the robot loop are written here too, so no file I/O happens on the robot loop.
+        DataLogRecorder recorder = DataLogRecorder.getInstance();
+        scheduler.register(TelemetryTier.FAST, f -> {
+            recorder.writePending();
+            recorder.recordDrive(f.drive);
+            return 0;
+        });
+        scheduler.register(TelemetryTier.SLOW, f -> {
+            recorder.recordPower(powerSampler.sample(f.drive.timestamp));
+            return 0;
+        });
     }
     
     private void setupModuleWidgets() {
+        moduleDriveCurrentEntries = new GenericEntry[4];
+        moduleTurnCurrentEntries = new GenericEntry[4];
+        moduleEnergyEntries = new GenericEntry[4];
         for (int i = 0; i < 4; i++) {
-            // Create a final copy of the index for use in lambdas
-            final int moduleIndex = i;  // This is effectively final
+            moduleSpeedFilters[i] = new ChangeFilter("Module " + i + " Speed",
+                TelemetryConstants.SPEED_DEADBAND, TelemetryConstants.MAX_STALENESS);
+            moduleAngleFilters[i] = new ChangeFilter("Module " + i + " Angle",
+                TelemetryConstants.ANGLE_DEADBAND, TelemetryConstants.MAX_STALENESS);
 
             ShuffleboardLayout moduleLayout = moduleTab
                 .getLayout("Module " + i, BuiltInLayouts.kGrid)
@@ -95,21 +174,33 @@ public class SwerveShuffleboardManager {
                 .withProperties(Map.of("min", -180, "max", 180))
                 .getEntry();
                 
-            // Add current readings
-            moduleLayout.addNumber("Drive Current", () -> pdh.getCurrent(moduleIndex * 2))
-                      .withWidget(BuiltInWidgets.kNumberBar)
-                      .withProperties(Map.of("min", 0, "max", 40));
+            // Add current readings, updated by the slow telemetry tier
+            moduleDriveCurrentEntries[i] = moduleLayout
+                .add("Drive Current", 0.0)
+                .withWidget(BuiltInWidgets.kNumberBar)
+                .withProperties(Map.of("min", 0, "max", 40))
+                .getEntry();
                       
-            moduleLayout.addNumber("Turn Current", () -> pdh.getCurrent(moduleIndex * 2 + 1))
-                      .withWidget(BuiltInWidgets.kNumberBar)
-                      .withProperties(Map.of("min", 0, "max", 20));
+            moduleTurnCurrentEntries[i] = moduleLayout
+                .add("Turn Current", 0.0)
+                .withWidget(BuiltInWidgets.kNumberBar)
+                .withProperties(Map.of("min", 0, "max", 20))
+                .getEntry();
+
+            // Energy used by the module's drive and turn motors this match
+            moduleEnergyEntries[i] = moduleLayout
+                .add("Energy (Wh)", 0.0)
+                .getEntry();
         }
     }
     
     private void setupPowerTab() {
 
-        // Pass pdh to PowerGraph constructor
-        PowerGraph powerGraph = new PowerGraph(pdh);
+        powerGraph = new PowerGraph(NetworkTableInstance.getDefault()
+            .getTable("Shuffleboard").getSubTable("Power").getSubTable("Power Usage"));
+
+        NetworkTable powerTelemetryTable = NetworkTableInstance.getDefault().getTable("Telemetry").getSubTable("Power");
+        pdhTotalReadsPublisher = powerTelemetryTable.getIntegerTopic("PDH Total Reads").publish();
 
         batteryVoltage = powerTab.add("Battery Voltage", 0.0)
             .withWidget(BuiltInWidgets.kVoltageView)
@@ -120,6 +211,9 @@ public class SwerveShuffleboardManager {
             .withWidget(BuiltInWidgets.kNumberBar)
             .withProperties(Map.of("min", 0, "max", 120))
             .getEntry();
+
+        totalEnergy = powerTab.add("Match Energy (Wh)", 0.0).getEntry();
+        totalCharge = powerTab.add("Match Charge (Ah)", 0.0).getEntry();
             
         // Add power graph
         powerTab.add("Power Usage", powerGraph)
@@ -131,16 +225,20 @@ public class SwerveShuffleboardManager {
     private void setupDriveTab() {
 
         // Add gyro widget
-        driveTab.add("Gyro", new GyroWidget(swerve))
+        driveTab.add("Gyro", new GyroWidget())
                 .withWidget(BuiltInWidgets.kGyro)
                 .withSize(2, 2)
                 .withPosition(6, 0);
                 
         // Add velocity vectors
-        driveTab.add("Robot Velocity", new VelocityWidget(swerve))
+        NetworkTable driveTable = NetworkTableInstance.getDefault().getTable("Shuffleboard").getSubTable("Drive");
+        velocityWidget = new VelocityWidget(driveTable.getSubTable("Robot Velocity"));
+        driveTab.add("Robot Velocity", velocityWidget)
                 .withWidget(BuiltInWidgets.kGraph)
                 .withSize(3, 3)
                 .withPosition(6, 2);
+
+        gyroPublisher = driveTable.getSubTable("Gyro").getDoubleTopic("Value").publish();
                 
         // Add controller inputs
         ShuffleboardLayout inputs = driveTab
@@ -148,61 +246,166 @@ public class SwerveShuffleboardManager {
             .withSize(2, 4)
             .withPosition(9, 0);
             
-        inputs.addNumber("Left X", () -> driverController.getLeftX());
-        inputs.addNumber("Left Y", () -> driverController.getLeftY());
-        inputs.addNumber("Right X", () -> driverController.getRightX());
-        inputs.addNumber("Right Y", () -> driverController.getRightY());
+        controllerEntries = new GenericEntry[] {
+            inputs.add("Left X", 0.0).getEntry(),
+            inputs.add("Left Y", 0.0).getEntry(),
+            inputs.add("Right X", 0.0).getEntry(),
+            inputs.add("Right Y", 0.0).getEntry()
+        };
+        for (int i = 0; i < controllerFilters.length; i++) {
+            controllerFilters[i] = new ChangeFilter("Controller Axis " + i,
+                TelemetryConstants.INPUT_DEADBAND, TelemetryConstants.MAX_STALENESS);
+        }
+
+        // Add event values, only published when they change
+        robotModeEntry = driveTab.add("Robot Mode", "").withPosition(6, 5).getEntry();
+        gyroZeroCountEntry = driveTab.add("Gyro Zero Count", 0).withPosition(7, 5).getEntry();
     }
     
+    /**
+     * Capture this loop's telemetry and hand it to the telemetry thread. Only copies primitives, every
+     * NetworkTables write happens on the telemetry thread.
+     */
     public void updateTelemetry() {
-        updateField();
-        updateModules();
-        updatePower();
+        frame.drive.copyFrom(swerve.getTelemetrySnapshot());
+        frame.controllerAxes[0] = driverController.getLeftX();
+        frame.controllerAxes[1] = driverController.getLeftY();
+        frame.controllerAxes[2] = driverController.getRightX();
+        frame.controllerAxes[3] = driverController.getRightY();
+        frame.robotMode = DriverStation.isDisabled() ? "Disabled"
+                        : DriverStation.isAutonomous() ? "Autonomous"
+                        : DriverStation.isTest() ? "Test"
+                        : "Teleop";
+        frame.gyroZeroCount = swerve.getGyroZeroCount();
+        worker.submit(frame);
+    }
+
+    /**
+     * Get the number of telemetry frames dropped because the telemetry thread fell behind.
+     *
+     * @return Dropped frame count.
+     */
+    public long getDroppedFrames() {
+        return worker.getDroppedFrames();
     }
     
-    private void updateField() {
-        field.setRobotPose(swerve.getPose());
+    private int updateField(TelemetryFrame frame) {
+        DriveTelemetrySnapshot snapshot = frame.drive;
+        int bytes = 0;
+
+        robotPose[0] = snapshot.poseX;
+        robotPose[1] = snapshot.poseY;
+        robotPose[2] = Math.toDegrees(snapshot.headingRadians);
+        if (robotPoseFilter.test(robotPose, snapshot.timestamp)) {
+            robotPosePublisher.set(robotPose);
+            gyroPublisher.set(robotPose[2]);
+            bytes += TelemetryScheduler.doubleBytes(robotPose.length) + TelemetryScheduler.doubleBytes(1);
+        }
         
         // Update module positions on field
-        Pose2d[] modulePoses = new Pose2d[4];
-        for (int i = 0; i < 4; i++) {
-            Translation2d modulePosition = swerve.getModulePositions()[i];
-            Rotation2d moduleRotation = swerve.getModuleStates()[i].angle;
-            modulePoses[i] = new Pose2d(modulePosition, moduleRotation);
+        for (int i = 0; i < DriveTelemetrySnapshot.MODULE_COUNT; i++) {
+            modulePoses[i * 3] = snapshot.moduleFieldX[i];
+            modulePoses[i * 3 + 1] = snapshot.moduleFieldY[i];
+            modulePoses[i * 3 + 2] = snapshot.moduleAnglesDegrees[i] + robotPose[2];
+        }
+        if (modulePosesFilter.test(modulePoses, snapshot.timestamp)) {
+            modulePosesPublisher.set(modulePoses);
+            bytes += TelemetryScheduler.doubleBytes(modulePoses.length);
         }
-        field.getObject("modules").setPoses(modulePoses);
+
+        return bytes + velocityWidget.update(snapshot);
     }
     
-    private void updateModules() {
-        SwerveModuleState[] states = swerve.getModuleStates();
-        for (int i = 0; i < states.length; i++) {
-            moduleSpeedEntries[i].setDouble(states[i].speedMetersPerSecond);
-            moduleAngleEntries[i].setDouble(states[i].angle.getDegrees());
+    private int updateModules(TelemetryFrame frame) {
+        DriveTelemetrySnapshot snapshot = frame.drive;
+        int bytes = 0;
+        for (int i = 0; i < DriveTelemetrySnapshot.MODULE_COUNT; i++) {
+            if (moduleSpeedFilters[i].test(snapshot.moduleSpeeds[i], snapshot.timestamp)) {
+                moduleSpeedEntries[i].setDouble(snapshot.moduleSpeeds[i]);
+                bytes += TelemetryScheduler.doubleBytes(1);
+            }
+            if (moduleAngleFilters[i].test(snapshot.moduleAnglesDegrees[i], snapshot.timestamp)) {
+                moduleAngleEntries[i].setDouble(snapshot.moduleAnglesDegrees[i]);
+                bytes += TelemetryScheduler.doubleBytes(1);
+            }
+            // Same [angle, speed] layout YAGSL uses, so AdvantageScope can render it as swerve states
+            moduleStates[i * 2] = snapshot.moduleAnglesDegrees[i];
+            moduleStates[i * 2 + 1] = snapshot.moduleSpeeds[i];
+        }
+        if (moduleStatesFilter.test(moduleStates, snapshot.timestamp)) {
+            moduleStatesPublisher.set(moduleStates);
+            bytes += TelemetryScheduler.doubleBytes(moduleStates.length);
         }
+        return bytes;
+    }
+
+    private int updateInputs(TelemetryFrame frame) {
+        int bytes = 0;
+        for (int i = 0; i < controllerEntries.length; i++) {
+            if (controllerFilters[i].test(frame.controllerAxes[i], frame.drive.timestamp)) {
+                controllerEntries[i].setDouble(frame.controllerAxes[i]);
+                bytes += TelemetryScheduler.doubleBytes(1);
+            }
+        }
+        return bytes;
     }
     
-    private void updatePower() {
-        batteryVoltage.setDouble(pdh.getVoltage());
-        totalCurrent.setDouble(pdh.getTotalCurrent());
+    // The PDH is sampled here, on the telemetry thread, so its CAN reads stay off the robot loop.
+    // Every value below comes from the one cached sample.
+    private int updatePower(TelemetryFrame frame) {
+        PowerSnapshot power = powerSampler.sample(frame.drive.timestamp);
+        if ("Autonomous".equals(frame.robotMode) && "Disabled".equals(lastPowerMode)) {
+            // A new match is starting, restart the energy totals
+            powerGraph.resetEnergy();
+        }
+        lastPowerMode = frame.robotMode;
+
+        batteryVoltage.setDouble(power.voltage);
+        totalCurrent.setDouble(power.totalCurrent);
+        int bytes = powerGraph.update(power);
+        for (int i = 0; i < 4; i++) {
+            moduleDriveCurrentEntries[i].setDouble(power.currents[i * 2]);
+            moduleTurnCurrentEntries[i].setDouble(power.currents[i * 2 + 1]);
+            moduleEnergyEntries[i].setDouble(powerGraph.moduleEnergy[i].getWattHours());
+        }
+        totalEnergy.setDouble(powerGraph.totalEnergy.getWattHours());
+        totalCharge.setDouble(powerGraph.totalEnergy.getAmpHours());
+        pdhTotalReadsPublisher.set(powerSampler.getTotalReads());
+        return bytes + (5 + 3 * 4) * TelemetryScheduler.doubleBytes(1);
+    }
+
+    private int updateRobotMode(TelemetryFrame frame) {
+        String mode = frame.robotMode;
+        if (mode.equals(lastRobotMode)) {
+            return 0;
+        }
+        lastRobotMode = mode;
+        robotModeEntry.setString(mode);
+        return TelemetryScheduler.stringBytes(mode);
+    }
+
+    private int updateGyroZeroCount(TelemetryFrame frame) {
+        int count = frame.gyroZeroCount;
+        if (count == lastGyroZeroCount) {
+            return 0;
+        }
+        lastGyroZeroCount = count;
+        gyroZeroCountEntry.setInteger(count);
+        return TelemetryScheduler.doubleBytes(1);
     }
 
     // Now let's implement each custom widget:
 
+    // The custom widgets below only declare their type. Their values are published into the widget
+    // tables by the telemetry thread so Shuffleboard.update() does no work on the robot loop.
+
     /**
      * Custom Gyro visualization widget
      */
     public class GyroWidget implements Sendable {
-        private double angle = 0;
-        private final SwerveSubsystem swerve;
-
-       public GyroWidget(SwerveSubsystem swerve) {
-            this.swerve = swerve;
-       }
-
        @Override
         public void initSendable(SendableBuilder builder) {
             builder.setSmartDashboardType("Gyro");
-            builder.addDoubleProperty("Value", () -> swerve.getHeading().getDegrees(), null);
         }
     }
 
@@ -210,44 +413,118 @@ public class SwerveShuffleboardManager {
      * Custom velocity visualization widget
      */
     public class VelocityWidget implements Sendable {
-        private final SwerveSubsystem swerve;
-        private final LinkedList<Double> velocityHistory = new LinkedList<>();
         private static final int HISTORY_SIZE = 50;
+        private final DoubleRingBuffer speedHistory =
+            new DoubleRingBuffer(HISTORY_SIZE, 0, ModuleConstants.MAX_MODULE_SPEED, 45);
+        private final double[] historyValues = new double[HISTORY_SIZE];
+        private final DoublePublisher velocityX, velocityY, angularVelocity, speed;
+        private final DoublePublisher speedMax, speedMean, speedP95;
+        private final DoubleArrayPublisher history;
 
-       public VelocityWidget(SwerveSubsystem swerve) {
-           this.swerve = swerve;
-       }
+        public VelocityWidget(NetworkTable table) {
+            velocityX = table.getDoubleTopic("Velocity X").publish();
+            velocityY = table.getDoubleTopic("Velocity Y").publish();
+            angularVelocity = table.getDoubleTopic("Angular Velocity").publish();
+            speed = table.getDoubleTopic("Speed").publish();
+            speedMax = table.getDoubleTopic("Speed Max").publish();
+            speedMean = table.getDoubleTopic("Speed Mean").publish();
+            speedP95 = table.getDoubleTopic("Speed P95").publish();
+            // Kept out of the graph table so the graph only plots the scalar series
+            history = NetworkTableInstance.getDefault().getTable("Telemetry").getSubTable("History")
+                .getDoubleArrayTopic("Speed").publish();
+        }
+
+        int update(DriveTelemetrySnapshot snapshot) {
+            double currentSpeed = Math.hypot(snapshot.fieldVx, snapshot.fieldVy);
+            speedHistory.add(currentSpeed);
+            velocityX.set(snapshot.fieldVx);
+            velocityY.set(snapshot.fieldVy);
+            angularVelocity.set(snapshot.omegaRadiansPerSecond);
+            speed.set(currentSpeed);
+            speedMax.set(speedHistory.max());
+            speedMean.set(speedHistory.mean());
+            speedP95.set(speedHistory.percentile(0.95));
+            return 7 * TelemetryScheduler.doubleBytes(1);
+        }
+
+        // The full window is only sent at the slow rate, it is too large for every loop
+        int publishHistory() {
+            int size = speedHistory.copyTo(historyValues);
+            if (size < HISTORY_SIZE) {
+                return 0;
+            }
+            history.set(historyValues);
+            return TelemetryScheduler.doubleBytes(HISTORY_SIZE);
+        }
 
         @Override
         public void initSendable(SendableBuilder builder) {
             builder.setSmartDashboardType("Graph");
-            builder.addDoubleProperty("Velocity X", 
-                () -> swerve.getFieldVelocity().vxMetersPerSecond, null);
-            builder.addDoubleProperty("Velocity Y", 
-                () -> swerve.getFieldVelocity().vyMetersPerSecond, null);
-            builder.addDoubleProperty("Angular Velocity", 
-                () -> swerve.getFieldVelocity().omegaRadiansPerSecond, null);
         }
     }
 
     /**
-     * Custom power monitoring widget
+     * Custom power monitoring widget, also keeps the match energy totals
      */
     public class PowerGraph implements Sendable {
-     private final PowerDistribution pdh;
-        private final LinkedList<Double> powerHistory = new LinkedList<>();
         private static final int HISTORY_SIZE = 50;
+        private final DoubleRingBuffer powerHistory = new DoubleRingBuffer(HISTORY_SIZE, 0,
+            PowerConstants.MAX_TOTAL_CURRENT * PowerConstants.MAX_BATTERY_VOLTAGE, 78);
+        private final double[] historyValues = new double[HISTORY_SIZE];
+        private final DoublePublisher totalPower, voltage, current;
+        private final DoublePublisher powerMin, powerMax, powerMean, powerP95;
+        private final DoubleArrayPublisher history;
+        final EnergyAccumulator totalEnergy = new EnergyAccumulator();
+        final EnergyAccumulator[] moduleEnergy = new EnergyAccumulator[4];
 
-     public PowerGraph(PowerDistribution pdh) {
-          this.pdh = pdh;
-      }
+        public PowerGraph(NetworkTable table) {
+            totalPower = table.getDoubleTopic("Total Power").publish();
+            voltage = table.getDoubleTopic("Voltage").publish();
+            current = table.getDoubleTopic("Current").publish();
+            powerMin = table.getDoubleTopic("Power Min").publish();
+            powerMax = table.getDoubleTopic("Power Max").publish();
+            powerMean = table.getDoubleTopic("Power Mean").publish();
+            powerP95 = table.getDoubleTopic("Power P95").publish();
+            history = NetworkTableInstance.getDefault().getTable("Telemetry").getSubTable("History")
+                .getDoubleArrayTopic("Power").publish();
+            for (int i = 0; i < moduleEnergy.length; i++) {
+                moduleEnergy[i] = new EnergyAccumulator();
+            }
+        }
+
+        int update(PowerSnapshot power) {
+            powerHistory.add(power.totalPower);
+            totalEnergy.add(power.timestamp, power.voltage, power.totalCurrent);
+            for (int i = 0; i < moduleEnergy.length; i++) {
+                moduleEnergy[i].add(power.timestamp, power.voltage,
+                                    power.currents[i * 2] + power.currents[i * 2 + 1]);
+            }
+
+            totalPower.set(power.totalPower);
+            voltage.set(power.voltage);
+            current.set(power.totalCurrent);
+            powerMin.set(powerHistory.min());
+            powerMax.set(powerHistory.max());
+            powerMean.set(powerHistory.mean());
+            powerP95.set(powerHistory.percentile(0.95));
+            int size = powerHistory.copyTo(historyValues);
+            if (size == HISTORY_SIZE) {
+                history.set(historyValues);
+                return 7 * TelemetryScheduler.doubleBytes(1) + TelemetryScheduler.doubleBytes(HISTORY_SIZE);
+            }
+            return 7 * TelemetryScheduler.doubleBytes(1);
+        }
+
+        void resetEnergy() {
+            totalEnergy.reset();
+            for (EnergyAccumulator accumulator : moduleEnergy) {
+                accumulator.reset();
+            }
+        }
 
       @Override
      public void initSendable(SendableBuilder builder) {
          builder.setSmartDashboardType("Graph");
-         builder.addDoubleProperty("Total Power", () -> pdh.getTotalPower(), null);
-         builder.addDoubleProperty("Voltage", () -> pdh.getVoltage(), null);
-         builder.addDoubleProperty("Current", () -> pdh.getTotalCurrent(), null);
       }
     }
 
@@ -267,9 +544,9 @@ public class SwerveShuffleboardManager {
        public void initSendable(SendableBuilder builder) {
            builder.setSmartDashboardType("Swerve Module");
            builder.addDoubleProperty("Speed", 
-               () -> swerve.getModuleStates()[moduleIndex].speedMetersPerSecond, null);
+               () -> swerve.getTelemetrySnapshot().moduleSpeeds[moduleIndex], null);
           builder.addDoubleProperty("Angle", 
-              () -> swerve.getModuleStates()[moduleIndex].angle.getDegrees(), null);
+              () -> swerve.getTelemetrySnapshot().moduleAnglesDegrees[moduleIndex], null);
       }
     }
 
@@ -280,6 +557,14 @@ public class SwerveShuffleboardManager {
                 .withWidget(BuiltInWidgets.kField)
                 .withSize(6, 4)
                 .withPosition(0, 0);
+
+        // Publish straight into the Field2d topics so the widget updates without building Pose2d lists
+        NetworkTable fieldTable = NetworkTableInstance.getDefault()
+            .getTable("Shuffleboard").getSubTable("Drive").getSubTable("Field");
+        robotPosePublisher = fieldTable.getDoubleArrayTopic("Robot").publish();
+        modulePosesPublisher = fieldTable.getDoubleArrayTopic("modules").publish();
+        moduleStatesPublisher = NetworkTableInstance.getDefault()
+            .getTable("SmartDashboard").getDoubleArrayTopic("Module States").publish();
     }
 
     private void initializeModuleArrays() {
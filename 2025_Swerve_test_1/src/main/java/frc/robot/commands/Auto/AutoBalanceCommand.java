@@ -4,10 +4,12 @@ package frc.robot.commands.auto;
 import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.controller.PIDController;
 import edu.wpi.first.math.geometry.Translation2d;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.Command;
 //import frc.robot.subsystems.swervedrive.SwerveSubsystem;
 import frc.robot.subsystems.SwerveSubsystem;
+import frc.robot.telemetry.DebugTelemetry.BooleanChannel;
+import frc.robot.telemetry.DebugTelemetry.DoubleChannel;
+import frc.robot.telemetry.DebugTelemetry.Verbosity;
 
 /**
  * Auto Balance command using a simple PID controller. Created by Team 3512
@@ -19,6 +21,11 @@ public class AutoBalanceCommand extends Command
   private final SwerveSubsystem swerveSubsystem;
   private final PIDController   controller;
 
+  // PID debug telemetry
+  private final BooleanChannel atToleranceChannel = new BooleanChannel("At Tolerance", Verbosity.HIGH);
+  private final DoubleChannel  errorChannel       = new DoubleChannel("Balance Error", Verbosity.HIGH, 0.1);
+  private final DoubleChannel  outputChannel      = new DoubleChannel("Balance Output", Verbosity.HIGH, 0.01);
+
   public AutoBalanceCommand(SwerveSubsystem swerveSubsystem)
   {
     this.swerveSubsystem = swerveSubsystem;
@@ -46,16 +53,15 @@ public class AutoBalanceCommand extends Command
   @Override
   public void execute()
   {
-    SmartDashboard.putBoolean("At Tolerance", controller.atSetpoint());
+    atToleranceChannel.set(controller.atSetpoint());
 
     double translationVal = MathUtil.clamp(controller.calculate(swerveSubsystem.getPitch().getDegrees(), 0.0), -0.5,
                                            0.5);
     swerveSubsystem.drive(new Translation2d(translationVal, 0.0), 0.0, true);
 
-            // Add PID telemetry
-            SmartDashboard.putNumber("Balance Error", 
-            controller.getPositionError());
-        SmartDashboard.putNumber("Balance Output", translationVal);
+    // Add PID telemetry
+    errorChannel.set(controller.getPositionError());
+    outputChannel.set(translationVal);
   }
 
   /**
@@ -0,0 +1,142 @@
+package frc.robot.commands.auto;
+
+import com.pathplanner.lib.auto.AutoBuilder;
+import com.pathplanner.lib.commands.PathPlannerAuto;
+import com.pathplanner.lib.controllers.PPHolonomicDriveController;
+import com.pathplanner.lib.path.PathPlannerPath;
+import com.pathplanner.lib.path.PathPlannerTrajectory;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.wpilibj.DataLogManager;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.smartdashboard.SendableChooser;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import edu.wpi.first.wpilibj2.command.Command;
+import frc.robot.Constants.AutonConstants;
+import frc.robot.subsystems.SwerveSubsystem;
+import frc.robot.telemetry.DataLogRecorder;
+import java.util.List;
+
+/**
+ * Every PathPlanner auto in the deploy directory, parsed and built once at startup and offered on a dashboard chooser,
+ * so starting auto only schedules a command that already exists.
+ *
+ * <p>Each path is also run dry through trajectory generation and the holonomic controller, without driving, so the
+ * class loading and first JIT compiles happen before the match instead of in its first seconds. The time from enabling
+ * to the first drive command is measured on every auto start and published.
+ */
+public class AutoRoutines
+{
+
+  private static final String DEFAULT_AUTO = "New Auto";
+  // Controller samples per path during the warm-up
+  private static final int    WARMUP_SAMPLES = 50;
+
+  private final SwerveSubsystem          drivebase;
+  private final SendableChooser<Command> chooser;
+  private       double                   enabledTime = Double.NaN;
+
+  /**
+   * Build every auto and warm up the path follower. Call from robotInit, after AutoBuilder is configured.
+   *
+   * @param drivebase Drive the autos run on.
+   */
+  public AutoRoutines(SwerveSubsystem drivebase)
+  {
+    this.drivebase = drivebase;
+
+    double start = Timer.getFPGATimestamp();
+    chooser = AutoBuilder.buildAutoChooser(DEFAULT_AUTO);
+    SmartDashboard.putData("Auto Chooser", chooser);
+    double built = Timer.getFPGATimestamp();
+    int paths = warmUp();
+    double warm = Timer.getFPGATimestamp();
+    DataLogManager.log(String.format("Built %d autos in %.0f ms, warmed up %d paths in %.0f ms",
+                                     AutoBuilder.getAllAutoNames().size(), (built - start) * 1000, paths,
+                                     (warm - built) * 1000));
+  }
+
+  /**
+   * Get the auto selected on the dashboard.
+   *
+   * @return The prebuilt command.
+   */
+  public Command getSelected()
+  {
+    return chooser.getSelected();
+  }
+
+  /**
+   * Start timing enable to first drive command. Call from autonomousInit.
+   */
+  public void markEnabled()
+  {
+    enabledTime = Timer.getFPGATimestamp();
+  }
+
+  /**
+   * Publish the enable to first drive command time once the first command was sent. Call every loop.
+   */
+  public void periodic()
+  {
+    if (Double.isNaN(enabledTime))
+    {
+      return;
+    }
+    double commandTime = drivebase.getLastDriveCommandTime();
+    if (commandTime >= enabledTime)
+    {
+      double latencyMs = (commandTime - enabledTime) * 1000;
+      SmartDashboard.putNumber("Auto/Enable To First Command (ms)", latencyMs);
+      DataLogRecorder.getInstance().recordAutoStartLatency(latencyMs);
+      enabledTime = Double.NaN;
+    }
+  }
+
+  // Generates every trajectory for both alliances and tracks it with a throwaway controller
+  private int warmUp()
+  {
+    PPHolonomicDriveController controller = new PPHolonomicDriveController(AutonConstants.TRANSLATION_PID,
+                                                                           AutonConstants.ANGLE_PID,
+                                                                           AutonConstants.MAX_MODULE_SPEED,
+                                                                           drivebase.getDriveBaseRadius());
+    int count = 0;
+    for (String name : AutoBuilder.getAllAutoNames())
+    {
+      List<PathPlannerPath> paths;
+      try
+      {
+        paths = PathPlannerAuto.getPathGroupFromAutoFile(name);
+      } catch (RuntimeException e)
+      {
+        DriverStation.reportWarning("Could not warm up auto " + name + ": " + e.getMessage(), false);
+        continue;
+      }
+      for (PathPlannerPath path : paths)
+      {
+        warmUp(controller, path);
+        warmUp(controller, path.flipPath());
+        count++;
+      }
+    }
+    return count;
+  }
+
+  private static void warmUp(PPHolonomicDriveController controller, PathPlannerPath path)
+  {
+    Pose2d                startPose  = path.getPreviewStartingHolonomicPose();
+    ChassisSpeeds         speeds     = new ChassisSpeeds();
+    PathPlannerTrajectory trajectory = path.getTrajectory(speeds, startPose.getRotation());
+    double                total      = trajectory.getTotalTimeSeconds();
+    controller.reset(startPose, speeds);
+    for (int i = 0; i <= WARMUP_SAMPLES; i++)
+    {
+      // Track the path from a pose slightly off it, so the feedback terms run too
+      PathPlannerTrajectory.State state = trajectory.sample(total * i / WARMUP_SAMPLES);
+      Pose2d target = state.getTargetHolonomicPose();
+      controller.calculateRobotRelativeSpeeds(new Pose2d(target.getX() + 0.05, target.getY() - 0.05,
+                                                         target.getRotation()), state);
+    }
+  }
+}
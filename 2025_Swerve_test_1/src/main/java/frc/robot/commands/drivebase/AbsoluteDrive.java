@@ -8,15 +8,14 @@ package frc.robot.commands.drivebase;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.Command;
-import frc.robot.Constants;
+import frc.robot.Constants.TelemetryConstants;
 //import frc.robot.subsystems.swervedrive.SwerveSubsystem;
 import frc.robot.subsystems.SwerveSubsystem;
-import java.util.List;
+import frc.robot.telemetry.DebugTelemetry.DoubleChannel;
+import frc.robot.telemetry.DebugTelemetry.Verbosity;
 import java.util.function.DoubleSupplier;
 import swervelib.SwerveController;
-import swervelib.math.SwerveMath;
 
 /**
  * An example command that uses an example subsystem.
@@ -29,6 +28,12 @@ public class AbsoluteDrive extends Command
   private final DoubleSupplier headingHorizontal, headingVertical;
   private boolean initRotation = false;
 
+  // Debug telemetry, only written when the value moves past its deadband or goes stale
+  private final DoubleChannel translationXChannel =
+      new DoubleChannel("Translation X", Verbosity.HIGH, TelemetryConstants.SPEED_DEADBAND);
+  private final DoubleChannel translationYChannel =
+      new DoubleChannel("Translation Y", Verbosity.HIGH, TelemetryConstants.SPEED_DEADBAND);
+
   /**
    * Used to drive a swerve robot in full field-centric mode.  vX and vY supply translation inputs, where x is
    * torwards/away from alliance wall and y is left/right. headingHorzontal and headingVertical are the Cartesian
@@ -92,13 +97,10 @@ public class AbsoluteDrive extends Command
       initRotation = false;
     }
 
-    // Limit velocity to prevent tippy
+    // SwerveSubsystem.drive limits acceleration and steering rate, so no tipping limit is needed here
     Translation2d translation = SwerveController.getTranslation2d(desiredSpeeds);
-    translation = SwerveMath.limitVelocity(translation, swerve.getFieldVelocity(), swerve.getPose(),
-                                           Constants.LOOP_TIME, Constants.ROBOT_MASS, List.of(Constants.CHASSIS),
-                                           swerve.getSwerveDriveConfiguration());
-    SmartDashboard.putNumber("LimitedTranslation", translation.getX());
-    SmartDashboard.putString("Translation", translation.toString());
+    translationXChannel.set(translation.getX());
+    translationYChannel.set(translation.getY());
 
     // Make the robot move
     swerve.drive(translation, desiredSpeeds.omegaRadiansPerSecond, true);
@@ -8,16 +8,17 @@ package frc.robot.commands.drivebase;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.Command;
 import frc.robot.Constants;
+import frc.robot.Constants.TelemetryConstants;
 //import frc.robot.subsystems.swervedrive.SwerveSubsystem;
 import frc.robot.subsystems.SwerveSubsystem;
-import java.util.List;
+import frc.robot.telemetry.DebugTelemetry.BooleanChannel;
+import frc.robot.telemetry.DebugTelemetry.DoubleChannel;
+import frc.robot.telemetry.DebugTelemetry.Verbosity;
 import java.util.function.BooleanSupplier;
 import java.util.function.DoubleSupplier;
 import swervelib.SwerveController;
-import swervelib.math.SwerveMath;
 
 /**
  * A more advanced Swerve Control System that has 4 buttons for which direction to face
@@ -31,6 +32,11 @@ public class AbsoluteDriveAdv extends Command
   private final BooleanSupplier lookAway, lookTowards, lookLeft, lookRight;
   private       boolean         resetHeading = false;
 
+  // Debug telemetry, only written when the value moves past its deadband or goes stale
+  private final DoubleChannel  translationXChannel, translationYChannel;
+  private final DoubleChannel  headingXChannel, headingYChannel;
+  private final BooleanChannel resetHeadingChannel;
+
   /**
    * Used to drive a swerve robot in full field-centric mode.  vX and vY supply translation inputs, where x is
    * torwards/away from alliance wall and y is left/right. Heading Adjust changes the current heading after being
@@ -64,6 +70,12 @@ public class AbsoluteDriveAdv extends Command
     this.lookLeft = lookLeft;
     this.lookRight = lookRight;
 
+    translationXChannel = new DoubleChannel("Translation X", Verbosity.HIGH, TelemetryConstants.SPEED_DEADBAND);
+    translationYChannel = new DoubleChannel("Translation Y", Verbosity.HIGH, TelemetryConstants.SPEED_DEADBAND);
+    headingXChannel = new DoubleChannel("Desired Heading X", Verbosity.HIGH, TelemetryConstants.INPUT_DEADBAND);
+    headingYChannel = new DoubleChannel("Desired Heading Y", Verbosity.HIGH, TelemetryConstants.INPUT_DEADBAND);
+    resetHeadingChannel = new BooleanChannel("Reset Heading", Verbosity.HIGH);
+
     addRequirements(swerve);
   }
 
@@ -120,13 +132,11 @@ public class AbsoluteDriveAdv extends Command
 
     ChassisSpeeds desiredSpeeds = swerve.getTargetSpeeds(vX.getAsDouble(), vY.getAsDouble(), headingX, headingY);
 
-    // Limit velocity to prevent tippy
+    // Acceleration, steering rate and current limits are applied to every drive by the SwerveSubsystem setpoint
+    // generator, which replaces SwerveMath.limitVelocity here
     Translation2d translation = SwerveController.getTranslation2d(desiredSpeeds);
-    translation = SwerveMath.limitVelocity(translation, swerve.getFieldVelocity(), swerve.getPose(),
-                                           Constants.LOOP_TIME, Constants.ROBOT_MASS, List.of(Constants.CHASSIS),
-                                           swerve.getSwerveDriveConfiguration());
-    SmartDashboard.putNumber("LimitedTranslation", translation.getX());
-    SmartDashboard.putString("Translation", translation.toString());
+    translationXChannel.set(translation.getX());
+    translationYChannel.set(translation.getY());
 
     // Make the robot move
     if (headingX == 0 && headingY == 0 && Math.abs(headingAdjust.getAsDouble()) > 0)
@@ -138,10 +148,10 @@ public class AbsoluteDriveAdv extends Command
       swerve.drive(translation, desiredSpeeds.omegaRadiansPerSecond, true);
     }
 
-            // Add telemetry data
-            SmartDashboard.putNumber("Desired Heading X", headingX);
-            SmartDashboard.putNumber("Desired Heading Y", headingY);
-            SmartDashboard.putBoolean("Reset Heading", resetHeading);
+    // Add telemetry data
+    headingXChannel.set(headingX);
+    headingYChannel.set(headingY);
+    resetHeadingChannel.set(resetHeading);
   }
 
   // Called once the command ends or is interrupted.
@@ -0,0 +1,444 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.pathfinding;
+
+import java.util.Arrays;
+
+/**
+ * Incremental shortest path planner on a {@link NavGrid}, using D* Lite. The search runs from the goal back to the
+ * start, so when the robot moves or obstacles change only the part of the search they affect is repaired instead of
+ * planning again from scratch. Moves are 8-connected and a diagonal may not cut the corner of a blocked cell. Costs are
+ * whole thousandths of a cell, 1000 straight and 1414 diagonal, so every key is an exact integer and ties compare
+ * equal; with fractional costs rounding breaks ties at random and can end a search early.
+ *
+ * <p>The grid path is then shortened any-angle style: each waypoint is joined to the farthest later cell on the path
+ * it has line of sight to, the same post-smoothing Theta* does while searching.
+ *
+ * <p>All state is in primitive arrays sized to the grid, and nothing allocates after construction. Instances are not
+ * thread safe.
+ */
+public class DStarLitePlanner
+{
+
+  private static final int      STRAIGHT = 1000;
+  private static final int      DIAGONAL = 1414;
+  private static final int[]    STEP_X   = {1, 1, 0, -1, -1, -1, 0, 1};
+  private static final int[]    STEP_Y   = {0, 1, 1, 1, 0, -1, -1, -1};
+  private static final double[] COST     = {STRAIGHT, DIAGONAL, STRAIGHT, DIAGONAL, STRAIGHT, DIAGONAL, STRAIGHT,
+                                            DIAGONAL};
+
+  private final NavGrid  grid;
+  private final int      width;
+  private final double[] g;
+  private final double[] rhs;
+  // Indexed binary heap of cells keyed by (k1, k2), position is -1 for cells not in the heap
+  private final int[]    heap;
+  private final int[]    position;
+  private final double[] key1;
+  private final double[] key2;
+  private final int[]    path;
+  private       int      heapSize;
+  private       int      start     = -1;
+  private       int      lastStart = -1;
+  private       int      goal      = -1;
+  private       double   km;
+  private       int      expansions;
+
+  /**
+   * Create a planner for a grid.
+   *
+   * @param grid Grid to plan on, its obstacles are read on every {@link #plan()}.
+   */
+  public DStarLitePlanner(NavGrid grid)
+  {
+    this.grid = grid;
+    width = grid.getWidth();
+    int cells = grid.getCellCount();
+    g = new double[cells];
+    rhs = new double[cells];
+    heap = new int[cells];
+    position = new int[cells];
+    key1 = new double[cells];
+    key2 = new double[cells];
+    path = new int[cells];
+  }
+
+  /**
+   * Set the goal cell. A new goal starts a new search.
+   *
+   * @param cell Goal cell, should be free.
+   */
+  public void setGoal(int cell)
+  {
+    if (cell == goal)
+    {
+      return;
+    }
+    goal = cell;
+    Arrays.fill(g, Double.POSITIVE_INFINITY);
+    Arrays.fill(rhs, Double.POSITIVE_INFINITY);
+    Arrays.fill(position, -1);
+    heapSize = 0;
+    km = 0;
+    lastStart = start;
+    rhs[goal] = 0;
+    if (start >= 0)
+    {
+      push(goal, heuristic(start, goal), 0);
+    }
+  }
+
+  /**
+   * Set the start cell, usually the cell the robot is in. Moving the start keeps the search.
+   *
+   * @param cell Start cell, should be free.
+   */
+  public void setStart(int cell)
+  {
+    if (cell == start)
+    {
+      return;
+    }
+    start = cell;
+    if (goal < 0)
+    {
+      return;
+    }
+    if (lastStart < 0)
+    {
+      // First start for this goal, seed the queue
+      lastStart = start;
+      push(goal, heuristic(start, goal), 0);
+      return;
+    }
+    // Keys already queued are lower bounds for the new start, raise the bound instead of re-keying the queue
+    km += heuristic(lastStart, start);
+    lastStart = start;
+  }
+
+  /**
+   * Repair the search after cells were blocked or cleared. The grid must already hold the new obstacles.
+   *
+   * @param cells Changed cells.
+   * @param count Number of changed cells in the array.
+   */
+  public void cellsChanged(int[] cells, int count)
+  {
+    if (goal < 0)
+    {
+      return;
+    }
+    for (int i = 0; i < count; i++)
+    {
+      // A cell changes its own edges and the diagonals between its neighbours that cut its corner
+      int cell = cells[i];
+      int x    = cell % width;
+      int y    = cell / width;
+      updateVertex(cell);
+      for (int d = 0; d < 8; d++)
+      {
+        int nx = x + STEP_X[d];
+        int ny = y + STEP_Y[d];
+        if (nx >= 0 && ny >= 0 && nx < width && ny < grid.getHeight())
+        {
+          updateVertex(ny * width + nx);
+        }
+      }
+    }
+  }
+
+  /**
+   * Run the search until the path from the start is known.
+   *
+   * @return True if the goal can be reached from the start.
+   */
+  public boolean plan()
+  {
+    if (start < 0 || goal < 0)
+    {
+      return false;
+    }
+    expansions = 0;
+    while (heapSize > 0)
+    {
+      double startK2 = Math.min(g[start], rhs[start]);
+      double startK1 = startK2 + km;
+      int    u       = heap[0];
+      if (!less(key1[u], key2[u], startK1, startK2) && rhs[start] == g[start])
+      {
+        break;
+      }
+      expansions++;
+      double oldK1 = key1[u];
+      double oldK2 = key2[u];
+      double newK2 = Math.min(g[u], rhs[u]);
+      double newK1 = newK2 + heuristic(start, u) + km;
+      if (less(oldK1, oldK2, newK1, newK2))
+      {
+        update(u, newK1, newK2);
+      } else if (g[u] > rhs[u])
+      {
+        g[u] = rhs[u];
+        remove(u);
+        updateNeighbours(u);
+      } else
+      {
+        g[u] = Double.POSITIVE_INFINITY;
+        updateVertex(u);
+        updateNeighbours(u);
+      }
+    }
+    return g[start] != Double.POSITIVE_INFINITY;
+  }
+
+  /**
+   * Get the number of cells the last {@link #plan()} expanded, to compare full and incremental searches.
+   *
+   * @return Expansion count.
+   */
+  public int getExpansions()
+  {
+    return expansions;
+  }
+
+  /**
+   * Get the cost of the path from the start after {@link #plan()}.
+   *
+   * @return Path length in cells, infinite if there is no path.
+   */
+  public double getPathCost()
+  {
+    return start < 0 ? Double.POSITIVE_INFINITY : g[start] / STRAIGHT;
+  }
+
+  /**
+   * Extract the smoothed path after {@link #plan()}.
+   *
+   * @param waypoints Receives the waypoint cells from the start to the goal, must hold every cell of the grid.
+   * @return Number of waypoints, 0 if there is no path.
+   */
+  public int getPath(int[] waypoints)
+  {
+    if (start < 0 || g[start] == Double.POSITIVE_INFINITY)
+    {
+      return 0;
+    }
+    // Follow the cheapest successor down to the goal
+    int length = 0;
+    int cell   = start;
+    path[length++] = cell;
+    while (cell != goal && length < path.length)
+    {
+      int    x    = cell % width;
+      int    y    = cell / width;
+      int    next = -1;
+      double best = Double.POSITIVE_INFINITY;
+      for (int d = 0; d < 8; d++)
+      {
+        double cost = cost(x, y, d);
+        if (cost != Double.POSITIVE_INFINITY)
+        {
+          int    neighbour = (y + STEP_Y[d]) * width + x + STEP_X[d];
+          double total     = cost + g[neighbour];
+          if (total < best)
+          {
+            best = total;
+            next = neighbour;
+          }
+        }
+      }
+      if (next < 0)
+      {
+        return 0;
+      }
+      cell = next;
+      path[length++] = cell;
+    }
+    if (cell != goal)
+    {
+      return 0;
+    }
+
+    // Skip every cell the previous waypoint can see past
+    int count  = 0;
+    int anchor = 0;
+    waypoints[count++] = path[0];
+    while (anchor < length - 1)
+    {
+      int farthest = anchor + 1;
+      for (int i = length - 1; i > farthest; i--)
+      {
+        if (grid.hasLineOfSight(path[anchor], path[i]))
+        {
+          farthest = i;
+          break;
+        }
+      }
+      waypoints[count++] = path[farthest];
+      anchor = farthest;
+    }
+    return count;
+  }
+
+  private double heuristic(int a, int b)
+  {
+    // Octile distance, exact on an empty grid so it is consistent
+    int dx = Math.abs(a % width - b % width);
+    int dy = Math.abs(a / width - b / width);
+    return STRAIGHT * Math.max(dx, dy) + (DIAGONAL - STRAIGHT) * Math.min(dx, dy);
+  }
+
+  private double cost(int x, int y, int direction)
+  {
+    int nx = x + STEP_X[direction];
+    int ny = y + STEP_Y[direction];
+    if (grid.isBlocked(x, y) || grid.isBlocked(nx, ny))
+    {
+      return Double.POSITIVE_INFINITY;
+    }
+    if ((direction & 1) != 0 && (grid.isBlocked(nx, y) || grid.isBlocked(x, ny)))
+    {
+      return Double.POSITIVE_INFINITY;
+    }
+    return COST[direction];
+  }
+
+  private void updateNeighbours(int cell)
+  {
+    int x = cell % width;
+    int y = cell / width;
+    for (int d = 0; d < 8; d++)
+    {
+      int nx = x + STEP_X[d];
+      int ny = y + STEP_Y[d];
+      if (nx >= 0 && ny >= 0 && nx < width && ny < grid.getHeight())
+      {
+        updateVertex(ny * width + nx);
+      }
+    }
+  }
+
+  private void updateVertex(int cell)
+  {
+    if (cell != goal)
+    {
+      // Edges are symmetric, so successors and predecessors are the same neighbours
+      int    x    = cell % width;
+      int    y    = cell / width;
+      double best = Double.POSITIVE_INFINITY;
+      for (int d = 0; d < 8; d++)
+      {
+        double cost = cost(x, y, d);
+        if (cost != Double.POSITIVE_INFINITY)
+        {
+          best = Math.min(best, cost + g[(y + STEP_Y[d]) * width + x + STEP_X[d]]);
+        }
+      }
+      rhs[cell] = best;
+    }
+    if (g[cell] != rhs[cell])
+    {
+      double k2 = Math.min(g[cell], rhs[cell]);
+      double k1 = k2 + heuristic(start, cell) + km;
+      if (position[cell] >= 0)
+      {
+        update(cell, k1, k2);
+      } else
+      {
+        push(cell, k1, k2);
+      }
+    } else if (position[cell] >= 0)
+    {
+      remove(cell);
+    }
+  }
+
+  private static boolean less(double a1, double a2, double b1, double b2)
+  {
+    return a1 < b1 || (a1 == b1 && a2 < b2);
+  }
+
+  private boolean less(int a, int b)
+  {
+    return less(key1[a], key2[a], key1[b], key2[b]);
+  }
+
+  private void push(int cell, double k1, double k2)
+  {
+    key1[cell] = k1;
+    key2[cell] = k2;
+    heap[heapSize] = cell;
+    position[cell] = heapSize;
+    siftUp(heapSize++);
+  }
+
+  private void update(int cell, double k1, double k2)
+  {
+    key1[cell] = k1;
+    key2[cell] = k2;
+    siftUp(position[cell]);
+    siftDown(position[cell]);
+  }
+
+  private void remove(int cell)
+  {
+    int index = position[cell];
+    position[cell] = -1;
+    heapSize--;
+    if (index == heapSize)
+    {
+      return;
+    }
+    int last = heap[heapSize];
+    heap[index] = last;
+    position[last] = index;
+    siftUp(index);
+    siftDown(position[last]);
+  }
+
+  private void siftUp(int index)
+  {
+    int cell = heap[index];
+    while (index > 0)
+    {
+      int parent = (index - 1) >>> 1;
+      if (!less(cell, heap[parent]))
+      {
+        break;
+      }
+      heap[index] = heap[parent];
+      position[heap[index]] = index;
+      index = parent;
+    }
+    heap[index] = cell;
+    position[cell] = index;
+  }
+
+  private void siftDown(int index)
+  {
+    int cell = heap[index];
+    while (true)
+    {
+      int child = 2 * index + 1;
+      if (child >= heapSize)
+      {
+        break;
+      }
+      if (child + 1 < heapSize && less(heap[child + 1], heap[child]))
+      {
+        child++;
+      }
+      if (!less(heap[child], cell))
+      {
+        break;
+      }
+      heap[index] = heap[child];
+      position[heap[index]] = index;
+      index = child;
+    }
+    heap[index] = cell;
+    position[cell] = index;
+  }
+}
@@ -0,0 +1,293 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.pathfinding;
+
+import com.pathplanner.lib.path.GoalEndState;
+import com.pathplanner.lib.path.PathConstraints;
+import com.pathplanner.lib.path.PathPlannerPath;
+import com.pathplanner.lib.pathfinding.Pathfinder;
+import edu.wpi.first.math.Pair;
+import edu.wpi.first.math.geometry.Translation2d;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * PathPlanner {@link Pathfinder} backed by a {@link NavGrid} and a {@link DStarLitePlanner}. Register it with
+ * {@link com.pathplanner.lib.pathfinding.Pathfinding#setPathfinder(Pathfinder)} and every pathfinding command built by
+ * {@link com.pathplanner.lib.auto.AutoBuilder} plans with it, then time-parameterizes and follows the result with the
+ * configured holonomic controller.
+ *
+ * <p>Planning runs on a daemon thread that sleeps until a request changes the start cell, the goal or the obstacles, so
+ * the robot loop only hands over positions. Moving the start or the obstacles repairs the existing search. A new path
+ * is only published when its waypoints after the start changed, so following a path does not keep restarting it.
+ */
+public class GridPathfinder implements Pathfinder
+{
+
+  private final NavGrid          grid;
+  private final DStarLitePlanner planner;
+  // Planning thread only
+  private final int[]            waypoints;
+  private final int[]            lastWaypoints;
+  private final int[]            changed;
+  private final long[]           previousObstacles;
+  private       int              lastWaypointCount = -1;
+
+  // Requests and results, guarded by this
+  private Translation2d                            requestedStart     = new Translation2d();
+  private Translation2d                            requestedGoal      = new Translation2d();
+  private List<Pair<Translation2d, Translation2d>> requestedObstacles = List.of();
+  private int                                      requestedStartCell = -1;
+  private boolean                                  goalChanged;
+  private boolean                                  obstaclesChanged;
+  private boolean                                  requestPending;
+  private List<Translation2d>                      currentWaypoints   = List.of();
+  private boolean                                  newPathAvailable;
+
+  /**
+   * Create the pathfinder and start its planning thread.
+   *
+   * @param grid Grid to plan on, owned by the pathfinder from now on.
+   */
+  public GridPathfinder(NavGrid grid)
+  {
+    this.grid = grid;
+    planner = new DStarLitePlanner(grid);
+    waypoints = new int[grid.getCellCount()];
+    lastWaypoints = new int[grid.getCellCount()];
+    changed = new int[grid.getCellCount()];
+    previousObstacles = new long[grid.getWordCount()];
+
+    Thread thread = new Thread(this::run, "Pathfinder");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  @Override
+  public synchronized boolean isNewPathAvailable()
+  {
+    return newPathAvailable;
+  }
+
+  @Override
+  public PathPlannerPath getCurrentPath(PathConstraints constraints, GoalEndState goalEndState)
+  {
+    List<Translation2d> points;
+    synchronized (this)
+    {
+      points = currentWaypoints;
+      newPathAvailable = false;
+    }
+    return toPath(points, constraints, goalEndState);
+  }
+
+  /**
+   * Plan a path once on the calling thread, the way a pathfinding command would receive it, without a planning thread.
+   * For offline tools such as the batch simulation. The grid is only read, so one grid can be shared between threads.
+   *
+   * @param grid         Grid to plan on.
+   * @param start        Start position in meters.
+   * @param goal         Goal position in meters.
+   * @param constraints  Constraints of the path.
+   * @param goalEndState End state of the path.
+   * @return The path, or null if there is none.
+   */
+  public static PathPlannerPath planPath(NavGrid grid, Translation2d start, Translation2d goal,
+                                         PathConstraints constraints, GoalEndState goalEndState)
+  {
+    DStarLitePlanner planner   = new DStarLitePlanner(grid);
+    int[]            waypoints = new int[grid.getCellCount()];
+    int              startCell = grid.nearestFreeCell(grid.cellAt(start.getX(), start.getY()));
+    int              goalCell  = grid.nearestFreeCell(grid.cellAt(goal.getX(), goal.getY()));
+    int              count     = 0;
+    if (startCell >= 0 && goalCell >= 0)
+    {
+      planner.setGoal(goalCell);
+      planner.setStart(startCell);
+      count = planner.plan() ? planner.getPath(waypoints) : 0;
+    }
+    return toPath(toPoints(grid, waypoints, count, start, goal), constraints, goalEndState);
+  }
+
+  // Returns null for fewer than two points
+  private static PathPlannerPath toPath(List<Translation2d> points, PathConstraints constraints,
+                                        GoalEndState goalEndState)
+  {
+    if (points.size() < 2)
+    {
+      return null;
+    }
+
+    // Anchors at the waypoints, controls a third of the way along each side on the tangent, so the path is C1
+    List<Translation2d> bezierPoints = new ArrayList<>(3 * points.size() - 2);
+    int                 last         = points.size() - 1;
+    for (int i = 0; i <= last; i++)
+    {
+      Translation2d anchor  = points.get(i);
+      Translation2d tangent = points.get(Math.min(i + 1, last)).minus(points.get(Math.max(i - 1, 0)));
+      double        norm    = tangent.getNorm();
+      if (norm > 1e-9)
+      {
+        tangent = tangent.div(norm);
+      }
+      if (i > 0)
+      {
+        double length = anchor.getDistance(points.get(i - 1));
+        bezierPoints.add(anchor.minus(tangent.times(length / 3)));
+      }
+      bezierPoints.add(anchor);
+      if (i < last)
+      {
+        double length = anchor.getDistance(points.get(i + 1));
+        bezierPoints.add(anchor.plus(tangent.times(length / 3)));
+      }
+    }
+    return new PathPlannerPath(bezierPoints, constraints, goalEndState);
+  }
+
+  @Override
+  public synchronized void setStartPosition(Translation2d startPosition)
+  {
+    requestedStart = startPosition;
+    int cell = grid.cellAt(startPosition.getX(), startPosition.getY());
+    if (cell != requestedStartCell)
+    {
+      requestedStartCell = cell;
+      request();
+    }
+  }
+
+  @Override
+  public synchronized void setGoalPosition(Translation2d goalPosition)
+  {
+    // Always planned, a pathfinding command waits for a new path even when it reuses the last goal
+    requestedGoal = goalPosition;
+    goalChanged = true;
+    request();
+  }
+
+  @Override
+  public synchronized void setDynamicObstacles(List<Pair<Translation2d, Translation2d>> obs,
+                                               Translation2d currentRobotPos)
+  {
+    requestedObstacles = List.copyOf(obs);
+    obstaclesChanged = true;
+    setStartPosition(currentRobotPos);
+    request();
+  }
+
+  private void request()
+  {
+    requestPending = true;
+    newPathAvailable = false;
+    notifyAll();
+  }
+
+  private void run()
+  {
+    while (true)
+    {
+      Translation2d                            start;
+      Translation2d                            goal;
+      List<Pair<Translation2d, Translation2d>> obstacles = null;
+      boolean                                  newGoal;
+      synchronized (this)
+      {
+        while (!requestPending)
+        {
+          try
+          {
+            wait();
+          } catch (InterruptedException e)
+          {
+            return;
+          }
+        }
+        requestPending = false;
+        start = requestedStart;
+        goal = requestedGoal;
+        newGoal = goalChanged;
+        goalChanged = false;
+        if (obstaclesChanged)
+        {
+          obstacles = requestedObstacles;
+          obstaclesChanged = false;
+        }
+      }
+
+      List<Translation2d> path = plan(start, goal, obstacles, newGoal);
+      if (path != null)
+      {
+        synchronized (this)
+        {
+          // A newer request makes this path stale, it is planned and published again with the newer positions
+          if (requestPending)
+          {
+            lastWaypointCount = -1;
+          } else
+          {
+            currentWaypoints = path;
+            newPathAvailable = true;
+          }
+        }
+      }
+    }
+  }
+
+  // Returns null if the path did not change
+  private List<Translation2d> plan(Translation2d start, Translation2d goal,
+                                   List<Pair<Translation2d, Translation2d>> obstacles, boolean newGoal)
+  {
+    if (obstacles != null)
+    {
+      grid.copyDynamicObstacles(previousObstacles);
+      grid.clearDynamicObstacles();
+      for (Pair<Translation2d, Translation2d> box : obstacles)
+      {
+        Translation2d a = box.getFirst();
+        Translation2d b = box.getSecond();
+        grid.addDynamicObstacle(Math.min(a.getX(), b.getX()), Math.min(a.getY(), b.getY()),
+                                Math.max(a.getX(), b.getX()), Math.max(a.getY(), b.getY()));
+      }
+      planner.cellsChanged(changed, grid.diffDynamicObstacles(previousObstacles, changed));
+    }
+
+    int startCell = grid.nearestFreeCell(grid.cellAt(start.getX(), start.getY()));
+    int goalCell  = grid.nearestFreeCell(grid.cellAt(goal.getX(), goal.getY()));
+    if (startCell < 0 || goalCell < 0)
+    {
+      return List.of();
+    }
+    planner.setGoal(goalCell);
+    planner.setStart(startCell);
+    int count = planner.plan() ? planner.getPath(waypoints) : 0;
+
+    // Past the start, the same waypoints are the same path
+    boolean same = !newGoal && count == lastWaypointCount
+                   && (count < 2 || Arrays.equals(waypoints, 1, count, lastWaypoints, 1, count));
+    System.arraycopy(waypoints, 0, lastWaypoints, 0, count);
+    lastWaypointCount = count;
+    return same ? null : toPoints(grid, waypoints, count, start, goal);
+  }
+
+  private static List<Translation2d> toPoints(NavGrid grid, int[] waypoints, int count, Translation2d start,
+                                              Translation2d goal)
+  {
+    if (count == 0)
+    {
+      return List.of();
+    }
+    // The cell centers are replaced by the exact start and goal
+    List<Translation2d> points = new ArrayList<>(Math.max(count, 2));
+    points.add(start);
+    for (int i = 1; i < count - 1; i++)
+    {
+      points.add(new Translation2d(grid.centerX(waypoints[i]), grid.centerY(waypoints[i])));
+    }
+    points.add(goal);
+    return points;
+  }
+}
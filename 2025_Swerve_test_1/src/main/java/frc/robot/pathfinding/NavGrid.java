@@ -0,0 +1,395 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.pathfinding;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Filesystem;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Field obstacle grid for the pathfinder, stored as bitsets with one bit per cell. Static obstacles are loaded once, in
+ * the PathPlanner {@code navgrid.json} format, and dynamic obstacles such as other robots are kept in a second bitset so
+ * they can be replaced every loop without touching the static field.
+ *
+ * <p>Cells are numbered row by row from the blue alliance origin, {@code cell = y * width + x}. Dynamic obstacles are
+ * only changed by the thread that plans on the grid.
+ */
+public class NavGrid
+{
+
+  private final int    width;
+  private final int    height;
+  private final double nodeSize;
+  private final long[] staticCells;
+  private final long[] dynamicCells;
+
+  /**
+   * Create an open grid, blocked only outside the field.
+   *
+   * @param fieldLength Field length (X) in meters.
+   * @param fieldWidth  Field width (Y) in meters.
+   * @param nodeSize    Cell size in meters.
+   */
+  public NavGrid(double fieldLength, double fieldWidth, double nodeSize)
+  {
+    this((int) Math.ceil(fieldLength / nodeSize), (int) Math.ceil(fieldWidth / nodeSize), nodeSize);
+  }
+
+  private NavGrid(int width, int height, double nodeSize)
+  {
+    this.width = width;
+    this.height = height;
+    this.nodeSize = nodeSize;
+    staticCells = new long[(width * height + 63) / 64];
+    dynamicCells = new long[staticCells.length];
+  }
+
+  /**
+   * Load a grid in the PathPlanner {@code navgrid.json} format.
+   *
+   * @param file Grid file.
+   * @return The grid.
+   * @throws IOException If the file can not be read or parsed.
+   */
+  public static NavGrid fromJson(File file) throws IOException
+  {
+    JsonNode root     = new ObjectMapper().readTree(file);
+    JsonNode grid     = root.get("grid");
+    double   nodeSize = root.get("nodeSizeMeters").asDouble();
+    if (grid == null || grid.size() == 0 || nodeSize <= 0)
+    {
+      throw new IOException("Invalid navgrid " + file);
+    }
+    NavGrid navGrid = new NavGrid(grid.get(0).size(), grid.size(), nodeSize);
+    for (int y = 0; y < navGrid.height; y++)
+    {
+      JsonNode row = grid.get(y);
+      for (int x = 0; x < navGrid.width; x++)
+      {
+        if (row.get(x).asBoolean())
+        {
+          navGrid.setStaticObstacle(x, y, true);
+        }
+      }
+    }
+    return navGrid;
+  }
+
+  /**
+   * Load {@code pathplanner/navgrid.json} from the deploy directory, or fall back to an open field if it is missing.
+   *
+   * @param fieldLength Field length (X) in meters, for the fallback.
+   * @param fieldWidth  Field width (Y) in meters, for the fallback.
+   * @param nodeSize    Cell size in meters, for the fallback.
+   * @return The grid.
+   */
+  public static NavGrid loadDeployed(double fieldLength, double fieldWidth, double nodeSize)
+  {
+    File file = new File(Filesystem.getDeployDirectory(), "pathplanner/navgrid.json");
+    if (file.exists())
+    {
+      try
+      {
+        return fromJson(file);
+      } catch (IOException e)
+      {
+        DriverStation.reportError("Could not load " + file + ", pathfinding on an open field", e.getStackTrace());
+      }
+    } else
+    {
+      DriverStation.reportWarning("No " + file + ", pathfinding on an open field", false);
+    }
+    return new NavGrid(fieldLength, fieldWidth, nodeSize);
+  }
+
+  /**
+   * Get the number of columns.
+   *
+   * @return Cells along the field X axis.
+   */
+  public int getWidth()
+  {
+    return width;
+  }
+
+  /**
+   * Get the number of rows.
+   *
+   * @return Cells along the field Y axis.
+   */
+  public int getHeight()
+  {
+    return height;
+  }
+
+  /**
+   * Get the number of cells.
+   *
+   * @return Width times height.
+   */
+  public int getCellCount()
+  {
+    return width * height;
+  }
+
+  /**
+   * Get the cell size.
+   *
+   * @return Cell size in meters.
+   */
+  public double getNodeSize()
+  {
+    return nodeSize;
+  }
+
+  /**
+   * Get the cell containing a field position, clamped to the grid.
+   *
+   * @param x Field X in meters.
+   * @param y Field Y in meters.
+   * @return Cell index.
+   */
+  public int cellAt(double x, double y)
+  {
+    int column = Math.max(0, Math.min(width - 1, (int) Math.floor(x / nodeSize)));
+    int row    = Math.max(0, Math.min(height - 1, (int) Math.floor(y / nodeSize)));
+    return row * width + column;
+  }
+
+  /**
+   * Get the field X of a cell center.
+   *
+   * @param cell Cell index.
+   * @return Field X in meters.
+   */
+  public double centerX(int cell)
+  {
+    return (cell % width + 0.5) * nodeSize;
+  }
+
+  /**
+   * Get the field Y of a cell center.
+   *
+   * @param cell Cell index.
+   * @return Field Y in meters.
+   */
+  public double centerY(int cell)
+  {
+    return (cell / width + 0.5) * nodeSize;
+  }
+
+  /**
+   * Check whether a cell is blocked by a static or dynamic obstacle.
+   *
+   * @param cell Cell index.
+   * @return True if the cell can not be driven through.
+   */
+  public boolean isBlocked(int cell)
+  {
+    int  word = cell >>> 6;
+    long bit  = 1L << cell;
+    return ((staticCells[word] | dynamicCells[word]) & bit) != 0;
+  }
+
+  /**
+   * Check whether a cell is blocked, with everything outside the grid blocked.
+   *
+   * @param x Column.
+   * @param y Row.
+   * @return True if the cell can not be driven through.
+   */
+  public boolean isBlocked(int x, int y)
+  {
+    return x < 0 || y < 0 || x >= width || y >= height || isBlocked(y * width + x);
+  }
+
+  /**
+   * Find the free cell closest to a cell, searching square rings around it. The robot may be inside an obstacle after a
+   * collision or a bad estimate.
+   *
+   * @param cell Cell index.
+   * @return The cell itself if it is free, the closest free cell, or -1 if every cell is blocked.
+   */
+  public int nearestFreeCell(int cell)
+  {
+    if (!isBlocked(cell))
+    {
+      return cell;
+    }
+    int x      = cell % width;
+    int y      = cell / width;
+    int radius = Math.max(width, height);
+    for (int r = 1; r <= radius; r++)
+    {
+      int best         = -1;
+      int bestDistance = Integer.MAX_VALUE;
+      for (int dy = -r; dy <= r; dy++)
+      {
+        for (int dx = -r; dx <= r; dx += (dy == -r || dy == r) ? 1 : 2 * r)
+        {
+          if (!isBlocked(x + dx, y + dy) && dx * dx + dy * dy < bestDistance)
+          {
+            best = (y + dy) * width + x + dx;
+            bestDistance = dx * dx + dy * dy;
+          }
+        }
+      }
+      if (best >= 0)
+      {
+        return best;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Mark a static obstacle cell. Only for building a grid, before planning on it.
+   *
+   * @param x       Column.
+   * @param y       Row.
+   * @param blocked True to block the cell.
+   */
+  public void setStaticObstacle(int x, int y, boolean blocked)
+  {
+    set(staticCells, y * width + x, blocked);
+  }
+
+  /**
+   * Clear every dynamic obstacle.
+   */
+  public void clearDynamicObstacles()
+  {
+    Arrays.fill(dynamicCells, 0);
+  }
+
+  /**
+   * Block the cells overlapping a box as a dynamic obstacle.
+   *
+   * @param minX Lowest field X of the box in meters.
+   * @param minY Lowest field Y of the box in meters.
+   * @param maxX Highest field X of the box in meters.
+   * @param maxY Highest field Y of the box in meters.
+   */
+  public void addDynamicObstacle(double minX, double minY, double maxX, double maxY)
+  {
+    int fromX = Math.max(0, (int) Math.floor(minX / nodeSize));
+    int fromY = Math.max(0, (int) Math.floor(minY / nodeSize));
+    int toX   = Math.min(width - 1, (int) Math.floor(maxX / nodeSize));
+    int toY   = Math.min(height - 1, (int) Math.floor(maxY / nodeSize));
+    for (int y = fromY; y <= toY; y++)
+    {
+      for (int x = fromX; x <= toX; x++)
+      {
+        set(dynamicCells, y * width + x, true);
+      }
+    }
+  }
+
+  /**
+   * Copy the dynamic obstacles, to diff them against a later set.
+   *
+   * @param destination Array of {@link #getWordCount()} words.
+   */
+  public void copyDynamicObstacles(long[] destination)
+  {
+    System.arraycopy(dynamicCells, 0, destination, 0, dynamicCells.length);
+  }
+
+  /**
+   * Find the cells whose dynamic obstacle state differs from an earlier copy.
+   *
+   * @param previous Earlier copy from {@link #copyDynamicObstacles(long[])}.
+   * @param changed  Receives the changed cell indices, must hold every cell.
+   * @return Number of changed cells.
+   */
+  public int diffDynamicObstacles(long[] previous, int[] changed)
+  {
+    int count = 0;
+    for (int word = 0; word < dynamicCells.length; word++)
+    {
+      long diff = dynamicCells[word] ^ previous[word];
+      while (diff != 0)
+      {
+        changed[count++] = (word << 6) + Long.numberOfTrailingZeros(diff);
+        diff &= diff - 1;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Get the size of the bitsets.
+   *
+   * @return Number of 64 bit words.
+   */
+  public int getWordCount()
+  {
+    return staticCells.length;
+  }
+
+  /**
+   * Check whether the straight line between two cell centers only crosses free cells. Every cell the line touches is
+   * checked, including both cells at a corner it passes exactly through.
+   *
+   * @param from Start cell.
+   * @param to   End cell.
+   * @return True if the line is clear.
+   */
+  public boolean hasLineOfSight(int from, int to)
+  {
+    int x0 = from % width, y0 = from / width;
+    int x1 = to % width, y1 = to / width;
+    int dx = Math.abs(x1 - x0), dy = Math.abs(y1 - y0);
+    int stepX = x1 > x0 ? 1 : -1, stepY = y1 > y0 ? 1 : -1;
+    int x = x0, y = y0;
+    // Supercover traversal, error is scaled by 2 so it stays integral
+    int error = dx - dy;
+    dx *= 2;
+    dy *= 2;
+    for (int n = (dx + dy) / 2; n > 0; n--)
+    {
+      if (error > 0)
+      {
+        x += stepX;
+        error -= dy;
+      } else if (error < 0)
+      {
+        y += stepY;
+        error += dx;
+      } else
+      {
+        // Exactly through a corner, both side cells are touched
+        if (isBlocked(x + stepX, y) || isBlocked(x, y + stepY))
+        {
+          return false;
+        }
+        x += stepX;
+        y += stepY;
+        error += dx - dy;
+        n--;
+      }
+      if (isBlocked(x, y))
+      {
+        return false;
+      }
+    }
+    return !isBlocked(x0, y0);
+  }
+
+  private static void set(long[] bits, int cell, boolean value)
+  {
+    if (value)
+    {
+      bits[cell >>> 6] |= 1L << cell;
+    } else
+    {
+      bits[cell >>> 6] &= ~(1L << cell);
+    }
+  }
+}
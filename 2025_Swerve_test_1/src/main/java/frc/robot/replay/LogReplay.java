@@ -0,0 +1,338 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.replay;
+
+import edu.wpi.first.math.VecBuilder;
+import edu.wpi.first.math.estimator.SwerveDrivePoseEstimator;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+import edu.wpi.first.util.datalog.DataLogReader;
+import edu.wpi.first.util.datalog.DataLogRecord;
+import frc.robot.subsystems.Vision;
+import frc.robot.subsystems.VisionFilter;
+import frc.robot.telemetry.DriveTelemetrySnapshot;
+import frc.robot.telemetry.VisionSample;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Offline replay of a match log recorded by {@link frc.robot.telemetry.DataLogRecorder}. Module positions, gyro yaw,
+ * odometry resets and vision estimates are fed through a {@link SwerveDrivePoseEstimator} and the same
+ * {@link VisionFilter} the robot uses, as fast as the CPU allows. The replayed pose is written next to the recorded pose
+ * as CSV so filter and standard deviation changes can be compared against the original run.
+ *
+ * <p>Nothing here touches hardware, NetworkTables or the FPGA clock, so the same log and settings always produce the
+ * same trace. Run with {@code ./gradlew replay --args="<log.wpilog>... [--out=trace.csv] [--max-ambiguity=0.25]"}.
+ */
+public final class LogReplay
+{
+
+  private enum EventType
+  {
+    DRIVE, RESET, VISION
+  }
+
+  // One timestamped input from the log.
+  private static final class Event
+  {
+
+    private final EventType              type;
+    private final double                 timestamp;
+    private       double                 gyroYaw;
+    private       SwerveModulePosition[] positions;
+    private       Pose2d                 pose;
+    private       VisionSample           vision;
+
+    private Event(EventType type, double timestamp)
+    {
+      this.type = type;
+      this.timestamp = timestamp;
+    }
+  }
+
+  private final VisionFilter visionFilter;
+  private final List<Event>  events = new ArrayList<>();
+  private final double[]     stdDevs = new double[3];
+  private       double[]     moduleOffsets;
+
+  private int    driveSamples;
+  private int    visionAccepted;
+  private int    visionRejected;
+  private int    visionDecisionsChanged;
+  private double squaredErrorSum;
+  private double maxError;
+
+  /**
+   * Create a replay.
+   *
+   * @param visionFilter Filter to run vision estimates through. A fresh filter should be used for every replay.
+   */
+  public LogReplay(VisionFilter visionFilter)
+  {
+    this.visionFilter = visionFilter;
+  }
+
+  /**
+   * Load a log file. Rotated files from the same session should be loaded in order.
+   *
+   * @param path Path to the wpilog file.
+   * @throws IOException If the file cannot be read or is not a wpilog.
+   */
+  public void load(String path) throws IOException
+  {
+    DataLogReader reader = new DataLogReader(path);
+    if (!reader.isValid())
+    {
+      throw new IOException("Not a wpilog file: " + path);
+    }
+
+    Map<Integer, String> entries   = new HashMap<>();
+    double               gyroYaw   = 0;
+    Event                lastDrive = null;
+    for (DataLogRecord record : reader)
+    {
+      if (record.isStart())
+      {
+        DataLogRecord.StartRecordData start = record.getStartData();
+        entries.put(start.entry, start.name);
+        continue;
+      }
+      if (record.isControl())
+      {
+        continue;
+      }
+      String name = entries.get(record.getEntry());
+      if (name == null)
+      {
+        continue;
+      }
+
+      double timestamp = record.getTimestamp() / 1e6;
+      switch (name)
+      {
+        case "Drive/ModuleOffsets":
+          moduleOffsets = record.getDoubleArray();
+          break;
+        case "Drive/GyroYaw":
+          gyroYaw = record.getDouble();
+          break;
+        case "Drive/ModulePositions":
+          lastDrive = new Event(EventType.DRIVE, timestamp);
+          lastDrive.gyroYaw = gyroYaw;
+          lastDrive.positions = readModulePositions(record.getRaw());
+          events.add(lastDrive);
+          break;
+        case "Drive/Odometry":
+          // Written right after the module positions of the same snapshot.
+          if (lastDrive != null && lastDrive.timestamp == timestamp)
+          {
+            lastDrive.pose = readPose(record.getRaw());
+          }
+          break;
+        case "Drive/OdometryReset":
+          Event reset = new Event(EventType.RESET, timestamp);
+          reset.pose = readPose(record.getRaw());
+          events.add(reset);
+          break;
+        case "Vision/Estimates":
+          Event vision = new Event(EventType.VISION, timestamp);
+          vision.vision = new VisionSample();
+          vision.vision.fromArray(timestamp, record.getDoubleArray());
+          events.add(vision);
+          break;
+        default:
+          break;
+      }
+    }
+  }
+
+  /**
+   * Replay every loaded event in timestamp order and write the pose trace.
+   *
+   * @param out CSV destination, one row per drive sample.
+   * @throws IllegalStateException If the logs did not contain the module offsets.
+   */
+  public void run(PrintWriter out)
+  {
+    if (moduleOffsets == null)
+    {
+      throw new IllegalStateException("Log does not contain Drive/ModuleOffsets");
+    }
+    Translation2d[] modules = new Translation2d[moduleOffsets.length / 2];
+    for (int i = 0; i < modules.length; i++)
+    {
+      modules[i] = new Translation2d(moduleOffsets[2 * i], moduleOffsets[2 * i + 1]);
+    }
+    SwerveDriveKinematics kinematics = new SwerveDriveKinematics(modules);
+
+    // Drive samples are logged from the telemetry thread and resets from the main thread, so restore time order.
+    // The sort is stable, which keeps same-timestamp records in the order they were written.
+    events.sort(Comparator.comparingDouble(e -> e.timestamp));
+
+    out.println("timestamp,replay_x,replay_y,replay_theta,recorded_x,recorded_y,recorded_theta");
+    SwerveDrivePoseEstimator estimator    = null;
+    Pose2d                   pendingReset = null;
+    for (Event event : events)
+    {
+      switch (event.type)
+      {
+        case DRIVE:
+          Rotation2d yaw = new Rotation2d(event.gyroYaw);
+          if (estimator == null)
+          {
+            Pose2d initialPose = event.pose != null ? event.pose : new Pose2d();
+            estimator = new SwerveDrivePoseEstimator(kinematics, yaw, event.positions, initialPose);
+          } else if (pendingReset != null)
+          {
+            // The gyro may have been zeroed with the reset, so wait for the first yaw read after it.
+            estimator.resetPosition(yaw, event.positions, pendingReset);
+          } else
+          {
+            estimator.updateWithTime(event.timestamp, yaw, event.positions);
+          }
+          pendingReset = null;
+          writeSample(out, event, estimator.getEstimatedPosition());
+          break;
+        case RESET:
+          pendingReset = event.pose;
+          break;
+        case VISION:
+          if (estimator != null)
+          {
+            addVision(estimator, event.vision);
+          }
+          break;
+        default:
+          break;
+      }
+    }
+    out.flush();
+  }
+
+  private void addVision(SwerveDrivePoseEstimator estimator, VisionSample sample)
+  {
+    Pose2d estimatedPose    = new Pose2d(sample.x, sample.y, new Rotation2d(sample.theta));
+    double odometryDistance = estimator.getEstimatedPosition().getTranslation()
+                                       .getDistance(estimatedPose.getTranslation());
+    boolean accepted = visionFilter.accept(sample, odometryDistance);
+    if (accepted != sample.accepted)
+    {
+      visionDecisionsChanged++;
+    }
+    if (!accepted)
+    {
+      visionRejected++;
+      return;
+    }
+    visionAccepted++;
+    VisionFilter.computeStdDevs(sample, stdDevs);
+    estimator.addVisionMeasurement(estimatedPose, sample.timestamp, VecBuilder.fill(stdDevs[0], stdDevs[1], stdDevs[2]));
+  }
+
+  private void writeSample(PrintWriter out, Event event, Pose2d replayed)
+  {
+    out.printf("%.6f,%.6f,%.6f,%.6f", event.timestamp, replayed.getX(), replayed.getY(),
+               replayed.getRotation().getRadians());
+    if (event.pose != null)
+    {
+      out.printf(",%.6f,%.6f,%.6f%n", event.pose.getX(), event.pose.getY(), event.pose.getRotation().getRadians());
+      double error = replayed.getTranslation().getDistance(event.pose.getTranslation());
+      squaredErrorSum += error * error;
+      maxError = Math.max(maxError, error);
+      driveSamples++;
+    } else
+    {
+      out.println(",,,");
+    }
+  }
+
+  /**
+   * Summarize the last {@link #run(PrintWriter)}.
+   *
+   * @return Human readable summary.
+   */
+  public String getSummary()
+  {
+    double rmsError = driveSamples > 0 ? Math.sqrt(squaredErrorSum / driveSamples) : 0;
+    return String.format("%d drive samples, vision %d accepted / %d rejected (%d decisions changed), "
+                         + "translation error vs recorded: rms %.3f m, max %.3f m",
+                         driveSamples, visionAccepted, visionRejected, visionDecisionsChanged, rmsError, maxError);
+  }
+
+  private static SwerveModulePosition[] readModulePositions(byte[] raw)
+  {
+    ByteBuffer             buffer    = ByteBuffer.wrap(raw).order(ByteOrder.LITTLE_ENDIAN);
+    SwerveModulePosition[] positions = new SwerveModulePosition[DriveTelemetrySnapshot.MODULE_COUNT];
+    for (int i = 0; i < positions.length; i++)
+    {
+      double distance = buffer.getDouble();
+      positions[i] = new SwerveModulePosition(distance, new Rotation2d(buffer.getDouble()));
+    }
+    return positions;
+  }
+
+  private static Pose2d readPose(byte[] raw)
+  {
+    ByteBuffer buffer = ByteBuffer.wrap(raw).order(ByteOrder.LITTLE_ENDIAN);
+    double     x      = buffer.getDouble();
+    double     y      = buffer.getDouble();
+    return new Pose2d(x, y, new Rotation2d(buffer.getDouble()));
+  }
+
+  /**
+   * Replay one or more log files from the command line.
+   *
+   * @param args Log paths, then optional {@code --out=<csv>} and {@code --max-ambiguity=<value>}.
+   * @throws IOException If a log cannot be read or the trace cannot be written.
+   */
+  public static void main(String[] args) throws IOException
+  {
+    List<String> logs             = new ArrayList<>();
+    String       outPath          = "replay.csv";
+    double       maximumAmbiguity = Vision.maximumAmbiguity;
+    for (String arg : args)
+    {
+      if (arg.startsWith("--out="))
+      {
+        outPath = arg.substring("--out=".length());
+      } else if (arg.startsWith("--max-ambiguity="))
+      {
+        maximumAmbiguity = Double.parseDouble(arg.substring("--max-ambiguity=".length()));
+      } else
+      {
+        logs.add(arg);
+      }
+    }
+    if (logs.isEmpty())
+    {
+      System.err.println("Usage: LogReplay <log.wpilog>... [--out=trace.csv] [--max-ambiguity=0.25]");
+      System.exit(1);
+    }
+
+    LogReplay replay = new LogReplay(new VisionFilter(maximumAmbiguity));
+    for (String log : logs)
+    {
+      replay.load(log);
+    }
+    long start = System.nanoTime();
+    try (PrintWriter out = new PrintWriter(new FileWriter(outPath)))
+    {
+      replay.run(out);
+    }
+    System.out.printf("Replayed in %.1f ms: %s%n", (System.nanoTime() - start) / 1e6, replay.getSummary());
+    System.out.println("Trace written to " + outPath);
+  }
+}
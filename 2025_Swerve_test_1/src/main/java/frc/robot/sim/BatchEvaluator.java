@@ -0,0 +1,471 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.sim;
+
+import com.pathplanner.lib.commands.PathPlannerAuto;
+import com.pathplanner.lib.path.GoalEndState;
+import com.pathplanner.lib.path.PathConstraints;
+import com.pathplanner.lib.path.PathPlannerPath;
+import com.pathplanner.lib.util.PIDConstants;
+import edu.wpi.first.apriltag.AprilTagFieldLayout;
+import edu.wpi.first.apriltag.AprilTagFields;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.util.Units;
+import edu.wpi.first.wpilibj.Filesystem;
+import frc.robot.Constants;
+import frc.robot.Constants.AutonConstants;
+import frc.robot.pathfinding.GridPathfinder;
+import frc.robot.pathfinding.NavGrid;
+import frc.robot.util.PrimitiveSwerveKinematics;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Runs many variants of an auto or of a {@code driveToPose} move through {@link DriveSimulation} in parallel, one
+ * simulation per variant, and collects time to complete, final pose error and peak current for each.
+ *
+ * <p>Nothing here touches the {@code CommandScheduler}, {@code AutoBuilder} or {@code Pathfinding} singletons: autos
+ * are read as path groups and followed directly, and {@code driveToPose} moves are planned with
+ * {@link GridPathfinder#planPath} on the worker's own thread, on a grid every worker only reads.
+ */
+public class BatchEvaluator
+{
+
+  /**
+   * One configuration to evaluate.
+   */
+  public static final class Variant
+  {
+
+    /**
+     * Offset of the starting position from the nominal start, in meters.
+     */
+    public final double          startOffsetX, startOffsetY;
+    /**
+     * Path following gains.
+     */
+    public final PIDConstants    translationPid, rotationPid;
+    /**
+     * Constraints of a {@code driveToPose} move, unused for autos, which keep the constraints of their paths.
+     */
+    public final PathConstraints constraints;
+
+    /**
+     * Create a variant.
+     *
+     * @param startOffsetX   Offset of the starting position along the field X axis, in meters.
+     * @param startOffsetY   Offset of the starting position along the field Y axis, in meters.
+     * @param translationPid Translation PID of the path follower.
+     * @param rotationPid    Rotation PID of the path follower.
+     * @param constraints    Constraints of a {@code driveToPose} move.
+     */
+    public Variant(double startOffsetX, double startOffsetY, PIDConstants translationPid, PIDConstants rotationPid,
+                   PathConstraints constraints)
+    {
+      this.startOffsetX = startOffsetX;
+      this.startOffsetY = startOffsetY;
+      this.translationPid = translationPid;
+      this.rotationPid = rotationPid;
+      this.constraints = constraints;
+    }
+
+    @Override
+    public String toString()
+    {
+      return String.format("tkP %.2f rkP %.2f v %.2f a %.2f start %+.2f,%+.2f", translationPid.kP, rotationPid.kP,
+                           constraints.getMaxVelocityMps(), constraints.getMaxAccelerationMpsSq(), startOffsetX,
+                           startOffsetY);
+    }
+  }
+
+  /**
+   * Outcome of one variant.
+   */
+  public static final class Row
+  {
+
+    /**
+     * The variant.
+     */
+    public final Variant                variant;
+    /**
+     * Outcome of the run, null if it could not run.
+     */
+    public final DriveSimulation.Result result;
+    /**
+     * Why the run could not run, null if it ran.
+     */
+    public final String                 error;
+
+    private Row(Variant variant, DriveSimulation.Result result, String error)
+    {
+      this.variant = variant;
+      this.result = result;
+      this.error = error;
+    }
+  }
+
+  // Goal tolerance for picking the best variant
+  private static final double GOAL_TOLERANCE         = 0.05; // meters
+  private static final double GOAL_HEADING_TOLERANCE = Units.degreesToRadians(2);
+
+  private final double[] moduleX;
+  private final double[] moduleY;
+  private final double   driveMetersPerRotation;
+  private final NavGrid  grid;
+  private final String   auto;
+  private final Pose2d   start;
+  private final Pose2d   goal;
+
+  /**
+   * Create an evaluator of an auto's paths.
+   *
+   * @param kinematics             Module geometry, copied for every run.
+   * @param driveMetersPerRotation Wheel travel per drive motor rotation in meters, the YAGSL drive conversion factor.
+   * @param auto                   Name of the auto in the deploy directory.
+   */
+  public BatchEvaluator(PrimitiveSwerveKinematics kinematics, double driveMetersPerRotation, String auto)
+  {
+    this(kinematics, driveMetersPerRotation, auto, null, null, null);
+  }
+
+  /**
+   * Create an evaluator of a {@code driveToPose} move.
+   *
+   * @param kinematics             Module geometry, copied for every run.
+   * @param driveMetersPerRotation Wheel travel per drive motor rotation in meters, the YAGSL drive conversion factor.
+   * @param grid                   Grid to plan on, only read from now on.
+   * @param start                  Nominal starting pose.
+   * @param goal                   Target pose.
+   */
+  public BatchEvaluator(PrimitiveSwerveKinematics kinematics, double driveMetersPerRotation, NavGrid grid,
+                        Pose2d start, Pose2d goal)
+  {
+    this(kinematics, driveMetersPerRotation, null, grid, start, goal);
+  }
+
+  private BatchEvaluator(PrimitiveSwerveKinematics kinematics, double driveMetersPerRotation, String auto,
+                         NavGrid grid, Pose2d start, Pose2d goal)
+  {
+    moduleX = new double[kinematics.getModuleCount()];
+    moduleY = new double[kinematics.getModuleCount()];
+    for (int i = 0; i < moduleX.length; i++)
+    {
+      moduleX[i] = kinematics.getModuleX(i);
+      moduleY[i] = kinematics.getModuleY(i);
+    }
+    this.driveMetersPerRotation = driveMetersPerRotation;
+    this.auto = auto;
+    this.grid = grid;
+    this.start = start;
+    this.goal = goal;
+  }
+
+  /**
+   * Evaluate variants on a pool of worker threads.
+   *
+   * @param variants Variants to run.
+   * @param threads  Number of worker threads.
+   * @return One row per variant, in the order of the variants.
+   * @throws InterruptedException If interrupted while waiting for the workers.
+   */
+  public List<Row> evaluate(List<Variant> variants, int threads) throws InterruptedException
+  {
+    List<Callable<Row>> tasks = new ArrayList<>(variants.size());
+    for (Variant variant : variants)
+    {
+      tasks.add(() -> evaluate(variant));
+    }
+    ForkJoinPool pool = new ForkJoinPool(threads);
+    try
+    {
+      List<Row> rows = new ArrayList<>(variants.size());
+      for (Future<Row> future : pool.invokeAll(tasks))
+      {
+        rows.add(future.get());
+      }
+      return rows;
+    } catch (ExecutionException e)
+    {
+      throw new IllegalStateException("Batch simulation failed", e.getCause());
+    } finally
+    {
+      pool.shutdown();
+    }
+  }
+
+  /**
+   * Evaluate one variant on the calling thread, in a simulation of its own.
+   *
+   * @param variant Variant to run.
+   * @return Outcome of the variant.
+   */
+  public Row evaluate(Variant variant)
+  {
+    DriveSimulation simulation = new DriveSimulation(new PrimitiveSwerveKinematics(moduleX, moduleY),
+                                                     driveMetersPerRotation);
+    simulation.setPathFollowingPid(variant.translationPid, variant.rotationPid);
+    try
+    {
+      if (auto != null)
+      {
+        List<PathPlannerPath> paths = PathPlannerAuto.getPathGroupFromAutoFile(auto);
+        if (paths.isEmpty())
+        {
+          return new Row(variant, null, "auto has no paths");
+        }
+        Pose2d pathStart = paths.get(0).getPreviewStartingHolonomicPose();
+        return new Row(variant, simulation.runPaths(offsetPose(pathStart, variant), paths), null);
+      }
+      Pose2d          from = offsetPose(start, variant);
+      PathPlannerPath path = GridPathfinder.planPath(grid, from.getTranslation(), goal.getTranslation(),
+                                                     variant.constraints,
+                                                     new GoalEndState(0, goal.getRotation(), true));
+      if (path == null)
+      {
+        return new Row(variant, null, "no path to the goal");
+      }
+      return new Row(variant, simulation.runPaths(from, List.of(path)), null);
+    } catch (RuntimeException e)
+    {
+      return new Row(variant, null, e.toString());
+    }
+  }
+
+  // Field relative, the offset does not turn with the robot
+  private static Pose2d offsetPose(Pose2d pose, Variant variant)
+  {
+    return new Pose2d(pose.getX() + variant.startOffsetX, pose.getY() + variant.startOffsetY, pose.getRotation());
+  }
+
+  /**
+   * Find the fastest variant that ended within the goal tolerance without a brownout.
+   *
+   * @param rows Outcomes.
+   * @return The best row, or null if none qualifies.
+   */
+  public static Row best(List<Row> rows)
+  {
+    Row best = null;
+    for (Row row : rows)
+    {
+      DriveSimulation.Result result = row.result;
+      if (result != null && !result.brownedOut && result.finalError <= GOAL_TOLERANCE
+          && result.finalHeadingError <= GOAL_HEADING_TOLERANCE
+          && (best == null || result.duration < best.result.duration))
+      {
+        best = row;
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Write the outcomes as CSV.
+   *
+   * @param rows Outcomes.
+   * @param out  Destination.
+   */
+  public static void writeCsv(List<Row> rows, PrintWriter out)
+  {
+    out.println("translation_kp,rotation_kp,max_velocity,max_acceleration,start_offset_x,start_offset_y,"
+                + "time,final_error,final_heading_error_deg,max_tracking_error,peak_current,min_voltage,"
+                + "browned_out,error");
+    for (Row row : rows)
+    {
+      Variant variant = row.variant;
+      out.printf("%.4f,%.4f,%.3f,%.3f,%.3f,%.3f,", variant.translationPid.kP, variant.rotationPid.kP,
+                 variant.constraints.getMaxVelocityMps(), variant.constraints.getMaxAccelerationMpsSq(),
+                 variant.startOffsetX, variant.startOffsetY);
+      DriveSimulation.Result result = row.result;
+      if (result == null)
+      {
+        out.println(",,,,,,," + row.error.replace(',', ';'));
+      } else
+      {
+        out.printf("%.3f,%.4f,%.2f,%.4f,%.1f,%.2f,%b,%n", result.duration, result.finalError,
+                   Math.toDegrees(result.finalHeadingError), result.maxTrackingError, result.maxBatteryCurrent,
+                   result.minBatteryVoltage, result.brownedOut);
+      }
+    }
+  }
+
+  /**
+   * Run a batch from the command line.
+   *
+   * <p>Run with {@code ./gradlew simulateBatch --args="(--auto=<name> | --start=x,y,deg --goal=x,y,deg)
+   * [--translation-kp=a,b,...] [--rotation-kp=a,b,...] [--max-velocity=a,b,...] [--max-acceleration=a,b,...]
+   * [--start-offsets=a,b,...] [--threads=N] [--out=results.csv]"}. Every combination of the listed values is run. Each
+   * start offset is applied along X and Y, so three offsets give nine starts. Velocity and acceleration only apply to
+   * {@code driveToPose} moves, the defaults are the constraints {@code SwerveSubsystem.driveToPose} uses.
+   *
+   * @param args See above.
+   * @throws IOException          If the configuration or an auto can not be read, or the results can not be written.
+   * @throws InterruptedException If interrupted while waiting for the workers.
+   */
+  public static void main(String[] args) throws IOException, InterruptedException
+  {
+    String   auto            = null, outPath = null;
+    Pose2d   start           = null, goal = null;
+    double[] translationKp   = {AutonConstants.TRANSLATION_PID.kP};
+    double[] rotationKp      = {AutonConstants.ANGLE_PID.kP};
+    double[] maxVelocity     = {Constants.MAX_SPEED};
+    double[] maxAcceleration = {4.0};
+    double[] startOffsets    = {0};
+    int      threads         = Runtime.getRuntime().availableProcessors();
+    for (String arg : args)
+    {
+      String value = arg.substring(arg.indexOf('=') + 1);
+      if (arg.startsWith("--auto="))
+      {
+        auto = value;
+      } else if (arg.startsWith("--start="))
+      {
+        start = parsePose(value);
+      } else if (arg.startsWith("--goal="))
+      {
+        goal = parsePose(value);
+      } else if (arg.startsWith("--translation-kp="))
+      {
+        translationKp = parseList(value);
+      } else if (arg.startsWith("--rotation-kp="))
+      {
+        rotationKp = parseList(value);
+      } else if (arg.startsWith("--max-velocity="))
+      {
+        maxVelocity = parseList(value);
+      } else if (arg.startsWith("--max-acceleration="))
+      {
+        maxAcceleration = parseList(value);
+      } else if (arg.startsWith("--start-offsets="))
+      {
+        startOffsets = parseList(value);
+      } else if (arg.startsWith("--threads="))
+      {
+        threads = Integer.parseInt(value);
+      } else if (arg.startsWith("--out="))
+      {
+        outPath = value;
+      }
+    }
+    if ((auto == null) == (goal == null || start == null))
+    {
+      System.err.println("Usage: BatchEvaluator (--auto=<name> | --start=x,y,deg --goal=x,y,deg) "
+                         + "[--translation-kp=a,b,...] [--rotation-kp=a,b,...] [--max-velocity=a,b,...] "
+                         + "[--max-acceleration=a,b,...] [--start-offsets=a,b,...] [--threads=N] [--out=results.csv]");
+      System.exit(1);
+    }
+
+    File                      swerveDirectory        = new File(Filesystem.getDeployDirectory(), "swerve");
+    PrimitiveSwerveKinematics kinematics             = DriveSimulation.loadKinematics(swerveDirectory);
+    double                    driveMetersPerRotation = DriveSimulation.loadDriveMetersPerRotation(swerveDirectory);
+    BatchEvaluator evaluator;
+    if (auto != null)
+    {
+      evaluator = new BatchEvaluator(kinematics, driveMetersPerRotation, auto);
+    } else
+    {
+      AprilTagFieldLayout field = AprilTagFields.k2024Crescendo.loadAprilTagLayoutField();
+      evaluator = new BatchEvaluator(kinematics, driveMetersPerRotation,
+                                     NavGrid.loadDeployed(field.getFieldLength(), field.getFieldWidth(),
+                                                          AutonConstants.NAVGRID_NODE_SIZE), start, goal);
+    }
+
+    // Angular constraints as in driveToPose, where YAGSL derives the angular velocity from the module radius
+    double radius = 0;
+    for (int i = 0; i < kinematics.getModuleCount(); i++)
+    {
+      radius = Math.max(radius, Math.hypot(kinematics.getModuleX(i), kinematics.getModuleY(i)));
+    }
+    List<Variant> variants = new ArrayList<>();
+    for (double tkP : translationKp)
+    {
+      for (double rkP : rotationKp)
+      {
+        for (double velocity : maxVelocity)
+        {
+          for (double acceleration : maxAcceleration)
+          {
+            for (double offsetX : startOffsets)
+            {
+              for (double offsetY : startOffsets)
+              {
+                PIDConstants translation = new PIDConstants(tkP, AutonConstants.TRANSLATION_PID.kI,
+                                                            AutonConstants.TRANSLATION_PID.kD);
+                PIDConstants rotation    = new PIDConstants(rkP, AutonConstants.ANGLE_PID.kI,
+                                                            AutonConstants.ANGLE_PID.kD);
+                variants.add(new Variant(offsetX, offsetY, translation, rotation,
+                                         new PathConstraints(velocity, acceleration, Constants.MAX_SPEED / radius,
+                                                             Units.degreesToRadians(720))));
+              }
+            }
+          }
+        }
+      }
+    }
+
+    long      begin       = System.nanoTime();
+    List<Row> rows        = evaluator.evaluate(variants, threads);
+    double    wallSeconds = (System.nanoTime() - begin) / 1e9;
+
+    System.out.printf("%-52s %8s %9s %9s %8s %7s%n", "variant", "time s", "error m", "error deg", "peak A",
+                      "min V");
+    double simulated = 0;
+    for (Row row : rows)
+    {
+      if (row.result == null)
+      {
+        System.out.printf("%-52s %s%n", row.variant, row.error);
+        continue;
+      }
+      DriveSimulation.Result result = row.result;
+      simulated += result.duration;
+      System.out.printf("%-52s %8.2f %9.3f %9.1f %8.0f %7.2f%s%n", row.variant, result.duration, result.finalError,
+                        Math.toDegrees(result.finalHeadingError), result.maxBatteryCurrent, result.minBatteryVoltage,
+                        result.brownedOut ? " BROWNED OUT" : "");
+    }
+    System.out.printf("%d variants on %d threads in %.1f s, %.0f s simulated%n", rows.size(), threads, wallSeconds,
+                      simulated);
+    Row best = best(rows);
+    System.out.println(best == null ? "No variant ended within the goal tolerance"
+                                    : "Fastest within the goal tolerance: " + best.variant);
+
+    if (outPath != null)
+    {
+      try (PrintWriter out = new PrintWriter(new FileWriter(outPath)))
+      {
+        writeCsv(rows, out);
+      }
+      System.out.println("Results written to " + outPath);
+    }
+  }
+
+  private static Pose2d parsePose(String value)
+  {
+    String[] values = value.split(",");
+    return new Pose2d(Double.parseDouble(values[0]), Double.parseDouble(values[1]),
+                      Rotation2d.fromDegrees(Double.parseDouble(values[2])));
+  }
+
+  private static double[] parseList(String value)
+  {
+    String[] values = value.split(",");
+    double[] list   = new double[values.length];
+    for (int i = 0; i < values.length; i++)
+    {
+      list[i] = Double.parseDouble(values[i].trim());
+    }
+    return list;
+  }
+}
@@ -0,0 +1,506 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.sim;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pathplanner.lib.controllers.PPHolonomicDriveController;
+import com.pathplanner.lib.path.PathPlannerPath;
+import com.pathplanner.lib.path.PathPlannerTrajectory;
+import com.pathplanner.lib.util.PIDConstants;
+import edu.wpi.first.math.controller.PIDController;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.system.plant.DCMotor;
+import edu.wpi.first.math.util.Units;
+import edu.wpi.first.wpilibj.TimedRobot;
+import frc.robot.Constants;
+import frc.robot.Constants.AutonConstants;
+import frc.robot.Constants.DrivebaseConstants;
+import frc.robot.util.PrimitiveSwerveKinematics;
+import frc.robot.util.SwerveSetpointGenerator;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.List;
+import swervelib.math.SwerveMath;
+
+/**
+ * The robot side of the drive loop run against {@link DrivetrainPhysics} under a simulated clock. Every 20ms loop the
+ * command is turned into module setpoints by the same {@link SwerveSetpointGenerator} and skew correction as
+ * {@code SwerveSubsystem}, and the physics runs for one loop in fixed steps. Odometry integrates the encoder wheel
+ * speeds and angles with a perfect gyro, so wheel spin, skid and side slip show up as pose error the way they do on the
+ * field.
+ *
+ * <p>Nothing touches the HAL, NetworkTables or the FPGA clock, so runs are deterministic and as fast as the CPU allows.
+ * Instances are not thread safe; run one per thread.
+ */
+public class DriveSimulation
+{
+
+  /**
+   * Outcome of a run.
+   */
+  public static final class Result
+  {
+
+    /**
+     * Simulated time in seconds.
+     */
+    public double  duration;
+    /**
+     * Largest distance between the odometry pose and the trajectory target in meters.
+     */
+    public double  maxTrackingError;
+    /**
+     * Root mean square distance between the odometry pose and the trajectory target in meters.
+     */
+    public double  rmsTrackingError;
+    /**
+     * Time from the end of the trajectory, or the start of a heading step, until the robot stayed within the settle
+     * tolerance of the final target, in seconds. Infinite if it never did.
+     */
+    public double  settleTime;
+    /**
+     * Furthest the robot went past the final target along its final direction of travel, in meters.
+     */
+    public double  overshoot;
+    /**
+     * Furthest the heading went past the final target heading in the direction it was turning, in radians.
+     */
+    public double  headingOvershoot;
+    /**
+     * Integral of the absolute heading error to the final target heading, from the end of the trajectory or the start
+     * of a heading step, in radian seconds.
+     */
+    public double  headingErrorIntegral;
+    /**
+     * Distance between the true pose and the last target at the end of the run, in meters.
+     */
+    public double  finalError;
+    /**
+     * Heading error at the end of the run in radians.
+     */
+    public double  finalHeadingError;
+    /**
+     * Distance between the odometry pose and the true pose at the end of the run, in meters.
+     */
+    public double  odometryDrift;
+    /**
+     * Lowest battery voltage.
+     */
+    public double  minBatteryVoltage;
+    /**
+     * Highest battery current in amps.
+     */
+    public double  maxBatteryCurrent;
+    /**
+     * Energy drawn from the battery in joules.
+     */
+    public double  energy;
+    /**
+     * True if the battery fell below the brownout voltage.
+     */
+    public boolean brownedOut;
+
+    @Override
+    public String toString()
+    {
+      return String.format("%.2f s simulated, tracking error max %.3f m / rms %.3f m, settled in %.2f s, "
+                           + "overshoot %.3f m / %.1f deg, final error %.3f m / %.1f deg, odometry drift %.3f m, "
+                           + "battery min %.2f V / max %.0f A, %.0f J%s",
+                           duration, maxTrackingError, rmsTrackingError, settleTime, overshoot,
+                           Math.toDegrees(headingOvershoot), finalError, Math.toDegrees(finalHeadingError),
+                           odometryDrift, minBatteryVoltage, maxBatteryCurrent, energy,
+                           brownedOut ? ", BROWNED OUT" : "");
+    }
+  }
+
+  /**
+   * A teleop style command, called every loop.
+   */
+  @FunctionalInterface
+  public interface Driver
+  {
+
+    /**
+     * Get the command for this loop.
+     *
+     * @param time   Simulated time in seconds.
+     * @param speeds Receives the field relative vx, vy and omega.
+     * @return False once the script is finished.
+     */
+    boolean command(double time, double[] speeds);
+  }
+
+  private static final double LOOP_PERIOD              = TimedRobot.kDefaultPeriod;
+  // Loops the robot is stopped for after the last path
+  private static final int    STOP_LOOPS               = 10;
+  // Distance and heading to the final target that count as settled
+  private static final double SETTLE_TOLERANCE         = 0.02; // meters
+  private static final double SETTLE_HEADING_TOLERANCE = Units.degreesToRadians(1);
+
+  private final PrimitiveSwerveKinematics kinematics;
+  private final SwerveSetpointGenerator   setpointGenerator;
+  private final DrivetrainPhysics         physics;
+  private final int                       moduleCount;
+  private final double[]                  chassisSpeeds = new double[3];
+  private final double[]                  fieldCommand  = new double[3];
+  private       PIDConstants              translationPid = AutonConstants.TRANSLATION_PID;
+  private       PIDConstants              rotationPid    = AutonConstants.ANGLE_PID;
+  private       PrintWriter               trace;
+  private       double                    odometryX, odometryY;
+  private       Result                    result;
+  // Settling measurement, no target while null
+  private       Pose2d                    settleTarget;
+  private       double                    travelCos, travelSin, turnSign;
+  private       double                    settleStart, lastUnsettled;
+
+  /**
+   * Create a simulation of the drive with the given module geometry.
+   *
+   * @param kinematics             Module geometry, owned by the simulation from now on.
+   * @param driveMetersPerRotation Wheel travel per drive motor rotation in meters, the YAGSL drive conversion factor.
+   */
+  public DriveSimulation(PrimitiveSwerveKinematics kinematics, double driveMetersPerRotation)
+  {
+    this.kinematics = kinematics;
+    moduleCount = kinematics.getModuleCount();
+    setpointGenerator = new SwerveSetpointGenerator(kinematics,
+                                                    DCMotor.getNEO(1),
+                                                    driveMetersPerRotation,
+                                                    Constants.ROBOT_MASS,
+                                                    Constants.MAX_SPEED,
+                                                    DrivebaseConstants.MAX_DRIVE_ACCELERATION,
+                                                    DrivebaseConstants.MAX_STEER_VELOCITY,
+                                                    DrivebaseConstants.DRIVE_CURRENT_LIMIT);
+    double[] x = new double[moduleCount];
+    double[] y = new double[moduleCount];
+    for (int i = 0; i < moduleCount; i++)
+    {
+      x[i] = kinematics.getModuleX(i);
+      y[i] = kinematics.getModuleY(i);
+    }
+    physics = new DrivetrainPhysics(x, y, Constants.ROBOT_MASS, Constants.CHASSIS.position.getZ(),
+                                    driveMetersPerRotation);
+  }
+
+  /**
+   * Read the module geometry from a YAGSL configuration directory, without constructing any hardware.
+   *
+   * @param directory Directory with {@code swervedrive.json} and {@code modules/}.
+   * @return Kinematics of the configured modules, in module order.
+   * @throws IOException If a file can not be read.
+   */
+  public static PrimitiveSwerveKinematics loadKinematics(File directory) throws IOException
+  {
+    ObjectMapper mapper  = new ObjectMapper();
+    JsonNode     modules = mapper.readTree(new File(directory, "swervedrive.json")).get("modules");
+    double[]     x       = new double[modules.size()];
+    double[]     y       = new double[modules.size()];
+    for (int i = 0; i < x.length; i++)
+    {
+      JsonNode location = mapper.readTree(new File(directory, "modules/" + modules.get(i).asText())).get("location");
+      x[i] = Units.inchesToMeters(location.get("front").asDouble());
+      y[i] = Units.inchesToMeters(location.get("left").asDouble());
+    }
+    return new PrimitiveSwerveKinematics(x, y);
+  }
+
+  /**
+   * Read the drive conversion factor from a YAGSL configuration directory the way YAGSL derives it, without
+   * constructing any hardware.
+   *
+   * @param directory Directory with {@code modules/physicalproperties.json}.
+   * @return Wheel travel per drive motor rotation in meters.
+   * @throws IOException If the file can not be read.
+   */
+  public static double loadDriveMetersPerRotation(File directory) throws IOException
+  {
+    JsonNode drive = new ObjectMapper().readTree(new File(directory, "modules/physicalproperties.json"))
+                                       .get("conversionFactors").get("drive");
+    if (drive.has("factor") && drive.get("factor").asDouble() != 0)
+    {
+      return drive.get("factor").asDouble();
+    }
+    return SwerveMath.calculateMetersPerRotation(Units.inchesToMeters(drive.get("diameter").asDouble()),
+                                                 drive.get("gearRatio").asDouble());
+  }
+
+  /**
+   * Set the path following gains, for tuning. Defaults to the {@link AutonConstants} gains.
+   *
+   * @param translation Translation PID.
+   * @param rotation    Rotation PID.
+   */
+  public void setPathFollowingPid(PIDConstants translation, PIDConstants rotation)
+  {
+    translationPid = translation;
+    rotationPid = rotation;
+  }
+
+  /**
+   * Write a CSV row per loop during the following runs.
+   *
+   * @param out Destination, or null to stop tracing.
+   */
+  public void setTrace(PrintWriter out)
+  {
+    trace = out;
+    if (trace != null)
+    {
+      trace.println("time,x,y,theta,odometry_x,odometry_y,target_x,target_y,target_theta,battery_volts,battery_amps");
+    }
+  }
+
+  /**
+   * Get the drivetrain model, for example to read the state after a run.
+   *
+   * @return The physics model.
+   */
+  public DrivetrainPhysics getPhysics()
+  {
+    return physics;
+  }
+
+  /**
+   * Follow the paths of an auto one after another from the start of the first, with the PathPlanner holonomic
+   * controller, as the blue alliance.
+   *
+   * @param paths Paths in order.
+   * @return Outcome of the run.
+   */
+  public Result runPaths(List<PathPlannerPath> paths)
+  {
+    if (paths.isEmpty())
+    {
+      throw new IllegalArgumentException("No paths to follow");
+    }
+    return runPaths(paths.get(0).getPreviewStartingHolonomicPose(), paths);
+  }
+
+  /**
+   * Follow paths one after another from a given pose, for example off the start of the first path or at the start of a
+   * pathfinding command, with the PathPlanner holonomic controller, as the blue alliance.
+   *
+   * @param start Starting pose.
+   * @param paths Paths in order.
+   * @return Outcome of the run.
+   */
+  public Result runPaths(Pose2d start, List<PathPlannerPath> paths)
+  {
+    if (paths.isEmpty())
+    {
+      throw new IllegalArgumentException("No paths to follow");
+    }
+    reset(start);
+
+    PPHolonomicDriveController controller = new PPHolonomicDriveController(translationPid, rotationPid,
+                                                                           AutonConstants.MAX_MODULE_SPEED,
+                                                                           getDriveBaseRadius());
+    Pose2d target     = start;
+    double sumSquares = 0;
+    int    samples    = 0;
+    for (int p = 0; p < paths.size(); p++)
+    {
+      ChassisSpeeds         speeds     = new ChassisSpeeds(setpointGenerator.getChassisVx(),
+                                                           setpointGenerator.getChassisVy(),
+                                                           setpointGenerator.getChassisOmega());
+      PathPlannerTrajectory trajectory = paths.get(p).getTrajectory(speeds, getOdometryPose().getRotation());
+      controller.reset(getOdometryPose(), speeds);
+      if (p == paths.size() - 1)
+      {
+        // Settling and overshoot are measured against the end of the last path
+        PathPlannerTrajectory.State end = trajectory.getEndState();
+        startSettling(end.getTargetHolonomicPose(), end.heading.getRadians(),
+                      end.targetHolonomicRotation.minus(trajectory.getInitialState().targetHolonomicRotation)
+                                                 .getRadians());
+      }
+      double pathStart = physics.getTime();
+      double total     = trajectory.getTotalTimeSeconds();
+      while (physics.getTime() - pathStart <= total + LOOP_PERIOD / 2)
+      {
+        PathPlannerTrajectory.State state = trajectory.sample(physics.getTime() - pathStart);
+        target = state.getTargetHolonomicPose();
+        Pose2d odometry = getOdometryPose();
+        double error    = odometry.getTranslation().getDistance(target.getTranslation());
+        result.maxTrackingError = Math.max(result.maxTrackingError, error);
+        sumSquares += error * error;
+        samples++;
+        ChassisSpeeds command = controller.calculateRobotRelativeSpeeds(odometry, state);
+        loop(command.vxMetersPerSecond, command.vyMetersPerSecond, command.omegaRadiansPerSecond, target);
+      }
+    }
+    result.rmsTrackingError = Math.sqrt(sumSquares / Math.max(samples, 1));
+    settleStart = physics.getTime();
+    // Stop where the last path ended
+    for (int i = 0; i < STOP_LOOPS; i++)
+    {
+      loop(0, 0, 0, target);
+    }
+    finish(target);
+    return result;
+  }
+
+  /**
+   * Drive a teleop script from a pose until it finishes.
+   *
+   * @param start  Starting pose.
+   * @param driver Field relative commands.
+   * @return Outcome of the run, errors are measured against the starting pose.
+   */
+  public Result runScript(Pose2d start, Driver driver)
+  {
+    reset(start);
+    while (driver.command(physics.getTime(), fieldCommand))
+    {
+      // Field to robot relative with the gyro heading
+      double cos = Math.cos(physics.getHeading());
+      double sin = Math.sin(physics.getHeading());
+      loop(cos * fieldCommand[0] + sin * fieldCommand[1], -sin * fieldCommand[0] + cos * fieldCommand[1],
+           fieldCommand[2], start);
+    }
+    finish(start);
+    return result;
+  }
+
+  /**
+   * Turn in place to a heading with a heading controller like YAGSL's, a PID on the heading error whose output is
+   * scaled by the maximum angular velocity, the way the absolute drive commands turn the robot.
+   *
+   * @param headingPid Heading PID, as in {@code controllerproperties.json}.
+   * @param step       Heading change in radians.
+   * @param duration   Time to run for in seconds.
+   * @return Outcome of the run, the tracking errors stay zero.
+   */
+  public Result runHeadingStep(PIDConstants headingPid, double step, double duration)
+  {
+    Pose2d target = new Pose2d(0, 0, new Rotation2d(step));
+    reset(new Pose2d());
+    startSettling(target, 0, step);
+    settleStart = 0;
+    double maxAngularVelocity = Constants.MAX_SPEED / getDriveBaseRadius();
+    try (PIDController controller = new PIDController(headingPid.kP, headingPid.kI, headingPid.kD, LOOP_PERIOD))
+    {
+      controller.enableContinuousInput(-Math.PI, Math.PI);
+      while (physics.getTime() < duration)
+      {
+        loop(0, 0, controller.calculate(physics.getHeading(), step) * maxAngularVelocity, target);
+      }
+    }
+    finish(target);
+    return result;
+  }
+
+  private void reset(Pose2d start)
+  {
+    physics.reset(start.getX(), start.getY(), start.getRotation().getRadians());
+    setpointGenerator.reset(physics.getModuleSpeeds(), physics.getModuleAngles(), 0, 0, 0);
+    odometryX = start.getX();
+    odometryY = start.getY();
+    result = new Result();
+    result.minBatteryVoltage = physics.getBatteryVoltage();
+    settleTarget = null;
+  }
+
+  // Measure settling and overshoot against a target from now on
+  private void startSettling(Pose2d target, double travelDirection, double turn)
+  {
+    settleTarget = target;
+    travelCos = Math.cos(travelDirection);
+    travelSin = Math.sin(travelDirection);
+    turnSign = Math.signum(turn);
+    settleStart = Double.NaN;
+    lastUnsettled = Double.NaN;
+  }
+
+  // One robot loop: setpoint, then the physics until the next loop
+  private void loop(double vx, double vy, double omega, Pose2d target)
+  {
+    // Same skew correction as SwerveSubsystem, against the measured angular velocity
+    double skew = -physics.getOmega() * DrivebaseConstants.ANGULAR_VELOCITY_COEFFICIENT;
+    double cos  = Math.cos(skew);
+    double sin  = Math.sin(skew);
+    setpointGenerator.generate(vx * cos - vy * sin, vx * sin + vy * cos, omega, LOOP_PERIOD);
+    physics.setSetpoints(setpointGenerator.getModuleSpeeds(), setpointGenerator.getModuleAngles());
+
+    // Physics steps, with odometry at the same rate as the odometry thread
+    int steps = (int) Math.round(LOOP_PERIOD / DrivebaseConstants.ODOMETRY_PERIOD);
+    for (int i = 0; i < steps; i++)
+    {
+      physics.simulate(DrivebaseConstants.ODOMETRY_PERIOD);
+      kinematics.toChassisSpeeds(physics.getModuleSpeeds(), physics.getModuleAngles(), chassisSpeeds);
+      double heading = physics.getHeading();
+      odometryX += (Math.cos(heading) * chassisSpeeds[0] - Math.sin(heading) * chassisSpeeds[1])
+                   * DrivebaseConstants.ODOMETRY_PERIOD;
+      odometryY += (Math.sin(heading) * chassisSpeeds[0] + Math.cos(heading) * chassisSpeeds[1])
+                   * DrivebaseConstants.ODOMETRY_PERIOD;
+      result.minBatteryVoltage = Math.min(result.minBatteryVoltage, physics.getBatteryVoltage());
+      result.maxBatteryCurrent = Math.max(result.maxBatteryCurrent, physics.getBatteryCurrent());
+      result.brownedOut |= physics.isBrownedOut();
+    }
+
+    if (settleTarget != null)
+    {
+      double dx           = physics.getX() - settleTarget.getX();
+      double dy           = physics.getY() - settleTarget.getY();
+      double headingError = Math.IEEEremainder(physics.getHeading() - settleTarget.getRotation().getRadians(),
+                                               2 * Math.PI);
+      result.overshoot = Math.max(result.overshoot, dx * travelCos + dy * travelSin);
+      result.headingOvershoot = Math.max(result.headingOvershoot, headingError * turnSign);
+      if (!Double.isNaN(settleStart))
+      {
+        result.headingErrorIntegral += Math.abs(headingError) * LOOP_PERIOD;
+      }
+      if (Math.hypot(dx, dy) > SETTLE_TOLERANCE || Math.abs(headingError) > SETTLE_HEADING_TOLERANCE)
+      {
+        lastUnsettled = physics.getTime();
+      }
+    }
+
+    if (trace != null)
+    {
+      trace.printf("%.3f,%.4f,%.4f,%.4f,%.4f,%.4f,%.4f,%.4f,%.4f,%.3f,%.1f%n", physics.getTime(), physics.getX(),
+                   physics.getY(), physics.getHeading(), odometryX, odometryY, target.getX(), target.getY(),
+                   target.getRotation().getRadians(), physics.getBatteryVoltage(), physics.getBatteryCurrent());
+    }
+  }
+
+  private void finish(Pose2d target)
+  {
+    result.duration = physics.getTime();
+    result.finalError = Math.hypot(physics.getX() - target.getX(), physics.getY() - target.getY());
+    result.finalHeadingError = Math.abs(Math.IEEEremainder(physics.getHeading() - target.getRotation().getRadians(),
+                                                           2 * Math.PI));
+    result.odometryDrift = Math.hypot(physics.getX() - odometryX, physics.getY() - odometryY);
+    result.energy = physics.getEnergy();
+    if (settleTarget == null)
+    {
+      result.settleTime = Double.NaN;
+    } else if (lastUnsettled >= physics.getTime() - 1e-9)
+    {
+      result.settleTime = Double.POSITIVE_INFINITY;
+    } else
+    {
+      result.settleTime = Double.isNaN(lastUnsettled) ? 0 : Math.max(0, lastUnsettled - settleStart);
+    }
+  }
+
+  private Pose2d getOdometryPose()
+  {
+    return new Pose2d(odometryX, odometryY, new Rotation2d(physics.getHeading()));
+  }
+
+  private double getDriveBaseRadius()
+  {
+    double radius = 0;
+    for (int i = 0; i < moduleCount; i++)
+    {
+      radius = Math.max(radius, Math.hypot(kinematics.getModuleX(i), kinematics.getModuleY(i)));
+    }
+    return radius;
+  }
+}
@@ -0,0 +1,471 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.sim;
+
+import edu.wpi.first.math.system.plant.DCMotor;
+import frc.robot.Constants;
+import frc.robot.Constants.DrivebaseConstants;
+import frc.robot.Constants.SimulationConstants;
+
+/**
+ * Fixed-step rigid body model of the swerve drivetrain with a NEO and a SparkMax on each drive and steering axis. Each
+ * step runs the SparkMax onboard loops the way YAGSL configures them (drive velocity with a 12V / max speed
+ * feedforward, steering position), turns the motor voltage into current through the DC motor model with back EMF and
+ * the smart current limit, and applies the wheel forces to the chassis.
+ *
+ * <p>Wheel forces are limited by a friction circle on each wheel's normal force, which shifts with the chassis
+ * acceleration and the center of gravity height. Each wheel spins with the drive rotor's inertia, driven by the motor
+ * and held back by a traction force that grows with the slip ratio between wheel and ground speed, so hard acceleration
+ * spins the wheels and hard braking skids them. Lateral wheel slip is removed by friction up to the same limit, and
+ * rolling resistance opposes the ground speed. The drive encoders read the wheel, not the ground. Every motor draws
+ * from one battery with an internal resistance, so the bus voltage sags under load and outputs stop below the brownout
+ * voltage.
+ *
+ * <p>The drive reduction and wheel size come from the YAGSL drive conversion factor, the same one the setpoint generator
+ * is built with, so the model and the generator agree on the free speed and the wheel force per amp. The drive
+ * feedforward is YAGSL's 12V over the configured maximum speed, so a maximum speed above the free speed saturates the
+ * motors here the way it does on the robot. State is in primitive arrays and nothing allocates after construction.
+ * Instances are not thread safe; run one per thread.
+ */
+public class DrivetrainPhysics
+{
+
+  private static final double GRAVITY         = 9.81; // m/s^2
+  // Speed over which rolling resistance ramps up, avoids chattering around zero
+  private static final double ROLLING_SPEED   = 0.01; // m/s
+  // Fraction of the lateral slip removed per step, below 1 so the wheels do not fight each other
+  private static final double LATERAL_RELAX   = 0.5;
+  private static final double NOMINAL_VOLTAGE = 12; // volts, SparkMax voltage compensation
+
+  private final int      moduleCount;
+  private final double[] moduleX;
+  private final double[] moduleY;
+  private final double   mass;
+  private final double   inertia;
+  private final double   cgHeight;
+  private final double   sumX2, sumY2;
+  private final double   maxVelocity;
+  // Drive motor radians per meter of wheel travel, the reduction over the wheel radius
+  private final double   driveRadiansPerMeter;
+  // Drive rotor inertia as a mass at the tread
+  private final double   wheelMass;
+  // Drive and steering motor constants
+  private final double   driveKt, driveKe, driveR;
+  private final double   steerKt, steerKe, steerR;
+
+  // Chassis, field relative
+  private double x, y, heading, fieldVx, fieldVy, omega;
+  // Last robot relative acceleration, for the load transfer
+  private double accelX, accelY;
+  // Modules
+  private final double[] steerAngles;
+  private final double[] steerRates;
+  private final double[] wheelSpeeds;
+  private final double[] wheelDistances;
+  private final double[] speedSetpoints;
+  private final double[] angleSetpoints;
+  // Battery
+  private double batteryVoltage;
+  private double batteryCurrent;
+  private double energy;
+  private double time;
+
+  /**
+   * Create a drivetrain at rest at the field origin.
+   *
+   * @param moduleX                Module X offsets from the robot center in meters, positive forward.
+   * @param moduleY                Module Y offsets from the robot center in meters, positive left.
+   * @param mass                   Robot mass in kilograms.
+   * @param cgHeight               Height of the center of gravity in meters.
+   * @param driveMetersPerRotation Wheel travel per drive motor rotation in meters, the YAGSL drive conversion factor.
+   */
+  public DrivetrainPhysics(double[] moduleX, double[] moduleY, double mass, double cgHeight,
+                           double driveMetersPerRotation)
+  {
+    moduleCount = moduleX.length;
+    this.moduleX = moduleX.clone();
+    this.moduleY = moduleY.clone();
+    this.mass = mass;
+    this.cgHeight = cgHeight;
+
+    // Uniform plate spanning the modules
+    double length = 0, width = 0, sx = 0, sy = 0;
+    for (int i = 0; i < moduleCount; i++)
+    {
+      length = Math.max(length, 2 * Math.abs(moduleX[i]));
+      width = Math.max(width, 2 * Math.abs(moduleY[i]));
+      sx += moduleX[i] * moduleX[i];
+      sy += moduleY[i] * moduleY[i];
+    }
+    inertia = mass * (length * length + width * width) / 12;
+    sumX2 = sx;
+    sumY2 = sy;
+
+    DCMotor neo = DCMotor.getNEO(1);
+    maxVelocity = Constants.MAX_SPEED;
+    driveRadiansPerMeter = 2 * Math.PI / driveMetersPerRotation;
+    wheelMass = SimulationConstants.DRIVE_ROTOR_INERTIA * driveRadiansPerMeter * driveRadiansPerMeter;
+    driveKt = neo.KtNMPerAmp;
+    driveKe = 1 / neo.KvRadPerSecPerVolt;
+    driveR = neo.rOhms;
+    steerKt = neo.KtNMPerAmp;
+    steerKe = 1 / neo.KvRadPerSecPerVolt;
+    steerR = neo.rOhms;
+
+    steerAngles = new double[moduleCount];
+    steerRates = new double[moduleCount];
+    wheelSpeeds = new double[moduleCount];
+    wheelDistances = new double[moduleCount];
+    speedSetpoints = new double[moduleCount];
+    angleSetpoints = new double[moduleCount];
+    reset(0, 0, 0);
+  }
+
+  /**
+   * Put the robot at rest at a pose with a charged battery, modules straight ahead.
+   *
+   * @param poseX       Field X in meters.
+   * @param poseY       Field Y in meters.
+   * @param poseHeading Heading in radians.
+   */
+  public void reset(double poseX, double poseY, double poseHeading)
+  {
+    x = poseX;
+    y = poseY;
+    heading = poseHeading;
+    fieldVx = fieldVy = omega = 0;
+    accelX = accelY = 0;
+    for (int i = 0; i < moduleCount; i++)
+    {
+      steerAngles[i] = steerRates[i] = wheelSpeeds[i] = wheelDistances[i] = 0;
+      speedSetpoints[i] = angleSetpoints[i] = 0;
+    }
+    batteryVoltage = SimulationConstants.BATTERY_VOLTAGE;
+    batteryCurrent = 0;
+    energy = 0;
+    time = 0;
+  }
+
+  /**
+   * Set the module setpoints the SparkMax loops track until the next call.
+   *
+   * @param speeds        Module speeds in meters per second.
+   * @param anglesRadians Module angles in radians.
+   */
+  public void setSetpoints(double[] speeds, double[] anglesRadians)
+  {
+    System.arraycopy(speeds, 0, speedSetpoints, 0, moduleCount);
+    System.arraycopy(anglesRadians, 0, angleSetpoints, 0, moduleCount);
+  }
+
+  /**
+   * Advance by a duration in fixed {@link SimulationConstants#PHYSICS_STEP} steps.
+   *
+   * @param duration Time to simulate in seconds, rounded to whole steps.
+   */
+  public void simulate(double duration)
+  {
+    int steps = (int) Math.round(duration / SimulationConstants.PHYSICS_STEP);
+    for (int i = 0; i < steps; i++)
+    {
+      step(SimulationConstants.PHYSICS_STEP);
+    }
+  }
+
+  /**
+   * Advance by one step.
+   *
+   * @param dt Step in seconds, a millisecond or less keeps the motor and friction models stable.
+   */
+  public void step(double dt)
+  {
+    double cos = Math.cos(heading);
+    double sin = Math.sin(heading);
+    double vx  = cos * fieldVx + sin * fieldVy;
+    double vy  = -sin * fieldVx + cos * fieldVy;
+
+    boolean enabled  = batteryVoltage > SimulationConstants.BROWNOUT_VOLTAGE;
+    double  maxVolts = Math.min(batteryVoltage, NOMINAL_VOLTAGE);
+    double  forceX   = 0, forceY = 0, torque = 0;
+    double  busPower = 0;
+    for (int i = 0; i < moduleCount; i++)
+    {
+      // Same optimization as the module: never turn more than 90 degrees, reverse the wheel instead
+      double error = Math.IEEEremainder(angleSetpoints[i] - steerAngles[i], 2 * Math.PI);
+      double speed = speedSetpoints[i];
+      if (Math.abs(error) > Math.PI / 2)
+      {
+        error = Math.IEEEremainder(error + Math.PI, 2 * Math.PI);
+        speed = -speed;
+      }
+
+      // Steering, position loop on the SparkMax
+      double steerVolts = enabled ? clamp(SimulationConstants.STEER_KP * Math.toDegrees(error) * NOMINAL_VOLTAGE,
+                                          maxVolts) : 0;
+      busPower += steer(i, steerVolts, dt);
+
+      // Wheel contact velocity along and across the wheel
+      double wheelCos = Math.cos(steerAngles[i]);
+      double wheelSin = Math.sin(steerAngles[i]);
+      double groundX  = vx - omega * moduleY[i];
+      double groundY  = vy + omega * moduleX[i];
+      double along    = groundX * wheelCos + groundY * wheelSin;
+      double across   = -groundX * wheelSin + groundY * wheelCos;
+
+      // Drive, velocity loop on the SparkMax with YAGSL's feedforward, on the wheel speed the motor encoder reads
+      double wheelSpeed  = wheelSpeeds[i];
+      double driveVolts  = enabled ? clamp(NOMINAL_VOLTAGE * speed / maxVelocity
+                                           + SimulationConstants.DRIVE_KP * (speed - wheelSpeed) * NOMINAL_VOLTAGE,
+                                           maxVolts) : 0;
+      double forcePerAmp = driveKt * driveRadiansPerMeter;
+      double current     = (driveVolts - wheelSpeed * driveRadiansPerMeter * driveKe) / driveR;
+      // Motor force at the tread, motorForce - backEmf * wheel speed, or constant on the current limit
+      double motorForce, backEmf;
+      if (Math.abs(current) > DrivebaseConstants.DRIVE_CURRENT_LIMIT)
+      {
+        motorForce = forcePerAmp * clamp(current, DrivebaseConstants.DRIVE_CURRENT_LIMIT);
+        backEmf = 0;
+      } else
+      {
+        motorForce = forcePerAmp * driveVolts / driveR;
+        backEmf = forcePerAmp * driveRadiansPerMeter * driveKe / driveR;
+      }
+
+      // Tire forces, limited by friction on the wheel's share of the weight
+      double normal = mass * GRAVITY / moduleCount
+                      - mass * cgHeight * (accelX * moduleX[i] / sumX2 + accelY * moduleY[i] / sumY2);
+      normal = Math.max(0, normal);
+      double grip    = SimulationConstants.WHEEL_FRICTION * normal;
+      double lever   = moduleX[i] * wheelCos + moduleY[i] * wheelSin;
+      double lateral = -LATERAL_RELAX * across / (dt * (1 / mass + lever * lever / inertia) * moduleCount);
+
+      // Traction from the slip ratio, the wheel speed against the ground speed along the wheel. The reference speed is
+      // held over the step so the force is linear in the new wheel speed, and the stiffness is capped like the lateral
+      // relaxation so the chassis, stepped explicitly, does not ring.
+      double slipSpeed  = Math.max(SimulationConstants.SLIP_SPEED, Math.max(Math.abs(along), Math.abs(wheelSpeed)));
+      double leverAlong = moduleX[i] * wheelSin - moduleY[i] * wheelCos;
+      double stiffness  = Math.min(grip / (SimulationConstants.PEAK_SLIP * slipSpeed),
+                                   LATERAL_RELAX / (dt * (1 / mass + leverAlong * leverAlong / inertia) * moduleCount));
+      // Wheel and rotor, implicit in the back EMF and the tire stiffness which are both stiff at this step
+      double rate     = dt / wheelMass;
+      double newSpeed = (wheelSpeed + rate * (motorForce + stiffness * along)) / (1 + rate * (backEmf + stiffness));
+      double traction = stiffness * (newSpeed - along);
+      double total    = Math.hypot(traction, lateral);
+      if (total > grip)
+      {
+        traction *= grip / total;
+        lateral *= grip / total;
+      }
+      // Same update with the traction the friction circle allows, unchanged when it did not limit
+      wheelSpeed = (wheelSpeed + rate * (motorForce - traction)) / (1 + rate * backEmf);
+      double motorSpeed = wheelSpeed * driveRadiansPerMeter;
+      if (backEmf != 0)
+      {
+        current = (driveVolts - motorSpeed * driveKe) / driveR;
+      } else
+      {
+        current = clamp(current, DrivebaseConstants.DRIVE_CURRENT_LIMIT);
+      }
+      busPower += (current * driveR + motorSpeed * driveKe) * current;
+
+      double longitudinal = traction
+                            - SimulationConstants.ROLLING_RESISTANCE * normal * clamp(along / ROLLING_SPEED, 1);
+      double wheelForceX  = longitudinal * wheelCos - lateral * wheelSin;
+      double wheelForceY  = longitudinal * wheelSin + lateral * wheelCos;
+      forceX += wheelForceX;
+      forceY += wheelForceY;
+      torque += moduleX[i] * wheelForceY - moduleY[i] * wheelForceX;
+
+      // The encoders read the wheel, so wheel spin and skid reach the odometry
+      wheelSpeeds[i] = wheelSpeed;
+      wheelDistances[i] += wheelSpeed * dt;
+    }
+
+    // Chassis, semi-implicit Euler
+    accelX = forceX / mass;
+    accelY = forceY / mass;
+    fieldVx += (cos * accelX - sin * accelY) * dt;
+    fieldVy += (sin * accelX + cos * accelY) * dt;
+    omega += torque / inertia * dt;
+    x += fieldVx * dt;
+    y += fieldVy * dt;
+    heading = Math.IEEEremainder(heading + omega * dt, 2 * Math.PI);
+
+    // Battery, the controllers draw their output power from the bus
+    batteryCurrent = busPower / batteryVoltage;
+    batteryVoltage = Math.max(0, SimulationConstants.BATTERY_VOLTAGE
+                                 - SimulationConstants.BATTERY_RESISTANCE * batteryCurrent);
+    energy += busPower * dt;
+    time += dt;
+  }
+
+  // Returns the electrical power drawn
+  private double steer(int module, double volts, double dt)
+  {
+    double gearing = SimulationConstants.STEER_GEAR_RATIO;
+    double steerInertia = SimulationConstants.STEER_INERTIA;
+    double current = (volts - steerRates[module] * gearing * steerKe) / steerR;
+    if (Math.abs(current) > SimulationConstants.STEER_CURRENT_LIMIT)
+    {
+      current = clamp(current, SimulationConstants.STEER_CURRENT_LIMIT);
+      steerRates[module] += steerKt * gearing * current / steerInertia * dt;
+    } else
+    {
+      // Back EMF damping is implicit, the steering time constant is close to the step
+      double damping = steerKt * gearing * gearing * steerKe / (steerR * steerInertia);
+      steerRates[module] = (steerRates[module] + steerKt * gearing * volts / (steerR * steerInertia) * dt)
+                           / (1 + damping * dt);
+      current = (volts - steerRates[module] * gearing * steerKe) / steerR;
+    }
+    steerAngles[module] = Math.IEEEremainder(steerAngles[module] + steerRates[module] * dt, 2 * Math.PI);
+    return (current * steerR + steerRates[module] * gearing * steerKe) * current;
+  }
+
+  private static double clamp(double value, double limit)
+  {
+    return Math.max(-limit, Math.min(limit, value));
+  }
+
+  /**
+   * Get the simulated time since the last reset.
+   *
+   * @return Time in seconds.
+   */
+  public double getTime()
+  {
+    return time;
+  }
+
+  /**
+   * Get the field X.
+   *
+   * @return X in meters.
+   */
+  public double getX()
+  {
+    return x;
+  }
+
+  /**
+   * Get the field Y.
+   *
+   * @return Y in meters.
+   */
+  public double getY()
+  {
+    return y;
+  }
+
+  /**
+   * Get the heading, what a perfect gyro reads.
+   *
+   * @return Heading in radians.
+   */
+  public double getHeading()
+  {
+    return heading;
+  }
+
+  /**
+   * Get the field relative X velocity.
+   *
+   * @return Velocity in meters per second.
+   */
+  public double getFieldVx()
+  {
+    return fieldVx;
+  }
+
+  /**
+   * Get the field relative Y velocity.
+   *
+   * @return Velocity in meters per second.
+   */
+  public double getFieldVy()
+  {
+    return fieldVy;
+  }
+
+  /**
+   * Get the angular velocity.
+   *
+   * @return Angular velocity in radians per second.
+   */
+  public double getOmega()
+  {
+    return omega;
+  }
+
+  /**
+   * Get the wheel speeds at the tread, what the drive encoders read. They differ from the ground speed while a wheel
+   * slips.
+   *
+   * @return Speeds in meters per second, owned by the model.
+   */
+  public double[] getModuleSpeeds()
+  {
+    return wheelSpeeds;
+  }
+
+  /**
+   * Get the module angles, what the absolute encoders read.
+   *
+   * @return Angles in radians, owned by the model.
+   */
+  public double[] getModuleAngles()
+  {
+    return steerAngles;
+  }
+
+  /**
+   * Get the distance each wheel rolled.
+   *
+   * @return Distances in meters, owned by the model.
+   */
+  public double[] getModuleDistances()
+  {
+    return wheelDistances;
+  }
+
+  /**
+   * Get the battery terminal voltage.
+   *
+   * @return Voltage in volts.
+   */
+  public double getBatteryVoltage()
+  {
+    return batteryVoltage;
+  }
+
+  /**
+   * Get the current drawn from the battery by the drive.
+   *
+   * @return Current in amps.
+   */
+  public double getBatteryCurrent()
+  {
+    return batteryCurrent;
+  }
+
+  /**
+   * Get the energy drawn from the battery since the last reset.
+   *
+   * @return Energy in joules.
+   */
+  public double getEnergy()
+  {
+    return energy;
+  }
+
+  /**
+   * Check whether the battery is below the brownout voltage, with every output off.
+   *
+   * @return True while browned out.
+   */
+  public boolean isBrownedOut()
+  {
+    return batteryVoltage <= SimulationConstants.BROWNOUT_VOLTAGE;
+  }
+}
@@ -0,0 +1,519 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.sim;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pathplanner.lib.commands.PathPlannerAuto;
+import com.pathplanner.lib.path.GoalEndState;
+import com.pathplanner.lib.path.PathConstraints;
+import com.pathplanner.lib.path.PathPlannerPath;
+import com.pathplanner.lib.util.PIDConstants;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.util.Units;
+import edu.wpi.first.wpilibj.Filesystem;
+import frc.robot.Constants;
+import frc.robot.Constants.AutonConstants;
+import frc.robot.util.PrimitiveSwerveKinematics;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Offline tuning of the path following gains in {@link AutonConstants} and the heading PID in
+ * {@code controllerproperties.json}, by Nelder-Mead search over {@link DriveSimulation} runs.
+ *
+ * <p>The path following cost is summed over reference paths, each from its start and from a start off to the side: RMS
+ * tracking error, final error, settle time and the heading error integral after the path, plus a steep penalty for
+ * overshooting the goal by more than 5 cm or 5 degrees. The heading cost is
+ * summed over heading steps in place: settle time and heading error integral, with the same overshoot penalty. Every
+ * cost evaluation runs its simulations in parallel, and so do the initial simplex and shrink steps, on one
+ * {@link ForkJoinPool}. The simulations are deterministic, so the search is too.
+ *
+ * <p>The result is printed as constants to paste, with the convergence history written as CSV and as an SVG plot.
+ */
+public class GainOptimizer
+{
+
+  /**
+   * A cost to minimize.
+   */
+  @FunctionalInterface
+  public interface Objective
+  {
+
+    /**
+     * Evaluate the cost. Called from several threads at once.
+     *
+     * @param x Parameters.
+     * @return Cost, lower is better.
+     */
+    double cost(double[] x);
+  }
+
+  /**
+   * Best cost and parameters after each iteration of a search.
+   */
+  public static final class History
+  {
+
+    /**
+     * Best cost after each iteration.
+     */
+    public final List<Double>   costs       = new ArrayList<>();
+    /**
+     * Best parameters after each iteration.
+     */
+    public final List<double[]> parameters  = new ArrayList<>();
+    /**
+     * Cost evaluations after each iteration.
+     */
+    public final List<Integer>  evaluations = new ArrayList<>();
+  }
+
+  // Overshoot allowed before the penalty applies
+  private static final double   OVERSHOOT_LIMIT         = 0.05; // meters
+  private static final double   HEADING_OVERSHOOT_LIMIT = Units.degreesToRadians(5);
+  // Cost weights, tracking errors are in meters and times in seconds
+  private static final double   FINAL_ERROR_WEIGHT      = 1.0;
+  private static final double   SETTLE_WEIGHT           = 0.1;
+  private static final double   HEADING_INTEGRAL_WEIGHT = 0.1;
+  private static final double   OVERSHOOT_PENALTY       = 100;
+  private static final double   BROWNOUT_PENALTY        = 10;
+  // Cost of a run that never settles
+  private static final double   UNSETTLED_TIME          = 2.0; // seconds
+  // Second start of every reference path
+  private static final double   START_OFFSET            = 0.15; // meters
+  // Heading steps and how long each runs
+  private static final double[] HEADING_STEPS           = {Units.degreesToRadians(30), Units.degreesToRadians(90),
+                                                           Units.degreesToRadians(-150)};
+  private static final double   HEADING_STEP_TIME       = 2.0; // seconds
+  // Nelder-Mead reflection, expansion, contraction and shrink coefficients
+  private static final double   REFLECTION              = 1.0;
+  private static final double   EXPANSION               = 2.0;
+  private static final double   CONTRACTION             = 0.5;
+  private static final double   SHRINK                  = 0.5;
+
+  private final double[]              moduleX;
+  private final double[]              moduleY;
+  private final double                driveMetersPerRotation;
+  private final List<PathPlannerPath> paths;
+  private final double                headingI;
+
+  /**
+   * Create an optimizer.
+   *
+   * @param kinematics             Module geometry, copied for every run.
+   * @param driveMetersPerRotation Wheel travel per drive motor rotation in meters, the YAGSL drive conversion factor.
+   * @param paths                  Reference paths, only read from now on.
+   * @param headingI               Heading kI, kept while the heading kP and kD are tuned.
+   */
+  public GainOptimizer(PrimitiveSwerveKinematics kinematics, double driveMetersPerRotation,
+                       List<PathPlannerPath> paths, double headingI)
+  {
+    moduleX = new double[kinematics.getModuleCount()];
+    moduleY = new double[kinematics.getModuleCount()];
+    for (int i = 0; i < moduleX.length; i++)
+    {
+      moduleX[i] = kinematics.getModuleX(i);
+      moduleY[i] = kinematics.getModuleY(i);
+    }
+    this.driveMetersPerRotation = driveMetersPerRotation;
+    this.paths = List.copyOf(paths);
+    this.headingI = headingI;
+  }
+
+  /**
+   * Build the default reference paths: a straight run, a straight run with a half turn and an S-curve with a quarter
+   * turn, at the {@code driveToPose} constraints.
+   *
+   * @param maxAngularVelocity Maximum angular velocity of the drive in radians per second.
+   * @return The paths.
+   */
+  public static List<PathPlannerPath> referencePaths(double maxAngularVelocity)
+  {
+    PathConstraints constraints = new PathConstraints(Constants.MAX_SPEED, 4.0, maxAngularVelocity,
+                                                      Units.degreesToRadians(720));
+    return List.of(
+        new PathPlannerPath(PathPlannerPath.bezierFromPoses(new Pose2d(0, 0, new Rotation2d()),
+                                                            new Pose2d(4, 0, new Rotation2d())),
+                            constraints, new GoalEndState(0, new Rotation2d())),
+        new PathPlannerPath(PathPlannerPath.bezierFromPoses(new Pose2d(0, 0, new Rotation2d()),
+                                                            new Pose2d(3, 0, new Rotation2d())),
+                            constraints, new GoalEndState(0, Rotation2d.fromDegrees(180))),
+        new PathPlannerPath(PathPlannerPath.bezierFromPoses(new Pose2d(0, 0, new Rotation2d()),
+                                                            new Pose2d(1.5, 1, Rotation2d.fromDegrees(90)),
+                                                            new Pose2d(3, 2, new Rotation2d())),
+                            constraints, new GoalEndState(0, Rotation2d.fromDegrees(90))));
+  }
+
+  /**
+   * Path following cost of translation and rotation gains.
+   *
+   * @param gains Translation kP and kD, then rotation kP and kD. Negative gains count as their magnitude.
+   * @return Cost summed over the reference paths and starts.
+   */
+  public double pathCost(double[] gains)
+  {
+    PIDConstants translation = new PIDConstants(Math.abs(gains[0]), AutonConstants.TRANSLATION_PID.kI,
+                                                Math.abs(gains[1]));
+    PIDConstants rotation    = new PIDConstants(Math.abs(gains[2]), AutonConstants.ANGLE_PID.kI, Math.abs(gains[3]));
+    return IntStream.range(0, 2 * paths.size()).parallel().mapToDouble(i -> {
+      PathPlannerPath path  = paths.get(i / 2);
+      Pose2d          start = path.getPreviewStartingHolonomicPose();
+      if (i % 2 == 1)
+      {
+        start = new Pose2d(start.getX(), start.getY() + START_OFFSET, start.getRotation());
+      }
+      DriveSimulation simulation = newSimulation();
+      simulation.setPathFollowingPid(translation, rotation);
+      DriveSimulation.Result result = simulation.runPaths(start, List.of(path));
+      return result.rmsTrackingError + FINAL_ERROR_WEIGHT * result.finalError + settleCost(result)
+             + HEADING_INTEGRAL_WEIGHT * result.headingErrorIntegral + overshootCost(result);
+    }).sum();
+  }
+
+  /**
+   * Heading controller cost of heading gains.
+   *
+   * @param gains Heading kP and kD. Negative gains count as their magnitude.
+   * @return Cost summed over the heading steps.
+   */
+  public double headingCost(double[] gains)
+  {
+    PIDConstants heading = new PIDConstants(Math.abs(gains[0]), headingI, Math.abs(gains[1]));
+    return Arrays.stream(HEADING_STEPS).parallel().map(step -> {
+      DriveSimulation.Result result = newSimulation().runHeadingStep(heading, step, HEADING_STEP_TIME);
+      return settleCost(result) + HEADING_INTEGRAL_WEIGHT * result.headingErrorIntegral + overshootCost(result);
+    }).sum();
+  }
+
+  private DriveSimulation newSimulation()
+  {
+    return new DriveSimulation(new PrimitiveSwerveKinematics(moduleX, moduleY), driveMetersPerRotation);
+  }
+
+  private static double settleCost(DriveSimulation.Result result)
+  {
+    return SETTLE_WEIGHT * (Double.isFinite(result.settleTime) ? result.settleTime : UNSETTLED_TIME);
+  }
+
+  private static double overshootCost(DriveSimulation.Result result)
+  {
+    return OVERSHOOT_PENALTY * (Math.max(0, result.overshoot - OVERSHOOT_LIMIT)
+                                + Math.max(0, result.headingOvershoot - HEADING_OVERSHOOT_LIMIT))
+           + (result.brownedOut ? BROWNOUT_PENALTY : 0);
+  }
+
+  /**
+   * Minimize a cost with the Nelder-Mead simplex method. Call from a {@link ForkJoinPool} task to evaluate the initial
+   * simplex and shrink steps on that pool.
+   *
+   * @param objective     Cost to minimize.
+   * @param start         Starting parameters.
+   * @param step          Size of the initial simplex along each parameter.
+   * @param maxIterations Iterations to stop after.
+   * @param tolerance     Stop once the costs across the simplex differ by less than this.
+   * @param history       Receives the progress, ending with the returned parameters.
+   * @return The best vertex of the final simplex, the starting simplex's best with no iterations.
+   */
+  public static double[] minimize(Objective objective, double[] start, double[] step, int maxIterations,
+                                  double tolerance, History history)
+  {
+    int        n        = start.length;
+    double[][] simplex  = new double[n + 1][];
+    double[]   costs    = new double[n + 1];
+    Integer[]  order    = new Integer[n + 1];
+    int        evaluations;
+    boolean    converged = false;
+    for (int i = 0; i <= n; i++)
+    {
+      simplex[i] = start.clone();
+      if (i > 0)
+      {
+        simplex[i][i - 1] += step[i - 1];
+      }
+    }
+    IntStream.rangeClosed(0, n).parallel().forEach(i -> costs[i] = objective.cost(simplex[i]));
+    evaluations = n + 1;
+
+    for (int iteration = 0; iteration < maxIterations; iteration++)
+    {
+      for (int i = 0; i <= n; i++)
+      {
+        order[i] = i;
+      }
+      Arrays.sort(order, Comparator.comparingDouble(i -> costs[i]));
+      int best = order[0], secondWorst = order[n - 1], worst = order[n];
+      history.costs.add(costs[best]);
+      history.parameters.add(simplex[best].clone());
+      history.evaluations.add(evaluations);
+      if (costs[worst] - costs[best] < tolerance)
+      {
+        converged = true;
+        break;
+      }
+
+      double[] centroid = new double[n];
+      for (int i = 0; i <= n; i++)
+      {
+        if (i != worst)
+        {
+          for (int j = 0; j < n; j++)
+          {
+            centroid[j] += simplex[i][j] / n;
+          }
+        }
+      }
+      double[] reflected     = along(centroid, simplex[worst], -REFLECTION);
+      double   reflectedCost = objective.cost(reflected);
+      evaluations++;
+      if (reflectedCost < costs[best])
+      {
+        double[] expanded     = along(centroid, simplex[worst], -EXPANSION);
+        double   expandedCost = objective.cost(expanded);
+        evaluations++;
+        boolean expand = expandedCost < reflectedCost;
+        simplex[worst] = expand ? expanded : reflected;
+        costs[worst] = expand ? expandedCost : reflectedCost;
+        continue;
+      }
+      if (reflectedCost < costs[secondWorst])
+      {
+        simplex[worst] = reflected;
+        costs[worst] = reflectedCost;
+        continue;
+      }
+      // Contract towards the better of the worst and reflected points
+      boolean  outside        = reflectedCost < costs[worst];
+      double[] contracted     = along(centroid, outside ? reflected : simplex[worst], CONTRACTION);
+      double   contractedCost = objective.cost(contracted);
+      evaluations++;
+      if (contractedCost < (outside ? reflectedCost : costs[worst]))
+      {
+        simplex[worst] = contracted;
+        costs[worst] = contractedCost;
+        continue;
+      }
+      // Shrink everything towards the best point
+      double[] bestPoint = simplex[best];
+      IntStream.rangeClosed(0, n).filter(i -> i != best).parallel().forEach(i -> {
+        simplex[i] = along(bestPoint, simplex[i], SHRINK);
+        costs[i] = objective.cost(simplex[i]);
+      });
+      evaluations += n;
+    }
+
+    int best = 0;
+    for (int i = 1; i <= n; i++)
+    {
+      if (costs[i] < costs[best])
+      {
+        best = i;
+      }
+    }
+    // On convergence the last entry is already this vertex, otherwise the last move is not recorded yet
+    if (!converged)
+    {
+      history.costs.add(costs[best]);
+      history.parameters.add(simplex[best].clone());
+      history.evaluations.add(evaluations);
+    }
+    return simplex[best].clone();
+  }
+
+  // from + scale * (to - from)
+  private static double[] along(double[] from, double[] to, double scale)
+  {
+    double[] point = new double[from.length];
+    for (int i = 0; i < point.length; i++)
+    {
+      point[i] = from[i] + scale * (to[i] - from[i]);
+    }
+    return point;
+  }
+
+  /**
+   * Write a search history as CSV.
+   *
+   * @param history History of the search.
+   * @param names   Parameter names.
+   * @param file    Destination.
+   * @throws IOException If the file can not be written.
+   */
+  public static void writeCsv(History history, String[] names, File file) throws IOException
+  {
+    try (PrintWriter out = new PrintWriter(new FileWriter(file)))
+    {
+      out.println("iteration,evaluations,cost," + String.join(",", names));
+      for (int i = 0; i < history.costs.size(); i++)
+      {
+        StringBuilder row = new StringBuilder();
+        row.append(i).append(',').append(history.evaluations.get(i)).append(',').append(history.costs.get(i));
+        for (double value : history.parameters.get(i))
+        {
+          row.append(',').append(Math.abs(value));
+        }
+        out.println(row);
+      }
+    }
+  }
+
+  /**
+   * Plot the best cost of a search against its iterations as SVG.
+   *
+   * @param history History of the search.
+   * @param title   Plot title.
+   * @param file    Destination.
+   * @throws IOException If the file can not be written.
+   */
+  public static void writePlot(History history, String title, File file) throws IOException
+  {
+    int    width  = 640, height = 400, margin = 50;
+    int    count  = history.costs.size();
+    double max    = history.costs.get(0);
+    double min    = history.costs.get(count - 1);
+    double range  = Math.max(max - min, 1e-12);
+    try (PrintWriter out = new PrintWriter(new FileWriter(file)))
+    {
+      out.printf("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"%d\" height=\"%d\">%n", width, height);
+      out.printf("<rect width=\"%d\" height=\"%d\" fill=\"white\"/>%n", width, height);
+      out.printf("<text x=\"%d\" y=\"25\" font-family=\"sans-serif\" font-size=\"16\">%s</text>%n", margin, title);
+      out.printf("<line x1=\"%d\" y1=\"%d\" x2=\"%d\" y2=\"%d\" stroke=\"black\"/>%n", margin, height - margin,
+                 width - margin, height - margin);
+      out.printf("<line x1=\"%d\" y1=\"%d\" x2=\"%d\" y2=\"%d\" stroke=\"black\"/>%n", margin, margin, margin,
+                 height - margin);
+      out.printf("<text x=\"%d\" y=\"%d\" font-family=\"sans-serif\" font-size=\"12\">iteration %d</text>%n",
+                 width - margin - 80, height - margin + 20, count - 1);
+      out.printf("<text x=\"5\" y=\"%d\" font-family=\"sans-serif\" font-size=\"12\">%.4f</text>%n", margin, max);
+      out.printf("<text x=\"5\" y=\"%d\" font-family=\"sans-serif\" font-size=\"12\">%.4f</text>%n", height - margin,
+                 min);
+      StringBuilder points = new StringBuilder();
+      for (int i = 0; i < count; i++)
+      {
+        double x = margin + (width - 2.0 * margin) * i / Math.max(count - 1, 1);
+        double y = height - margin - (height - 2.0 * margin) * (history.costs.get(i) - min) / range;
+        points.append(String.format("%.1f,%.1f ", x, y));
+      }
+      out.printf("<polyline fill=\"none\" stroke=\"steelblue\" stroke-width=\"2\" points=\"%s\"/>%n", points);
+      out.println("</svg>");
+    }
+  }
+
+  /**
+   * Tune from the command line.
+   *
+   * <p>Run with {@code ./gradlew tuneGains --args="[--auto=<name>]... [--path=<name>]... [--iterations=N]
+   * [--threads=N] [--out=<directory>]"}. Without autos or paths the built-in reference paths are used.
+   *
+   * @param args See above.
+   * @throws IOException          If the configuration or a path can not be read, or the output can not be written.
+   * @throws InterruptedException If interrupted while waiting for the workers.
+   */
+  public static void main(String[] args) throws IOException, InterruptedException
+  {
+    List<PathPlannerPath> paths      = new ArrayList<>();
+    int                   iterations = 200;
+    int                   threads    = Runtime.getRuntime().availableProcessors();
+    File                  outDir     = new File("build/tuning");
+    for (String arg : args)
+    {
+      String value = arg.substring(arg.indexOf('=') + 1);
+      if (arg.startsWith("--auto="))
+      {
+        paths.addAll(PathPlannerAuto.getPathGroupFromAutoFile(value));
+      } else if (arg.startsWith("--path="))
+      {
+        paths.add(PathPlannerPath.fromPathFile(value));
+      } else if (arg.startsWith("--iterations="))
+      {
+        iterations = Integer.parseInt(value);
+      } else if (arg.startsWith("--threads="))
+      {
+        threads = Integer.parseInt(value);
+      } else if (arg.startsWith("--out="))
+      {
+        outDir = new File(value);
+      }
+    }
+
+    File                      swerveDirectory = new File(Filesystem.getDeployDirectory(), "swerve");
+    PrimitiveSwerveKinematics kinematics      = DriveSimulation.loadKinematics(swerveDirectory);
+    JsonNode                  headingConfig   = new ObjectMapper().readTree(
+        new File(swerveDirectory, "controllerproperties.json")).get("heading");
+    double radius = 0;
+    for (int i = 0; i < kinematics.getModuleCount(); i++)
+    {
+      radius = Math.max(radius, Math.hypot(kinematics.getModuleX(i), kinematics.getModuleY(i)));
+    }
+    if (paths.isEmpty())
+    {
+      paths = referencePaths(Constants.MAX_SPEED / radius);
+    }
+    GainOptimizer optimizer = new GainOptimizer(kinematics,
+                                                DriveSimulation.loadDriveMetersPerRotation(swerveDirectory),
+                                                paths, headingConfig.get("i").asDouble());
+    if (!outDir.isDirectory() && !outDir.mkdirs())
+    {
+      throw new IOException("Could not create " + outDir);
+    }
+
+    double[]     pathStart      = {AutonConstants.TRANSLATION_PID.kP, AutonConstants.TRANSLATION_PID.kD,
+                                   AutonConstants.ANGLE_PID.kP, AutonConstants.ANGLE_PID.kD};
+    double[]     headingStart   = {headingConfig.get("p").asDouble(), headingConfig.get("d").asDouble()};
+    History      pathHistory    = new History();
+    History      headingHistory = new History();
+    int          maxIterations  = iterations;
+    long         begin          = System.nanoTime();
+    ForkJoinPool pool           = new ForkJoinPool(threads);
+    double[]     path;
+    double[]     heading;
+    try
+    {
+      path = pool.submit(() -> minimize(optimizer::pathCost, pathStart, new double[]{1.0, 0.05, 1.0, 0.05},
+                                        maxIterations, 1e-5, pathHistory)).get();
+      heading = pool.submit(() -> minimize(optimizer::headingCost, headingStart, new double[]{0.5, 0.02},
+                                           maxIterations, 1e-5, headingHistory)).get();
+    } catch (ExecutionException e)
+    {
+      throw new IllegalStateException("Tuning failed", e.getCause());
+    } finally
+    {
+      pool.shutdown();
+    }
+    double wallSeconds = (System.nanoTime() - begin) / 1e9;
+
+    writeCsv(pathHistory, new String[]{"translation_kp", "translation_kd", "rotation_kp", "rotation_kd"},
+             new File(outDir, "path_convergence.csv"));
+    writePlot(pathHistory, "Path following cost", new File(outDir, "path_convergence.svg"));
+    writeCsv(headingHistory, new String[]{"heading_kp", "heading_kd"}, new File(outDir, "heading_convergence.csv"));
+    writePlot(headingHistory, "Heading step cost", new File(outDir, "heading_convergence.svg"));
+
+    System.out.printf("Tuned on %d threads in %.1f s, %d path and %d heading evaluations%n", threads, wallSeconds,
+                      pathHistory.evaluations.get(pathHistory.evaluations.size() - 1),
+                      headingHistory.evaluations.get(headingHistory.evaluations.size() - 1));
+    System.out.printf("Path following cost %.4f -> %.4f, heading cost %.4f -> %.4f%n", pathHistory.costs.get(0),
+                      pathHistory.costs.get(pathHistory.costs.size() - 1), headingHistory.costs.get(0),
+                      headingHistory.costs.get(headingHistory.costs.size() - 1));
+    System.out.println("AutonConstants:");
+    System.out.printf("  TRANSLATION_PID = new PIDConstants(%.4f, %s, %.4f);%n", Math.abs(path[0]),
+                      AutonConstants.TRANSLATION_PID.kI, Math.abs(path[1]));
+    System.out.printf("  ANGLE_PID       = new PIDConstants(%.4f, %s, %.4f);%n", Math.abs(path[2]),
+                      AutonConstants.ANGLE_PID.kI, Math.abs(path[3]));
+    System.out.println("controllerproperties.json:");
+    System.out.printf("  \"heading\": {\"p\": %.4f, \"i\": %s, \"d\": %.4f}%n", Math.abs(heading[0]),
+                      headingConfig.get("i").asDouble(), Math.abs(heading[1]));
+    System.out.println("Convergence written to " + outDir);
+  }
+}
@@ -0,0 +1,165 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.sim;
+
+import com.pathplanner.lib.commands.PathPlannerAuto;
+import com.pathplanner.lib.path.PathPlannerPath;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.wpilibj.Filesystem;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Command line runner for {@link DriveSimulation}: drives a PathPlanner auto, a single path or a teleop script against
+ * the drivetrain physics faster than real time and prints the outcome, optionally with a per-loop CSV trace.
+ *
+ * <p>Autos only follow their paths in order. Waits, named commands and event markers are not run, so an auto that
+ * waits between paths finishes sooner than on the field. Teleop scripts are CSV rows of
+ * {@code time,vx,vy,omega}, field relative in meters and radians per second, each held until the next row's time.
+ *
+ * <p>Run with {@code ./gradlew simulateHeadless --args="--auto=<name> | --path=<name> | --script=<csv> [--start=x,y,deg]
+ * [--out=trace.csv] [--repeat=N]"}.
+ */
+public final class HeadlessSim
+{
+
+  private HeadlessSim()
+  {
+  }
+
+  /**
+   * Read a teleop script.
+   *
+   * @param file CSV file, a header row is skipped.
+   * @return Rows of time, vx, vy and omega.
+   * @throws IOException If the file can not be read.
+   */
+  public static List<double[]> readScript(File file) throws IOException
+  {
+    List<double[]> rows = new ArrayList<>();
+    for (String line : Files.readAllLines(file.toPath()))
+    {
+      String[] fields = line.split(",");
+      if (line.isBlank() || fields.length < 4 || !Character.isDigit(fields[0].trim().charAt(0)))
+      {
+        continue;
+      }
+      double[] row = new double[4];
+      for (int i = 0; i < row.length; i++)
+      {
+        row[i] = Double.parseDouble(fields[i].trim());
+      }
+      rows.add(row);
+    }
+    return rows;
+  }
+
+  /**
+   * Make a driver that plays a script, holding each row until the next row's time.
+   *
+   * @param rows Rows of time, vx, vy and omega, in time order. The last row only marks the end.
+   * @return The driver.
+   */
+  public static DriveSimulation.Driver scriptDriver(List<double[]> rows)
+  {
+    return (time, speeds) -> {
+      if (rows.isEmpty() || time >= rows.get(rows.size() - 1)[0])
+      {
+        return false;
+      }
+      double[] row = rows.get(0);
+      for (double[] candidate : rows)
+      {
+        if (candidate[0] > time)
+        {
+          break;
+        }
+        row = candidate;
+      }
+      speeds[0] = row[1];
+      speeds[1] = row[2];
+      speeds[2] = row[3];
+      return true;
+    };
+  }
+
+  /**
+   * Run a simulation from the command line.
+   *
+   * @param args See the class documentation.
+   * @throws IOException If the configuration, a path or a script can not be read, or the trace can not be written.
+   */
+  public static void main(String[] args) throws IOException
+  {
+    String auto    = null, path = null, script = null, outPath = null;
+    Pose2d start   = new Pose2d();
+    int    repeats = 1;
+    for (String arg : args)
+    {
+      if (arg.startsWith("--auto="))
+      {
+        auto = arg.substring("--auto=".length());
+      } else if (arg.startsWith("--path="))
+      {
+        path = arg.substring("--path=".length());
+      } else if (arg.startsWith("--script="))
+      {
+        script = arg.substring("--script=".length());
+      } else if (arg.startsWith("--start="))
+      {
+        String[] values = arg.substring("--start=".length()).split(",");
+        start = new Pose2d(Double.parseDouble(values[0]), Double.parseDouble(values[1]),
+                           Rotation2d.fromDegrees(Double.parseDouble(values[2])));
+      } else if (arg.startsWith("--out="))
+      {
+        outPath = arg.substring("--out=".length());
+      } else if (arg.startsWith("--repeat="))
+      {
+        repeats = Integer.parseInt(arg.substring("--repeat=".length()));
+      }
+    }
+    if ((auto == null ? 0 : 1) + (path == null ? 0 : 1) + (script == null ? 0 : 1) != 1)
+    {
+      System.err.println("Usage: HeadlessSim --auto=<name> | --path=<name> | --script=<csv> [--start=x,y,deg] "
+                         + "[--out=trace.csv] [--repeat=N]");
+      System.exit(1);
+    }
+
+    File            swerveDirectory = new File(Filesystem.getDeployDirectory(), "swerve");
+    DriveSimulation simulation      = new DriveSimulation(DriveSimulation.loadKinematics(swerveDirectory),
+                                                          DriveSimulation.loadDriveMetersPerRotation(swerveDirectory));
+    List<PathPlannerPath> paths = auto != null ? PathPlannerAuto.getPathGroupFromAutoFile(auto)
+                                  : path != null ? List.of(PathPlannerPath.fromPathFile(path)) : null;
+    List<double[]>        rows  = script != null ? readScript(new File(script)) : null;
+
+    // Repeats after the first show the speed once the JIT has warmed up
+    DriveSimulation.Result result = null;
+    long                   start0 = 0;
+    for (int i = 0; i < repeats; i++)
+    {
+      boolean last = i == repeats - 1;
+      try (PrintWriter out = last && outPath != null ? new PrintWriter(new FileWriter(outPath)) : null)
+      {
+        simulation.setTrace(out);
+        start0 = System.nanoTime();
+        result = paths != null ? simulation.runPaths(paths) : simulation.runScript(start, scriptDriver(rows));
+        simulation.setTrace(null);
+      }
+    }
+    double wallSeconds = (System.nanoTime() - start0) / 1e9;
+    System.out.printf("Simulated in %.1f ms, %.0fx real time: %s%n", wallSeconds * 1000,
+                      result.duration / wallSeconds, result);
+    if (outPath != null)
+    {
+      System.out.println("Trace written to " + outPath);
+    }
+  }
+}
@@ -0,0 +1,201 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.subsystems;
+
+import edu.wpi.first.math.MathUtil;
+import frc.robot.Constants.DrivebaseConstants;
+import frc.robot.telemetry.DriveTelemetrySnapshot;
+import frc.robot.util.DoubleRingBuffer;
+import frc.robot.util.TimestampedDerivative;
+import swervelib.telemetry.Alert;
+import swervelib.telemetry.Alert.AlertType;
+
+/**
+ * Watches every swerve module for signs of a failing module and raises an {@link Alert} before it wrecks odometry. Each
+ * loop, every module is checked for
+ * <ul>
+ *   <li>wheel speed and azimuth that do not follow the last setpoint, and a drive that stalls,</li>
+ *   <li>an absolute steering encoder that disagrees with the relative one, from a loose magnet or a slipping pulley,</li>
+ *   <li>wheel velocity that rigid body motion can not explain, with the rotation taken from the gyro, from a slipping
+ *   or lifted wheel.</li>
+ * </ul>
+ * The rotation rate of the wheels as a whole is also checked against the gyro.
+ *
+ * <p>Every check keeps a rolling mean over {@link DrivebaseConstants#HEALTH_WINDOW} loops in a
+ * {@link DoubleRingBuffer}, and only adds a sample when the check is meaningful, for example the azimuth is not checked
+ * while the wheel is held still. An alert is raised once the mean passes its limit and cleared below half of it, so a
+ * borderline module does not flicker. Nothing allocates after construction.
+ */
+public class ModuleHealthMonitor
+{
+
+  private static final int    MODULES     = DriveTelemetrySnapshot.MODULE_COUNT;
+  // Alerts clear below this fraction of their limit
+  private static final double CLEAR_RATIO = 0.5;
+
+  private final double[]           moduleX;
+  private final double[]           moduleY;
+  private final DoubleRingBuffer[] speedErrors     = new DoubleRingBuffer[MODULES];
+  private final DoubleRingBuffer[] angleErrors     = new DoubleRingBuffer[MODULES];
+  private final DoubleRingBuffer[] encoderErrors   = new DoubleRingBuffer[MODULES];
+  private final DoubleRingBuffer[] slips           = new DoubleRingBuffer[MODULES];
+  private final double[]           stallStart      = new double[MODULES];
+  private final Alert[]            speedAlerts     = new Alert[MODULES];
+  private final Alert[]            angleAlerts     = new Alert[MODULES];
+  private final Alert[]            encoderAlerts   = new Alert[MODULES];
+  private final Alert[]            slipAlerts      = new Alert[MODULES];
+  private final Alert[]            stallAlerts     = new Alert[MODULES];
+  private final boolean[]          speedDegraded   = new boolean[MODULES];
+  private final boolean[]          angleDegraded   = new boolean[MODULES];
+  private final boolean[]          encoderDegraded = new boolean[MODULES];
+  private final boolean[]          slipDegraded    = new boolean[MODULES];
+  private final boolean[]          stallDegraded   = new boolean[MODULES];
+  // The gyro rate is a smoothed derivative, so the wheel rate is averaged over the same window to lag alike
+  private final TimestampedDerivative gyroRate;
+  private final DoubleRingBuffer      wheelRates;
+  private final DoubleRingBuffer      yawRateErrors;
+  private final Alert                 yawRateAlert;
+  private       boolean               yawRateDegraded;
+
+  /**
+   * Create a monitor.
+   *
+   * @param moduleX Robot relative module X offsets in meters, in configuration order.
+   * @param moduleY Robot relative module Y offsets in meters, in configuration order.
+   */
+  public ModuleHealthMonitor(double[] moduleX, double[] moduleY)
+  {
+    this.moduleX = moduleX.clone();
+    this.moduleY = moduleY.clone();
+    for (int i = 0; i < MODULES; i++)
+    {
+      speedErrors[i] = new DoubleRingBuffer(DrivebaseConstants.HEALTH_WINDOW);
+      angleErrors[i] = new DoubleRingBuffer(DrivebaseConstants.HEALTH_WINDOW);
+      encoderErrors[i] = new DoubleRingBuffer(DrivebaseConstants.HEALTH_WINDOW);
+      slips[i] = new DoubleRingBuffer(DrivebaseConstants.HEALTH_WINDOW);
+      stallStart[i] = Double.NaN;
+      String module = "Swerve module " + i + " ";
+      speedAlerts[i] = new Alert(module + "wheel speed is not following its setpoint.", AlertType.WARNING);
+      angleAlerts[i] = new Alert(module + "azimuth is not following its setpoint.", AlertType.WARNING);
+      encoderAlerts[i] = new Alert(module + "absolute and relative steering encoders disagree.", AlertType.WARNING);
+      slipAlerts[i] = new Alert(module + "wheel is slipping or not touching the floor.", AlertType.WARNING);
+      stallAlerts[i] = new Alert(module + "drive is stalled.", AlertType.ERROR);
+    }
+    gyroRate = new TimestampedDerivative(DrivebaseConstants.MODULE_DERIVATIVE_WINDOW, true);
+    wheelRates = new DoubleRingBuffer(DrivebaseConstants.MODULE_DERIVATIVE_WINDOW);
+    yawRateErrors = new DoubleRingBuffer(DrivebaseConstants.HEALTH_WINDOW);
+    yawRateAlert = new Alert("Wheel rotation rate disagrees with the gyro.", AlertType.WARNING);
+  }
+
+  /**
+   * Check every module against one loop of measurements and update the alerts.
+   *
+   * @param snapshot               This loop's drive state.
+   * @param relativeAnglesDegrees  Module azimuths from the relative steering encoders, in degrees, unwrapped is fine.
+   * @param commanded              True if the setpoints were sent last loop while enabled, so tracking can be checked.
+   * @param commandedSpeeds        Module speed setpoints in meters per second.
+   * @param commandedAnglesRadians Module azimuth setpoints in radians.
+   */
+  public void update(DriveTelemetrySnapshot snapshot, double[] relativeAnglesDegrees, boolean commanded,
+                     double[] commandedSpeeds, double[] commandedAnglesRadians)
+  {
+    double timestamp = snapshot.timestamp;
+    double omega     = Math.toRadians(gyroRate.update(timestamp, Math.toDegrees(snapshot.gyroYawRadians)));
+
+    wheelRates.add(snapshot.omegaRadiansPerSecond);
+    yawRateErrors.add(Math.abs(wheelRates.mean() - omega));
+    yawRateDegraded = degraded(yawRateErrors, yawRateDegraded, DrivebaseConstants.HEALTH_YAW_RATE_ERROR);
+    yawRateAlert.set(yawRateDegraded);
+
+    // Robot relative chassis velocity that best explains the wheels with the gyro's rotation
+    double vx = 0, vy = 0;
+    for (int i = 0; i < MODULES; i++)
+    {
+      double angle = Math.toRadians(snapshot.moduleAnglesDegrees[i]);
+      vx += snapshot.moduleSpeeds[i] * Math.cos(angle) + omega * moduleY[i];
+      vy += snapshot.moduleSpeeds[i] * Math.sin(angle) - omega * moduleX[i];
+    }
+    vx /= MODULES;
+    vy /= MODULES;
+
+    for (int i = 0; i < MODULES; i++)
+    {
+      double speed = snapshot.moduleSpeeds[i];
+      double angle = snapshot.moduleAnglesDegrees[i];
+
+      double angleRadians = Math.toRadians(angle);
+      slips[i].add(Math.hypot(speed * Math.cos(angleRadians) - (vx - omega * moduleY[i]),
+                              speed * Math.sin(angleRadians) - (vy + omega * moduleX[i])));
+      slipDegraded[i] = degraded(slips[i], slipDegraded[i], DrivebaseConstants.HEALTH_SLIP);
+
+      if (Math.abs(snapshot.moduleSteeringRates[i]) < DrivebaseConstants.HEALTH_MAX_STEER_RATE)
+      {
+        encoderErrors[i].add(Math.abs(MathUtil.inputModulus(angle - relativeAnglesDegrees[i], -180, 180)));
+      }
+      encoderDegraded[i] = degraded(encoderErrors[i], encoderDegraded[i], DrivebaseConstants.HEALTH_ENCODER_ERROR);
+
+      boolean stalled = false;
+      if (commanded)
+      {
+        // The module may have flipped the setpoint instead of turning more than a quarter turn
+        double commandedSpeed = commandedSpeeds[i];
+        double angleError = MathUtil.inputModulus(Math.toDegrees(commandedAnglesRadians[i]) - angle, -180, 180);
+        if (Math.abs(angleError) > 90)
+        {
+          commandedSpeed = -commandedSpeed;
+          angleError = MathUtil.inputModulus(angleError + 180, -180, 180);
+        }
+        speedErrors[i].add(Math.abs(commandedSpeed - speed));
+        if (Math.abs(commandedSpeed) > DrivebaseConstants.HEALTH_MIN_SPEED)
+        {
+          angleErrors[i].add(Math.abs(angleError));
+        }
+        stalled = Math.abs(commandedSpeed) > DrivebaseConstants.HEALTH_STALL_SPEED
+                  && Math.abs(speed) < Math.abs(commandedSpeed) / 5;
+      }
+      speedDegraded[i] = degraded(speedErrors[i], speedDegraded[i], DrivebaseConstants.HEALTH_SPEED_ERROR);
+      angleDegraded[i] = degraded(angleErrors[i], angleDegraded[i], DrivebaseConstants.HEALTH_ANGLE_ERROR);
+
+      if (!stalled)
+      {
+        stallStart[i] = Double.NaN;
+      } else if (Double.isNaN(stallStart[i]))
+      {
+        stallStart[i] = timestamp;
+      }
+
+      stallDegraded[i] = stalled && timestamp - stallStart[i] >= DrivebaseConstants.HEALTH_STALL_TIME;
+
+      speedAlerts[i].set(speedDegraded[i]);
+      angleAlerts[i].set(angleDegraded[i]);
+      encoderAlerts[i].set(encoderDegraded[i]);
+      slipAlerts[i].set(slipDegraded[i]);
+      stallAlerts[i].set(stallDegraded[i]);
+    }
+  }
+
+  // hysteresis on the rolling mean, raised above the limit and cleared below a fraction of it
+  private static boolean degraded(DoubleRingBuffer errors, boolean wasDegraded, double limit)
+  {
+    if (errors.size() < DrivebaseConstants.HEALTH_MIN_SAMPLES)
+    {
+      return wasDegraded;
+    }
+    double mean = errors.mean();
+    return wasDegraded ? mean > limit * CLEAR_RATIO : mean > limit;
+  }
+
+  /**
+   * Check whether any alert of a module is raised.
+   *
+   * @param module Module index, in configuration order.
+   * @return True if the module is degraded.
+   */
+  public boolean isDegraded(int module)
+  {
+    return speedDegraded[module] || angleDegraded[module] || encoderDegraded[module] || slipDegraded[module]
+           || stallDegraded[module];
+  }
+}
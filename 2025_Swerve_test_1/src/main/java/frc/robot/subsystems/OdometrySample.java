@@ -0,0 +1,47 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.subsystems;
+
+import frc.robot.telemetry.DriveTelemetrySnapshot;
+
+/**
+ * Preallocated odometry reading taken by the {@link OdometryThread}: gyro yaw and module positions at one timestamp.
+ */
+public class OdometrySample
+{
+
+  /**
+   * FPGA timestamp the sensors were read at, in seconds.
+   */
+  public double timestamp;
+
+  /**
+   * Gyro yaw in radians, CCW positive.
+   */
+  public double yawRadians;
+
+  /**
+   * Module drive distances in meters, in configuration order.
+   */
+  public final double[] moduleDistances = new double[DriveTelemetrySnapshot.MODULE_COUNT];
+
+  /**
+   * Module angles in radians, in configuration order.
+   */
+  public final double[] moduleAnglesRadians = new double[DriveTelemetrySnapshot.MODULE_COUNT];
+
+  /**
+   * Copy every field from another sample, used by the queue to hand samples between threads.
+   *
+   * @param other Sample to copy.
+   */
+  public void copyFrom(OdometrySample other)
+  {
+    timestamp = other.timestamp;
+    yawRadians = other.yawRadians;
+    System.arraycopy(other.moduleDistances, 0, moduleDistances, 0, moduleDistances.length);
+    System.arraycopy(other.moduleAnglesRadians, 0, moduleAnglesRadians, 0, moduleAnglesRadians.length);
+  }
+}
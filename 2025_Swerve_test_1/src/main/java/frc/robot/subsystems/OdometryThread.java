@@ -0,0 +1,101 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.subsystems;
+
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.Timer;
+import frc.robot.Constants.DrivebaseConstants;
+import frc.robot.telemetry.SnapshotRingBuffer;
+import swervelib.SwerveDrive;
+import swervelib.SwerveModule;
+
+/**
+ * Reads the gyro and module encoders faster than the robot loop and queues the timestamped readings for the main loop.
+ * The thread only reads sensors. The main loop drains the queue into the pose estimator, so odometry updates and vision
+ * measurements are applied from one thread, in timestamp order, without locking the estimator.
+ *
+ * <p>The queue is a lock-free {@link SnapshotRingBuffer}. If the main loop stalls long enough to fill it, the oldest
+ * readings are dropped, which only lowers the odometry resolution over that stretch since the estimator integrates
+ * position deltas.
+ *
+ * <p>Reads the real encoders only, in simulation the YAGSL odometry also drives the simulated gyro so it must keep
+ * running.
+ */
+public class OdometryThread
+{
+
+  private final SwerveModule[]                     modules;
+  private final SwerveDrive                        swerveDrive;
+  private final SnapshotRingBuffer<OdometrySample> queue;
+  private final OdometrySample                     reading = new OdometrySample();
+  private final Notifier                           notifier;
+
+  /**
+   * Create the thread. Call {@link #start()} once YAGSL's own odometry thread is stopped.
+   *
+   * @param swerveDrive Swerve drive to read the sensors of.
+   */
+  public OdometryThread(SwerveDrive swerveDrive)
+  {
+    this.swerveDrive = swerveDrive;
+    modules = swerveDrive.getModules();
+    queue = new SnapshotRingBuffer<>(DrivebaseConstants.ODOMETRY_QUEUE_CAPACITY,
+                                     OdometrySample::new,
+                                     OdometrySample::copyFrom);
+    notifier = new Notifier(this::sample);
+    notifier.setName("Odometry");
+  }
+
+  /**
+   * Start reading at {@link DrivebaseConstants#ODOMETRY_PERIOD}.
+   */
+  public void start()
+  {
+    notifier.startPeriodic(DrivebaseConstants.ODOMETRY_PERIOD);
+  }
+
+  /**
+   * Stop reading.
+   */
+  public void stop()
+  {
+    notifier.stop();
+  }
+
+  /**
+   * Take the oldest queued reading. Only call from the main loop.
+   *
+   * @param destination Sample to copy the reading into.
+   * @return True if a reading was copied, false if the queue was empty.
+   */
+  public boolean poll(OdometrySample destination)
+  {
+    return queue.poll(destination);
+  }
+
+  /**
+   * Get the number of readings dropped because the main loop fell behind.
+   *
+   * @return Dropped reading count.
+   */
+  public long getDroppedCount()
+  {
+    return queue.getDroppedCount();
+  }
+
+  // runs on the notifier thread
+  private void sample()
+  {
+    reading.timestamp = Timer.getFPGATimestamp();
+    // The IMU only exposes its yaw as an object.
+    reading.yawRadians = swerveDrive.getYaw().getRadians();
+    for (int i = 0; i < modules.length; i++)
+    {
+      reading.moduleDistances[i] = modules[i].getDriveMotor().getPosition();
+      reading.moduleAnglesRadians[i] = Math.toRadians(modules[i].getAbsolutePosition());
+    }
+    queue.offer(reading);
+  }
+}
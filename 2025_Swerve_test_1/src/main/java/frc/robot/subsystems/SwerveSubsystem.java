@@ -8,6 +8,8 @@ import edu.wpi.first.wpilibj2.command.SubsystemBase;
 
 import java.io.File;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
 import java.util.function.DoubleSupplier;
 
 import org.photonvision.PhotonCamera;
@@ -17,41 +19,71 @@ import com.pathplanner.lib.auto.AutoBuilder;
 import com.pathplanner.lib.commands.PathPlannerAuto;
 import com.pathplanner.lib.path.PathConstraints;
 import com.pathplanner.lib.path.PathPlannerPath;
+import com.pathplanner.lib.pathfinding.Pathfinding;
 import com.pathplanner.lib.util.HolonomicPathFollowerConfig;
 import com.pathplanner.lib.util.ReplanningConfig;
 
 import edu.wpi.first.apriltag.AprilTagFieldLayout;
 import edu.wpi.first.apriltag.AprilTagFields;
+import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.controller.SimpleMotorFeedforward;
 import edu.wpi.first.math.geometry.Pose2d;
-import edu.wpi.first.math.geometry.Pose3d;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
 import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
+import edu.wpi.first.math.system.plant.DCMotor;
 import edu.wpi.first.math.trajectory.Trajectory;
 import edu.wpi.first.math.util.Units;
+import edu.wpi.first.wpilibj.DataLogManager;
 import edu.wpi.first.wpilibj.DriverStation;
-import edu.wpi.first.wpilibj.DriverStation.Alliance;
+import edu.wpi.first.wpilibj.Preferences;
+import edu.wpi.first.wpilibj.TimedRobot;
 import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.Commands;
+import edu.wpi.first.wpilibj2.command.FunctionalCommand;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import edu.wpi.first.wpilibj2.command.sysid.SysIdRoutine.Config;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
 import edu.wpi.first.math.kinematics.SwerveModuleState;
 import frc.robot.Constants;
+import frc.robot.Constants.AimConstants;
 import frc.robot.Constants.AutonConstants;
+import frc.robot.Constants.DrivebaseConstants;
+import frc.robot.Constants.TelemetryConstants;
+import frc.robot.pathfinding.GridPathfinder;
+import frc.robot.pathfinding.NavGrid;
+import frc.robot.telemetry.DebugTelemetry;
+import frc.robot.telemetry.DebugTelemetry.DoubleChannel;
+import frc.robot.telemetry.DebugTelemetry.Verbosity;
+import frc.robot.telemetry.DataLogRecorder;
+import frc.robot.telemetry.DriveTelemetrySnapshot;
+import frc.robot.telemetry.LoopProfiler;
+import frc.robot.telemetry.TelemetryFrame;
+import frc.robot.telemetry.TelemetryScheduler;
+import frc.robot.telemetry.TelemetryTier;
+import frc.robot.util.AimSolver;
+import frc.robot.util.FeedforwardEstimator;
+import frc.robot.util.FieldTargets;
+import frc.robot.util.FieldTargets.Target;
+import frc.robot.util.PoseHistory;
+import frc.robot.util.PrimitiveSwerveKinematics;
+import frc.robot.util.SwerveSetpointGenerator;
+import frc.robot.util.TimestampedDerivative;
 import swervelib.SwerveController;
 import swervelib.SwerveDrive;
+import swervelib.SwerveModule;
 import swervelib.SwerveDriveTest;
 import swervelib.math.SwerveMath;
 import swervelib.parser.PIDFConfig;
 import swervelib.parser.SwerveControllerConfiguration;
 import swervelib.parser.SwerveDriveConfiguration;
 import swervelib.parser.SwerveParser;
+import swervelib.telemetry.Alert;
+import swervelib.telemetry.Alert.AlertType;
 import swervelib.telemetry.SwerveDriveTelemetry;
-import swervelib.telemetry.SwerveDriveTelemetry.TelemetryVerbosity;
 import frc.robot.SwerveShuffleboardManager;
 
 public class SwerveSubsystem extends SubsystemBase 
@@ -67,11 +99,80 @@ public class SwerveSubsystem extends SubsystemBase
     //TODO: update this once new field layout is released
     private final AprilTagFieldLayout aprilTagFieldLayout = AprilTagFields.k2024Crescendo.loadAprilTagLayoutField();
 
+    //Scoring targets of both alliances, resolved once from the layout
+    private final FieldTargets fieldTargets = new FieldTargets(aprilTagFieldLayout);
+
+    //Lead compensated aiming at the speaker, accounts for robot velocity and actuation lag. The shot speed is the
+    //tunable preference, loaded when an aim command starts so the loop does not read NetworkTables.
+    private       double    shotSpeed = loadShotSpeed();
+    private final AimSolver aimSolver = new AimSolver(AimConstants.LATENCY, distance -> distance / shotSpeed);
+
 
 
     //Enable vision odometry updates while driving
     private final boolean visionDriveTest = false;
 
+    //Fast odometry reader used with vision on the real robot, the sample being applied, and when odometry was last
+    //reset, readings taken before it are dropped
+    private OdometryThread       odometryThread;
+    private final OdometrySample odometrySample    = new OdometrySample();
+    private double               odometryResetTime = Double.NEGATIVE_INFINITY;
+
+    //Positions handed to the pose estimator for every reading, refilled in place since the estimator copies them
+    private final SwerveModulePosition[] odometryPositions =
+        new SwerveModulePosition[DriveTelemetrySnapshot.MODULE_COUNT];
+    private       Rotation2d             odometryYaw       = new Rotation2d();
+
+    //Drive state captured once per loop, shared by every telemetry consumer
+    private final DriveTelemetrySnapshot telemetrySnapshot = new DriveTelemetrySnapshot();
+
+    //Robot relative module offsets in meters, cached so the snapshot does not rebuild them every loop
+    private final double[] moduleOffsetX = new double[DriveTelemetrySnapshot.MODULE_COUNT];
+    private final double[] moduleOffsetY = new double[DriveTelemetrySnapshot.MODULE_COUNT];
+
+    //Recent poses for looking up where the robot was when a measurement was taken, and its query buffer
+    private final PoseHistory poseHistory = new PoseHistory(DrivebaseConstants.POSE_HISTORY_CAPACITY);
+    private final double[]    poseSample  = new double[PoseHistory.SAMPLE_SIZE];
+
+    //Allocation free kinematics built from the configured module locations, and its work buffers
+    private PrimitiveSwerveKinematics kinematics;
+    private final double[]            moduleAnglesRadians = new double[DriveTelemetrySnapshot.MODULE_COUNT];
+    private final double[]            robotSpeeds         = new double[3];
+
+    //Limits every drive command to module setpoints the drivetrain can follow, and when it last produced one
+    private SwerveSetpointGenerator   setpointGenerator;
+    private double                    lastSetpointTime = Double.NEGATIVE_INFINITY;
+    private final SwerveModuleState[] moduleSetpoints  = new SwerveModuleState[DriveTelemetrySnapshot.MODULE_COUNT];
+    private Alert                     maxSpeedAlert;
+
+    //Module state debug channels, keys are built once instead of on every loop
+    private final DoubleChannel[] moduleSpeedChannels = new DoubleChannel[DriveTelemetrySnapshot.MODULE_COUNT];
+    private final DoubleChannel[] moduleAngleChannels = new DoubleChannel[DriveTelemetrySnapshot.MODULE_COUNT];
+
+    //Smoothed module drive acceleration and steering rate, fed from the snapshot every loop
+    private final TimestampedDerivative[] driveAccelerationFilters =
+        new TimestampedDerivative[DriveTelemetrySnapshot.MODULE_COUNT];
+    private final TimestampedDerivative[] steeringRateFilters      =
+        new TimestampedDerivative[DriveTelemetrySnapshot.MODULE_COUNT];
+
+    //Online drive feedforward fit per module, when each module last had its feedforward swapped, and debug channels
+    private final FeedforwardEstimator[] feedforwardEstimators =
+        new FeedforwardEstimator[DriveTelemetrySnapshot.MODULE_COUNT];
+    private final double[]               lastFeedforwardSwap   = new double[DriveTelemetrySnapshot.MODULE_COUNT];
+    private final DoubleChannel[]        feedforwardChannels   = new DoubleChannel[9 * DriveTelemetrySnapshot.MODULE_COUNT];
+
+    //Raises alerts for modules that stop tracking their setpoints, slip or lose their steering encoder
+    private ModuleHealthMonitor healthMonitor;
+    private final double[]      relativeAnglesDegrees = new double[DriveTelemetrySnapshot.MODULE_COUNT];
+
+    //Number of times the gyro has been zeroed, published by the on-change telemetry tier
+    private int gyroZeroCount = 0;
+
+    //Loop profiler sections, vision is timed separately so overruns are blamed on the right part
+    private final LoopProfiler         profiler        = LoopProfiler.getInstance();
+    private final LoopProfiler.Section periodicSection = profiler.section("SwerveSubsystem.periodic");
+    private final LoopProfiler.Section visionSection   = profiler.section("Vision");
+
 
   // use json files for swerve module setup
   public SwerveSubsystem(File directory)
@@ -93,7 +194,7 @@ public class SwerveSubsystem extends SubsystemBase
     System.out.println("}");
 
     // Configure the Telemetry before creating the SwerveDrive to avoid unnecessary objects being created.
-    SwerveDriveTelemetry.verbosity = TelemetryVerbosity.HIGH;
+    DebugTelemetry.applySwerveVerbosity();
     try
     {
       swerveDrive = new SwerveParser(directory).createSwerveDrive(Constants.MAX_SPEED); 
@@ -106,9 +207,7 @@ public class SwerveSubsystem extends SubsystemBase
     }
     swerveDrive.setHeadingCorrection(false); // Heading correction should only be used while controlling the robot via angle.
     swerveDrive.setCosineCompensator(false); //!SwerveDriveTelemetry.isSimulation); // Disables cosine compensation for simulations since it causes discrepancies not seen in real life.
-    swerveDrive.setAngularVelocityCompensation(true,
-                                               true,
-                                               0.1); //Correct for skew that gets worse as angular velocity increases. Start with a coefficient of 0.1.
+    // Skew correction is applied in driveRobotRelative, see DrivebaseConstants.ANGULAR_VELOCITY_COEFFICIENT.
     swerveDrive.setModuleEncoderAutoSynchronize(false,
                                                 1); // Enable if you want to resynchronize your absolute encoders and motor encoders periodically when they are not moving.
     swerveDrive.pushOffsetsToEncoders(); // Set the absolute encoder to be used over the internal encoder and push the offsets onto it. Throws warning if not possible
@@ -116,9 +215,18 @@ public class SwerveSubsystem extends SubsystemBase
     if (visionDriveTest)
     {
       setupPhotonVision();
-      // Stop the odometry thread if we are using vision that way we can synchronize updates better.
+      // Stop the YAGSL odometry thread, the pose estimator is only updated from the main loop so odometry and vision
+      // can be applied in timestamp order. Our own thread keeps reading the sensors at the high rate.
       swerveDrive.stopOdometryThread();
+      if (!SwerveDriveTelemetry.isSimulation)
+      {
+        odometryThread = new OdometryThread(swerveDrive);
+        odometryThread.start();
+      }
     }
+    setupTelemetry();
+    setupSetpointGenerator();
+    setupFeedforwardEstimation();
     setupPathPlanner();
   }
 
@@ -131,6 +239,92 @@ public class SwerveSubsystem extends SubsystemBase
   public SwerveSubsystem(SwerveDriveConfiguration driveCfg, SwerveControllerConfiguration controllerCfg)
   {
     swerveDrive = new SwerveDrive(driveCfg, controllerCfg, Constants.MAX_SPEED);
+    setupTelemetry();
+    setupSetpointGenerator();
+    setupFeedforwardEstimation();
+  }
+
+  // cache module geometry and NetworkTables publishers used by the telemetry snapshot
+  private void setupTelemetry()
+  {
+    kinematics = PrimitiveSwerveKinematics.fromConfiguration(swerveDrive.swerveDriveConfiguration);
+    for (int i = 0; i < DriveTelemetrySnapshot.MODULE_COUNT; i++)
+    {
+      odometryPositions[i] = new SwerveModulePosition();
+      moduleOffsetX[i] = kinematics.getModuleX(i);
+      moduleOffsetY[i] = kinematics.getModuleY(i);
+      driveAccelerationFilters[i] = new TimestampedDerivative(DrivebaseConstants.MODULE_DERIVATIVE_WINDOW, false);
+      steeringRateFilters[i] = new TimestampedDerivative(DrivebaseConstants.MODULE_DERIVATIVE_WINDOW, true);
+      moduleSpeedChannels[i] = new DoubleChannel("Module " + i + " Speed", Verbosity.HIGH,
+                                                 TelemetryConstants.SPEED_DEADBAND);
+      moduleAngleChannels[i] = new DoubleChannel("Module " + i + " Angle", Verbosity.HIGH,
+                                                 TelemetryConstants.ANGLE_DEADBAND);
+    }
+    if (DebugTelemetry.isEnabled(Verbosity.HIGH))
+    {
+      TelemetryScheduler.getInstance().register(TelemetryTier.FAST, this::logModuleStates);
+    }
+    DataLogRecorder.getInstance().setModuleOffsets(moduleOffsetX, moduleOffsetY);
+    healthMonitor = new ModuleHealthMonitor(moduleOffsetX, moduleOffsetY);
+  }
+
+  // limits shared by every drive command, built on the kinematics from setupTelemetry
+  private void setupSetpointGenerator()
+  {
+    // The drive reduction and wheel size come from the loaded configuration, the same factor the drive encoders use
+    setpointGenerator = new SwerveSetpointGenerator(kinematics,
+                                                    DCMotor.getNEO(1),
+                                                    swerveDrive.getModules()[0].configuration.conversionFactors.drive,
+                                                    Constants.ROBOT_MASS,
+                                                    Constants.MAX_SPEED,
+                                                    DrivebaseConstants.MAX_DRIVE_ACCELERATION,
+                                                    DrivebaseConstants.MAX_STEER_VELOCITY,
+                                                    DrivebaseConstants.DRIVE_CURRENT_LIMIT);
+    // Commands past the free speed are capped, which usually means the gear ratio or the maximum speed is wrong
+    maxSpeedAlert = new Alert(String.format("Maximum speed %.2f m/s is above the drive free speed of %.2f m/s, check "
+                                            + "the drive gear ratio and wheel diameter.",
+                                            Constants.MAX_SPEED, setpointGenerator.getFreeSpeed()),
+                              AlertType.WARNING);
+    maxSpeedAlert.set(Constants.MAX_SPEED > setpointGenerator.getFreeSpeed());
+    for (int i = 0; i < moduleSetpoints.length; i++)
+    {
+      moduleSetpoints[i] = new SwerveModuleState();
+    }
+  }
+
+  // seed the fits with the feedforward YAGSL derives from the configuration, which is what the modules start with
+  private void setupFeedforwardEstimation()
+  {
+    SimpleMotorFeedforward initial = SwerveMath.createDriveFeedforward(
+        swerveDrive.swerveDriveConfiguration.physicalCharacteristics.optimalVoltage,
+        swerveDrive.getMaximumVelocity(),
+        swerveDrive.swerveDriveConfiguration.physicalCharacteristics.wheelGripCoefficientOfFriction);
+    String[] names = {"kS", "kV", "kA"};
+    for (int i = 0; i < DriveTelemetrySnapshot.MODULE_COUNT; i++)
+    {
+      // kS within a few tenths of a volt, kV and kA within about a third of the configured values
+      double[] variance = {0.04, Math.pow(initial.kv / 3, 2), Math.pow(initial.ka / 3, 2)};
+      feedforwardEstimators[i] = new FeedforwardEstimator(initial.ks, initial.kv, initial.ka, variance,
+                                                          DrivebaseConstants.FEEDFORWARD_FORGETTING,
+                                                          (DrivebaseConstants.MODULE_DERIVATIVE_WINDOW - 1) / 2,
+                                                          DrivebaseConstants.FEEDFORWARD_ACCEL_DEADBAND);
+      lastFeedforwardSwap[i] = Double.NEGATIVE_INFINITY;
+      setAppliedFeedforward(i, initial);
+      for (int gain = 0; gain < 3; gain++)
+      {
+        String prefix = "Feedforward/Module " + i + "/";
+        feedforwardChannels[9 * i + gain] = new DoubleChannel(prefix + names[gain], Verbosity.HIGH,
+                                                              TelemetryConstants.FEEDFORWARD_DEADBAND);
+        feedforwardChannels[9 * i + 3 + gain] = new DoubleChannel(prefix + names[gain] + " 95%", Verbosity.HIGH,
+                                                                  TelemetryConstants.FEEDFORWARD_DEADBAND);
+        feedforwardChannels[9 * i + 6 + gain] = new DoubleChannel(prefix + "Applied " + names[gain], Verbosity.HIGH,
+                                                                  TelemetryConstants.FEEDFORWARD_DEADBAND);
+      }
+    }
+    if (DebugTelemetry.isEnabled(Verbosity.HIGH))
+    {
+      TelemetryScheduler.getInstance().register(TelemetryTier.SLOW, this::logFeedforward);
+    }
   }
 
   // setup photon vision class
@@ -148,12 +342,88 @@ public class SwerveSubsystem extends SubsystemBase
     // This will override the odometry from the encoders
     if (visionDriveTest)
     {
-      swerveDrive.updateOdometry();
-      vision.updatePoseEstimation(swerveDrive);
+      long visionStart = profiler.start();
+      if (odometryThread != null)
+      {
+        fuseOdometryAndVision();
+      } else
+      {
+        swerveDrive.updateOdometry();
+        vision.updatePoseEstimation(swerveDrive);
+      }
+      profiler.stop(visionSection, visionStart);
+    }
+
+    // Read the encoders once, everything downstream uses the snapshot
+    // Module state logging is published from the snapshot by the TelemetryScheduler
+    long start = profiler.start();
+    fieldTargets.updateAlliance();
+    updateTelemetrySnapshot();
+    updateFeedforwardEstimation();
+    updateHealthMonitor();
+    profiler.stop(periodicSection, start);
+  }
+
+  // apply the queued odometry readings and this loop's vision estimates to the pose estimator, oldest first
+  private void fuseOdometryAndVision()
+  {
+    List<Vision.Measurement> measurements = vision.getMeasurements();
+    int                      next         = 0;
+    while (odometryThread.poll(odometrySample))
+    {
+      if (odometrySample.timestamp <= odometryResetTime)
+      {
+        // Read before the last reset, its yaw and positions belong to the old odometry frame
+        continue;
+      }
+      while (next < measurements.size() && measurements.get(next).timestampSeconds <= odometrySample.timestamp)
+      {
+        addVisionMeasurement(measurements.get(next++));
+      }
+      // The estimator copies the positions, so the same objects are refilled for every reading. Rotation2d is
+      // immutable, a new one is only made when the angle changed.
+      for (int i = 0; i < odometryPositions.length; i++)
+      {
+        odometryPositions[i].distanceMeters = odometrySample.moduleDistances[i];
+        odometryPositions[i].angle = rotation(odometryPositions[i].angle, odometrySample.moduleAnglesRadians[i]);
+      }
+      odometryYaw = rotation(odometryYaw, odometrySample.yawRadians);
+      Pose2d pose = swerveDrive.swerveDrivePoseEstimator.updateWithTime(odometrySample.timestamp,
+                                                                        odometryYaw,
+                                                                        odometryPositions);
+      // Velocities are only measured once per loop, so the history gets the last loop's values.
+      poseHistory.add(odometrySample.timestamp, pose.getX(), pose.getY(), pose.getRotation().getRadians(),
+                      telemetrySnapshot.fieldVx, telemetrySnapshot.fieldVy, telemetrySnapshot.omegaRadiansPerSecond);
+    }
+    // Estimates newer than the latest reading
+    while (next < measurements.size())
+    {
+      addVisionMeasurement(measurements.get(next++));
+    }
+    swerveDrive.field.setRobotPose(swerveDrive.getPose());
+  }
+
+  private static Rotation2d rotation(Rotation2d previous, double radians)
+  {
+    return previous.getRadians() == radians ? previous : new Rotation2d(radians);
+  }
+
+  // drop the odometry readings queued before a reset, and any the thread is taking while it happens
+  private void flushOdometryQueue()
+  {
+    odometryResetTime = Timer.getFPGATimestamp();
+    if (odometryThread != null)
+    {
+      while (odometryThread.poll(odometrySample))
+      {
+        // Discarded
+      }
     }
+  }
 
-    // Add logging for module states if needed
-    logModuleStates();
+  private void addVisionMeasurement(Vision.Measurement measurement)
+  {
+    swerveDrive.addVisionMeasurement(measurement.pose, measurement.timestampSeconds, measurement.stdDevs);
   }
 
   // method for simulation purposes only
@@ -178,9 +448,9 @@ public class SwerveSubsystem extends SubsystemBase
                                          // Rotation PID constants
                                          AutonConstants.ANGLE_PID,
                                          // Max module speed, in m/s
-                                         4.5,
+                                         AutonConstants.MAX_MODULE_SPEED,
                                          // Drive base radius in meters. Distance from robot center to furthest module.
-                                         swerveDrive.swerveDriveConfiguration.getDriveBaseRadiusMeters(),
+                                         getDriveBaseRadius(),
                                          // Default path replanning config. See the API for the options here
                                          new ReplanningConfig()
                                         ),
@@ -193,41 +463,131 @@ public class SwerveSubsystem extends SubsystemBase
         },
         this // Reference to this subsystem to set requirements
     );
+    // Pathfinding commands plan on our grid with incremental replanning. The grid is loaded once, from the navgrid
+    // PathPlanner writes to deploy, or an open field of the AprilTag layout's size if there is none.
+    Pathfinding.setPathfinder(new GridPathfinder(NavGrid.loadDeployed(aprilTagFieldLayout.getFieldLength(),
+                                                                      aprilTagFieldLayout.getFieldWidth(),
+                                                                      AutonConstants.NAVGRID_NODE_SIZE)));
   }
 
   //Game specific targets -- TODO: rename/duplicate for specific target points on field
 
   public double getDistanceToTarget1()
   {
-    int allianceAprilTag = DriverStation.getAlliance().get() == Alliance.Blue ? 7 : 4;
-    // Taken from PhotonUtils.getDistanceToPose
-    Pose3d speakerAprilTagPose = aprilTagFieldLayout.getTagPose(allianceAprilTag).get();
-    return getPose().getTranslation().getDistance(speakerAprilTagPose.toPose2d().getTranslation());
+    Pose2d pose = getPose();
+    return fieldTargets.getDistance(Target.SPEAKER, pose.getX(), pose.getY());
   }
 
   //Game specific targets -- determine angle from robot to target for shooting/object placement
   public Rotation2d getTarget1Yaw()
   {
-    int allianceAprilTag = DriverStation.getAlliance().get() == Alliance.Blue ? 7 : 4;
-    // Taken from PhotonUtils.getYawToPose()
-    Pose3d        speakerAprilTagPose = aprilTagFieldLayout.getTagPose(allianceAprilTag).get();
-    Translation2d relativeTrl         = speakerAprilTagPose.toPose2d().relativeTo(getPose()).getTranslation();
-    return new Rotation2d(relativeTrl.getX(), relativeTrl.getY()).plus(swerveDrive.getOdometryHeading());
+    return new Rotation2d(getTarget1YawRadians(getPose()));
+  }
+
+  // field relative heading from the given pose to the speaker, in radians
+  private double getTarget1YawRadians(Pose2d pose)
+  {
+    return fieldTargets.getHeadingRadians(Target.SPEAKER, pose.getX(), pose.getY());
+  }
+
+  // the shot speed preference, created with the default the first time the robot runs this code. The time of flight
+  // divides by it, so a value that is not a positive speed is rejected for the default.
+  private static double loadShotSpeed()
+  {
+    Preferences.initDouble(AimConstants.SHOT_SPEED_KEY, AimConstants.DEFAULT_SHOT_SPEED);
+    double speed = Preferences.getDouble(AimConstants.SHOT_SPEED_KEY, AimConstants.DEFAULT_SHOT_SPEED);
+    if (!(speed > 0) || Double.isInfinite(speed))
+    {
+      DataLogManager.log("Ignoring " + AimConstants.SHOT_SPEED_KEY + " of " + speed + ", using "
+                         + AimConstants.DEFAULT_SHOT_SPEED + " m/s");
+      return AimConstants.DEFAULT_SHOT_SPEED;
+    }
+    return speed;
+  }
+
+  private void refreshShotSpeed()
+  {
+    shotSpeed = loadShotSpeed();
+  }
+
+  // field relative heading to shoot at the speaker from the given pose while moving
+  private double solveTarget1Aim(Pose2d pose)
+  {
+    ChassisSpeeds velocity = getFieldVelocity();
+    Translation2d target   = fieldTargets.getTranslation(Target.SPEAKER);
+    return aimSolver.solve(pose.getX(), pose.getY(),
+                           velocity.vxMetersPerSecond, velocity.vyMetersPerSecond,
+                           target.getX(), target.getY());
   }
 
   //Game specific targets -- rotate robot to face target point determined by game object
   public Command aimAtTarget1(double tolerance)
   {
     SwerveController controller = swerveDrive.getSwerveController();
-    return run(
+    // heading error of this loop's execute, which runs before isFinished, so it is not queried twice. It starts at
+    // infinity so an error left from the last run can not end the command before it has turned.
+    double[] headingError = new double[1];
+    return new FunctionalCommand(
+        () -> {
+          refreshShotSpeed();
+          headingError[0] = Double.POSITIVE_INFINITY;
+        },
         () -> {
+          Pose2d pose   = getPose();
+          double target = solveTarget1Aim(pose);
+          headingError[0] = MathUtil.angleModulus(target - pose.getRotation().getRadians());
           drive(ChassisSpeeds.fromFieldRelativeSpeeds(0,
                                                       0,
-                                                      controller.headingCalculate(getHeading().getRadians(),
-                                                                                  getTarget1Yaw().getRadians()),
-                                                      getHeading())
+                                                      controller.headingCalculate(pose.getRotation().getRadians(),
+                                                                                  target),
+                                                      pose.getRotation())
                );
-        }).until(() -> Math.abs(getTarget1Yaw().minus(getHeading()).getDegrees()) < tolerance);
+        },
+        interrupted -> {},
+        () -> Math.abs(Units.radiansToDegrees(headingError[0])) < tolerance,
+        this);
+  }
+
+  /**
+   * Drive with the left stick while the heading tracks the lead compensated aim at the speaker, so the robot can shoot
+   * while translating. Runs until interrupted.
+   *
+   * @param translationX Translation in the X direction. Scaled for smoother controls.
+   * @param translationY Translation in the Y direction. Scaled for smoother controls.
+   * @return Drive command.
+   */
+  public Command aimAtTarget1WhileDriving(DoubleSupplier translationX, DoubleSupplier translationY)
+  {
+    SwerveController controller = swerveDrive.getSwerveController();
+    return run(() -> {
+      Translation2d scaledInputs = SwerveMath.scaleTranslation(new Translation2d(translationX.getAsDouble(),
+                                                                                 translationY.getAsDouble()), 0.8);
+      Pose2d pose = getPose();
+      driveFieldOriented(new ChassisSpeeds(scaledInputs.getX() * swerveDrive.getMaximumVelocity(),
+                                           scaledInputs.getY() * swerveDrive.getMaximumVelocity(),
+                                           controller.headingCalculate(pose.getRotation().getRadians(),
+                                                                       solveTarget1Aim(pose))));
+    }).beforeStarting(this::refreshShotSpeed);
+  }
+
+  /**
+   * Get the last aim solution, for setting the shooter from its distance and time of flight.
+   *
+   * @return The {@link AimSolver}.
+   */
+  public AimSolver getAimSolver()
+  {
+    return aimSolver;
+  }
+
+  /**
+   * Get the scoring targets of the current alliance.
+   *
+   * @return The {@link FieldTargets} registry.
+   */
+  public FieldTargets getFieldTargets()
+  {
+    return fieldTargets;
   }
 
 
@@ -396,7 +756,90 @@ public class SwerveSubsystem extends SubsystemBase
    */
   public void replaceSwerveModuleFeedforward(double kS, double kV, double kA)
   {
-    swerveDrive.replaceSwerveModuleFeedforward(new SimpleMotorFeedforward(kS, kV, kA));
+    SimpleMotorFeedforward feedforward = new SimpleMotorFeedforward(kS, kV, kA);
+    swerveDrive.replaceSwerveModuleFeedforward(feedforward);
+    for (int i = 0; i < DriveTelemetrySnapshot.MODULE_COUNT; i++)
+    {
+      setAppliedFeedforward(i, feedforward);
+    }
+  }
+
+  /**
+   * Fit the drive feedforward of every module to this loop's applied voltage, wheel speed and acceleration, and swap a
+   * module's feedforward for its fit once the fit is confident and the applied gains are outside its intervals. Only on
+   * the real robot, the simulated modules have no motor voltage.
+   */
+  private void updateFeedforwardEstimation()
+  {
+    if (SwerveDriveTelemetry.isSimulation)
+    {
+      return;
+    }
+    SwerveModule[] modules = swerveDrive.getModules();
+    boolean        enabled = DriverStation.isEnabled();
+    for (int i = 0; i < modules.length; i++)
+    {
+      FeedforwardEstimator estimator = feedforwardEstimators[i];
+      double               speed     = telemetrySnapshot.moduleSpeeds[i];
+      boolean fit = enabled && Math.abs(speed) > DrivebaseConstants.FEEDFORWARD_MIN_SPEED
+                    && Math.abs(telemetrySnapshot.moduleSteeringRates[i]) < DrivebaseConstants.FEEDFORWARD_MAX_STEER_RATE;
+      estimator.update(modules[i].getDriveMotor().getVoltage(), speed, telemetrySnapshot.moduleAccelerations[i], fit);
+
+      boolean confident = estimator.isConfident(DrivebaseConstants.FEEDFORWARD_MIN_SAMPLES,
+                                                DrivebaseConstants.FEEDFORWARD_KS_INTERVAL,
+                                                DrivebaseConstants.FEEDFORWARD_KV_INTERVAL,
+                                                DrivebaseConstants.FEEDFORWARD_KA_INTERVAL);
+      boolean outside   = false;
+      for (int gain = 0; gain < 3; gain++)
+      {
+        telemetrySnapshot.feedforwardEstimates[3 * i + gain] = estimator.getGain(gain);
+        telemetrySnapshot.feedforwardIntervals[3 * i + gain] = estimator.getInterval(gain);
+        outside |= Math.abs(telemetrySnapshot.feedforwardApplied[3 * i + gain] - estimator.getGain(gain))
+                   > estimator.getInterval(gain);
+      }
+      if (DrivebaseConstants.FEEDFORWARD_AUTO_APPLY && confident && outside
+          && telemetrySnapshot.timestamp - lastFeedforwardSwap[i] >= DrivebaseConstants.FEEDFORWARD_SWAP_PERIOD)
+      {
+        SimpleMotorFeedforward feedforward = new SimpleMotorFeedforward(estimator.getGain(FeedforwardEstimator.KS),
+                                                                        estimator.getGain(FeedforwardEstimator.KV),
+                                                                        estimator.getGain(FeedforwardEstimator.KA));
+        modules[i].setFeedforward(feedforward);
+        setAppliedFeedforward(i, feedforward);
+        lastFeedforwardSwap[i] = telemetrySnapshot.timestamp;
+        // Logged with a timestamp so a swap can be lined up with the drive data, at most once per swap period
+        DataLogManager.log("Module " + i + " drive feedforward set to kS " + feedforward.ks + " kV " + feedforward.kv
+                           + " kA " + feedforward.ka + " after " + estimator.getSampleCount() + " samples");
+      }
+    }
+  }
+
+  /**
+   * Check the modules against the last setpoints, the relative steering encoders and the gyro. Only on the real robot,
+   * the simulated modules follow their setpoints exactly and the simulated gyro is driven by the wheels.
+   */
+  private void updateHealthMonitor()
+  {
+    if (SwerveDriveTelemetry.isSimulation)
+    {
+      return;
+    }
+    SwerveModule[] modules = swerveDrive.getModules();
+    for (int i = 0; i < modules.length; i++)
+    {
+      relativeAnglesDegrees[i] = modules[i].getAngleMotor().getPosition();
+    }
+    // The setpoint generator keeps its last output, which the modules have had one loop to follow
+    boolean commanded = DriverStation.isEnabled()
+                        && telemetrySnapshot.timestamp - lastSetpointTime < DrivebaseConstants.SETPOINT_RESET_TIME;
+    healthMonitor.update(telemetrySnapshot, relativeAnglesDegrees, commanded,
+                         setpointGenerator.getModuleSpeeds(), setpointGenerator.getModuleAngles());
+  }
+
+  private void setAppliedFeedforward(int module, SimpleMotorFeedforward feedforward)
+  {
+    telemetrySnapshot.feedforwardApplied[3 * module] = feedforward.ks;
+    telemetrySnapshot.feedforwardApplied[3 * module + 1] = feedforward.kv;
+    telemetrySnapshot.feedforwardApplied[3 * module + 2] = feedforward.ka;
   }
 
   /**
@@ -411,12 +854,11 @@ public class SwerveSubsystem extends SubsystemBase
   {
     return run(() -> {
       // Make the robot move
-      swerveDrive.drive(SwerveMath.scaleTranslation(new Translation2d(
-                            translationX.getAsDouble() * swerveDrive.getMaximumVelocity(),
-                            translationY.getAsDouble() * swerveDrive.getMaximumVelocity()), 0.8),
-                        Math.pow(angularRotationX.getAsDouble(), 3) * swerveDrive.getMaximumAngularVelocity(),
-                        true,
-                        false);
+      drive(SwerveMath.scaleTranslation(new Translation2d(
+                translationX.getAsDouble() * swerveDrive.getMaximumVelocity(),
+                translationY.getAsDouble() * swerveDrive.getMaximumVelocity()), 0.8),
+            Math.pow(angularRotationX.getAsDouble(), 3) * swerveDrive.getMaximumAngularVelocity(),
+            true);
     });
   }
 
@@ -436,10 +878,13 @@ public class SwerveSubsystem extends SubsystemBase
    */
   public void drive(Translation2d translation, double rotation, boolean fieldRelative)
   {
-    swerveDrive.drive(translation,
-                      rotation,
-                      fieldRelative,
-                      false); // Open loop is disabled since it shouldn't be used most of the time.
+    if (fieldRelative)
+    {
+      driveFieldRelative(translation.getX(), translation.getY(), rotation);
+    } else
+    {
+      driveRobotRelative(translation.getX(), translation.getY(), rotation);
+    }
   }
 
   /**
@@ -449,7 +894,7 @@ public class SwerveSubsystem extends SubsystemBase
    */
   public void driveFieldOriented(ChassisSpeeds velocity)
   {
-    swerveDrive.driveFieldOriented(velocity);
+    driveFieldRelative(velocity.vxMetersPerSecond, velocity.vyMetersPerSecond, velocity.omegaRadiansPerSecond);
   }
 
   /**
@@ -459,9 +904,73 @@ public class SwerveSubsystem extends SubsystemBase
    */
   public void drive(ChassisSpeeds velocity)
   {
-    swerveDrive.drive(velocity);
+    driveRobotRelative(velocity.vxMetersPerSecond, velocity.vyMetersPerSecond, velocity.omegaRadiansPerSecond);
+  }
+
+  private void driveFieldRelative(double vx, double vy, double omega)
+  {
+    double heading = swerveDrive.getOdometryHeading().getRadians();
+    double cos     = Math.cos(heading);
+    double sin     = Math.sin(heading);
+    driveRobotRelative(vx * cos + vy * sin, -vx * sin + vy * cos, omega);
+  }
+
+  // every drive method ends here, so all commands get the same acceleration and steering limits
+  private void driveRobotRelative(double vx, double vy, double omega)
+  {
+    double now = Timer.getFPGATimestamp();
+    if (now - lastSetpointTime > DrivebaseConstants.SETPOINT_RESET_TIME)
+    {
+      // The modules were driven some other way since the last setpoint, start from what they measure now
+      setpointGenerator.reset(telemetrySnapshot.moduleSpeeds, moduleAnglesRadians,
+                              robotSpeeds[0], robotSpeeds[1], robotSpeeds[2]);
+    } else
+    {
+      // Steer from where the modules are, so a module that lags its setpoint does not drift from the generator
+      setpointGenerator.resetModuleAngles(moduleAnglesRadians);
+    }
+    lastSetpointTime = now;
+
+    // Correct for skew that gets worse as angular velocity increases, the same rotation YAGSL applies
+    double skew = -telemetrySnapshot.omegaRadiansPerSecond * DrivebaseConstants.ANGULAR_VELOCITY_COEFFICIENT;
+    double cos  = Math.cos(skew);
+    double sin  = Math.sin(skew);
+    setpointGenerator.generate(vx * cos - vy * sin, vx * sin + vy * cos, omega, TimedRobot.kDefaultPeriod);
+
+    // Straight to the modules: SwerveDrive.setModuleStates would re-project the states through the chassis speeds and
+    // anti-jitter would hold the angle at low speed, both dropping the stopped modules' turn in place. The states are
+    // reused, the modules optimize a copy. Open loop is disabled since it shouldn't be used most of the time.
+    double[]       speeds  = setpointGenerator.getModuleSpeeds();
+    double[]       angles  = setpointGenerator.getModuleAngles();
+    SwerveModule[] modules = swerveDrive.getModules();
+    for (int i = 0; i < modules.length; i++)
+    {
+      moduleSetpoints[i].speedMetersPerSecond = speeds[i];
+      moduleSetpoints[i].angle = rotation(moduleSetpoints[i].angle, angles[i]);
+      modules[i].setDesiredState(moduleSetpoints[i], false, true);
+    }
+  }
+
+
+  /**
+   * Get the time of the last drive command sent to the modules.
+   *
+   * @return FPGA timestamp in seconds, negative infinity before the first command.
+   */
+  public double getLastDriveCommandTime()
+  {
+    return lastSetpointTime;
   }
 
+  /**
+   * Get the drive base radius, the distance from the robot center to the furthest module.
+   *
+   * @return Radius in meters.
+   */
+  public double getDriveBaseRadius()
+  {
+    return swerveDrive.swerveDriveConfiguration.getDriveBaseRadiusMeters();
+  }
 
   /**
    * Get the swerve drive kinematics object.
@@ -483,6 +992,9 @@ public class SwerveSubsystem extends SubsystemBase
   public void resetOdometry(Pose2d initialHolonomicPose)
   {
     swerveDrive.resetOdometry(initialHolonomicPose);
+    flushOdometryQueue();
+    poseHistory.clear();
+    recordOdometryReset();
   }
 
   /**
@@ -495,6 +1007,33 @@ public class SwerveSubsystem extends SubsystemBase
     return swerveDrive.getPose();
   }
 
+  /**
+   * Gets the pose of the robot at a past time, interpolated from the recorded odometry. Times older than the history
+   * get the oldest pose and times after the latest update get the latest pose.
+   *
+   * @param timestamp FPGA timestamp in seconds.
+   * @return The robot's pose at the time, empty if no pose was recorded since the last odometry reset.
+   */
+  public Optional<Pose2d> getPoseAt(double timestamp)
+  {
+    if (!poseHistory.sample(timestamp, poseSample))
+    {
+      return Optional.empty();
+    }
+    return Optional.of(new Pose2d(poseSample[PoseHistory.X], poseSample[PoseHistory.Y],
+                                  new Rotation2d(poseSample[PoseHistory.THETA])));
+  }
+
+  /**
+   * Get the recorded odometry history, for allocation free lookups from the main loop.
+   *
+   * @return The {@link PoseHistory}.
+   */
+  public PoseHistory getPoseHistory()
+  {
+    return poseHistory;
+  }
+
   /**
    * Set chassis speeds with closed-loop velocity control.
    *
@@ -502,7 +1041,7 @@ public class SwerveSubsystem extends SubsystemBase
    */
   public void setChassisSpeeds(ChassisSpeeds chassisSpeeds)
   {
-    swerveDrive.setChassisSpeeds(chassisSpeeds);
+    drive(chassisSpeeds);
   }
 
   /**
@@ -521,6 +1060,31 @@ public class SwerveSubsystem extends SubsystemBase
   public void zeroGyro()
   {
     swerveDrive.zeroGyro();
+    flushOdometryQueue();
+    // The heading jumps, so poses from before the zero can not be interpolated with the ones after
+    poseHistory.clear();
+    gyroZeroCount++;
+    recordOdometryReset();
+  }
+
+  // log the pose odometry was reset to so log replay can reset at the same point
+  private void recordOdometryReset()
+  {
+    Pose2d pose = swerveDrive.getPose();
+    DataLogRecorder.getInstance().recordOdometryReset(pose.getX(),
+                                                      pose.getY(),
+                                                      pose.getRotation().getRadians(),
+                                                      Timer.getFPGATimestamp());
+  }
+
+  /**
+   * Get the number of times the gyro has been zeroed since the robot started.
+   *
+   * @return Gyro zero count.
+   */
+  public int getGyroZeroCount()
+  {
+    return gyroZeroCount;
   }
 
   /**
@@ -686,13 +1250,24 @@ public class SwerveSubsystem extends SubsystemBase
     return swerveDrive.getStates();
   }
 
+  /**
+   * Get the module locations from the swerve JSON configuration, in module order (front left, front right, back left,
+   * back right).
+   *
+   * @return Robot relative module locations in meters.
+   */
   public Translation2d[] getModulePositions() {
-    return new Translation2d[] {
-        new Translation2d(0.14605, 0.14605),  // Front Left
-        new Translation2d(0.14605, -0.14605), // Front Right
-        new Translation2d(-0.14605, 0.14605), // Back Left
-        new Translation2d(-0.14605, -0.14605) // Back Right
-    };
+    return swerveDrive.swerveDriveConfiguration.moduleLocationsMeters.clone();
+  }
+
+  /**
+   * Get the allocation free kinematics for the configured module locations. Its inverse kinematics remembers the last
+   * module angles, so it should only be used from the main loop.
+   *
+   * @return The {@link PrimitiveSwerveKinematics} of the drive.
+   */
+  public PrimitiveSwerveKinematics getPrimitiveKinematics() {
+    return kinematics;
   }
 
   public double[] getModuleVelocities() {
@@ -701,20 +1276,139 @@ public class SwerveSubsystem extends SubsystemBase
                 .toArray();
   }
 
+  /**
+   * Get the drive acceleration of each module, from a least squares fit over the last
+   * {@link DrivebaseConstants#MODULE_DERIVATIVE_WINDOW} loops. The array is updated in place every loop, copy it to keep
+   * the values.
+   *
+   * @return Module accelerations in meters per second squared.
+   */
   public double[] getModuleAccelerations() {
-    // Implementation depends on how you're tracking acceleration
-    // This is a placeholder that would need to be implemented
-    return new double[4];
-  }
-
-  private void logModuleStates() {
-    SwerveModuleState[] states = getModuleStates();
-    for (int i = 0; i < states.length; i++) {
-        SmartDashboard.putNumber("Module " + i + " Speed", 
-            states[i].speedMetersPerSecond);
-        SmartDashboard.putNumber("Module " + i + " Angle", 
-            states[i].angle.getDegrees());
+    return telemetrySnapshot.moduleAccelerations;
+  }
+
+  /**
+   * Get the steering rate of each module, from a least squares fit over the last
+   * {@link DrivebaseConstants#MODULE_DERIVATIVE_WINDOW} loops. The array is updated in place every loop, copy it to keep
+   * the values.
+   *
+   * @return Module steering rates in degrees per second.
+   */
+  public double[] getModuleSteeringRates() {
+    return telemetrySnapshot.moduleSteeringRates;
+  }
+
+  /**
+   * Get the drive snapshot captured during the last {@link #periodic()} call. The returned object is reused every loop
+   * and must not be held on to across loops.
+   *
+   * @return The shared {@link DriveTelemetrySnapshot}.
+   */
+  public DriveTelemetrySnapshot getTelemetrySnapshot()
+  {
+    return telemetrySnapshot;
+  }
+
+  /**
+   * Fill the {@link DriveTelemetrySnapshot} in place from the pose estimator and module encoders. Module states are read
+   * directly from the motors instead of through {@link SwerveDrive#getStates()} so no arrays or
+   * {@link SwerveModuleState} objects are created on the real robot.
+   */
+  private void updateTelemetrySnapshot()
+  {
+    Pose2d         pose    = swerveDrive.getPose();
+    SwerveModule[] modules = swerveDrive.getModules();
+    double         cos     = pose.getRotation().getCos();
+    double         sin     = pose.getRotation().getSin();
+
+    telemetrySnapshot.timestamp = Timer.getFPGATimestamp();
+    telemetrySnapshot.poseX = pose.getX();
+    telemetrySnapshot.poseY = pose.getY();
+    telemetrySnapshot.headingRadians = pose.getRotation().getRadians();
+    // The IMU only exposes its yaw as an object.
+    telemetrySnapshot.gyroYawRadians = swerveDrive.getYaw().getRadians();
+
+    for (int i = 0; i < modules.length; i++)
+    {
+      double speed, angleDegrees, distance;
+      if (SwerveDriveTelemetry.isSimulation)
+      {
+        // Simulated modules only expose their state as an object.
+        SwerveModuleState state = modules[i].getState();
+        speed = state.speedMetersPerSecond;
+        angleDegrees = state.angle.getDegrees();
+        distance = modules[i].getPosition().distanceMeters;
+      } else
+      {
+        speed = modules[i].getDriveMotor().getVelocity();
+        angleDegrees = modules[i].getAbsolutePosition();
+        distance = modules[i].getDriveMotor().getPosition();
+      }
+      angleDegrees = MathUtil.inputModulus(angleDegrees, -180, 180);
+      telemetrySnapshot.moduleSpeeds[i] = speed;
+      telemetrySnapshot.moduleDistances[i] = distance;
+      telemetrySnapshot.moduleAccelerations[i] = driveAccelerationFilters[i].update(telemetrySnapshot.timestamp, speed);
+      telemetrySnapshot.moduleSteeringRates[i] = steeringRateFilters[i].update(telemetrySnapshot.timestamp,
+                                                                               angleDegrees);
+      telemetrySnapshot.moduleAnglesDegrees[i] = angleDegrees;
+
+      moduleAnglesRadians[i] = Math.toRadians(angleDegrees);
+
+      telemetrySnapshot.moduleFieldX[i] = pose.getX() + moduleOffsetX[i] * cos - moduleOffsetY[i] * sin;
+      telemetrySnapshot.moduleFieldY[i] = pose.getY() + moduleOffsetX[i] * sin + moduleOffsetY[i] * cos;
     }
-}
+    kinematics.toChassisSpeeds(telemetrySnapshot.moduleSpeeds, moduleAnglesRadians, robotSpeeds);
+    telemetrySnapshot.fieldVx = robotSpeeds[0] * cos - robotSpeeds[1] * sin;
+    telemetrySnapshot.fieldVy = robotSpeeds[0] * sin + robotSpeeds[1] * cos;
+    telemetrySnapshot.omegaRadiansPerSecond = robotSpeeds[2];
+
+    // With the odometry thread running the history is filled at its rate instead
+    if (odometryThread == null)
+    {
+      poseHistory.add(telemetrySnapshot.timestamp, telemetrySnapshot.poseX, telemetrySnapshot.poseY,
+                      telemetrySnapshot.headingRadians, telemetrySnapshot.fieldVx, telemetrySnapshot.fieldVy,
+                      telemetrySnapshot.omegaRadiansPerSecond);
+    }
+  }
+
+  // runs on the telemetry thread, so only read from the handed off frame
+  private int logFeedforward(TelemetryFrame frame)
+  {
+    int bytes = 0;
+    for (int i = 0; i < DriveTelemetrySnapshot.MODULE_COUNT; i++)
+    {
+      for (int gain = 0; gain < 3; gain++)
+      {
+        int index = 3 * i + gain;
+        bytes += publishFeedforward(9 * i + gain, frame.drive.feedforwardEstimates[index], frame.drive.timestamp);
+        bytes += publishFeedforward(9 * i + 3 + gain, frame.drive.feedforwardIntervals[index], frame.drive.timestamp);
+        bytes += publishFeedforward(9 * i + 6 + gain, frame.drive.feedforwardApplied[index], frame.drive.timestamp);
+      }
+    }
+    return bytes;
+  }
+
+  private int publishFeedforward(int channel, double value, double timestamp)
+  {
+    return feedforwardChannels[channel].set(value, timestamp) ? TelemetryScheduler.doubleBytes(1) : 0;
+  }
+
+  // runs on the telemetry thread, so only read from the handed off frame
+  private int logModuleStates(TelemetryFrame frame)
+  {
+    int bytes = 0;
+    for (int i = 0; i < DriveTelemetrySnapshot.MODULE_COUNT; i++)
+    {
+      if (moduleSpeedChannels[i].set(frame.drive.moduleSpeeds[i], frame.drive.timestamp))
+      {
+        bytes += TelemetryScheduler.doubleBytes(1);
+      }
+      if (moduleAngleChannels[i].set(frame.drive.moduleAnglesDegrees[i], frame.drive.timestamp))
+      {
+        bytes += TelemetryScheduler.doubleBytes(1);
+      }
+    }
+    return bytes;
+  }
 
 }
@@ -22,11 +22,14 @@ import edu.wpi.first.math.numbers.N3;
 import edu.wpi.first.math.util.Units;
 import edu.wpi.first.wpilibj.smartdashboard.Field2d;
 import frc.robot.Robot;
+import frc.robot.telemetry.DataLogRecorder;
+import frc.robot.telemetry.VisionSample;
 import java.awt.Desktop;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
 import java.util.function.Supplier;
@@ -56,14 +59,18 @@ public class Vision //extends SubsystemBase
     //Photon Vision Simulation
     public VisionSystemSim visionSim;
 
-    //Count of times that the odom thinks we're more than 10meters away from the april tag.
-    private double longDistangePoseEstimationCount = 0;
-
     //Current pose from the pose estimator using wheel odometry.
     private Supplier<Pose2d> currentPose;
 
     //Ambiguity defined as a value between (0,1). Used in {@link Vision#filterPose}.
-    private final double maximumAmbiguity = 0.25;
+    public static final double maximumAmbiguity = 0.25;
+
+    //Ambiguity and odometry agreement filter shared with log replay
+    private final VisionFilter visionFilter = new VisionFilter(maximumAmbiguity);
+
+    //Estimate being filtered, reused for every camera
+    private final VisionSample sample  = new VisionSample();
+    private final double[]     stdDevs = new double[3];
 
     //Field from {@link swervelib.SwerveDrive#field}
     private Field2d field2d;
@@ -127,18 +134,35 @@ public class Vision //extends SubsystemBase
         visionSim.update(swerveDrive.getPose());
 
       }
+      for (Measurement measurement : getMeasurements())
+      {
+        swerveDrive.addVisionMeasurement(measurement.pose, measurement.timestampSeconds, measurement.stdDevs);
+      }
+
+    }
+
+    /**
+     * Get the accepted pose estimates of every camera with their standard deviations, oldest first, so they can be
+     * applied in timestamp order between odometry updates.
+     *
+     * @return Accepted measurements sorted by timestamp.
+     */
+    public List<Measurement> getMeasurements()
+    {
+      List<Measurement> measurements = new ArrayList<>();
       for (Cameras camera : Cameras.values())
       {
         Optional<EstimatedRobotPose> poseEst = getEstimatedGlobalPose(camera);
         if (poseEst.isPresent())
         {
           var pose = poseEst.get();
-          swerveDrive.addVisionMeasurement(pose.estimatedPose.toPose2d(),
+          measurements.add(new Measurement(pose.estimatedPose.toPose2d(),
                                            pose.timestampSeconds,
-                                           getEstimationStdDevs(camera));
+                                           getEstimationStdDevs(camera, pose)));
         }
       }
-
+      measurements.sort(Comparator.comparingDouble(measurement -> measurement.timestampSeconds));
+      return measurements;
     }
 
 
@@ -154,7 +178,19 @@ public class Vision //extends SubsystemBase
    */
     public Optional<EstimatedRobotPose> getEstimatedGlobalPose(Cameras camera)
     {
-      Optional<EstimatedRobotPose> poseEst = filterPose(camera.poseEstimator.update());
+      return getEstimatedGlobalPose(camera, getLatestResult(camera));
+    }
+
+    /**
+     * Generates the estimated robot pose from a given pipeline result, see {@link #getEstimatedGlobalPose(Cameras)}.
+     *
+     * @param camera Camera the result came from.
+     * @param result Pipeline result to estimate from.
+     * @return an {@link EstimatedRobotPose} with an estimated pose, timestamp, and targets used to create the estimate
+     */
+    public Optional<EstimatedRobotPose> getEstimatedGlobalPose(Cameras camera, PhotonPipelineResult result)
+    {
+      Optional<EstimatedRobotPose> poseEst = filterPose(camera, camera.poseEstimator.update(result));
       // Uncomment to enable outputting of vision targets in sim.
       /*
        poseEst.ifPresent(estimatedRobotPose -> field2d.getObject(camera + " est pose")
@@ -164,98 +200,80 @@ public class Vision //extends SubsystemBase
     }
 
     /**
-     * The standard deviations of the estimated pose from {@link Vision#getEstimatedGlobalPose(Cameras)}, for use with
-     * {@link edu.wpi.first.math.estimator.SwerveDrivePoseEstimator SwerveDrivePoseEstimator}. This should only be used
-     * when there are targets visible.
+     * The standard deviations of an estimated pose from {@link Vision#getEstimatedGlobalPose(Cameras)}, for use with
+     * {@link edu.wpi.first.math.estimator.SwerveDrivePoseEstimator SwerveDrivePoseEstimator}.
      *
-     * @param camera Desired camera to get the standard deviation of the estimated pose.
+     * @param camera   Camera that produced the estimate.
+     * @param estimate Estimate to get the standard deviation of.
+     * @return Standard deviations of the x, y and theta estimate.
      */
-    public Matrix<N3, N1> getEstimationStdDevs(Cameras camera)
+    public Matrix<N3, N1> getEstimationStdDevs(Cameras camera, EstimatedRobotPose estimate)
     {
-      var    poseEst    = getEstimatedGlobalPose(camera);
-      var    estStdDevs = camera.singleTagStdDevs;
-      var    targets    = getLatestResult(camera).getTargets();
-      int    numTags    = 0;
-      double avgDist    = 0;
-      for (var tgt : targets)
-      {
-        var tagPose = camera.poseEstimator.getFieldTags().getTagPose(tgt.getFiducialId());
-        if (tagPose.isEmpty())
-        {
-          continue;
-        }
-        numTags++;
-        if (poseEst.isPresent())
-        {
-          avgDist += PhotonUtils.getDistanceToPose(poseEst.get().estimatedPose.toPose2d(), tagPose.get().toPose2d());
-        }
-      }
-      if (numTags == 0)
-      {
-       return estStdDevs;
-      }
-      avgDist /= numTags;
-      // Decrease std devs if multiple targets are visible
-      if (numTags > 1)
-      {
-        estStdDevs = camera.multiTagStdDevs;
-      }
-      // Increase std devs based on (average) distance
-      if (numTags == 1 && avgDist > 4)
-      {
-        estStdDevs = VecBuilder.fill(Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE);
-      }
-      else
-      {
-        estStdDevs = estStdDevs.times(1 + (avgDist * avgDist / 30));
-      }
-
-      return estStdDevs;
+      fillSample(camera, estimate);
+      VisionFilter.computeStdDevs(sample, stdDevs);
+      return VecBuilder.fill(stdDevs[0], stdDevs[1], stdDevs[2]);
     }
 
     /**
      * Filter pose via the ambiguity and find best estimate between all of the camera's throwing out distances more than
-     * 10m for a short amount of time.
+     * 1m for a short amount of time. See {@link VisionFilter#accept}.
      *
-     * @param pose Estimated robot pose.
+     * @param camera Camera that produced the estimate.
+     * @param pose   Estimated robot pose.
      * @return Could be empty if there isn't a good reading.
      */
-    private Optional<EstimatedRobotPose> filterPose(Optional<EstimatedRobotPose> pose)
+    private Optional<EstimatedRobotPose> filterPose(Cameras camera, Optional<EstimatedRobotPose> pose)
     {
       if (pose.isPresent())
       {
-        double bestTargetAmbiguity = 1; // 1 is max ambiguity
-        for (PhotonTrackedTarget target : pose.get().targetsUsed)
-        {
-          double ambiguity = target.getPoseAmbiguity();
-          if (ambiguity != -1 && ambiguity < bestTargetAmbiguity)
-          {
-            bestTargetAmbiguity = ambiguity;
-          }
-        }
-        //ambiguity to high dont use estimate
-        if (bestTargetAmbiguity > maximumAmbiguity)
-        {
-          return Optional.empty();
-        }
+        fillSample(camera, pose.get());
+        double odometryDistance = PhotonUtils.getDistanceToPose(currentPose.get(), pose.get().estimatedPose.toPose2d());
+        sample.accepted = visionFilter.accept(sample, odometryDistance);
+        DataLogRecorder.getInstance().recordVision(sample);
+        return sample.accepted ? pose : Optional.empty();
+      }
+      return Optional.empty();
+    }
 
-        //est pose is very far from recorded robot pose
-        if (PhotonUtils.getDistanceToPose(currentPose.get(), pose.get().estimatedPose.toPose2d()) > 1)
+    /**
+     * Fill {@link #sample} with the estimate and the tag statistics the filter and standard deviation model use.
+     *
+     * @param camera   Camera that produced the estimate.
+     * @param estimate Estimate from the camera.
+     */
+    private void fillSample(Cameras camera, EstimatedRobotPose estimate)
+    {
+      Pose2d estimatedPose = estimate.estimatedPose.toPose2d();
+      sample.timestamp = estimate.timestampSeconds;
+      sample.x = estimatedPose.getX();
+      sample.y = estimatedPose.getY();
+      sample.theta = estimatedPose.getRotation().getRadians();
+      sample.bestAmbiguity = 1; // 1 is max ambiguity
+      sample.tagCount = 0;
+      sample.averageTagDistance = 0;
+      for (PhotonTrackedTarget target : estimate.targetsUsed)
+      {
+        double ambiguity = target.getPoseAmbiguity();
+        if (ambiguity != -1 && ambiguity < sample.bestAmbiguity)
         {
-          longDistangePoseEstimationCount++;
-
-          //if it calculates that were 10 meter away for more than 10 times in a row its probably right
-          if (longDistangePoseEstimationCount < 10)
-          {
-            return Optional.empty();
-          }
-        } else
+          sample.bestAmbiguity = ambiguity;
+        }
+        var tagPose = camera.poseEstimator.getFieldTags().getTagPose(target.getFiducialId());
+        if (tagPose.isPresent())
         {
-          longDistangePoseEstimationCount = 0;
+          sample.tagCount++;
+          sample.averageTagDistance += PhotonUtils.getDistanceToPose(estimatedPose, tagPose.get().toPose2d());
         }
-        return pose;
       }
-      return Optional.empty();
+      if (sample.tagCount > 0)
+      {
+        sample.averageTagDistance /= sample.tagCount;
+      }
+      for (int i = 0; i < 3; i++)
+      {
+        sample.singleTagStdDevs[i] = camera.singleTagStdDevs.get(i, 0);
+        sample.multiTagStdDevs[i] = camera.multiTagStdDevs.get(i, 0);
+      }
     }
 
     /**
@@ -363,6 +381,33 @@ public class Vision //extends SubsystemBase
       field2d.getObject("tracked targets").setPoses(poses);
     }
 
+    /**
+     * An accepted vision pose estimate, ready for the pose estimator.
+     */
+    public static class Measurement
+    {
+
+      /**
+       * Estimated robot pose on the field.
+       */
+      public final Pose2d         pose;
+      /**
+       * FPGA timestamp of the camera frame, in seconds.
+       */
+      public final double         timestampSeconds;
+      /**
+       * Standard deviations of the x, y and theta estimate.
+       */
+      public final Matrix<N3, N1> stdDevs;
+
+      Measurement(Pose2d pose, double timestampSeconds, Matrix<N3, N1> stdDevs)
+      {
+        this.pose = pose;
+        this.timestampSeconds = timestampSeconds;
+        this.stdDevs = stdDevs;
+      }
+    }
+
     /**
      * Camera Enum to select each camera TODO: example uses 3 cameras.  update to single camera
      */
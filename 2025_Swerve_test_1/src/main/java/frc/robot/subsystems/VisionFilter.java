@@ -0,0 +1,98 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.subsystems;
+
+import frc.robot.telemetry.VisionSample;
+
+/**
+ * Decides whether a camera pose estimate is trusted and how much. Kept free of camera and NetworkTables objects so
+ * {@link Vision} on the robot and {@link frc.robot.replay.LogReplay} on a laptop run exactly the same logic.
+ */
+public class VisionFilter
+{
+
+  /**
+   * Estimates further than this from odometry, in meters, are held back until they repeat.
+   */
+  public static final double MAX_ODOMETRY_DISAGREEMENT = 1;
+  /**
+   * Number of consecutive disagreeing estimates before they are believed.
+   */
+  public static final int    DISAGREEMENT_CONFIRMATIONS = 10;
+  /**
+   * Single tag estimates further than this from the tag, in meters, are ignored.
+   */
+  public static final double MAX_SINGLE_TAG_DISTANCE = 4;
+
+  //Ambiguity defined as a value between (0,1).
+  private final double maximumAmbiguity;
+
+  //Count of consecutive estimates that disagree with odometry.
+  private int longDistancePoseEstimationCount = 0;
+
+  /**
+   * Construct a filter.
+   *
+   * @param maximumAmbiguity Estimates whose best target ambiguity is above this are rejected.
+   */
+  public VisionFilter(double maximumAmbiguity)
+  {
+    this.maximumAmbiguity = maximumAmbiguity;
+  }
+
+  /**
+   * Filter an estimate via the ambiguity, throwing out estimates far from odometry for a short amount of time.
+   *
+   * @param sample           Estimate to check.
+   * @param odometryDistance Distance from the current odometry pose to the estimate, in meters.
+   * @return True if the estimate should be passed on to the pose estimator.
+   */
+  public boolean accept(VisionSample sample, double odometryDistance)
+  {
+    //ambiguity to high dont use estimate
+    if (sample.bestAmbiguity > maximumAmbiguity)
+    {
+      return false;
+    }
+
+    //est pose is very far from recorded robot pose
+    if (odometryDistance > MAX_ODOMETRY_DISAGREEMENT)
+    {
+      longDistancePoseEstimationCount++;
+
+      //if it keeps calculating that we are far away it is probably right
+      return longDistancePoseEstimationCount >= DISAGREEMENT_CONFIRMATIONS;
+    }
+    longDistancePoseEstimationCount = 0;
+    return true;
+  }
+
+  /**
+   * Compute the standard deviations of an estimate. Multiple tags use the multi tag base values, and the deviations grow
+   * with the square of the average tag distance.
+   *
+   * @param sample Estimate to compute deviations for.
+   * @param out    Array of three elements receiving the x, y and theta deviations.
+   */
+  public static void computeStdDevs(VisionSample sample, double[] out)
+  {
+    double[] base = sample.tagCount > 1 ? sample.multiTagStdDevs : sample.singleTagStdDevs;
+    double   scale;
+    if (sample.tagCount == 0)
+    {
+      scale = 1;
+    } else if (sample.tagCount == 1 && sample.averageTagDistance > MAX_SINGLE_TAG_DISTANCE)
+    {
+      scale = Double.MAX_VALUE;
+    } else
+    {
+      scale = 1 + (sample.averageTagDistance * sample.averageTagDistance / 30);
+    }
+    for (int i = 0; i < 3; i++)
+    {
+      out[i] = scale == Double.MAX_VALUE ? Double.MAX_VALUE : base[i] * scale;
+    }
+  }
+}
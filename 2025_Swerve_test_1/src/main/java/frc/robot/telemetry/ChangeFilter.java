@@ -0,0 +1,139 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.telemetry;
+
+/**
+ * Decides whether a NetworkTables value is worth sending. A value is sent when it moved more than the deadband from
+ * the last sent value, or when the last send is older than the staleness interval so dashboards that connect late
+ * still receive it. Sent and suppressed counts are kept per key and published by the {@link TelemetryScheduler}.
+ *
+ * <p>The scheduler holds filters weakly, so a filter owned by a discarded command stops being reported once it is
+ * collected. Owners that know when they are done call {@link #close()} to stop it right away.
+ *
+ * <p>Each filter must only be used from one thread. The counters may be read from any thread.
+ */
+public class ChangeFilter implements AutoCloseable
+{
+
+  private final String   key;
+  private final double   deadband;
+  private final double   maxStaleness;
+  private       double   lastValue    = Double.NaN;
+  private       double[] lastValues;
+  private       double   lastSentTime = Double.NEGATIVE_INFINITY;
+  private volatile long  sent         = 0;
+  private volatile long  suppressed   = 0;
+
+  /**
+   * Create a filter and register it with the {@link TelemetryScheduler} so its counts are published.
+   *
+   * @param key          Name the sent and suppressed counts are published under.
+   * @param deadband     Smallest change that is sent, in the units of the value.
+   * @param maxStaleness Longest time in seconds a value goes without being resent.
+   */
+  public ChangeFilter(String key, double deadband, double maxStaleness)
+  {
+    this.key = key;
+    this.deadband = deadband;
+    this.maxStaleness = maxStaleness;
+    TelemetryScheduler.getInstance().registerFilter(this);
+  }
+
+  /**
+   * Check a value, recording it as sent if it passes.
+   *
+   * @param value     New value.
+   * @param timestamp Current time in seconds.
+   * @return True if the value should be published.
+   */
+  public boolean test(double value, double timestamp)
+  {
+    if (!Double.isNaN(lastValue) && Math.abs(value - lastValue) <= deadband
+        && timestamp - lastSentTime < maxStaleness)
+    {
+      suppressed++;
+      return false;
+    }
+    lastValue = value;
+    lastSentTime = timestamp;
+    sent++;
+    return true;
+  }
+
+  /**
+   * Check an array of values, recording it as sent if any element moved more than the deadband.
+   *
+   * @param values    New values. Copied into the filter if they pass.
+   * @param timestamp Current time in seconds.
+   * @return True if the values should be published.
+   */
+  public boolean test(double[] values, double timestamp)
+  {
+    if (lastValues == null || lastValues.length != values.length)
+    {
+      // Only allocates the first time, or if the array size changes.
+      lastValues = new double[values.length];
+    } else if (timestamp - lastSentTime < maxStaleness && withinDeadband(values))
+    {
+      suppressed++;
+      return false;
+    }
+    System.arraycopy(values, 0, lastValues, 0, values.length);
+    lastSentTime = timestamp;
+    sent++;
+    return true;
+  }
+
+  /**
+   * Stop reporting this filter's counts. The filter still works, it is only no longer published.
+   */
+  @Override
+  public void close()
+  {
+    TelemetryScheduler.getInstance().unregisterFilter(this);
+  }
+
+  /**
+   * Name the counts are published under.
+   *
+   * @return Filter key.
+   */
+  public String getKey()
+  {
+    return key;
+  }
+
+  /**
+   * Number of values that passed the filter.
+   *
+   * @return Sent count.
+   */
+  public long getSentCount()
+  {
+    return sent;
+  }
+
+  /**
+   * Number of values dropped by the filter.
+   *
+   * @return Suppressed count.
+   */
+  public long getSuppressedCount()
+  {
+    return suppressed;
+  }
+
+  private boolean withinDeadband(double[] values)
+  {
+    for (int i = 0; i < values.length; i++)
+    {
+      if (Math.abs(values[i] - lastValues[i]) > deadband)
+      {
+        return false;
+      }
+    }
+    return true;
+  }
+}
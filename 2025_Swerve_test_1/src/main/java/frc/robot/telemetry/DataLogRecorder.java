@@ -0,0 +1,410 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.telemetry;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+import edu.wpi.first.util.datalog.DataLog;
+import edu.wpi.first.util.datalog.DoubleArrayLogEntry;
+import edu.wpi.first.util.datalog.DoubleLogEntry;
+import edu.wpi.first.util.datalog.RawLogEntry;
+import edu.wpi.first.util.WPIUtilJNI;
+import edu.wpi.first.wpilibj.DataLogManager;
+import edu.wpi.first.wpilibj.DriverStation;
+import frc.robot.Constants.TelemetryConstants;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Binary match recorder built on the WPILib {@link DataLog}. Module states, odometry and vision poses are written as
+ * WPILib struct-encoded entries so AdvantageScope decodes them directly. The structs are packed by hand into a reused
+ * buffer, so recording does not allocate.
+ *
+ * <p>Module positions, raw gyro yaw, odometry resets and vision filter inputs are recorded as well, which is everything
+ * {@link frc.robot.replay.LogReplay} needs to re-run pose estimation offline.
+ *
+ * <p>Every log call, file rotation and old file cleanup runs on the telemetry thread. Drive and power records already
+ * come from there. Loop timing, vision, odometry reset, auto latency and module offset records come from the robot
+ * loop, which only copies them into a preallocated {@link SnapshotRingBuffer}; the telemetry thread writes them on its
+ * next {@link #writePending()}. {@link DataLog} then writes the file on its own background thread. The first file is
+ * opened on the first write, and files rotate once they reach {@link TelemetryConstants#RECORDER_MAX_FILE_BYTES},
+ * keeping at most {@link TelemetryConstants#RECORDER_MAX_FILES}.
+ */
+public final class DataLogRecorder
+{
+
+  private static final String FILE_PREFIX = "recorder_";
+  // Approximate per-record framing cost in the wpilog format.
+  private static final int    RECORD_OVERHEAD_BYTES = 16;
+  private static final int    POSE_BYTES            = 3 * Double.BYTES;
+  private static final int    MODULE_STATE_BYTES    = 2 * Double.BYTES;
+
+  // Record types queued by the robot loop
+  private static final int LOOP_TIMING        = 0;
+  private static final int VISION             = 1;
+  private static final int ODOMETRY_RESET     = 2;
+  private static final int AUTO_START_LATENCY = 3;
+  private static final int MODULE_OFFSETS     = 4;
+
+  private static DataLogRecorder instance;
+
+  // Robot loop side, the record being queued and the queue to the telemetry thread
+  private final PendingRecord                     queued  = new PendingRecord();
+  private final SnapshotRingBuffer<PendingRecord> pending =
+      new SnapshotRingBuffer<>(TelemetryConstants.RECORDER_QUEUE_CAPACITY, PendingRecord::new,
+                               PendingRecord::copyFrom);
+
+  // Telemetry thread side, everything below is only touched from there
+  private final PendingRecord drained = new PendingRecord();
+  private       String        directory;
+
+  private final String     sessionName = FILE_PREFIX + System.currentTimeMillis();
+  private final byte[]     bytes       = new byte[DriveTelemetrySnapshot.MODULE_COUNT * MODULE_STATE_BYTES];
+  private final ByteBuffer buffer      = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+  private final double[]   chassisSpeeds = new double[3];
+  private final double[]   visionFields  = new double[VisionSample.FIELD_COUNT];
+  private final double[]   moduleOffsets = new double[2 * DriveTelemetrySnapshot.MODULE_COUNT];
+  private boolean          moduleOffsetsSet = false;
+
+  private DataLog             log;
+  private RawLogEntry         moduleStatesEntry;
+  private RawLogEntry         modulePositionsEntry;
+  private RawLogEntry         odometryEntry;
+  private RawLogEntry         odometryResetEntry;
+  private DoubleLogEntry      gyroYawEntry;
+  private DoubleArrayLogEntry moduleOffsetsEntry;
+  private DoubleArrayLogEntry visionEstimatesEntry;
+  private RawLogEntry         visionAcceptedEntry;
+  private RawLogEntry         visionRejectedEntry;
+  private DoubleArrayLogEntry chassisSpeedsEntry;
+  private DoubleArrayLogEntry pdhCurrentsEntry;
+  private DoubleLogEntry      batteryVoltageEntry;
+  private DoubleLogEntry      loopPeriodEntry;
+  private DoubleLogEntry      robotPeriodicEntry;
+  private DoubleLogEntry      autoStartLatencyEntry;
+  private long                bytesInFile = 0;
+  private int                 fileIndex   = 0;
+
+  private DataLogRecorder()
+  {
+  }
+
+  /**
+   * Get the recorder. The first log file is opened by the first write on the telemetry thread.
+   *
+   * @return The {@link DataLogRecorder} instance.
+   */
+  public static synchronized DataLogRecorder getInstance()
+  {
+    if (instance == null)
+    {
+      instance = new DataLogRecorder();
+    }
+    return instance;
+  }
+
+  /**
+   * Set the robot relative module offsets, logged at the start of every file so replay can rebuild the kinematics.
+   * Only queues the record, call from the robot loop.
+   *
+   * @param x Module X offsets in meters.
+   * @param y Module Y offsets in meters.
+   */
+  public void setModuleOffsets(double[] x, double[] y)
+  {
+    for (int i = 0; i < DriveTelemetrySnapshot.MODULE_COUNT; i++)
+    {
+      queued.values[2 * i] = x[i];
+      queued.values[2 * i + 1] = y[i];
+    }
+    enqueue(MODULE_OFFSETS, 0);
+  }
+
+  /**
+   * Record a vision pose estimate, the filter inputs and whether the filter accepted it. Only queues the record, call
+   * from the robot loop.
+   *
+   * @param sample Estimate to record.
+   */
+  public void recordVision(VisionSample sample)
+  {
+    sample.toArray(queued.values);
+    enqueue(VISION, toMicros(sample.timestamp));
+  }
+
+  /**
+   * Record that odometry was reset to a new pose. Only queues the record, call from the robot loop.
+   *
+   * @param x         Field X in meters.
+   * @param y         Field Y in meters.
+   * @param theta     Heading in radians.
+   * @param timestamp Time of the reset in seconds.
+   */
+  public void recordOdometryReset(double x, double y, double theta, double timestamp)
+  {
+    queued.values[0] = x;
+    queued.values[1] = y;
+    queued.values[2] = theta;
+    enqueue(ODOMETRY_RESET, toMicros(timestamp));
+  }
+
+  /**
+   * Record robot loop timing. Only queues the record, call from the robot loop.
+   *
+   * @param loopPeriodMs     Time since the start of the previous loop, in milliseconds.
+   * @param robotPeriodicMs  Time spent in robotPeriodic(), in milliseconds.
+   */
+  public void recordLoopTiming(double loopPeriodMs, double robotPeriodicMs)
+  {
+    queued.values[0] = loopPeriodMs;
+    queued.values[1] = robotPeriodicMs;
+    enqueue(LOOP_TIMING, WPIUtilJNI.now());
+  }
+
+  /**
+   * Record the time from enabling auto to the first drive command. Only queues the record, call from the robot loop.
+   *
+   * @param latencyMs Enable to first command time, in milliseconds.
+   */
+  public void recordAutoStartLatency(double latencyMs)
+  {
+    queued.values[0] = latencyMs;
+    enqueue(AUTO_START_LATENCY, WPIUtilJNI.now());
+  }
+
+  // the timestamp is taken when the record is queued, the log would otherwise stamp it when it is written
+  private void enqueue(int type, long timestamp)
+  {
+    queued.type = type;
+    queued.timestamp = timestamp;
+    pending.offer(queued);
+  }
+
+  /**
+   * Get the number of robot loop records dropped because the telemetry thread fell behind.
+   *
+   * @return Dropped record count.
+   */
+  public long getDroppedRecords()
+  {
+    return pending.getDroppedCount();
+  }
+
+  /**
+   * Write every record queued by the robot loop. Only call from the telemetry thread.
+   */
+  public void writePending()
+  {
+    ensureOpen();
+    while (pending.poll(drained))
+    {
+      double[] values = drained.values;
+      switch (drained.type)
+      {
+        case LOOP_TIMING:
+          loopPeriodEntry.append(values[0], drained.timestamp);
+          robotPeriodicEntry.append(values[1], drained.timestamp);
+          count(2 * Double.BYTES);
+          break;
+        case VISION:
+          writePose(values[0], values[1], values[2]);
+          append(values[12] != 0 ? visionAcceptedEntry : visionRejectedEntry, POSE_BYTES, drained.timestamp);
+          System.arraycopy(values, 0, visionFields, 0, VisionSample.FIELD_COUNT);
+          visionEstimatesEntry.append(visionFields, drained.timestamp);
+          count(visionFields.length * Double.BYTES);
+          break;
+        case ODOMETRY_RESET:
+          writePose(values[0], values[1], values[2]);
+          append(odometryResetEntry, POSE_BYTES, drained.timestamp);
+          break;
+        case AUTO_START_LATENCY:
+          autoStartLatencyEntry.append(values[0], drained.timestamp);
+          count(Double.BYTES);
+          break;
+        case MODULE_OFFSETS:
+          System.arraycopy(values, 0, moduleOffsets, 0, moduleOffsets.length);
+          moduleOffsetsSet = true;
+          moduleOffsetsEntry.append(moduleOffsets);
+          break;
+        default:
+          break;
+      }
+      rotateIfFull();
+    }
+  }
+
+  /**
+   * Record the drivetrain snapshot: module states and positions, gyro yaw, odometry pose and chassis speeds. Only call
+   * from the telemetry thread.
+   *
+   * @param snapshot Snapshot to record.
+   */
+  public void recordDrive(DriveTelemetrySnapshot snapshot)
+  {
+    ensureOpen();
+    long timestamp = toMicros(snapshot.timestamp);
+
+    buffer.clear();
+    for (int i = 0; i < DriveTelemetrySnapshot.MODULE_COUNT; i++)
+    {
+      buffer.putDouble(snapshot.moduleSpeeds[i]);
+      buffer.putDouble(Math.toRadians(snapshot.moduleAnglesDegrees[i]));
+    }
+    append(moduleStatesEntry, buffer.position(), timestamp);
+
+    // Yaw is written before the positions so replay sees both when the positions arrive.
+    gyroYawEntry.append(snapshot.gyroYawRadians, timestamp);
+    count(Double.BYTES);
+    buffer.clear();
+    for (int i = 0; i < DriveTelemetrySnapshot.MODULE_COUNT; i++)
+    {
+      buffer.putDouble(snapshot.moduleDistances[i]);
+      buffer.putDouble(Math.toRadians(snapshot.moduleAnglesDegrees[i]));
+    }
+    append(modulePositionsEntry, buffer.position(), timestamp);
+
+    writePose(snapshot.poseX, snapshot.poseY, snapshot.headingRadians);
+    append(odometryEntry, POSE_BYTES, timestamp);
+
+    chassisSpeeds[0] = snapshot.fieldVx;
+    chassisSpeeds[1] = snapshot.fieldVy;
+    chassisSpeeds[2] = snapshot.omegaRadiansPerSecond;
+    chassisSpeedsEntry.append(chassisSpeeds, timestamp);
+    count(chassisSpeeds.length * Double.BYTES);
+    rotateIfFull();
+  }
+
+  /**
+   * Record a PDH sample. Only call from the telemetry thread.
+   *
+   * @param power Sample to record.
+   */
+  public void recordPower(PowerSnapshot power)
+  {
+    ensureOpen();
+    long timestamp = toMicros(power.timestamp);
+    pdhCurrentsEntry.append(power.currents, timestamp);
+    batteryVoltageEntry.append(power.voltage, timestamp);
+    count((power.currents.length + 1) * Double.BYTES);
+    rotateIfFull();
+  }
+
+  private void writePose(double x, double y, double theta)
+  {
+    buffer.clear();
+    buffer.putDouble(x);
+    buffer.putDouble(y);
+    buffer.putDouble(theta);
+  }
+
+  private void append(RawLogEntry entry, int length, long timestamp)
+  {
+    entry.append(bytes, 0, length, timestamp);
+    count(length);
+  }
+
+  private void count(int payloadBytes)
+  {
+    bytesInFile += payloadBytes + RECORD_OVERHEAD_BYTES;
+  }
+
+  private void rotateIfFull()
+  {
+    if (bytesInFile < TelemetryConstants.RECORDER_MAX_FILE_BYTES)
+    {
+      return;
+    }
+    log.close();
+    fileIndex++;
+    open();
+    deleteOldFiles();
+  }
+
+  private void ensureOpen()
+  {
+    if (log == null)
+    {
+      directory = DataLogManager.getLogDir();
+      open();
+    }
+  }
+
+  private void open()
+  {
+    log = new DataLog(directory, sessionName + "_" + fileIndex + ".wpilog");
+    bytesInFile = 0;
+
+    String moduleStateType    = SwerveModuleState.struct.getTypeString() + "[]";
+    String modulePositionType = SwerveModulePosition.struct.getTypeString() + "[]";
+    String poseType           = Pose2d.struct.getTypeString();
+    log.addSchema(SwerveModuleState.struct, 0);
+    log.addSchema(SwerveModulePosition.struct, 0);
+    log.addSchema(Pose2d.struct, 0);
+    moduleStatesEntry = new RawLogEntry(log, "Drive/ModuleStates", "", moduleStateType);
+    modulePositionsEntry = new RawLogEntry(log, "Drive/ModulePositions", "", modulePositionType);
+    odometryEntry = new RawLogEntry(log, "Drive/Odometry", "", poseType);
+    odometryResetEntry = new RawLogEntry(log, "Drive/OdometryReset", "", poseType);
+    gyroYawEntry = new DoubleLogEntry(log, "Drive/GyroYaw");
+    moduleOffsetsEntry = new DoubleArrayLogEntry(log, "Drive/ModuleOffsets");
+    visionEstimatesEntry = new DoubleArrayLogEntry(log, "Vision/Estimates");
+    visionAcceptedEntry = new RawLogEntry(log, "Vision/Accepted", "", poseType);
+    visionRejectedEntry = new RawLogEntry(log, "Vision/Rejected", "", poseType);
+    chassisSpeedsEntry = new DoubleArrayLogEntry(log, "Drive/FieldSpeeds");
+    pdhCurrentsEntry = new DoubleArrayLogEntry(log, "Power/Currents");
+    batteryVoltageEntry = new DoubleLogEntry(log, "Power/Voltage");
+    loopPeriodEntry = new DoubleLogEntry(log, "Loop/PeriodMs");
+    robotPeriodicEntry = new DoubleLogEntry(log, "Loop/RobotPeriodicMs");
+    autoStartLatencyEntry = new DoubleLogEntry(log, "Auto/EnableToFirstCommandMs");
+    if (moduleOffsetsSet)
+    {
+      moduleOffsetsEntry.append(moduleOffsets);
+    }
+  }
+
+  private void deleteOldFiles()
+  {
+    File[] files = new File(directory).listFiles((dir, name) -> name.startsWith(FILE_PREFIX));
+    if (files == null || files.length <= TelemetryConstants.RECORDER_MAX_FILES)
+    {
+      return;
+    }
+    Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+    for (int i = 0; i < files.length - TelemetryConstants.RECORDER_MAX_FILES; i++)
+    {
+      if (!files[i].delete())
+      {
+        DriverStation.reportWarning("Could not delete old recorder file " + files[i].getName(), false);
+      }
+    }
+  }
+
+  /**
+   * One robot loop record waiting for the telemetry thread, sized for the largest record, a vision sample.
+   */
+  private static final class PendingRecord
+  {
+
+    private final double[] values = new double[Math.max(VisionSample.FIELD_COUNT,
+                                                        2 * DriveTelemetrySnapshot.MODULE_COUNT)];
+    private       int      type;
+    private       long     timestamp;
+
+    private void copyFrom(PendingRecord other)
+    {
+      type = other.type;
+      timestamp = other.timestamp;
+      System.arraycopy(other.values, 0, values, 0, values.length);
+    }
+  }
+
+  private static long toMicros(double seconds)
+  {
+    return (long) (seconds * 1e6);
+  }
+}
@@ -0,0 +1,189 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.telemetry;
+
+import edu.wpi.first.networktables.BooleanPublisher;
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.wpilibj.Timer;
+import frc.robot.Constants.TelemetryConstants;
+import swervelib.telemetry.SwerveDriveTelemetry;
+import swervelib.telemetry.SwerveDriveTelemetry.TelemetryVerbosity;
+
+/**
+ * Verbosity gated debug values on the SmartDashboard table. Channels are created once, with their key, and each one is
+ * tied to a {@link Verbosity}. A channel above {@link TelemetryConstants#VERBOSITY} never creates a topic and its
+ * {@code set} returns on the first check, so callers should only pass values they already have and must not build
+ * strings for it.
+ *
+ * <p>Enabled channels go through a {@link ChangeFilter}, so unchanged values are not resent. The same switch sets the
+ * YAGSL {@link SwerveDriveTelemetry#verbosity} through {@link #applySwerveVerbosity()}.
+ */
+public final class DebugTelemetry
+{
+
+  /**
+   * How much debug telemetry is published, from nothing to everything.
+   */
+  public enum Verbosity
+  {
+    /**
+     * No debug telemetry.
+     */
+    NONE(TelemetryVerbosity.NONE),
+    /**
+     * Values the drive team uses during a match.
+     */
+    LOW(TelemetryVerbosity.LOW),
+    /**
+     * Everything, for tuning and debugging in the pit.
+     */
+    HIGH(TelemetryVerbosity.HIGH);
+
+    private final TelemetryVerbosity swerveVerbosity;
+
+    Verbosity(TelemetryVerbosity swerveVerbosity)
+    {
+      this.swerveVerbosity = swerveVerbosity;
+    }
+  }
+
+  private DebugTelemetry()
+  {
+  }
+
+  /**
+   * Check whether values at a verbosity are published.
+   *
+   * @param level Verbosity of the value.
+   * @return True if {@link TelemetryConstants#VERBOSITY} includes the level.
+   */
+  public static boolean isEnabled(Verbosity level)
+  {
+    return level != Verbosity.NONE && level.ordinal() <= TelemetryConstants.VERBOSITY.ordinal();
+  }
+
+  /**
+   * Set the YAGSL telemetry verbosity to match {@link TelemetryConstants#VERBOSITY}. Must be called before the
+   * {@link swervelib.SwerveDrive} is created.
+   */
+  public static void applySwerveVerbosity()
+  {
+    SwerveDriveTelemetry.verbosity = TelemetryConstants.VERBOSITY.swerveVerbosity;
+  }
+
+  /**
+   * A double debug value.
+   */
+  public static final class DoubleChannel
+  {
+
+    private final DoublePublisher publisher;
+    private final ChangeFilter    filter;
+
+    /**
+     * Create a channel.
+     *
+     * @param key      SmartDashboard key.
+     * @param level    Verbosity the value is published at.
+     * @param deadband Smallest change that is resent.
+     */
+    public DoubleChannel(String key, Verbosity level, double deadband)
+    {
+      if (isEnabled(level))
+      {
+        publisher = NetworkTableInstance.getDefault().getTable("SmartDashboard").getDoubleTopic(key).publish();
+        filter = new ChangeFilter("SmartDashboard " + key, deadband, TelemetryConstants.MAX_STALENESS);
+      } else
+      {
+        publisher = null;
+        filter = null;
+      }
+    }
+
+    /**
+     * Check whether the channel publishes anything.
+     *
+     * @return True if the channel is enabled.
+     */
+    public boolean isEnabled()
+    {
+      return publisher != null;
+    }
+
+    /**
+     * Publish a value if the channel is enabled and the value changed.
+     *
+     * @param value Value to publish.
+     */
+    public void set(double value)
+    {
+      if (publisher != null)
+      {
+        set(value, Timer.getFPGATimestamp());
+      }
+    }
+
+    /**
+     * Publish a value if the channel is enabled and the value changed.
+     *
+     * @param value     Value to publish.
+     * @param timestamp Current time in seconds.
+     * @return True if the value was sent.
+     */
+    public boolean set(double value, double timestamp)
+    {
+      if (publisher == null || !filter.test(value, timestamp))
+      {
+        return false;
+      }
+      publisher.set(value);
+      return true;
+    }
+  }
+
+  /**
+   * A boolean debug value.
+   */
+  public static final class BooleanChannel
+  {
+
+    private final BooleanPublisher publisher;
+    private final ChangeFilter     filter;
+
+    /**
+     * Create a channel.
+     *
+     * @param key   SmartDashboard key.
+     * @param level Verbosity the value is published at.
+     */
+    public BooleanChannel(String key, Verbosity level)
+    {
+      if (isEnabled(level))
+      {
+        publisher = NetworkTableInstance.getDefault().getTable("SmartDashboard").getBooleanTopic(key).publish();
+        // Booleans are filtered as 0/1, so any flip passes
+        filter = new ChangeFilter("SmartDashboard " + key, 0.5, TelemetryConstants.MAX_STALENESS);
+      } else
+      {
+        publisher = null;
+        filter = null;
+      }
+    }
+
+    /**
+     * Publish a value if the channel is enabled and the value changed.
+     *
+     * @param value Value to publish.
+     */
+    public void set(boolean value)
+    {
+      if (publisher != null && filter.test(value ? 1 : 0, Timer.getFPGATimestamp()))
+      {
+        publisher.set(value);
+      }
+    }
+  }
+}
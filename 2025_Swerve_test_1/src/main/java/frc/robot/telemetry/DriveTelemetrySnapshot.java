@@ -0,0 +1,107 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.telemetry;
+
+/**
+ * Preallocated, primitive-only snapshot of the drivetrain state. It is filled in place once per loop by
+ * {@link frc.robot.subsystems.SwerveSubsystem} and every telemetry consumer reads from it instead of going back to the
+ * encoders, so nothing on the 20ms loop needs to allocate.
+ */
+public class DriveTelemetrySnapshot
+{
+
+  /**
+   * Number of swerve modules on the drivebase.
+   */
+  public static final int MODULE_COUNT = 4;
+
+  /**
+   * FPGA timestamp the snapshot was captured at, in seconds.
+   */
+  public double timestamp;
+
+  /**
+   * Odometry pose, field relative. Heading is in radians.
+   */
+  public double poseX, poseY, headingRadians;
+
+  /**
+   * Field relative chassis velocity in meters per second and radians per second.
+   */
+  public double fieldVx, fieldVy, omegaRadiansPerSecond;
+
+  /**
+   * Measured module wheel speeds in meters per second, in configuration order (FL, FR, BL, BR).
+   */
+  public final double[] moduleSpeeds = new double[MODULE_COUNT];
+
+  /**
+   * Measured module azimuths in degrees, wrapped to [-180, 180).
+   */
+  public final double[] moduleAnglesDegrees = new double[MODULE_COUNT];
+
+  /**
+   * Module drive accelerations in meters per second squared, smoothed over the last few loops.
+   */
+  public final double[] moduleAccelerations = new double[MODULE_COUNT];
+
+  /**
+   * Module steering rates in degrees per second, smoothed over the last few loops.
+   */
+  public final double[] moduleSteeringRates = new double[MODULE_COUNT];
+
+  /**
+   * Module drive distances in meters, as fed to odometry.
+   */
+  public final double[] moduleDistances = new double[MODULE_COUNT];
+
+  /**
+   * Raw gyro yaw in radians, as fed to odometry. Unlike {@link #headingRadians} this is not corrected by vision or
+   * odometry resets.
+   */
+  public double gyroYawRadians;
+
+  /**
+   * Field relative module positions in meters, derived from the pose and the module offsets.
+   */
+  public final double[] moduleFieldX = new double[MODULE_COUNT];
+  public final double[] moduleFieldY = new double[MODULE_COUNT];
+
+  /**
+   * Online drive feedforward fit, kS, kV and kA of module 0 followed by those of the other modules, in volts per meter
+   * per second to the power of the gain. The intervals are the half widths of the 95% confidence intervals, the applied
+   * gains are what each module currently uses.
+   */
+  public final double[] feedforwardEstimates = new double[3 * MODULE_COUNT];
+  public final double[] feedforwardIntervals = new double[3 * MODULE_COUNT];
+  public final double[] feedforwardApplied   = new double[3 * MODULE_COUNT];
+
+  /**
+   * Copy every value from another snapshot without allocating.
+   *
+   * @param other Snapshot to copy from.
+   */
+  public void copyFrom(DriveTelemetrySnapshot other)
+  {
+    timestamp = other.timestamp;
+    poseX = other.poseX;
+    poseY = other.poseY;
+    headingRadians = other.headingRadians;
+    fieldVx = other.fieldVx;
+    fieldVy = other.fieldVy;
+    omegaRadiansPerSecond = other.omegaRadiansPerSecond;
+    gyroYawRadians = other.gyroYawRadians;
+    System.arraycopy(other.moduleSpeeds, 0, moduleSpeeds, 0, MODULE_COUNT);
+    System.arraycopy(other.moduleAnglesDegrees, 0, moduleAnglesDegrees, 0, MODULE_COUNT);
+    System.arraycopy(other.moduleAccelerations, 0, moduleAccelerations, 0, MODULE_COUNT);
+    System.arraycopy(other.moduleSteeringRates, 0, moduleSteeringRates, 0, MODULE_COUNT);
+    System.arraycopy(other.moduleDistances, 0, moduleDistances, 0, MODULE_COUNT);
+    System.arraycopy(other.moduleFieldX, 0, moduleFieldX, 0, MODULE_COUNT);
+    System.arraycopy(other.moduleFieldY, 0, moduleFieldY, 0, MODULE_COUNT);
+    System.arraycopy(other.feedforwardEstimates, 0, feedforwardEstimates, 0, feedforwardEstimates.length);
+    System.arraycopy(other.feedforwardIntervals, 0, feedforwardIntervals, 0, feedforwardIntervals.length);
+    System.arraycopy(other.feedforwardApplied, 0, feedforwardApplied, 0, feedforwardApplied.length);
+  }
+}
@@ -0,0 +1,333 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.telemetry;
+
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.IntegerPublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.wpilibj.DataLogManager;
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import frc.robot.Constants.TelemetryConstants;
+import frc.robot.util.LatencyHistogram;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Main loop profiler. Each named {@link Section} keeps a {@link LatencyHistogram} of its run times, and every loop that
+ * takes longer than the robot period is counted as an overrun and blamed on the section that took the most time in it.
+ *
+ * <p>Subsystems and the telemetry phase time themselves with {@link #start()} and {@link #stop(Section, long)}. Command
+ * {@code execute()} times are measured without touching the commands: a binding on the default button loop marks the
+ * start of the command phase, and each {@link CommandScheduler#onCommandExecute} callback closes the time since the
+ * previous mark. That time also includes the previous command's {@code isFinished()}.
+ *
+ * <p>The loop is bracketed around everything the robot base class runs, so the time no section covers (mode
+ * periodics, scheduler and dashboard overhead) is recorded in an {@value #UNTIMED} section and can take the blame
+ * for an overrun like any other.
+ *
+ * <p>Sections should not overlap, so the overrun attribution is meaningful. Recording costs two {@link System#nanoTime()}
+ * calls and does not allocate once a section exists. One section is published to NetworkTables per loop, round robin,
+ * and {@link #dump()} writes the full breakdown to the log.
+ */
+public final class LoopProfiler
+{
+
+  /**
+   * One timed part of the loop.
+   */
+  public static final class Section
+  {
+
+    private final String           name;
+    private final LatencyHistogram histogram = new LatencyHistogram();
+    private       long             loopMicros;
+    private       long             loop      = -1;
+    private       long             overrunLoops;
+    private       DoublePublisher  p50Publisher, p99Publisher, maxPublisher;
+    private       IntegerPublisher overrunPublisher;
+
+    private Section(String name)
+    {
+      this.name = name;
+    }
+  }
+
+  /**
+   * Name of the section holding the part of each loop no other section timed.
+   */
+  public static final String UNTIMED = "Untimed";
+
+  private static LoopProfiler instance;
+
+  private final boolean              enabled   = TelemetryConstants.PROFILER_ENABLED;
+  private final NetworkTable         table     = NetworkTableInstance.getDefault().getTable("Profiler");
+  private final Map<String, Section> byName    = new HashMap<>();
+  private final List<Section>        sections  = new ArrayList<>();
+  private final List<Section>        thisLoop  = new ArrayList<>();
+  private final LatencyHistogram     loopTimes = new LatencyHistogram();
+  private final DoublePublisher      loopP50Publisher;
+  private final DoublePublisher      loopP99Publisher;
+  private final DoublePublisher      loopMaxPublisher;
+  private final IntegerPublisher     overrunPublisher;
+  private final Section              untimed;
+  private       long                 loop      = 0;
+  private       long                 loopStartNanos;
+  private       long                 commandMarkNanos;
+  private       long                 overruns  = 0;
+  private       int                  publishIndex = 0;
+
+  private LoopProfiler()
+  {
+    loopP50Publisher = table.getDoubleTopic("Loop p50 ms").publish();
+    loopP99Publisher = table.getDoubleTopic("Loop p99 ms").publish();
+    loopMaxPublisher = table.getDoubleTopic("Loop Max ms").publish();
+    overrunPublisher = table.getIntegerTopic("Loop Overruns").publish();
+    untimed = section(UNTIMED);
+  }
+
+  /**
+   * Get the profiler shared by the main loop.
+   *
+   * @return The {@link LoopProfiler} instance.
+   */
+  public static synchronized LoopProfiler getInstance()
+  {
+    if (instance == null)
+    {
+      instance = new LoopProfiler();
+    }
+    return instance;
+  }
+
+  /**
+   * Hook into the {@link CommandScheduler} to time command {@code execute()} calls. Call once, after the button
+   * bindings are created so the phase mark runs after them.
+   */
+  public void install()
+  {
+    if (!enabled)
+    {
+      return;
+    }
+    CommandScheduler.getInstance().getDefaultButtonLoop().bind(this::markCommandPhase);
+    CommandScheduler.getInstance().onCommandExecute(this::commandExecuted);
+  }
+
+  /**
+   * Get or create a section. Sections should be looked up once and kept.
+   *
+   * @param name Section name, shown on the dashboard and in the report.
+   * @return The {@link Section}.
+   */
+  public Section section(String name)
+  {
+    Section section = byName.get(name);
+    if (section == null)
+    {
+      section = new Section(name);
+      byName.put(name, section);
+      sections.add(section);
+    }
+    return section;
+  }
+
+  /**
+   * Start timing.
+   *
+   * @return Start time to pass to {@link #stop(Section, long)}.
+   */
+  public long start()
+  {
+    return enabled ? System.nanoTime() : 0;
+  }
+
+  /**
+   * Stop timing a section.
+   *
+   * @param section    Section to record.
+   * @param startNanos Value returned by {@link #start()}.
+   */
+  public void stop(Section section, long startNanos)
+  {
+    if (enabled)
+    {
+      record(section, (System.nanoTime() - startNanos) / 1000);
+    }
+  }
+
+  /**
+   * Mark the start of a main loop iteration, before anything else the loop runs.
+   */
+  public void startLoop()
+  {
+    loop++;
+    thisLoop.clear();
+    loopStartNanos = start();
+  }
+
+  /**
+   * Mark the end of a main loop iteration, after everything else the loop runs. Record the time no section covered,
+   * count the loop as an overrun if it took longer than the period and publish one section.
+   *
+   * @param periodSeconds Robot loop period in seconds.
+   */
+  public void endLoop(double periodSeconds)
+  {
+    if (!enabled)
+    {
+      return;
+    }
+    long loopMicros  = (System.nanoTime() - loopStartNanos) / 1000;
+    long timedMicros = 0;
+    for (int i = 0; i < thisLoop.size(); i++)
+    {
+      timedMicros += thisLoop.get(i).loopMicros;
+    }
+    record(untimed, Math.max(0, loopMicros - timedMicros));
+    loopTimes.record(loopMicros);
+    if (loopMicros > periodSeconds * 1e6)
+    {
+      overruns++;
+      Section worst = null;
+      for (int i = 0; i < thisLoop.size(); i++)
+      {
+        Section section = thisLoop.get(i);
+        if (worst == null || section.loopMicros > worst.loopMicros)
+        {
+          worst = section;
+        }
+      }
+      if (worst != null)
+      {
+        worst.overrunLoops++;
+      }
+    }
+    publish();
+  }
+
+  /**
+   * Get the number of loops that took longer than the period since the last {@link #reset()}.
+   *
+   * @return Overrun count.
+   */
+  public long getOverruns()
+  {
+    return overruns;
+  }
+
+  /**
+   * Clear every histogram and overrun count, for example at the start of a match.
+   */
+  public void reset()
+  {
+    loopTimes.reset();
+    overruns = 0;
+    for (Section section : sections)
+    {
+      section.histogram.reset();
+      section.overrunLoops = 0;
+    }
+  }
+
+  /**
+   * Build the full breakdown, slowest p99 first.
+   *
+   * @return Multi line report.
+   */
+  public String getReport()
+  {
+    List<Section> sorted = new ArrayList<>(sections);
+    sorted.sort((a, b) -> Long.compare(b.histogram.getPercentileMicros(99), a.histogram.getPercentileMicros(99)));
+
+    StringBuilder report = new StringBuilder();
+    report.append(String.format("Loop profile: %d loops, %d overruns, p50 %.2f ms, p99 %.2f ms, max %.2f ms%n",
+                                loopTimes.getCount(), overruns, toMillis(loopTimes.getPercentileMicros(50)),
+                                toMillis(loopTimes.getPercentileMicros(99)), toMillis(loopTimes.getMaxMicros())));
+    report.append(String.format("%-40s %8s %8s %8s %8s %8s %8s%n",
+                                "Section", "Count", "Mean ms", "p50 ms", "p99 ms", "Max ms", "Overruns"));
+    for (Section section : sorted)
+    {
+      LatencyHistogram histogram = section.histogram;
+      report.append(String.format("%-40s %8d %8.3f %8.3f %8.3f %8.3f %8d%n",
+                                  section.name, histogram.getCount(), histogram.getMeanMicros() / 1000.0,
+                                  toMillis(histogram.getPercentileMicros(50)),
+                                  toMillis(histogram.getPercentileMicros(99)),
+                                  toMillis(histogram.getMaxMicros()), section.overrunLoops));
+    }
+    return report.toString();
+  }
+
+  /**
+   * Write the full breakdown to the console and the DataLog messages entry.
+   */
+  public void dump()
+  {
+    if (enabled)
+    {
+      DataLogManager.log(getReport());
+    }
+  }
+
+  private void markCommandPhase()
+  {
+    commandMarkNanos = System.nanoTime();
+  }
+
+  private void commandExecuted(Command command)
+  {
+    long now = System.nanoTime();
+    record(section(command.getName()), (now - commandMarkNanos) / 1000);
+    commandMarkNanos = now;
+  }
+
+  private void record(Section section, long micros)
+  {
+    section.histogram.record(micros);
+    if (section.loop != loop)
+    {
+      section.loop = loop;
+      section.loopMicros = 0;
+      thisLoop.add(section);
+    }
+    section.loopMicros += micros;
+  }
+
+  // publish the loop totals and one section, so the cost of percentile queries stays flat as sections are added
+  private void publish()
+  {
+    loopP50Publisher.set(toMillis(loopTimes.getPercentileMicros(50)));
+    loopP99Publisher.set(toMillis(loopTimes.getPercentileMicros(99)));
+    loopMaxPublisher.set(toMillis(loopTimes.getMaxMicros()));
+    overrunPublisher.set(overruns);
+    if (sections.isEmpty())
+    {
+      return;
+    }
+
+    publishIndex = (publishIndex + 1) % sections.size();
+    Section section = sections.get(publishIndex);
+    if (section.p50Publisher == null)
+    {
+      NetworkTable sectionTable = table.getSubTable(section.name);
+      section.p50Publisher = sectionTable.getDoubleTopic("p50 ms").publish();
+      section.p99Publisher = sectionTable.getDoubleTopic("p99 ms").publish();
+      section.maxPublisher = sectionTable.getDoubleTopic("Max ms").publish();
+      section.overrunPublisher = sectionTable.getIntegerTopic("Overruns").publish();
+    }
+    section.p50Publisher.set(toMillis(section.histogram.getPercentileMicros(50)));
+    section.p99Publisher.set(toMillis(section.histogram.getPercentileMicros(99)));
+    section.maxPublisher.set(toMillis(section.histogram.getMaxMicros()));
+    section.overrunPublisher.set(section.overrunLoops);
+  }
+
+  private static double toMillis(long micros)
+  {
+    return micros / 1000.0;
+  }
+}
@@ -0,0 +1,100 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.telemetry;
+
+import edu.wpi.first.wpilibj.PowerDistribution;
+
+/**
+ * Reads the {@link PowerDistribution} at most once per cycle and caches the result in a {@link PowerSnapshot}. Every
+ * power consumer reads the snapshot instead of querying the device per value.
+ *
+ * <p>One sample is two device reads: the battery voltage and all channel currents in a single
+ * {@link PowerDistribution#getAllCurrents()} call. Total current and power are derived from those instead of being
+ * read separately. Every device call goes through a counting accessor, so {@link #getTotalReads()} grows by two per
+ * sample and an extra read shows up as a faster count.
+ */
+public class PowerSampler
+{
+
+  private final PowerDistribution pdh;
+  private final PowerSnapshot     snapshot;
+  private       long              totalReads = 0;
+
+  /**
+   * Create the sampler.
+   *
+   * @param pdh Power distribution device to sample.
+   */
+  public PowerSampler(PowerDistribution pdh)
+  {
+    this.pdh = pdh;
+    snapshot = new PowerSnapshot(pdh.getNumChannels());
+  }
+
+  /**
+   * Sample the device unless it was already sampled for this timestamp.
+   *
+   * @param timestamp Timestamp of the current cycle in seconds.
+   * @return The cached snapshot.
+   */
+  public PowerSnapshot sample(double timestamp)
+  {
+    if (timestamp == snapshot.timestamp)
+    {
+      return snapshot;
+    }
+    snapshot.timestamp = timestamp;
+    snapshot.voltage = readVoltage();
+    // getAllCurrents() returns a fresh array, it is copied so consumers keep a stable reference.
+    double[] currents = readAllCurrents();
+    double   total    = 0;
+    int      count    = Math.min(currents.length, snapshot.currents.length);
+    for (int i = 0; i < count; i++)
+    {
+      snapshot.currents[i] = currents[i];
+      total += currents[i];
+    }
+    snapshot.totalCurrent = total;
+    snapshot.totalPower = snapshot.voltage * total;
+    return snapshot;
+  }
+
+  private double readVoltage()
+  {
+    countRead();
+    return pdh.getVoltage();
+  }
+
+  private double[] readAllCurrents()
+  {
+    countRead();
+    return pdh.getAllCurrents();
+  }
+
+  private void countRead()
+  {
+    totalReads++;
+  }
+
+  /**
+   * Get the last sample without reading the device.
+   *
+   * @return The cached snapshot.
+   */
+  public PowerSnapshot getSnapshot()
+  {
+    return snapshot;
+  }
+
+  /**
+   * Get the number of device reads made since the sampler was created.
+   *
+   * @return Total device reads.
+   */
+  public long getTotalReads()
+  {
+    return totalReads;
+  }
+}
@@ -0,0 +1,48 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.telemetry;
+
+/**
+ * Primitive cache of one {@link edu.wpi.first.wpilibj.PowerDistribution} sample, filled in place by
+ * {@link PowerSampler}.
+ */
+public class PowerSnapshot
+{
+
+  /**
+   * Timestamp of the sample in seconds.
+   */
+  public double timestamp = Double.NaN;
+
+  /**
+   * Battery voltage at the PDH in volts.
+   */
+  public double voltage;
+
+  /**
+   * Sum of all channel currents in amps.
+   */
+  public double totalCurrent;
+
+  /**
+   * Total power in watts, voltage times total current.
+   */
+  public double totalPower;
+
+  /**
+   * Current of every PDH channel in amps.
+   */
+  public final double[] currents;
+
+  /**
+   * Create the snapshot.
+   *
+   * @param channels Number of channels on the power distribution device.
+   */
+  public PowerSnapshot(int channels)
+  {
+    currents = new double[channels];
+  }
+}
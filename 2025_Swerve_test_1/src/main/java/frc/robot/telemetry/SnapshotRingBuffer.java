@@ -0,0 +1,114 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.telemetry;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Lock-free single-producer/single-consumer ring buffer of preallocated snapshots. Values are copied in and out of the
+ * slots, so neither side allocates. When the buffer is full the producer drops the oldest queued snapshot instead of
+ * blocking the robot loop.
+ *
+ * <p>Dropping is done by advancing the shared tail with a CAS. The consumer copies a slot and then claims it with the
+ * same CAS, so a copy that raced with the producer overwriting that slot is detected and thrown away.
+ *
+ * @param <T> Snapshot type.
+ */
+public class SnapshotRingBuffer<T>
+{
+
+  private final Object[]           slots;
+  private final int                mask;
+  private final BiConsumer<T, T>   copier;
+  private final AtomicLong         tail    = new AtomicLong();
+  private final AtomicLong         dropped = new AtomicLong();
+  private volatile long            head    = 0;
+
+  /**
+   * Create the ring buffer.
+   *
+   * @param capacity Number of slots, must be a power of two.
+   * @param factory  Creates the preallocated slot values.
+   * @param copier   Copies the second argument into the first.
+   */
+  public SnapshotRingBuffer(int capacity, Supplier<T> factory, BiConsumer<T, T> copier)
+  {
+    if (capacity <= 0 || Integer.bitCount(capacity) != 1)
+    {
+      throw new IllegalArgumentException("Capacity must be a power of two, got " + capacity);
+    }
+    slots = new Object[capacity];
+    for (int i = 0; i < capacity; i++)
+    {
+      slots[i] = factory.get();
+    }
+    mask = capacity - 1;
+    this.copier = copier;
+  }
+
+  /**
+   * Copy a snapshot into the buffer. Only call from the producer thread.
+   *
+   * @param value Snapshot to enqueue.
+   */
+  public void offer(T value)
+  {
+    long h = head;
+    long t = tail.get();
+    while (h - t > mask)
+    {
+      if (tail.compareAndSet(t, t + 1))
+      {
+        dropped.incrementAndGet();
+        break;
+      }
+      t = tail.get();
+    }
+    copier.accept(slot(h), value);
+    head = h + 1;
+  }
+
+  /**
+   * Copy the oldest queued snapshot out of the buffer. Only call from the consumer thread.
+   *
+   * @param destination Snapshot to copy into.
+   * @return True if a snapshot was copied, false if the buffer was empty.
+   */
+  public boolean poll(T destination)
+  {
+    while (true)
+    {
+      long t = tail.get();
+      if (t >= head)
+      {
+        return false;
+      }
+      copier.accept(destination, slot(t));
+      if (tail.compareAndSet(t, t + 1))
+      {
+        return true;
+      }
+      // The producer dropped this slot while it was being copied, the copy may be torn so try the next one.
+    }
+  }
+
+  /**
+   * Get the number of snapshots dropped because the consumer fell behind.
+   *
+   * @return Dropped snapshot count.
+   */
+  public long getDroppedCount()
+  {
+    return dropped.get();
+  }
+
+  @SuppressWarnings("unchecked")
+  private T slot(long index)
+  {
+    return (T) slots[(int) (index & mask)];
+  }
+}
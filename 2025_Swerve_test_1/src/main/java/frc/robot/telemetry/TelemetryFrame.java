@@ -0,0 +1,46 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.telemetry;
+
+/**
+ * Everything the telemetry thread needs to publish one robot loop. Frames are captured on the main loop, copied into
+ * a preallocated slot of the {@link SnapshotRingBuffer} and treated as read-only once handed off.
+ */
+public class TelemetryFrame
+{
+
+  /**
+   * Drivetrain state for this loop.
+   */
+  public final DriveTelemetrySnapshot drive = new DriveTelemetrySnapshot();
+
+  /**
+   * Driver controller axes: left X, left Y, right X, right Y.
+   */
+  public final double[] controllerAxes = new double[4];
+
+  /**
+   * Robot mode name. Always one of the constant mode strings so no copy is needed.
+   */
+  public String robotMode = "";
+
+  /**
+   * Number of times the gyro has been zeroed.
+   */
+  public int gyroZeroCount;
+
+  /**
+   * Copy every value from another frame without allocating.
+   *
+   * @param other Frame to copy from.
+   */
+  public void copyFrom(TelemetryFrame other)
+  {
+    drive.copyFrom(other.drive);
+    System.arraycopy(other.controllerAxes, 0, controllerAxes, 0, controllerAxes.length);
+    robotMode = other.robotMode;
+    gyroZeroCount = other.gyroZeroCount;
+  }
+}
@@ -0,0 +1,233 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.telemetry;
+
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.IntegerPublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import frc.robot.Constants.TelemetryConstants;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs registered {@link TelemetrySource}s at the rate of their {@link TelemetryTier} and keeps per-tier bytes per
+ * second counters so NetworkTables traffic can be kept under the field bandwidth cap.
+ */
+public final class TelemetryScheduler
+{
+
+  /**
+   * Approximate NT4 per-value framing cost (topic id, timestamp and type) in bytes.
+   */
+  public static final int VALUE_OVERHEAD_BYTES = 10;
+
+  // Filters are held weakly, one whose owner is gone stops being reported at the next bandwidth report
+  private static final class FilterReport
+  {
+
+    private final WeakReference<ChangeFilter> filter;
+    private final IntegerPublisher            sent;
+    private final IntegerPublisher            suppressed;
+
+    private FilterReport(ChangeFilter filter, NetworkTable table)
+    {
+      this.filter = new WeakReference<>(filter);
+      sent = table.getIntegerTopic("Sent").publish();
+      suppressed = table.getIntegerTopic("Suppressed").publish();
+    }
+
+    private void close()
+    {
+      sent.close();
+      suppressed.close();
+    }
+  }
+
+  private static TelemetryScheduler instance;
+
+  private final TelemetryTier[]         tiers = TelemetryTier.values();
+  private final List<TelemetrySource>[] sources;
+  private final long[]                  bytesThisWindow;
+  private final double[]                bytesPerSecond;
+  private final DoublePublisher[]       bandwidthPublishers;
+  private final DoublePublisher         totalBandwidthPublisher;
+  private final NetworkTable            suppressionTable;
+  private final List<FilterReport>      filters     = new ArrayList<>();
+  private       long                    runCount    = 0;
+  private       double                  windowStart = Double.NaN;
+
+  @SuppressWarnings("unchecked")
+  private TelemetryScheduler()
+  {
+    NetworkTable table = NetworkTableInstance.getDefault().getTable("Telemetry").getSubTable("Bandwidth");
+    sources = new List[tiers.length];
+    bytesThisWindow = new long[tiers.length];
+    bytesPerSecond = new double[tiers.length];
+    bandwidthPublishers = new DoublePublisher[tiers.length];
+    for (TelemetryTier tier : tiers)
+    {
+      sources[tier.ordinal()] = new ArrayList<>();
+      bandwidthPublishers[tier.ordinal()] = table.getDoubleTopic(tier.name() + " Bytes Per Second").publish();
+    }
+    totalBandwidthPublisher = table.getDoubleTopic("Total Bytes Per Second").publish();
+    suppressionTable = NetworkTableInstance.getDefault().getTable("Telemetry").getSubTable("Suppression");
+  }
+
+  /**
+   * Get the scheduler shared by every telemetry publisher.
+   *
+   * @return The {@link TelemetryScheduler} instance.
+   */
+  public static synchronized TelemetryScheduler getInstance()
+  {
+    if (instance == null)
+    {
+      instance = new TelemetryScheduler();
+    }
+    return instance;
+  }
+
+  /**
+   * Register a source to be published at the rate of the given tier.
+   *
+   * @param tier   Rate tier of the source.
+   * @param source Source to run.
+   */
+  public synchronized void register(TelemetryTier tier, TelemetrySource source)
+  {
+    sources[tier.ordinal()].add(source);
+  }
+
+  /**
+   * Register a {@link ChangeFilter} so its sent and suppressed counts are published with the bandwidth counters. The
+   * filter is held weakly, so registering does not keep it alive.
+   *
+   * @param filter Filter to report.
+   */
+  public synchronized void registerFilter(ChangeFilter filter)
+  {
+    filters.add(new FilterReport(filter, suppressionTable.getSubTable(filter.getKey())));
+  }
+
+  /**
+   * Stop reporting a {@link ChangeFilter} and close its count publishers.
+   *
+   * @param filter Filter to drop, ignored if it is not registered.
+   */
+  public synchronized void unregisterFilter(ChangeFilter filter)
+  {
+    for (int i = filters.size() - 1; i >= 0; i--)
+    {
+      if (filters.get(i).filter.get() == filter)
+      {
+        filters.remove(i).close();
+      }
+    }
+  }
+
+  /**
+   * Get the number of filters being reported, for checking that dropped filters are released.
+   *
+   * @return Registered filter count, including collected filters not yet pruned by a report.
+   */
+  public synchronized int getFilterCount()
+  {
+    return filters.size();
+  }
+
+  /**
+   * Run every source that is due for this frame. Should be called once per captured robot loop.
+   *
+   * @param frame Frame to publish, its timestamp drives the bandwidth counters.
+   */
+  public synchronized void run(TelemetryFrame frame)
+  {
+    for (int t = 0; t < tiers.length; t++)
+    {
+      if (runCount % tiers[t].cycles != 0)
+      {
+        continue;
+      }
+      List<TelemetrySource> tierSources = sources[t];
+      for (int i = 0; i < tierSources.size(); i++)
+      {
+        bytesThisWindow[t] += tierSources.get(i).publish(frame);
+      }
+    }
+    runCount++;
+    updateBandwidth(frame.drive.timestamp);
+  }
+
+  /**
+   * Get the most recent bytes per second measurement for a tier.
+   *
+   * @param tier Tier to check.
+   * @return Estimated bytes per second published by the tier over the last report period.
+   */
+  public synchronized double getBytesPerSecond(TelemetryTier tier)
+  {
+    return bytesPerSecond[tier.ordinal()];
+  }
+
+  private void updateBandwidth(double timestamp)
+  {
+    if (Double.isNaN(windowStart))
+    {
+      windowStart = timestamp;
+      return;
+    }
+    double elapsed = timestamp - windowStart;
+    if (elapsed < TelemetryConstants.BANDWIDTH_REPORT_PERIOD)
+    {
+      return;
+    }
+    double total = 0;
+    for (int t = 0; t < tiers.length; t++)
+    {
+      bytesPerSecond[t] = bytesThisWindow[t] / elapsed;
+      bytesThisWindow[t] = 0;
+      total += bytesPerSecond[t];
+      bandwidthPublishers[t].set(bytesPerSecond[t]);
+    }
+    totalBandwidthPublisher.set(total);
+    for (int i = filters.size() - 1; i >= 0; i--)
+    {
+      FilterReport report = filters.get(i);
+      ChangeFilter filter = report.filter.get();
+      if (filter == null)
+      {
+        filters.remove(i).close();
+        continue;
+      }
+      report.sent.set(filter.getSentCount());
+      report.suppressed.set(filter.getSuppressedCount());
+    }
+    windowStart = timestamp;
+  }
+
+  /**
+   * Estimated wire size of publishing a number of doubles as one value.
+   *
+   * @param count Number of doubles in the value.
+   * @return Estimated bytes.
+   */
+  public static int doubleBytes(int count)
+  {
+    return VALUE_OVERHEAD_BYTES + 8 * count;
+  }
+
+  /**
+   * Estimated wire size of publishing a string value.
+   *
+   * @param value String to publish.
+   * @return Estimated bytes.
+   */
+  public static int stringBytes(String value)
+  {
+    return VALUE_OVERHEAD_BYTES + value.length();
+  }
+}
@@ -0,0 +1,21 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.telemetry;
+
+/**
+ * A block of telemetry registered with the {@link TelemetryScheduler}.
+ */
+@FunctionalInterface
+public interface TelemetrySource
+{
+
+  /**
+   * Publish the values owned by this source. Runs on the telemetry thread.
+   *
+   * @param frame Frame captured by the robot loop.
+   * @return Estimated number of bytes put on the wire, 0 if nothing was published.
+   */
+  int publish(TelemetryFrame frame);
+}
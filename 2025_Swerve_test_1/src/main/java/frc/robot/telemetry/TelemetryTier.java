@@ -0,0 +1,39 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.telemetry;
+
+import edu.wpi.first.wpilibj.TimedRobot;
+import frc.robot.Constants.TelemetryConstants;
+
+/**
+ * Publishing rate tiers for the {@link TelemetryScheduler}.
+ */
+public enum TelemetryTier
+{
+  /**
+   * Pose, module states and driver inputs. Published at {@link TelemetryConstants#TELEMETRY_UPDATE_RATE}.
+   */
+  FAST(TelemetryConstants.TELEMETRY_UPDATE_RATE),
+  /**
+   * Battery voltage and PDH currents. Published at {@link TelemetryConstants#SLOW_TELEMETRY_UPDATE_RATE}.
+   */
+  SLOW(TelemetryConstants.SLOW_TELEMETRY_UPDATE_RATE),
+  /**
+   * Events such as gyro zeroing and robot mode changes. Checked every loop, sources only publish when their value
+   * changes.
+   */
+  ON_CHANGE(TimedRobot.kDefaultPeriod);
+
+  /**
+   * Number of scheduler runs between publishes.
+   */
+  public final int cycles;
+
+  TelemetryTier(double periodSeconds)
+  {
+    // Count loops instead of comparing timestamps so loop jitter does not skip a publish.
+    cycles = Math.max(1, (int) Math.round(periodSeconds / TimedRobot.kDefaultPeriod));
+  }
+}
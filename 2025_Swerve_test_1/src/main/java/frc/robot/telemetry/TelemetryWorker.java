@@ -0,0 +1,93 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.telemetry;
+
+import edu.wpi.first.networktables.IntegerPublisher;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import frc.robot.Constants.TelemetryConstants;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Low priority thread that publishes {@link TelemetryFrame}s handed off by the robot loop. Keeps every dashboard write
+ * out of the loop-overrun budget of the main thread.
+ */
+public class TelemetryWorker implements Runnable
+{
+
+  private final SnapshotRingBuffer<TelemetryFrame> queue;
+  private final TelemetryScheduler                 scheduler;
+  private final TelemetryFrame                     frame = new TelemetryFrame();
+  private final IntegerPublisher                   droppedFramesPublisher;
+  private final Thread                             thread;
+  private       long                               lastDroppedFrames = -1;
+
+  /**
+   * Create the worker. Call {@link #start()} once every telemetry source has been registered.
+   *
+   * @param scheduler Scheduler to run for every frame.
+   */
+  public TelemetryWorker(TelemetryScheduler scheduler)
+  {
+    this.scheduler = scheduler;
+    queue = new SnapshotRingBuffer<>(TelemetryConstants.TELEMETRY_QUEUE_CAPACITY,
+                                     TelemetryFrame::new,
+                                     TelemetryFrame::copyFrom);
+    droppedFramesPublisher = NetworkTableInstance.getDefault()
+                                                 .getTable("Telemetry")
+                                                 .getIntegerTopic("Dropped Frames")
+                                                 .publish();
+    thread = new Thread(this, "Telemetry");
+    thread.setDaemon(true);
+    thread.setPriority(Thread.MIN_PRIORITY);
+  }
+
+  /**
+   * Start the telemetry thread.
+   */
+  public void start()
+  {
+    thread.start();
+  }
+
+  /**
+   * Hand a frame off to the telemetry thread. Called from the robot loop, copies the frame and never blocks.
+   *
+   * @param captured Frame captured this loop.
+   */
+  public void submit(TelemetryFrame captured)
+  {
+    queue.offer(captured);
+    LockSupport.unpark(thread);
+  }
+
+  /**
+   * Get the number of frames dropped because the telemetry thread fell behind.
+   *
+   * @return Dropped frame count.
+   */
+  public long getDroppedFrames()
+  {
+    return queue.getDroppedCount();
+  }
+
+  @Override
+  public void run()
+  {
+    while (!Thread.currentThread().isInterrupted())
+    {
+      while (queue.poll(frame))
+      {
+        scheduler.run(frame);
+      }
+      long droppedFrames = queue.getDroppedCount();
+      if (droppedFrames != lastDroppedFrames)
+      {
+        droppedFramesPublisher.set(droppedFrames);
+        lastDroppedFrames = droppedFrames;
+      }
+      LockSupport.parkNanos(TelemetryConstants.TELEMETRY_WORKER_IDLE_NANOS);
+    }
+  }
+}
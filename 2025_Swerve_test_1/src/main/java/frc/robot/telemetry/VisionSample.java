@@ -0,0 +1,87 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.telemetry;
+
+/**
+ * One camera pose estimate together with everything the vision filter and standard deviation model need to decide what
+ * to do with it. Recorded to the match log so {@link frc.robot.replay.LogReplay} can re-run the same decisions offline
+ * with different thresholds.
+ */
+public class VisionSample
+{
+
+  /**
+   * Number of doubles written by {@link #toArray(double[])}.
+   */
+  public static final int FIELD_COUNT = 13;
+
+  /**
+   * Capture timestamp in seconds.
+   */
+  public double timestamp;
+  /**
+   * Estimated field pose in meters and radians.
+   */
+  public double x, y, theta;
+  /**
+   * Lowest pose ambiguity of the targets used, 1 if none reported one.
+   */
+  public double bestAmbiguity;
+  /**
+   * Number of targets used that exist in the field layout.
+   */
+  public int    tagCount;
+  /**
+   * Average distance from the estimated pose to the tags used, in meters.
+   */
+  public double averageTagDistance;
+  /**
+   * Base standard deviations of the camera for single and multi tag estimates.
+   */
+  public final double[] singleTagStdDevs = new double[3];
+  public final double[] multiTagStdDevs  = new double[3];
+  /**
+   * True if the estimate was passed on to the pose estimator.
+   */
+  public boolean accepted;
+
+  /**
+   * Pack the sample, minus the timestamp, into an array for logging.
+   *
+   * @param dst Array of at least {@link #FIELD_COUNT} elements.
+   */
+  public void toArray(double[] dst)
+  {
+    dst[0] = x;
+    dst[1] = y;
+    dst[2] = theta;
+    dst[3] = bestAmbiguity;
+    dst[4] = tagCount;
+    dst[5] = averageTagDistance;
+    System.arraycopy(singleTagStdDevs, 0, dst, 6, 3);
+    System.arraycopy(multiTagStdDevs, 0, dst, 9, 3);
+    dst[12] = accepted ? 1 : 0;
+  }
+
+  /**
+   * Unpack a sample written by {@link #toArray(double[])}.
+   *
+   * @param timestamp Capture timestamp in seconds.
+   * @param src       Logged array.
+   */
+  public void fromArray(double timestamp, double[] src)
+  {
+    this.timestamp = timestamp;
+    x = src[0];
+    y = src[1];
+    theta = src[2];
+    bestAmbiguity = src[3];
+    tagCount = (int) src[4];
+    averageTagDistance = src[5];
+    System.arraycopy(src, 6, singleTagStdDevs, 0, 3);
+    System.arraycopy(src, 9, multiTagStdDevs, 0, 3);
+    accepted = src[12] != 0;
+  }
+}
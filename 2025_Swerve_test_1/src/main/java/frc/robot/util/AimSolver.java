@@ -0,0 +1,150 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util;
+
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Aim while moving. The robot position is first projected forward by the system latency, since a heading commanded now
+ * only takes effect that much later. A game piece released from a moving robot keeps the robot's velocity, so instead
+ * of the target the robot aims at a virtual target shifted back by the velocity times the time of flight. The time of
+ * flight depends on the distance to the virtual target, so the two are iterated until the time of flight settles.
+ * When it does not settle within the iteration limit, for example when the robot outruns the shot, the last iterate
+ * is returned and {@link #isConverged()} is false.
+ *
+ * <p>Inputs and results are primitives and nothing allocates, so {@link #solve} can run every loop. Instances keep the
+ * last solution and are not thread safe.
+ */
+public class AimSolver
+{
+
+  private static final int    MAX_ITERATIONS = 8;
+  private static final double TOLERANCE      = 1e-4; // seconds
+
+  private final double              latency;
+  private final DoubleUnaryOperator timeOfFlight;
+  private       double              heading;
+  private       double              distance;
+  private       double              flightTime;
+  private       int                 iterations;
+  private       boolean             converged;
+
+  /**
+   * Create a solver.
+   *
+   * @param latencySeconds Time from reading the pose to the robot responding to the command, in seconds.
+   * @param timeOfFlight   Time of flight in seconds of a shot over the given distance in meters. Must not allocate and
+   *                       should grow slower than the distance shrinks, so the iteration converges.
+   */
+  public AimSolver(double latencySeconds, DoubleUnaryOperator timeOfFlight)
+  {
+    this.latency = latencySeconds;
+    this.timeOfFlight = timeOfFlight;
+  }
+
+  /**
+   * Create a solver for a shot that travels at a constant speed.
+   *
+   * @param latencySeconds Time from reading the pose to the robot responding to the command, in seconds.
+   * @param shotSpeed      Average speed of the game piece in meters per second.
+   * @return The solver.
+   */
+  public static AimSolver constantSpeed(double latencySeconds, double shotSpeed)
+  {
+    return new AimSolver(latencySeconds, distance -> distance / shotSpeed);
+  }
+
+  /**
+   * Solve for the heading to shoot at.
+   *
+   * @param robotX  Field X of the robot in meters.
+   * @param robotY  Field Y of the robot in meters.
+   * @param fieldVx Field relative X velocity of the robot in meters per second.
+   * @param fieldVy Field relative Y velocity of the robot in meters per second.
+   * @param targetX Field X of the target in meters.
+   * @param targetY Field Y of the target in meters.
+   * @return Field relative heading in radians, CCW positive from the field X axis.
+   */
+  public double solve(double robotX, double robotY, double fieldVx, double fieldVy, double targetX, double targetY)
+  {
+    // Where the robot will be when the command takes effect
+    double x = robotX + fieldVx * latency;
+    double y = robotY + fieldVy * latency;
+
+    double dx = targetX - x;
+    double dy = targetY - y;
+    double time = timeOfFlight.applyAsDouble(Math.hypot(dx, dy));
+    iterations = 0;
+    converged = false;
+    while (iterations < MAX_ITERATIONS && !converged)
+    {
+      iterations++;
+      dx = targetX - fieldVx * time - x;
+      dy = targetY - fieldVy * time - y;
+      double next = timeOfFlight.applyAsDouble(Math.hypot(dx, dy));
+      converged = Math.abs(next - time) < TOLERANCE;
+      time = next;
+    }
+
+    // The virtual target of the final time of flight, so the heading, distance and time of flight agree
+    dx = targetX - fieldVx * time - x;
+    dy = targetY - fieldVy * time - y;
+    heading = Math.atan2(dy, dx);
+    distance = Math.hypot(dx, dy);
+    flightTime = time;
+    return heading;
+  }
+
+  /**
+   * Get the heading of the last solution.
+   *
+   * @return Field relative heading in radians.
+   */
+  public double getHeading()
+  {
+    return heading;
+  }
+
+  /**
+   * Get the distance of the last solution, from the projected robot position to the virtual target. This is the
+   * distance to set the shooter for.
+   *
+   * @return Distance in meters.
+   */
+  public double getDistance()
+  {
+    return distance;
+  }
+
+  /**
+   * Get the time of flight of the last solution.
+   *
+   * @return Time of flight in seconds.
+   */
+  public double getTimeOfFlight()
+  {
+    return flightTime;
+  }
+
+  /**
+   * Get the number of iterations the last solution took.
+   *
+   * @return Iteration count, at most 8.
+   */
+  public int getIterations()
+  {
+    return iterations;
+  }
+
+  /**
+   * Check whether the time of flight of the last solution settled within the iteration limit.
+   *
+   * @return False if the last solution is an unsettled iterate.
+   */
+  public boolean isConverged()
+  {
+    return converged;
+  }
+}
@@ -0,0 +1,281 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util;
+
+/**
+ * Fixed-capacity ring buffer of primitive doubles with rolling statistics over the buffered window.
+ *
+ * <ul>
+ *   <li>Min and max use monotonic index deques, O(1) amortized per insert and O(1) per query.</li>
+ *   <li>Mean uses a running sum that is recomputed once per buffer wrap to stop floating point drift.</li>
+ *   <li>Percentiles use a fixed-bin histogram over a configured range. Queries cost O(bins), independent of the
+ *   window size. Values outside the range are counted in the first or last bin.</li>
+ * </ul>
+ * Nothing allocates after construction.
+ */
+public class DoubleRingBuffer
+{
+
+  private final double[] values;
+  private final int      capacity;
+  private       long     count = 0;
+  private       double   sum   = 0;
+
+  // Monotonic deques of sequence numbers, stored as circular buffers.
+  private final long[] minDeque;
+  private final long[] maxDeque;
+  private       int    minHead, minSize, maxHead, maxSize;
+
+  // Fixed-bin histogram for percentile queries, empty if no range was given.
+  private final int[]  bins;
+  private final double histogramMin;
+  private final double binWidth;
+
+  /**
+   * Create a ring buffer without percentile support.
+   *
+   * @param capacity Number of values kept.
+   */
+  public DoubleRingBuffer(int capacity)
+  {
+    this(capacity, 0, 1, 0);
+  }
+
+  /**
+   * Create a ring buffer with percentile support.
+   *
+   * @param capacity      Number of values kept.
+   * @param histogramMin  Lowest value resolved by {@link #percentile(double)}.
+   * @param histogramMax  Highest value resolved by {@link #percentile(double)}.
+   * @param histogramBins Number of histogram bins, 0 to disable percentiles.
+   */
+  public DoubleRingBuffer(int capacity, double histogramMin, double histogramMax, int histogramBins)
+  {
+    if (capacity <= 0)
+    {
+      throw new IllegalArgumentException("Capacity must be positive, got " + capacity);
+    }
+    if (histogramBins < 0 || (histogramBins > 0 && histogramMax <= histogramMin))
+    {
+      throw new IllegalArgumentException("Invalid histogram range [" + histogramMin + ", " + histogramMax + "]");
+    }
+    this.capacity = capacity;
+    values = new double[capacity];
+    minDeque = new long[capacity];
+    maxDeque = new long[capacity];
+    bins = new int[histogramBins];
+    this.histogramMin = histogramMin;
+    binWidth = histogramBins > 0 ? (histogramMax - histogramMin) / histogramBins : 1;
+  }
+
+  /**
+   * Add a value, evicting the oldest one if the buffer is full.
+   *
+   * @param value Value to add.
+   */
+  public void add(double value)
+  {
+    long seq = count;
+    if (count >= capacity)
+    {
+      long   evictedSeq = seq - capacity;
+      double evicted    = values[slot(evictedSeq)];
+      sum -= evicted;
+      if (bins.length > 0)
+      {
+        bins[bin(evicted)]--;
+      }
+      if (minSize > 0 && minDeque[minHead] == evictedSeq)
+      {
+        minHead = (minHead + 1) % capacity;
+        minSize--;
+      }
+      if (maxSize > 0 && maxDeque[maxHead] == evictedSeq)
+      {
+        maxHead = (maxHead + 1) % capacity;
+        maxSize--;
+      }
+    }
+    values[slot(seq)] = value;
+    count++;
+
+    while (minSize > 0 && values[slot(minDeque[(minHead + minSize - 1) % capacity])] >= value)
+    {
+      minSize--;
+    }
+    minDeque[(minHead + minSize) % capacity] = seq;
+    minSize++;
+
+    while (maxSize > 0 && values[slot(maxDeque[(maxHead + maxSize - 1) % capacity])] <= value)
+    {
+      maxSize--;
+    }
+    maxDeque[(maxHead + maxSize) % capacity] = seq;
+    maxSize++;
+
+    if (bins.length > 0)
+    {
+      bins[bin(value)]++;
+    }
+
+    if (count % capacity == 0)
+    {
+      // Resync the running sum once per wrap, amortized O(1).
+      sum = 0;
+      for (int i = 0; i < capacity; i++)
+      {
+        sum += values[i];
+      }
+    } else
+    {
+      sum += value;
+    }
+  }
+
+  /**
+   * Remove every value.
+   */
+  public void clear()
+  {
+    count = 0;
+    sum = 0;
+    minHead = minSize = maxHead = maxSize = 0;
+    for (int i = 0; i < bins.length; i++)
+    {
+      bins[i] = 0;
+    }
+  }
+
+  /**
+   * Number of values currently buffered.
+   *
+   * @return Buffered value count.
+   */
+  public int size()
+  {
+    return (int) Math.min(count, capacity);
+  }
+
+  /**
+   * Maximum number of values kept.
+   *
+   * @return Capacity.
+   */
+  public int capacity()
+  {
+    return capacity;
+  }
+
+  /**
+   * Get a buffered value.
+   *
+   * @param index Index from 0 (oldest) to {@link #size()} - 1 (newest).
+   * @return The value.
+   */
+  public double get(int index)
+  {
+    if (index < 0 || index >= size())
+    {
+      throw new IndexOutOfBoundsException(index);
+    }
+    return values[slot(count - size() + index)];
+  }
+
+  /**
+   * Get the newest value.
+   *
+   * @return Newest value, or NaN if empty.
+   */
+  public double getLatest()
+  {
+    return count == 0 ? Double.NaN : values[slot(count - 1)];
+  }
+
+  /**
+   * Smallest buffered value.
+   *
+   * @return Minimum, or NaN if empty.
+   */
+  public double min()
+  {
+    return minSize == 0 ? Double.NaN : values[slot(minDeque[minHead])];
+  }
+
+  /**
+   * Largest buffered value.
+   *
+   * @return Maximum, or NaN if empty.
+   */
+  public double max()
+  {
+    return maxSize == 0 ? Double.NaN : values[slot(maxDeque[maxHead])];
+  }
+
+  /**
+   * Mean of the buffered values.
+   *
+   * @return Mean, or NaN if empty.
+   */
+  public double mean()
+  {
+    return count == 0 ? Double.NaN : sum / size();
+  }
+
+  /**
+   * Approximate percentile of the buffered values, resolved to the histogram bin width.
+   *
+   * @param percentile Percentile between 0 and 1.
+   * @return Upper edge of the bin holding the percentile, clamped to the buffered min and max. NaN if empty.
+   */
+  public double percentile(double percentile)
+  {
+    if (bins.length == 0)
+    {
+      throw new IllegalStateException("Percentiles need a histogram range");
+    }
+    if (count == 0)
+    {
+      return Double.NaN;
+    }
+    long target     = Math.max(1, (long) Math.ceil(percentile * size()));
+    long cumulative = 0;
+    for (int i = 0; i < bins.length; i++)
+    {
+      cumulative += bins[i];
+      if (cumulative >= target)
+      {
+        return Math.max(min(), Math.min(max(), histogramMin + (i + 1) * binWidth));
+      }
+    }
+    return max();
+  }
+
+  /**
+   * Copy the buffered values, oldest first, into an array.
+   *
+   * @param destination Array to copy into, must hold at least {@link #size()} values.
+   * @return Number of values copied.
+   */
+  public int copyTo(double[] destination)
+  {
+    int size = size();
+    for (int i = 0; i < size; i++)
+    {
+      destination[i] = values[slot(count - size + i)];
+    }
+    return size;
+  }
+
+  private int slot(long seq)
+  {
+    return (int) (seq % capacity);
+  }
+
+  private int bin(double value)
+  {
+    int index = (int) ((value - histogramMin) / binWidth);
+    return Math.max(0, Math.min(bins.length - 1, index));
+  }
+}
@@ -0,0 +1,71 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util;
+
+/**
+ * Integrates voltage and current samples into watt-hours and amp-hours with the trapezoidal rule.
+ */
+public class EnergyAccumulator
+{
+
+  private static final double SECONDS_PER_HOUR = 3600.0;
+
+  private double wattHours     = 0;
+  private double ampHours      = 0;
+  private double lastTimestamp = Double.NaN;
+  private double lastPower     = 0;
+  private double lastCurrent   = 0;
+
+  /**
+   * Add a sample.
+   *
+   * @param timestamp Sample time in seconds.
+   * @param voltage   Voltage in volts.
+   * @param current   Current in amps.
+   */
+  public void add(double timestamp, double voltage, double current)
+  {
+    double power = voltage * current;
+    if (!Double.isNaN(lastTimestamp) && timestamp > lastTimestamp)
+    {
+      double dt = timestamp - lastTimestamp;
+      wattHours += 0.5 * (power + lastPower) * dt / SECONDS_PER_HOUR;
+      ampHours += 0.5 * (current + lastCurrent) * dt / SECONDS_PER_HOUR;
+    }
+    lastTimestamp = timestamp;
+    lastPower = power;
+    lastCurrent = current;
+  }
+
+  /**
+   * Reset the totals, for example at the start of a match.
+   */
+  public void reset()
+  {
+    wattHours = 0;
+    ampHours = 0;
+    lastTimestamp = Double.NaN;
+  }
+
+  /**
+   * Energy used since the last reset.
+   *
+   * @return Watt-hours.
+   */
+  public double getWattHours()
+  {
+    return wattHours;
+  }
+
+  /**
+   * Charge used since the last reset.
+   *
+   * @return Amp-hours.
+   */
+  public double getAmpHours()
+  {
+    return ampHours;
+  }
+}
@@ -0,0 +1,271 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util;
+
+/**
+ * Online fit of a {@code V = kS * sgn(v) + kV * v + kA * a} drive feedforward by recursive least squares with
+ * exponential forgetting, so the estimate follows slow changes such as carpet, tread wear and battery condition.
+ *
+ * <p>The residual variance is tracked alongside the fit, which gives a 95% confidence interval for every gain. When the
+ * regressors stop changing, for example while cruising at a constant speed, forgetting is paused once the covariance
+ * has grown to its initial size, so the estimate does not wind up and jump on the next acceleration. A fit only counts
+ * as confident once the data shrank the variance of every gain well below its initial value, so gains the driving never
+ * excited are not applied however small the residual.
+ *
+ * <p>The acceleration is expected from a smoothing differentiator that lags the other inputs, so voltage and velocity
+ * are delayed by the same number of samples before fitting. Accelerations inside a deadband are fitted as zero: while
+ * cruising the measured acceleration is only noise, and fitting it would pull kA towards zero. Primitive state only,
+ * no allocation per update.
+ */
+public class FeedforwardEstimator
+{
+
+  /**
+   * Gain indices for {@link #getGain(int)} and {@link #getInterval(int)}.
+   */
+  public static final int KS = 0, KV = 1, KA = 2;
+
+  private static final int    GAINS                  = 3;
+  // Two sided 95% normal quantile
+  private static final double Z_95                   = 1.96;
+  // A gain is only trusted once the data halved its standard deviation. The interval alone shrinks with the residual,
+  // so quiet data that never excited a gain, such as cruising, would pass it with the initial value.
+  private static final double EXCITED_VARIANCE_RATIO = 0.25;
+
+  private final double    forgetting;
+  private final double    accelerationDeadband;
+  private final double    maxCovarianceTrace;
+  private final double[]  initialVariance;
+  private final double[]  gains        = new double[GAINS];
+  private final double[]  covariance   = new double[GAINS * GAINS];
+  private final double[]  regressor    = new double[GAINS];
+  private final double[]  covRegressor = new double[GAINS];
+  // Delay lines for voltage, velocity and whether the sample may be fitted
+  private final double[]  voltages;
+  private final double[]  velocities;
+  private final boolean[] usable;
+  private       int       head;
+  private       int       buffered;
+  private       double    residualVariance;
+  private       double    weight;
+  private       int       samples;
+
+  /**
+   * Create an estimator.
+   *
+   * @param kS                   Initial kS in volts.
+   * @param kV                   Initial kV in volt seconds per meter.
+   * @param kA                   Initial kA in volt seconds squared per meter.
+   * @param initialVariance      Variance of the initial gains, kS, kV and kA, how far they are trusted.
+   * @param forgetting           Weight kept by old samples per update, just below 1.
+   * @param accelerationDelay    Samples the acceleration lags the voltage and velocity by.
+   * @param accelerationDeadband Accelerations below this are fitted as zero, in meters per second squared.
+   */
+  public FeedforwardEstimator(double kS, double kV, double kA, double[] initialVariance, double forgetting,
+                              int accelerationDelay, double accelerationDeadband)
+  {
+    if (initialVariance.length != GAINS)
+    {
+      throw new IllegalArgumentException("Need a variance for kS, kV and kA, got " + initialVariance.length);
+    }
+    this.initialVariance = initialVariance.clone();
+    this.forgetting = forgetting;
+    this.accelerationDeadband = accelerationDeadband;
+    double trace = 0;
+    for (double variance : initialVariance)
+    {
+      trace += variance;
+    }
+    maxCovarianceTrace = trace;
+    voltages = new double[accelerationDelay + 1];
+    velocities = new double[accelerationDelay + 1];
+    usable = new boolean[accelerationDelay + 1];
+    reset(kS, kV, kA);
+  }
+
+  /**
+   * Start over from the given gains, for example after a wheel change.
+   *
+   * @param kS kS in volts.
+   * @param kV kV in volt seconds per meter.
+   * @param kA kA in volt seconds squared per meter.
+   */
+  public void reset(double kS, double kV, double kA)
+  {
+    gains[KS] = kS;
+    gains[KV] = kV;
+    gains[KA] = kA;
+    for (int i = 0; i < covariance.length; i++)
+    {
+      covariance[i] = 0;
+    }
+    for (int i = 0; i < GAINS; i++)
+    {
+      covariance[i * GAINS + i] = initialVariance[i];
+    }
+    residualVariance = 0;
+    weight = 0;
+    samples = 0;
+    buffered = 0;
+  }
+
+  /**
+   * Add one loop of measurements. Call every loop, also when the sample can not be fitted, so the delay stays aligned.
+   *
+   * @param voltage      Applied drive voltage.
+   * @param velocity     Measured wheel speed in meters per second.
+   * @param acceleration Measured wheel acceleration in meters per second squared, lagging by the configured delay.
+   * @param fit          False if the sample must not be fitted, for example while disabled or standing still.
+   * @return True if the delayed sample was fitted.
+   */
+  public boolean update(double voltage, double velocity, double acceleration, boolean fit)
+  {
+    voltages[head] = voltage;
+    velocities[head] = velocity;
+    usable[head] = fit;
+    head = (head + 1) % voltages.length;
+    if (buffered < voltages.length)
+    {
+      buffered++;
+      if (buffered < voltages.length)
+      {
+        return false;
+      }
+    }
+    // The oldest slot is the one the acceleration belongs to
+    int delayed = head;
+    if (!usable[delayed])
+    {
+      return false;
+    }
+    double delayedVelocity = velocities[delayed];
+    regressor[KS] = Math.signum(delayedVelocity);
+    regressor[KV] = delayedVelocity;
+    regressor[KA] = Math.abs(acceleration) < accelerationDeadband ? 0 : acceleration;
+
+    // Gain vector P phi / (lambda + phi' P phi), with the a priori error
+    double denominator = 0;
+    double predicted   = 0;
+    for (int i = 0; i < GAINS; i++)
+    {
+      double sum = 0;
+      for (int j = 0; j < GAINS; j++)
+      {
+        sum += covariance[i * GAINS + j] * regressor[j];
+      }
+      covRegressor[i] = sum;
+      denominator += regressor[i] * sum;
+      predicted += regressor[i] * gains[i];
+    }
+    double lambda = trace() < maxCovarianceTrace ? forgetting : 1;
+    denominator += lambda;
+    double error = voltages[delayed] - predicted;
+
+    for (int i = 0; i < GAINS; i++)
+    {
+      gains[i] += covRegressor[i] / denominator * error;
+      for (int j = 0; j < GAINS; j++)
+      {
+        covariance[i * GAINS + j] = (covariance[i * GAINS + j] - covRegressor[i] * covRegressor[j] / denominator)
+                                    / lambda;
+      }
+    }
+
+    // Residual of the updated fit, averaged with the same forgetting
+    double residual = voltages[delayed];
+    for (int i = 0; i < GAINS; i++)
+    {
+      residual -= regressor[i] * gains[i];
+    }
+    weight = lambda * weight + 1;
+    residualVariance += (residual * residual - residualVariance) / weight;
+    samples++;
+    return true;
+  }
+
+  private double trace()
+  {
+    double trace = 0;
+    for (int i = 0; i < GAINS; i++)
+    {
+      trace += covariance[i * GAINS + i];
+    }
+    return trace;
+  }
+
+  /**
+   * Get an estimated gain.
+   *
+   * @param gain {@link #KS}, {@link #KV} or {@link #KA}.
+   * @return The gain.
+   */
+  public double getGain(int gain)
+  {
+    return gains[gain];
+  }
+
+  /**
+   * Get the half width of the 95% confidence interval of a gain.
+   *
+   * @param gain {@link #KS}, {@link #KV} or {@link #KA}.
+   * @return Half width in the units of the gain, infinite before the first fitted sample.
+   */
+  public double getInterval(int gain)
+  {
+    if (samples == 0)
+    {
+      return Double.POSITIVE_INFINITY;
+    }
+    return Z_95 * Math.sqrt(residualVariance * covariance[gain * GAINS + gain]);
+  }
+
+  /**
+   * Check whether the fit is good enough to replace the applied feedforward: enough samples, every gain excited by the
+   * data and inside its interval limit, and gains of a plausible sign.
+   *
+   * @param minSamples    Fitted samples needed.
+   * @param maxKsInterval Widest accepted kS interval in volts.
+   * @param maxKvInterval Widest accepted kV interval in volt seconds per meter.
+   * @param maxKaInterval Widest accepted kA interval in volt seconds squared per meter.
+   * @return True if the gains may be applied.
+   */
+  public boolean isConfident(int minSamples, double maxKsInterval, double maxKvInterval, double maxKaInterval)
+  {
+    for (int i = 0; i < GAINS; i++)
+    {
+      if (!(covariance[i * GAINS + i] < EXCITED_VARIANCE_RATIO * initialVariance[i]))
+      {
+        return false;
+      }
+    }
+    return samples >= minSamples
+           && getInterval(KS) < maxKsInterval
+           && getInterval(KV) < maxKvInterval
+           && getInterval(KA) < maxKaInterval
+           && gains[KS] >= 0
+           && gains[KV] > 0
+           && gains[KA] >= 0;
+  }
+
+  /**
+   * Get the number of samples fitted since the last reset.
+   *
+   * @return Fitted samples.
+   */
+  public int getSampleCount()
+  {
+    return samples;
+  }
+
+  /**
+   * Get the root mean square residual of the fit.
+   *
+   * @return Residual in volts.
+   */
+  public double getResidual()
+  {
+    return Math.sqrt(residualVariance);
+  }
+}
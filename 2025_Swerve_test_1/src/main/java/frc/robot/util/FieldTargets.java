@@ -0,0 +1,176 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util;
+
+import edu.wpi.first.apriltag.AprilTagFieldLayout;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.DriverStation.Alliance;
+import java.util.Optional;
+
+/**
+ * Named scoring targets on the field, resolved once from the AprilTag layout for both alliances. The targets of the
+ * current alliance are held in one immutable table that {@link #updateAlliance()} swaps in a single volatile write, so a
+ * reader on any thread sees either the old or the new alliance and never a mix of both.
+ *
+ * <p>Lookups index a primitive array and do not allocate. Until the Driver Station reports an alliance the blue targets
+ * are used, the same default as the PathPlanner mirroring.
+ */
+public class FieldTargets
+{
+
+  /**
+   * Scoring targets, with the AprilTag that marks them for each alliance.
+   */
+  public enum Target
+  {
+    /**
+     * Center tag of the speaker.
+     */
+    SPEAKER(7, 4),
+    /**
+     * Amp tag.
+     */
+    AMP(6, 5);
+
+    private final int blueTag;
+    private final int redTag;
+
+    Target(int blueTag, int redTag)
+    {
+      this.blueTag = blueTag;
+      this.redTag = redTag;
+    }
+  }
+
+  // Targets of one alliance, indexed by Target ordinal
+  private static final class Table
+  {
+
+    private final Alliance        alliance;
+    private final Pose2d[]        poses;
+    private final Translation2d[] translations;
+    private final double[]        x;
+    private final double[]        y;
+
+    private Table(AprilTagFieldLayout layout, Alliance alliance)
+    {
+      Target[] targets = Target.values();
+      this.alliance = alliance;
+      poses = new Pose2d[targets.length];
+      translations = new Translation2d[targets.length];
+      x = new double[targets.length];
+      y = new double[targets.length];
+      for (Target target : targets)
+      {
+        int              tag  = alliance == Alliance.Red ? target.redTag : target.blueTag;
+        Optional<Pose3d> pose = layout.getTagPose(tag);
+        if (pose.isEmpty())
+        {
+          throw new IllegalArgumentException("AprilTag " + tag + " for " + alliance + " " + target
+                                             + " is not in the field layout");
+        }
+        int i = target.ordinal();
+        poses[i] = pose.get().toPose2d();
+        translations[i] = poses[i].getTranslation();
+        x[i] = translations[i].getX();
+        y[i] = translations[i].getY();
+      }
+    }
+  }
+
+  private final Table    blue;
+  private final Table    red;
+  private volatile Table current;
+
+  /**
+   * Resolve every target for both alliances.
+   *
+   * @param layout AprilTag layout of the field.
+   */
+  public FieldTargets(AprilTagFieldLayout layout)
+  {
+    blue = new Table(layout, Alliance.Blue);
+    red = new Table(layout, Alliance.Red);
+    current = blue;
+  }
+
+  /**
+   * Switch to the targets of the alliance reported by the Driver Station, if it changed. Call once per loop.
+   */
+  public void updateAlliance()
+  {
+    Optional<Alliance> alliance = DriverStation.getAlliance();
+    Table              table    = alliance.isPresent() && alliance.get() == Alliance.Red ? red : blue;
+    if (table != current)
+    {
+      current = table;
+    }
+  }
+
+  /**
+   * Get the alliance the targets currently belong to.
+   *
+   * @return Current alliance, blue until the Driver Station reports one.
+   */
+  public Alliance getAlliance()
+  {
+    return current.alliance;
+  }
+
+  /**
+   * Get the pose of a target of the current alliance.
+   *
+   * @param target Target to look up.
+   * @return Field pose of the target's AprilTag, shared and immutable.
+   */
+  public Pose2d getPose(Target target)
+  {
+    return current.poses[target.ordinal()];
+  }
+
+  /**
+   * Get the position of a target of the current alliance.
+   *
+   * @param target Target to look up.
+   * @return Field position of the target's AprilTag, shared and immutable.
+   */
+  public Translation2d getTranslation(Target target)
+  {
+    return current.translations[target.ordinal()];
+  }
+
+  /**
+   * Get the distance from a field position to a target of the current alliance.
+   *
+   * @param target Target to measure to.
+   * @param x      Field X of the robot in meters.
+   * @param y      Field Y of the robot in meters.
+   * @return Distance in meters.
+   */
+  public double getDistance(Target target, double x, double y)
+  {
+    Table table = current;
+    int   i     = target.ordinal();
+    return Math.hypot(table.x[i] - x, table.y[i] - y);
+  }
+
+  /**
+   * Get the field relative heading that points from a field position at a target of the current alliance.
+   *
+   * @param target Target to aim at.
+   * @param x      Field X of the robot in meters.
+   * @param y      Field Y of the robot in meters.
+   * @return Heading in radians, CCW positive from the field X axis.
+   */
+  public double getHeadingRadians(Target target, double x, double y)
+  {
+    Table table = current;
+    int   i     = target.ordinal();
+    return Math.atan2(table.y[i] - y, table.x[i] - x);
+  }
+}
@@ -0,0 +1,146 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util;
+
+import java.util.Arrays;
+
+/**
+ * Log-linear histogram of durations in microseconds, in the style of HdrHistogram. Values below 32 us are counted
+ * exactly; above that every power of two is split into 16 buckets, so reported percentiles are within 6.25% of the
+ * recorded value. Values above {@link #MAX_VALUE_MICROS} are clamped into the last bucket, the exact maximum is kept
+ * separately.
+ *
+ * <p>Recording is a few shifts and an array increment. Nothing allocates after construction.
+ */
+public class LatencyHistogram
+{
+
+  /**
+   * Largest value resolved by the buckets, about 33 seconds.
+   */
+  public static final long MAX_VALUE_MICROS = (1L << 25) - 1;
+
+  private static final int LINEAR_BUCKETS   = 32;
+  private static final int SUB_BUCKET_BITS  = 4;
+  private static final int SUB_BUCKETS      = 1 << SUB_BUCKET_BITS;
+  private static final int FIRST_EXPONENT   = 5; // log2(LINEAR_BUCKETS)
+  private static final int LAST_EXPONENT    = 63 - Long.numberOfLeadingZeros(MAX_VALUE_MICROS);
+  private static final int BUCKET_COUNT     = LINEAR_BUCKETS + (LAST_EXPONENT - FIRST_EXPONENT + 1) * SUB_BUCKETS;
+
+  private final long[] counts = new long[BUCKET_COUNT];
+  private       long   totalCount;
+  private       long   totalMicros;
+  private       long   maxMicros;
+
+  /**
+   * Record one duration.
+   *
+   * @param micros Duration in microseconds, negative values count as 0.
+   */
+  public void record(long micros)
+  {
+    if (micros < 0)
+    {
+      micros = 0;
+    }
+    counts[bucketIndex(Math.min(micros, MAX_VALUE_MICROS))]++;
+    totalCount++;
+    totalMicros += micros;
+    if (micros > maxMicros)
+    {
+      maxMicros = micros;
+    }
+  }
+
+  /**
+   * Clear every recorded value.
+   */
+  public void reset()
+  {
+    Arrays.fill(counts, 0);
+    totalCount = 0;
+    totalMicros = 0;
+    maxMicros = 0;
+  }
+
+  /**
+   * Get the number of recorded values.
+   *
+   * @return Value count.
+   */
+  public long getCount()
+  {
+    return totalCount;
+  }
+
+  /**
+   * Get the largest recorded value.
+   *
+   * @return Exact maximum in microseconds, 0 if empty.
+   */
+  public long getMaxMicros()
+  {
+    return maxMicros;
+  }
+
+  /**
+   * Get the mean of the recorded values.
+   *
+   * @return Mean in microseconds, 0 if empty.
+   */
+  public double getMeanMicros()
+  {
+    return totalCount > 0 ? (double) totalMicros / totalCount : 0;
+  }
+
+  /**
+   * Get the value at a percentile. The upper edge of the bucket holding the percentile is returned, capped at the exact
+   * maximum, so the result never understates the latency.
+   *
+   * @param percentile Percentile between 0 and 100.
+   * @return Value in microseconds, 0 if empty.
+   */
+  public long getPercentileMicros(double percentile)
+  {
+    if (totalCount == 0)
+    {
+      return 0;
+    }
+    long rank       = Math.max(1, (long) Math.ceil(percentile / 100.0 * totalCount));
+    long cumulative = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++)
+    {
+      cumulative += counts[i];
+      if (cumulative >= rank)
+      {
+        return Math.min(bucketUpperBound(i), maxMicros);
+      }
+    }
+    return maxMicros;
+  }
+
+  private static int bucketIndex(long micros)
+  {
+    if (micros < LINEAR_BUCKETS)
+    {
+      return (int) micros;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(micros);
+    int mantissa = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    return LINEAR_BUCKETS + (exponent - FIRST_EXPONENT) * SUB_BUCKETS + mantissa;
+  }
+
+  private static long bucketUpperBound(int index)
+  {
+    if (index < LINEAR_BUCKETS)
+    {
+      return index;
+    }
+    int exponent = FIRST_EXPONENT + (index - LINEAR_BUCKETS) / SUB_BUCKETS;
+    int mantissa = (index - LINEAR_BUCKETS) % SUB_BUCKETS;
+    int shift    = exponent - SUB_BUCKET_BITS;
+    return ((long) (SUB_BUCKETS + mantissa + 1) << shift) - 1;
+  }
+}
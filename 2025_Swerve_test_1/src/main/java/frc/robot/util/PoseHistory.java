@@ -0,0 +1,247 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util;
+
+/**
+ * Fixed-capacity history of robot poses and velocities, for looking up where the robot was at a past timestamp. Samples
+ * are (timestamp, x, y, theta, vx, vy, omega) in parallel primitive arrays, used as a ring. A query binary searches the
+ * timestamps and interpolates the pose between the two neighbouring samples along the constant curvature arc joining
+ * them, the same as {@link edu.wpi.first.math.geometry.Pose2d#interpolate}. Velocities are interpolated linearly.
+ *
+ * <p>Insert is O(1) and query O(log n), and nothing allocates after construction. Instances are not thread safe.
+ */
+public class PoseHistory
+{
+
+  /**
+   * Index of the field X in meters in a sample.
+   */
+  public static final int X           = 0;
+  /**
+   * Index of the field Y in meters in a sample.
+   */
+  public static final int Y           = 1;
+  /**
+   * Index of the heading in radians in a sample.
+   */
+  public static final int THETA       = 2;
+  /**
+   * Index of the field relative X velocity in meters per second in a sample.
+   */
+  public static final int VX          = 3;
+  /**
+   * Index of the field relative Y velocity in meters per second in a sample.
+   */
+  public static final int VY          = 4;
+  /**
+   * Index of the angular velocity in radians per second in a sample.
+   */
+  public static final int OMEGA       = 5;
+  /**
+   * Length of the array filled by {@link #sample(double, double[])}.
+   */
+  public static final int SAMPLE_SIZE = 6;
+
+  private final int      capacity;
+  private final double[] timestamps;
+  private final double[] x, y, theta, vx, vy, omega;
+  private       int      head = 0;
+  private       int      size = 0;
+
+  /**
+   * Create an empty history.
+   *
+   * @param capacity Number of samples kept, the oldest are overwritten.
+   */
+  public PoseHistory(int capacity)
+  {
+    if (capacity < 2)
+    {
+      throw new IllegalArgumentException("Capacity must be at least 2, got " + capacity);
+    }
+    this.capacity = capacity;
+    timestamps = new double[capacity];
+    x = new double[capacity];
+    y = new double[capacity];
+    theta = new double[capacity];
+    vx = new double[capacity];
+    vy = new double[capacity];
+    omega = new double[capacity];
+  }
+
+  /**
+   * Add a sample. Samples must arrive in time order, one with the same or an older timestamp than the latest is
+   * ignored.
+   *
+   * @param timestamp Sample time in seconds.
+   * @param poseX     Field X in meters.
+   * @param poseY     Field Y in meters.
+   * @param heading   Heading in radians.
+   * @param fieldVx   Field relative X velocity in meters per second.
+   * @param fieldVy   Field relative Y velocity in meters per second.
+   * @param rate      Angular velocity in radians per second.
+   */
+  public void add(double timestamp, double poseX, double poseY, double heading, double fieldVx, double fieldVy,
+                  double rate)
+  {
+    if (size > 0 && timestamp <= timestamps[physical(size - 1)])
+    {
+      return;
+    }
+    timestamps[head] = timestamp;
+    x[head] = poseX;
+    y[head] = poseY;
+    theta[head] = heading;
+    vx[head] = fieldVx;
+    vy[head] = fieldVy;
+    omega[head] = rate;
+    head = (head + 1) % capacity;
+    if (size < capacity)
+    {
+      size++;
+    }
+  }
+
+  /**
+   * Drop every sample, for example after the odometry was reset.
+   */
+  public void clear()
+  {
+    size = 0;
+  }
+
+  /**
+   * Get the number of buffered samples.
+   *
+   * @return Sample count.
+   */
+  public int size()
+  {
+    return size;
+  }
+
+  /**
+   * Get the timestamp of the oldest sample.
+   *
+   * @return Timestamp in seconds, NaN when empty.
+   */
+  public double getOldestTimestamp()
+  {
+    return size > 0 ? timestamps[physical(0)] : Double.NaN;
+  }
+
+  /**
+   * Get the timestamp of the latest sample.
+   *
+   * @return Timestamp in seconds, NaN when empty.
+   */
+  public double getLatestTimestamp()
+  {
+    return size > 0 ? timestamps[physical(size - 1)] : Double.NaN;
+  }
+
+  /**
+   * Look up the robot state at a timestamp. Times outside the buffered window get the oldest or latest sample.
+   *
+   * @param timestamp Time in seconds.
+   * @param out       Receives the state, indexed by {@link #X} to {@link #OMEGA}, at least {@link #SAMPLE_SIZE} long.
+   * @return False if the history is empty and nothing was written.
+   */
+  public boolean sample(double timestamp, double[] out)
+  {
+    if (size == 0)
+    {
+      return false;
+    }
+    if (timestamp <= timestamps[physical(0)])
+    {
+      copy(physical(0), out);
+      return true;
+    }
+    if (timestamp >= timestamps[physical(size - 1)])
+    {
+      copy(physical(size - 1), out);
+      return true;
+    }
+
+    // Find the first sample after the timestamp, the one before it is at or before the timestamp
+    int low = 1, high = size - 1;
+    while (low < high)
+    {
+      int mid = (low + high) >>> 1;
+      if (timestamps[physical(mid)] > timestamp)
+      {
+        high = mid;
+      } else
+      {
+        low = mid + 1;
+      }
+    }
+    int    a = physical(low - 1);
+    int    b = physical(low);
+    double t = (timestamp - timestamps[a]) / (timestamps[b] - timestamps[a]);
+    interpolate(a, b, t, out);
+    return true;
+  }
+
+  private int physical(int logical)
+  {
+    return (head - size + logical + capacity) % capacity;
+  }
+
+  private void copy(int index, double[] out)
+  {
+    out[X] = x[index];
+    out[Y] = y[index];
+    out[THETA] = theta[index];
+    out[VX] = vx[index];
+    out[VY] = vy[index];
+    out[OMEGA] = omega[index];
+  }
+
+  // Pose2d.interpolate without the objects: log of the relative transform, scaled by t, then exp
+  private void interpolate(int a, int b, double t, double[] out)
+  {
+    double cosA = Math.cos(theta[a]);
+    double sinA = Math.sin(theta[a]);
+    double dxField = x[b] - x[a];
+    double dyField = y[b] - y[a];
+    // Relative transform in the frame of sample a
+    double dx = dxField * cosA + dyField * sinA;
+    double dy = -dxField * sinA + dyField * cosA;
+    double dTheta = Math.IEEEremainder(theta[b] - theta[a], 2 * Math.PI);
+
+    // Log map to a twist
+    double halfTheta   = dTheta / 2;
+    double cosMinusOne = Math.cos(dTheta) - 1;
+    double halfThetaByTan = Math.abs(cosMinusOne) < 1e-9
+                            ? 1 - dTheta * dTheta / 12
+                            : -(halfTheta * Math.sin(dTheta)) / cosMinusOne;
+    double twistX     = (halfThetaByTan * dx + halfTheta * dy) * t;
+    double twistY     = (-halfTheta * dx + halfThetaByTan * dy) * t;
+    double twistTheta = dTheta * t;
+
+    // Exp map back to a transform
+    double s, c;
+    if (Math.abs(twistTheta) < 1e-9)
+    {
+      s = 1 - twistTheta * twistTheta / 6;
+      c = twistTheta / 2;
+    } else
+    {
+      s = Math.sin(twistTheta) / twistTheta;
+      c = (1 - Math.cos(twistTheta)) / twistTheta;
+    }
+    double localX = twistX * s - twistY * c;
+    double localY = twistX * c + twistY * s;
+
+    out[X] = x[a] + localX * cosA - localY * sinA;
+    out[Y] = y[a] + localX * sinA + localY * cosA;
+    out[THETA] = Math.IEEEremainder(theta[a] + twistTheta, 2 * Math.PI);
+    out[VX] = vx[a] + (vx[b] - vx[a]) * t;
+    out[VY] = vy[a] + (vy[b] - vy[a]) * t;
+    out[OMEGA] = omega[a] + (omega[b] - omega[a]) * t;
+  }
+}
@@ -0,0 +1,221 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util;
+
+import edu.wpi.first.math.geometry.Translation2d;
+import swervelib.parser.SwerveDriveConfiguration;
+
+/**
+ * Swerve kinematics on primitive arrays, with the same conventions and results as WPILib's
+ * {@link edu.wpi.first.math.kinematics.SwerveDriveKinematics}: robot relative chassis speeds, module angles in radians
+ * CCW positive, and the rotation center at the robot origin.
+ *
+ * <p>Module geometry is read once. Forward kinematics uses the least squares pseudo-inverse of the inverse kinematics
+ * matrix, precomputed at construction, so no matrix is built or solved per call. Every method writes into caller owned
+ * arrays and nothing allocates after construction. Instances are not thread safe, because inverse kinematics remembers
+ * the last module angles.
+ */
+public class PrimitiveSwerveKinematics
+{
+
+  private final int      moduleCount;
+  private final double[] moduleX;
+  private final double[] moduleY;
+  // Pseudo-inverse of the inverse kinematics matrix, rows vx, vy and omega, 2 columns (x, y) per module.
+  private final double[] forwardVx;
+  private final double[] forwardVy;
+  private final double[] forwardOmega;
+  private final double[] lastAngles;
+
+  /**
+   * Create kinematics for the given module locations.
+   *
+   * @param moduleX Module X offsets from the robot center in meters, positive forward.
+   * @param moduleY Module Y offsets from the robot center in meters, positive left.
+   */
+  public PrimitiveSwerveKinematics(double[] moduleX, double[] moduleY)
+  {
+    if (moduleX.length != moduleY.length || moduleX.length < 2)
+    {
+      throw new IllegalArgumentException("Swerve kinematics needs at least 2 modules with an X and Y each");
+    }
+    moduleCount = moduleX.length;
+    this.moduleX = moduleX.clone();
+    this.moduleY = moduleY.clone();
+    lastAngles = new double[moduleCount];
+    forwardVx = new double[2 * moduleCount];
+    forwardVy = new double[2 * moduleCount];
+    forwardOmega = new double[2 * moduleCount];
+
+    // Each module contributes the rows [1 0 -y] and [0 1 x]. Build A^T A, which is 3x3 and symmetric.
+    double sumX = 0, sumY = 0, sumR2 = 0;
+    for (int i = 0; i < moduleCount; i++)
+    {
+      sumX += moduleX[i];
+      sumY += moduleY[i];
+      sumR2 += moduleX[i] * moduleX[i] + moduleY[i] * moduleY[i];
+    }
+    double n = moduleCount;
+    double[][] ata = {{n, 0, -sumY}, {0, n, sumX}, {-sumY, sumX, sumR2}};
+    double[][] inv = invert3x3(ata);
+
+    // pinv = (A^T A)^-1 A^T, column 2i is the module x velocity and 2i + 1 the module y velocity.
+    for (int i = 0; i < moduleCount; i++)
+    {
+      double[][] rows = {forwardVx, forwardVy, forwardOmega};
+      for (int r = 0; r < 3; r++)
+      {
+        rows[r][2 * i] = inv[r][0] - inv[r][2] * moduleY[i];
+        rows[r][2 * i + 1] = inv[r][1] + inv[r][2] * moduleX[i];
+      }
+    }
+  }
+
+  /**
+   * Create kinematics from the module locations parsed out of the YAGSL JSON configuration, in module order.
+   *
+   * @param configuration Parsed swerve drive configuration.
+   * @return Kinematics for the configured modules.
+   */
+  public static PrimitiveSwerveKinematics fromConfiguration(SwerveDriveConfiguration configuration)
+  {
+    Translation2d[] locations = configuration.moduleLocationsMeters;
+    double[]        x         = new double[locations.length];
+    double[]        y         = new double[locations.length];
+    for (int i = 0; i < locations.length; i++)
+    {
+      x[i] = locations[i].getX();
+      y[i] = locations[i].getY();
+    }
+    return new PrimitiveSwerveKinematics(x, y);
+  }
+
+  /**
+   * Get the number of modules.
+   *
+   * @return Module count.
+   */
+  public int getModuleCount()
+  {
+    return moduleCount;
+  }
+
+  /**
+   * Get the X offset of a module.
+   *
+   * @param module Module index.
+   * @return Offset from the robot center in meters, positive forward.
+   */
+  public double getModuleX(int module)
+  {
+    return moduleX[module];
+  }
+
+  /**
+   * Get the Y offset of a module.
+   *
+   * @param module Module index.
+   * @return Offset from the robot center in meters, positive left.
+   */
+  public double getModuleY(int module)
+  {
+    return moduleY[module];
+  }
+
+  /**
+   * Inverse kinematics. When the chassis is commanded to stop, the modules keep their previous angles like
+   * {@link edu.wpi.first.math.kinematics.SwerveDriveKinematics#toSwerveModuleStates}.
+   *
+   * @param vx            Robot relative forward velocity in meters per second.
+   * @param vy            Robot relative left velocity in meters per second.
+   * @param omega         Angular velocity in radians per second, CCW positive.
+   * @param speeds        Receives each module speed in meters per second.
+   * @param anglesRadians Receives each module angle in radians.
+   */
+  public void toModuleStates(double vx, double vy, double omega, double[] speeds, double[] anglesRadians)
+  {
+    if (vx == 0 && vy == 0 && omega == 0)
+    {
+      for (int i = 0; i < moduleCount; i++)
+      {
+        speeds[i] = 0;
+        anglesRadians[i] = lastAngles[i];
+      }
+      return;
+    }
+    for (int i = 0; i < moduleCount; i++)
+    {
+      double moduleVx = vx - omega * moduleY[i];
+      double moduleVy = vy + omega * moduleX[i];
+      speeds[i] = Math.hypot(moduleVx, moduleVy);
+      anglesRadians[i] = Math.atan2(moduleVy, moduleVx);
+      lastAngles[i] = anglesRadians[i];
+    }
+  }
+
+  /**
+   * Forward kinematics, the least squares chassis velocity that best explains the module states.
+   *
+   * @param speeds        Module speeds in meters per second.
+   * @param anglesRadians Module angles in radians.
+   * @param chassisSpeeds Receives vx, vy in meters per second and omega in radians per second.
+   */
+  public void toChassisSpeeds(double[] speeds, double[] anglesRadians, double[] chassisSpeeds)
+  {
+    double vx = 0, vy = 0, omega = 0;
+    for (int i = 0; i < moduleCount; i++)
+    {
+      double moduleVx = speeds[i] * Math.cos(anglesRadians[i]);
+      double moduleVy = speeds[i] * Math.sin(anglesRadians[i]);
+      vx += forwardVx[2 * i] * moduleVx + forwardVx[2 * i + 1] * moduleVy;
+      vy += forwardVy[2 * i] * moduleVx + forwardVy[2 * i + 1] * moduleVy;
+      omega += forwardOmega[2 * i] * moduleVx + forwardOmega[2 * i + 1] * moduleVy;
+    }
+    chassisSpeeds[0] = vx;
+    chassisSpeeds[1] = vy;
+    chassisSpeeds[2] = omega;
+  }
+
+  /**
+   * Scale every module speed down by the same factor if any of them exceeds the maximum, keeping the ratios between
+   * modules. Same as {@link edu.wpi.first.math.kinematics.SwerveDriveKinematics#desaturateWheelSpeeds(
+   *edu.wpi.first.math.kinematics.SwerveModuleState[], double)}.
+   *
+   * @param speeds   Module speeds, modified in place.
+   * @param maxSpeed Maximum module speed in meters per second.
+   */
+  public static void desaturate(double[] speeds, double maxSpeed)
+  {
+    double realMax = 0;
+    for (double speed : speeds)
+    {
+      realMax = Math.max(realMax, Math.abs(speed));
+    }
+    if (realMax > maxSpeed)
+    {
+      double scale = maxSpeed / realMax;
+      for (int i = 0; i < speeds.length; i++)
+      {
+        speeds[i] *= scale;
+      }
+    }
+  }
+
+  private static double[][] invert3x3(double[][] m)
+  {
+    double c00 = m[1][1] * m[2][2] - m[1][2] * m[2][1];
+    double c01 = m[1][2] * m[2][0] - m[1][0] * m[2][2];
+    double c02 = m[1][0] * m[2][1] - m[1][1] * m[2][0];
+    double det = m[0][0] * c00 + m[0][1] * c01 + m[0][2] * c02;
+    if (Math.abs(det) < 1e-12)
+    {
+      throw new IllegalArgumentException("Module locations do not determine the chassis velocity");
+    }
+    return new double[][]{
+        {c00 / det, (m[0][2] * m[2][1] - m[0][1] * m[2][2]) / det, (m[0][1] * m[1][2] - m[0][2] * m[1][1]) / det},
+        {c01 / det, (m[0][0] * m[2][2] - m[0][2] * m[2][0]) / det, (m[0][2] * m[1][0] - m[0][0] * m[1][2]) / det},
+        {c02 / det, (m[0][1] * m[2][0] - m[0][0] * m[2][1]) / det, (m[0][0] * m[1][1] - m[0][1] * m[1][0]) / det}};
+  }
+}
@@ -0,0 +1,427 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util;
+
+import edu.wpi.first.math.system.plant.DCMotor;
+
+/**
+ * Turns a desired chassis velocity into the next module setpoint the drivetrain can actually follow from the previous
+ * one. The chassis velocity is moved from the previous setpoint toward the desired one by the largest fraction that
+ * keeps every module within its steering rate and its drive acceleration. The drive acceleration is the smaller of a
+ * traction limit and what the motor can deliver within its current limit, which shrinks as back EMF rises with speed.
+ * The motor model takes the drive reduction and the wheel size from one number, the YAGSL drive conversion factor, so
+ * the torque and the back EMF agree on the same gearing. Module speeds are capped at the drive free speed when the
+ * configured maximum is above it.
+ *
+ * <p>Modules that are stopped turn in place to the new heading before the chassis accelerates, and when every module
+ * would have to turn more than 90 degrees the robot decelerates through zero instead of sweeping the modules across the
+ * direction of travel. Both avoid the wheel scrub a plain inverse kinematics step causes on direction reversals.
+ *
+ * <p>Everything runs on primitive arrays owned by the generator and nothing allocates. Instances are not thread safe.
+ */
+public class SwerveSetpointGenerator
+{
+
+  private static final double EPSILON              = 1e-9;
+  private static final int    BISECTION_ITERATIONS = 10;
+
+  private final PrimitiveSwerveKinematics kinematics;
+  private final int                       moduleCount;
+  private final double                    maxVelocity;
+  private final double                    freeSpeed;
+  private final double                    maxAcceleration;
+  private final double                    maxSteerVelocity;
+  private final double                    currentLimit;
+  private final double                    accelerationPerAmp;
+  private final double                    backEmfVoltsPerSpeed;
+  private final double                    motorResistance;
+  private final double                    nominalVoltage;
+
+  // Current setpoint, also the previous one during generate()
+  private final double[]  speeds;
+  private final double[]  angles;
+  private       double    chassisVx, chassisVy, chassisOmega;
+  // Work buffers
+  private final double[]  desiredSpeeds;
+  private final double[]  desiredAngles;
+  private final double[]  overrideAngles;
+  private final boolean[] overridden;
+
+  /**
+   * Create a generator.
+   *
+   * @param kinematics       Module geometry.
+   * @param driveMotor             Drive motor model, one motor per module.
+   * @param driveMetersPerRotation Wheel travel per drive motor rotation in meters, the YAGSL drive conversion factor.
+   * @param robotMass              Robot mass in kilograms, shared evenly by the modules.
+   * @param maxVelocity            Maximum module speed in meters per second, capped at the drive free speed.
+   * @param maxAcceleration        Maximum module acceleration in meters per second squared, the traction limit.
+   * @param maxSteerVelocity       Maximum module steering rate in radians per second.
+   * @param currentLimit           Drive motor current limit in amps.
+   */
+  public SwerveSetpointGenerator(PrimitiveSwerveKinematics kinematics, DCMotor driveMotor,
+                                 double driveMetersPerRotation, double robotMass, double maxVelocity,
+                                 double maxAcceleration, double maxSteerVelocity, double currentLimit)
+  {
+    this.kinematics = kinematics;
+    this.moduleCount = kinematics.getModuleCount();
+    this.maxAcceleration = maxAcceleration;
+    this.maxSteerVelocity = maxSteerVelocity;
+    this.currentLimit = currentLimit;
+    // Motor radians per meter of wheel travel, the reduction over the wheel radius
+    double motorRadiansPerMeter = 2 * Math.PI / driveMetersPerRotation;
+    freeSpeed = driveMotor.freeSpeedRadPerSec / motorRadiansPerMeter;
+    // The motor can not hold a speed past its free speed, so neither is commanded
+    this.maxVelocity = Math.min(maxVelocity, freeSpeed);
+    // Wheel force per amp over the mass each module carries
+    accelerationPerAmp = driveMotor.KtNMPerAmp * motorRadiansPerMeter / (robotMass / moduleCount);
+    backEmfVoltsPerSpeed = motorRadiansPerMeter / driveMotor.KvRadPerSecPerVolt;
+    motorResistance = driveMotor.rOhms;
+    nominalVoltage = driveMotor.nominalVoltageVolts;
+
+    speeds = new double[moduleCount];
+    angles = new double[moduleCount];
+    desiredSpeeds = new double[moduleCount];
+    desiredAngles = new double[moduleCount];
+    overrideAngles = new double[moduleCount];
+    overridden = new boolean[moduleCount];
+  }
+
+  /**
+   * Start from a measured state instead of the last generated setpoint, for example when another command drove the
+   * modules directly.
+   *
+   * @param moduleSpeeds        Module speeds in meters per second.
+   * @param moduleAnglesRadians Module angles in radians.
+   * @param vx                  Robot relative forward velocity in meters per second.
+   * @param vy                  Robot relative left velocity in meters per second.
+   * @param omega               Angular velocity in radians per second.
+   */
+  public void reset(double[] moduleSpeeds, double[] moduleAnglesRadians, double vx, double vy, double omega)
+  {
+    System.arraycopy(moduleSpeeds, 0, speeds, 0, moduleCount);
+    System.arraycopy(moduleAnglesRadians, 0, angles, 0, moduleCount);
+    chassisVx = vx;
+    chassisVy = vy;
+    chassisOmega = omega;
+  }
+
+  /**
+   * Replace the module angles of the current setpoint with measured ones, keeping the chassis velocity. A module
+   * measured more than a quarter turn from its setpoint has flipped, so its speed is reversed to keep the direction of
+   * travel.
+   *
+   * @param moduleAnglesRadians Measured module angles in radians.
+   */
+  public void resetModuleAngles(double[] moduleAnglesRadians)
+  {
+    for (int i = 0; i < moduleCount; i++)
+    {
+      if (Math.abs(wrap(moduleAnglesRadians[i] - angles[i])) > Math.PI / 2)
+      {
+        speeds[i] = -speeds[i];
+      }
+      angles[i] = wrap(moduleAnglesRadians[i]);
+    }
+  }
+
+  /**
+   * Generate the next setpoint. The desired velocity is discretized over the period first, so driving and turning at
+   * the same time follows the commanded arc.
+   *
+   * @param vx    Desired robot relative forward velocity in meters per second.
+   * @param vy    Desired robot relative left velocity in meters per second.
+   * @param omega Desired angular velocity in radians per second.
+   * @param dt    Time until the next setpoint in seconds.
+   */
+  public void generate(double vx, double vy, double omega, double dt)
+  {
+    // Discretize: the twist that moves the robot by (vx, vy, omega) * dt over one period
+    double dTheta = omega * dt;
+    if (Math.abs(dTheta) > EPSILON)
+    {
+      double halfTheta      = dTheta / 2;
+      double cosMinusOne    = Math.cos(dTheta) - 1;
+      double halfThetaByTan = Math.abs(cosMinusOne) < EPSILON
+                              ? 1 - dTheta * dTheta / 12
+                              : -(halfTheta * Math.sin(dTheta)) / cosMinusOne;
+      double x = vx;
+      vx = halfThetaByTan * x + halfTheta * vy;
+      vy = -halfTheta * x + halfThetaByTan * vy;
+    }
+
+    kinematics.toModuleStates(vx, vy, omega, desiredSpeeds, desiredAngles);
+    double fastest = 0;
+    for (int i = 0; i < moduleCount; i++)
+    {
+      fastest = Math.max(fastest, desiredSpeeds[i]);
+    }
+    if (fastest > maxVelocity)
+    {
+      double scale = maxVelocity / fastest;
+      vx *= scale;
+      vy *= scale;
+      omega *= scale;
+      for (int i = 0; i < moduleCount; i++)
+      {
+        desiredSpeeds[i] *= scale;
+      }
+    }
+
+    boolean desiredStop = vx == 0 && vy == 0 && omega == 0;
+    if (!desiredStop && !isStopped())
+    {
+      // When every module would reverse its direction of travel it is faster to stop, turn in place and accelerate
+      // again than to sweep the modules across the direction of travel.
+      boolean allFlip = true;
+      for (int i = 0; i < moduleCount && allFlip; i++)
+      {
+        double travel = speeds[i] < 0 ? angles[i] + Math.PI : angles[i];
+        allFlip = Math.abs(wrap(desiredAngles[i] - travel)) > Math.PI / 2;
+      }
+      if (allFlip)
+      {
+        vx = 0;
+        vy = 0;
+        omega = 0;
+        desiredStop = true;
+      }
+    }
+
+    double maxSteerStep = maxSteerVelocity * dt;
+    double decelerationStep = Math.min(maxAcceleration, currentLimit * accelerationPerAmp) * dt;
+    double dvx = vx - chassisVx, dvy = vy - chassisVy, dOmega = omega - chassisOmega;
+    double s = 1;
+    for (int i = 0; i < moduleCount; i++)
+    {
+      overridden[i] = false;
+      double x0 = speeds[i] * Math.cos(angles[i]);
+      double y0 = speeds[i] * Math.sin(angles[i]);
+      double x1 = desiredStop ? 0 : desiredSpeeds[i] * Math.cos(desiredAngles[i]);
+      double y1 = desiredStop ? 0 : desiredSpeeds[i] * Math.sin(desiredAngles[i]);
+
+      if (Math.abs(speeds[i]) < EPSILON)
+      {
+        // A stopped module turns in place to the new heading before the chassis moves
+        overridden[i] = true;
+        overrideAngles[i] = angles[i];
+        if (Math.abs(x1) >= EPSILON || Math.abs(y1) >= EPSILON)
+        {
+          double rotation = flip(wrap(Math.atan2(y1, x1) - angles[i]));
+          if (Math.abs(rotation) <= maxSteerStep)
+          {
+            overrideAngles[i] += rotation;
+          } else
+          {
+            overrideAngles[i] += Math.signum(rotation) * maxSteerStep;
+            s = 0;
+          }
+        }
+      } else if (s > 0)
+      {
+        s = Math.min(s, maxSteerFraction(x0, y0, x1 - x0, y1 - y0, angles[i], maxSteerStep, s));
+      }
+      if (s == 0)
+      {
+        continue;
+      }
+
+      double f0 = Math.hypot(x0, y0);
+      double accelerationStep = accelerationLimit(f0) * dt;
+      s = Math.min(s, maxDriveFraction(x0, y0, x1 - x0, y1 - y0, f0, accelerationStep, decelerationStep, s));
+    }
+
+    chassisVx += s * dvx;
+    chassisVy += s * dvy;
+    chassisOmega += s * dOmega;
+    if (chassisVx == 0 && chassisVy == 0 && chassisOmega == 0)
+    {
+      for (int i = 0; i < moduleCount; i++)
+      {
+        speeds[i] = 0;
+      }
+    } else
+    {
+      kinematics.toModuleStates(chassisVx, chassisVy, chassisOmega, speeds, angles);
+    }
+    for (int i = 0; i < moduleCount; i++)
+    {
+      if (overridden[i])
+      {
+        if (Math.abs(wrap(overrideAngles[i] - angles[i])) > Math.PI / 2)
+        {
+          speeds[i] = -speeds[i];
+        }
+        angles[i] = wrap(overrideAngles[i]);
+      }
+    }
+  }
+
+  /**
+   * Get the module speeds of the last setpoint. A module pointed opposite to its direction of travel has a negative
+   * speed.
+   *
+   * @return Module speeds in meters per second, owned by the generator.
+   */
+  public double[] getModuleSpeeds()
+  {
+    return speeds;
+  }
+
+  /**
+   * Get the module angles of the last setpoint.
+   *
+   * @return Module angles in radians, owned by the generator.
+   */
+  public double[] getModuleAngles()
+  {
+    return angles;
+  }
+
+  /**
+   * Get the drive free speed, the wheel speed of an unloaded motor at its nominal voltage.
+   *
+   * @return Free speed in meters per second.
+   */
+  public double getFreeSpeed()
+  {
+    return freeSpeed;
+  }
+
+  /**
+   * Get the fastest module speed the generator commands, the configured maximum or the free speed if that is lower.
+   *
+   * @return Maximum module speed in meters per second.
+   */
+  public double getMaxVelocity()
+  {
+    return maxVelocity;
+  }
+
+  /**
+   * Get the chassis velocity of the last setpoint.
+   *
+   * @return Robot relative forward velocity in meters per second.
+   */
+  public double getChassisVx()
+  {
+    return chassisVx;
+  }
+
+  /**
+   * Get the chassis velocity of the last setpoint.
+   *
+   * @return Robot relative left velocity in meters per second.
+   */
+  public double getChassisVy()
+  {
+    return chassisVy;
+  }
+
+  /**
+   * Get the chassis velocity of the last setpoint.
+   *
+   * @return Angular velocity in radians per second.
+   */
+  public double getChassisOmega()
+  {
+    return chassisOmega;
+  }
+
+  private boolean isStopped()
+  {
+    for (int i = 0; i < moduleCount; i++)
+    {
+      if (Math.abs(speeds[i]) >= EPSILON)
+      {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  // acceleration available at a module speed, the motor current is limited by both the limit and the back EMF
+  private double accelerationLimit(double speed)
+  {
+    double current = Math.min(currentLimit, (nominalVoltage - speed * backEmfVoltsPerSpeed) / motorResistance);
+    return Math.max(0, Math.min(maxAcceleration, current * accelerationPerAmp));
+  }
+
+  // largest fraction of the step that keeps the module heading change within the steering step, allowing the module to
+  // flip and drive backwards instead of turning more than 90 degrees
+  private static double maxSteerFraction(double x0, double y0, double dx, double dy, double angle, double maxStep,
+                                         double limit)
+  {
+    if (steerChange(x0, y0, dx, dy, angle, limit) <= maxStep)
+    {
+      return limit;
+    }
+    double low = 0, high = limit;
+    for (int i = 0; i < BISECTION_ITERATIONS; i++)
+    {
+      double mid = (low + high) / 2;
+      if (steerChange(x0, y0, dx, dy, angle, mid) <= maxStep)
+      {
+        low = mid;
+      } else
+      {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  private static double steerChange(double x0, double y0, double dx, double dy, double angle, double s)
+  {
+    double x = x0 + s * dx;
+    double y = y0 + s * dy;
+    if (Math.abs(x) < EPSILON && Math.abs(y) < EPSILON)
+    {
+      return 0;
+    }
+    return Math.abs(flip(wrap(Math.atan2(y, x) - angle)));
+  }
+
+  // largest fraction of the step that keeps the module speed change within the acceleration or deceleration step
+  private static double maxDriveFraction(double x0, double y0, double dx, double dy, double f0, double accelerationStep,
+                                         double decelerationStep, double limit)
+  {
+    if (driveExcess(x0, y0, dx, dy, f0, accelerationStep, decelerationStep, limit) <= 0)
+    {
+      return limit;
+    }
+    double low = 0, high = limit;
+    for (int i = 0; i < BISECTION_ITERATIONS; i++)
+    {
+      double mid = (low + high) / 2;
+      if (driveExcess(x0, y0, dx, dy, f0, accelerationStep, decelerationStep, mid) <= 0)
+      {
+        low = mid;
+      } else
+      {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  private static double driveExcess(double x0, double y0, double dx, double dy, double f0, double accelerationStep,
+                                    double decelerationStep, double s)
+  {
+    double change = Math.hypot(x0 + s * dx, y0 + s * dy) - f0;
+    return change > 0 ? change - accelerationStep : -change - decelerationStep;
+  }
+
+  private static double wrap(double radians)
+  {
+    return Math.IEEEremainder(radians, 2 * Math.PI);
+  }
+
+  // a module can reverse its drive instead of turning past 90 degrees
+  private static double flip(double rotation)
+  {
+    return Math.abs(rotation) > Math.PI / 2 ? wrap(rotation + Math.PI) : rotation;
+  }
+}
@@ -0,0 +1,133 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util;
+
+import edu.wpi.first.math.MathUtil;
+
+/**
+ * Smoothed derivative of a sampled signal. The last few samples are kept with their timestamps in primitive arrays, and
+ * the derivative is the slope of a least squares line through them, which is the first order Savitzky-Golay
+ * differentiator generalized to uneven sample spacing. Loop jitter therefore does not show up as noise, and a late loop
+ * does not produce a spike.
+ *
+ * <p>The estimate lags by about half the window. Each update is O(window) with no allocation.
+ */
+public class TimestampedDerivative
+{
+
+  private final double[] times;
+  private final double[] values;
+  private final boolean  wrapDegrees;
+  private       int      head  = 0;
+  private       int      size  = 0;
+  private       double   lastRaw;
+  private       double   derivative;
+
+  /**
+   * Create a differentiator.
+   *
+   * @param window      Number of samples fitted, at least 2.
+   * @param wrapDegrees True if the signal is an angle in degrees that wraps at +/-180, so the derivative is taken across
+   *                    the wrap instead of jumping.
+   */
+  public TimestampedDerivative(int window, boolean wrapDegrees)
+  {
+    if (window < 2)
+    {
+      throw new IllegalArgumentException("Window must be at least 2 samples, got " + window);
+    }
+    times = new double[window];
+    values = new double[window];
+    this.wrapDegrees = wrapDegrees;
+  }
+
+  /**
+   * Drop every sample, for example after the signal was reset.
+   */
+  public void reset()
+  {
+    size = 0;
+    derivative = 0;
+  }
+
+  /**
+   * Add a sample and recompute the derivative. A sample with the same or an older timestamp than the last one is
+   * ignored.
+   *
+   * @param timestamp Sample time in seconds.
+   * @param value     Sample value.
+   * @return Derivative in units per second.
+   */
+  public double update(double timestamp, double value)
+  {
+    if (size > 0)
+    {
+      int latest = (head + times.length - 1) % times.length;
+      if (timestamp <= times[latest])
+      {
+        return derivative;
+      }
+      if (wrapDegrees)
+      {
+        // Store the angle unwrapped, continuing from the previous sample.
+        double unwrapped = values[latest] + MathUtil.inputModulus(value - lastRaw, -180, 180);
+        lastRaw = value;
+        value = unwrapped;
+      }
+    } else
+    {
+      lastRaw = value;
+    }
+
+    times[head] = timestamp;
+    values[head] = value;
+    head = (head + 1) % times.length;
+    if (size < times.length)
+    {
+      size++;
+    }
+    derivative = fitSlope(timestamp);
+    return derivative;
+  }
+
+  /**
+   * Get the derivative computed by the last {@link #update(double, double)}.
+   *
+   * @return Derivative in units per second, 0 until two samples were added.
+   */
+  public double getDerivative()
+  {
+    return derivative;
+  }
+
+  private double fitSlope(double latestTime)
+  {
+    if (size < 2)
+    {
+      return 0;
+    }
+    // Times are taken relative to the latest sample to keep the sums well conditioned.
+    int    start = (head + times.length - size) % times.length;
+    double meanT = 0, meanV = 0;
+    for (int i = 0; i < size; i++)
+    {
+      int index = (start + i) % times.length;
+      meanT += times[index] - latestTime;
+      meanV += values[index];
+    }
+    meanT /= size;
+    meanV /= size;
+
+    double covariance = 0, variance = 0;
+    for (int i = 0; i < size; i++)
+    {
+      int    index = (start + i) % times.length;
+      double dt    = times[index] - latestTime - meanT;
+      covariance += dt * (values[index] - meanV);
+      variance += dt * dt;
+    }
+    return variance > 0 ? covariance / variance : 0;
+  }
+}
@@ -0,0 +1,79 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.wpilibj.Filesystem;
+import edu.wpi.first.wpilibj2.command.button.CommandXboxController;
+import frc.robot.subsystems.SwerveSubsystem;
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Keeps the robot loop side of the telemetry path allocation free, from the snapshot read in
+ * {@link SwerveSubsystem#periodic()} to the frames {@link SwerveShuffleboardManager} hands to the telemetry thread.
+ * Runs against the simulated HAL with the deployed swerve configuration, the same setup as the desktop simulator.
+ */
+class SwerveShuffleboardManagerTest
+{
+
+  private static final int  WARMUP_CALLS   = 20_000;
+  private static final int  MEASURED_CALLS = 10_000;
+  // Headroom for a lazily initialized JDK internal, still far below one allocation per call
+  private static final long MAX_BYTES      = 1024;
+
+  // Shared, Shuffleboard refuses a second tab with the same widgets
+  private static SwerveSubsystem           swerve;
+  private static SwerveShuffleboardManager manager;
+
+  @BeforeAll
+  static void setup()
+  {
+    assertTrue(HAL.initialize(500, 0));
+    swerve = new SwerveSubsystem(new File(Filesystem.getDeployDirectory(), "swerve"));
+    manager = new SwerveShuffleboardManager(swerve, new CommandXboxController(0));
+    // Fill the snapshot once so the frames carry real values
+    swerve.periodic();
+  }
+
+  @Test
+  void updateTelemetryDoesNotAllocate()
+  {
+    assertAllocationFree("updateTelemetry()", manager::updateTelemetry);
+  }
+
+  @Test
+  void periodicSnapshotDoesNotAllocate()
+  {
+    // The pose, yaw and simulated module states come back from YAGSL as objects, once the JIT has inlined the getters
+    // they never leave the snapshot read and are not allocated
+    assertAllocationFree("periodic()", swerve::periodic);
+  }
+
+  private static void assertAllocationFree(String name, Runnable call)
+  {
+    // Run the loop until the JIT has compiled it and every lazy path has been taken
+    for (int i = 0; i < WARMUP_CALLS; i++)
+    {
+      call.run();
+    }
+
+    com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    long before = threads.getCurrentThreadAllocatedBytes();
+    for (int i = 0; i < MEASURED_CALLS; i++)
+    {
+      call.run();
+    }
+    long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+
+    assertTrue(allocated < MAX_BYTES,
+               allocated + " bytes allocated over " + MEASURED_CALLS + " " + name + " calls, "
+               + (double) allocated / MEASURED_CALLS + " per call");
+  }
+}
@@ -0,0 +1,120 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.pathfinding;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that {@link DStarLitePlanner} repairs its search to the same path cost a search from scratch finds, and the
+ * unreachable and already-there cases.
+ */
+class DStarLitePlannerTest
+{
+
+  // 40 by 20 cells
+  private static final double LENGTH    = 4;
+  private static final double WIDTH     = 2;
+  private static final double NODE_SIZE = 0.1;
+
+  @Test
+  void repairedPathCostMatchesFullReplan()
+  {
+    NavGrid          grid     = new NavGrid(LENGTH, WIDTH, NODE_SIZE);
+    DStarLitePlanner planner  = new DStarLitePlanner(grid);
+    long[]           previous = new long[grid.getWordCount()];
+    int[]            changed  = new int[grid.getCellCount()];
+    int              goal     = grid.cellAt(3.75, 1.05);
+    Random           random   = new Random(2024);
+    planner.setGoal(goal);
+    planner.setStart(grid.cellAt(0.25, 1.05));
+    assertTrue(planner.plan());
+
+    for (int round = 0; round < 50; round++)
+    {
+      // Obstacles come and go between the start and goal columns, the start drifts along the near end
+      grid.copyDynamicObstacles(previous);
+      grid.clearDynamicObstacles();
+      for (int box = random.nextInt(4); box > 0; box--)
+      {
+        double x = 0.6 + 2.6 * random.nextDouble();
+        double y = WIDTH * random.nextDouble();
+        grid.addDynamicObstacle(x, y, x + 0.1 + 0.3 * random.nextDouble(), y + 0.2 + 1.2 * random.nextDouble());
+      }
+      planner.cellsChanged(changed, grid.diffDynamicObstacles(previous, changed));
+      int start = grid.cellAt(0.05 + 0.4 * random.nextDouble(), WIDTH * random.nextDouble());
+      planner.setStart(start);
+
+      DStarLitePlanner fresh = new DStarLitePlanner(grid);
+      fresh.setGoal(goal);
+      fresh.setStart(start);
+      assertEquals(fresh.plan(), planner.plan(), "reachability differs in round " + round);
+      assertEquals(fresh.getPathCost(), planner.getPathCost(), "path cost differs in round " + round);
+      assertPathIsClear(planner, grid);
+    }
+  }
+
+  @Test
+  void wallAcrossTheFieldIsUnreachableUntilItOpens()
+  {
+    NavGrid          grid     = new NavGrid(LENGTH, WIDTH, NODE_SIZE);
+    DStarLitePlanner planner  = new DStarLitePlanner(grid);
+    long[]           previous = new long[grid.getWordCount()];
+    int[]            changed  = new int[grid.getCellCount()];
+    planner.setGoal(grid.cellAt(3.75, 1.05));
+    planner.setStart(grid.cellAt(0.25, 1.05));
+    assertTrue(planner.plan());
+
+    grid.copyDynamicObstacles(previous);
+    grid.addDynamicObstacle(2.0, 0, 2.05, WIDTH);
+    planner.cellsChanged(changed, grid.diffDynamicObstacles(previous, changed));
+    assertFalse(planner.plan());
+    assertEquals(Double.POSITIVE_INFINITY, planner.getPathCost());
+    assertEquals(0, planner.getPath(new int[grid.getCellCount()]));
+
+    // Open one cell at the top, the repaired search finds the way round
+    grid.copyDynamicObstacles(previous);
+    grid.clearDynamicObstacles();
+    grid.addDynamicObstacle(2.0, 0, 2.05, WIDTH - 0.15);
+    planner.cellsChanged(changed, grid.diffDynamicObstacles(previous, changed));
+    assertTrue(planner.plan());
+    DStarLitePlanner fresh = new DStarLitePlanner(grid);
+    fresh.setGoal(grid.cellAt(3.75, 1.05));
+    fresh.setStart(grid.cellAt(0.25, 1.05));
+    assertTrue(fresh.plan());
+    assertEquals(fresh.getPathCost(), planner.getPathCost());
+    assertPathIsClear(planner, grid);
+  }
+
+  @Test
+  void startOnTheGoalIsAnEmptyPath()
+  {
+    NavGrid          grid    = new NavGrid(LENGTH, WIDTH, NODE_SIZE);
+    DStarLitePlanner planner = new DStarLitePlanner(grid);
+    int              cell    = grid.cellAt(1.05, 1.05);
+    int[]            path    = new int[grid.getCellCount()];
+    planner.setGoal(cell);
+    planner.setStart(cell);
+
+    assertTrue(planner.plan());
+    assertEquals(0, planner.getPathCost());
+    assertEquals(1, planner.getPath(path));
+    assertEquals(cell, path[0]);
+  }
+
+  private static void assertPathIsClear(DStarLitePlanner planner, NavGrid grid)
+  {
+    int[] path  = new int[grid.getCellCount()];
+    int   count = planner.getPath(path);
+    for (int i = 1; i < count; i++)
+    {
+      assertTrue(grid.hasLineOfSight(path[i - 1], path[i]), "waypoints " + (i - 1) + " and " + i + " are blocked");
+    }
+  }
+}
@@ -0,0 +1,66 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.sim;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.wpi.first.math.util.Units;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that the {@link DrivetrainPhysics} encoders read the wheel, which slips against the ground under hard
+ * acceleration and rolls with it when cruising.
+ */
+class DrivetrainPhysicsTest
+{
+
+  private static final double   OFFSET     = Units.inchesToMeters(14.75);
+  private static final double   MASS       = 55; // kg
+  private static final double   CG_HEIGHT  = 0.1; // meters
+  // 5.36:1 on a 3 inch wheel, the current limit pushes harder than the tires can at low speed
+  private static final double   CONVERSION = Math.PI * Units.inchesToMeters(3) / 5.36;
+  private static final double[] ANGLES     = new double[4];
+
+  @Test
+  void hardAccelerationSpinsTheWheels()
+  {
+    DrivetrainPhysics physics = physics();
+    physics.setSetpoints(speeds(4), ANGLES);
+    physics.simulate(0.2);
+
+    for (int i = 0; i < 4; i++)
+    {
+      double slip = physics.getModuleSpeeds()[i] - physics.getFieldVx();
+      assertTrue(slip > 0.05, "module " + i + " slipped " + slip + " m/s at full throttle");
+      assertTrue(physics.getModuleDistances()[i] > physics.getX(), "module " + i + " rolled less than the robot moved");
+    }
+  }
+
+  @Test
+  void cruisingWheelsRollWithTheGround()
+  {
+    DrivetrainPhysics physics = physics();
+    physics.setSetpoints(speeds(1), ANGLES);
+    physics.simulate(2);
+
+    for (int i = 0; i < 4; i++)
+    {
+      // Only the rolling resistance loads the tires
+      assertEquals(physics.getFieldVx(), physics.getModuleSpeeds()[i], 0.01, "module " + i + " slips while cruising");
+    }
+  }
+
+  private static DrivetrainPhysics physics()
+  {
+    return new DrivetrainPhysics(new double[]{OFFSET, OFFSET, -OFFSET, -OFFSET},
+                                 new double[]{OFFSET, -OFFSET, OFFSET, -OFFSET}, MASS, CG_HEIGHT, CONVERSION);
+  }
+
+  private static double[] speeds(double speed)
+  {
+    return new double[]{speed, speed, speed, speed};
+  }
+}
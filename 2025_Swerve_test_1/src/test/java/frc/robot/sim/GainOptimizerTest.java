@@ -0,0 +1,78 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.sim;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks {@link GainOptimizer#minimize} on functions with a known minimum, and that it returns the best vertex when the
+ * iterations run out.
+ */
+class GainOptimizerTest
+{
+
+  private static final double TOLERANCE = 1e-4;
+
+  private static final GainOptimizer.Objective QUADRATIC  = x -> Math.pow(x[0] - 1, 2) + 10 * Math.pow(x[1] + 2, 2);
+  private static final GainOptimizer.Objective ROSENBROCK = x -> 100 * Math.pow(x[1] - x[0] * x[0], 2)
+                                                                 + Math.pow(1 - x[0], 2);
+
+  @Test
+  void findsQuadraticMinimum()
+  {
+    GainOptimizer.History history = new GainOptimizer.History();
+    double[]              best    = GainOptimizer.minimize(QUADRATIC, new double[]{0, 0}, new double[]{1, 1}, 500,
+                                                           1e-14, history);
+    assertArrayEquals(new double[]{1, -2}, best, TOLERANCE);
+    assertEndsWith(history, best, QUADRATIC);
+  }
+
+  @Test
+  void findsRosenbrockMinimum()
+  {
+    GainOptimizer.History history = new GainOptimizer.History();
+    double[]              best    = GainOptimizer.minimize(ROSENBROCK, new double[]{-1.2, 1}, new double[]{0.5, 0.5},
+                                                           1000, 1e-14, history);
+    assertArrayEquals(new double[]{1, 1}, best, TOLERANCE);
+    assertEndsWith(history, best, ROSENBROCK);
+  }
+
+  @Test
+  void noIterationsReturnsBestStartingVertex()
+  {
+    GainOptimizer.History history = new GainOptimizer.History();
+    // The starting simplex is (0, 0), (1, 0) and (0, 1), the second is closest to (1, -2)
+    double[] best = GainOptimizer.minimize(QUADRATIC, new double[]{0, 0}, new double[]{1, 1}, 0, 1e-14, history);
+    assertArrayEquals(new double[]{1, 0}, best);
+    assertEquals(1, history.costs.size());
+    assertEndsWith(history, best, QUADRATIC);
+  }
+
+  @Test
+  void iterationsRunningOutReturnsBestVertex()
+  {
+    GainOptimizer.History history = new GainOptimizer.History();
+    double[] best = GainOptimizer.minimize(ROSENBROCK, new double[]{-1.2, 1}, new double[]{0.5, 0.5}, 5, 1e-14,
+                                           history);
+    // Every iteration is recorded before its move, plus the simplex the last move left
+    assertEquals(6, history.costs.size());
+    assertEndsWith(history, best, ROSENBROCK);
+    for (double cost : history.costs)
+    {
+      assertTrue(ROSENBROCK.cost(best) <= cost, "returned cost above an earlier best of " + cost);
+    }
+  }
+
+  private static void assertEndsWith(GainOptimizer.History history, double[] best, GainOptimizer.Objective objective)
+  {
+    int last = history.costs.size() - 1;
+    assertArrayEquals(best, history.parameters.get(last));
+    assertEquals(objective.cost(best), history.costs.get(last));
+  }
+}
@@ -0,0 +1,94 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.subsystems;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.wpilibj.Filesystem;
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import java.io.File;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Runs {@link SwerveSubsystem#aimAtTarget1} through the command scheduler against the simulated drivebase, standing
+ * still so the aim is the direct bearing to the speaker.
+ */
+class SwerveSubsystemAimTest
+{
+
+  private static final double TOLERANCE = 2; // degrees
+  // Half a turn takes longer than this at the heading controller's limits
+  private static final int    LOOPS     = 5;
+
+  private static SwerveSubsystem swerve;
+
+  @BeforeAll
+  static void setUp()
+  {
+    assertTrue(HAL.initialize(500, 0));
+    DriverStationSim.setEnabled(true);
+    DriverStationSim.notifyNewData();
+    swerve = new SwerveSubsystem(new File(Filesystem.getDeployDirectory(), "swerve"));
+  }
+
+  @AfterEach
+  void cancelAll()
+  {
+    CommandScheduler.getInstance().cancelAll();
+  }
+
+  @Test
+  void keepsRunningWhileHeadingErrorIsAboveTolerance()
+  {
+    faceAwayFromTarget();
+    Command aim = swerve.aimAtTarget1(TOLERANCE);
+    CommandScheduler.getInstance().schedule(aim);
+    for (int i = 0; i < LOOPS; i++)
+    {
+      CommandScheduler.getInstance().run();
+      assertTrue(aim.isScheduled(), "aim ended after " + (i + 1) + " loops while facing away from the target");
+    }
+  }
+
+  @Test
+  void secondPressKeepsRunningAfterFinishingOnTarget()
+  {
+    Command aim = swerve.aimAtTarget1(TOLERANCE);
+    faceTarget();
+    CommandScheduler.getInstance().schedule(aim);
+    CommandScheduler.getInstance().run();
+    assertFalse(aim.isScheduled(), "aim kept running while on target");
+
+    // The error left by the first run is inside the tolerance, it must not end the second
+    faceAwayFromTarget();
+    CommandScheduler.getInstance().schedule(aim);
+    for (int i = 0; i < LOOPS; i++)
+    {
+      CommandScheduler.getInstance().run();
+      assertTrue(aim.isScheduled(), "aim ended after " + (i + 1) + " loops while facing away from the target");
+    }
+  }
+
+  private static void faceTarget()
+  {
+    Pose2d pose = swerve.getPose();
+    swerve.resetOdometry(new Pose2d(pose.getTranslation(), swerve.getTarget1Yaw()));
+  }
+
+  private static void faceAwayFromTarget()
+  {
+    Pose2d pose = swerve.getPose();
+    swerve.resetOdometry(new Pose2d(pose.getTranslation(),
+                                    swerve.getTarget1Yaw().plus(Rotation2d.fromDegrees(180))));
+  }
+}
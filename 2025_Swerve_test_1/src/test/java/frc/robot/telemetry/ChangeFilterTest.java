@@ -0,0 +1,68 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.telemetry;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that {@link ChangeFilter}s leave the {@link TelemetryScheduler} when closed or collected, so filters made by
+ * short lived owners do not pile up.
+ */
+class ChangeFilterTest
+{
+
+  private static final double DEADBAND  = 0.1;
+  private static final double STALENESS = 1.0; // seconds
+
+  private final TelemetryFrame frame = new TelemetryFrame();
+
+  @Test
+  void closeUnregisters()
+  {
+    TelemetryScheduler scheduler = TelemetryScheduler.getInstance();
+    int                before    = scheduler.getFilterCount();
+    ChangeFilter       filter    = new ChangeFilter("Test Close", DEADBAND, STALENESS);
+    assertEquals(before + 1, scheduler.getFilterCount());
+
+    filter.close();
+    assertEquals(before, scheduler.getFilterCount());
+    // Still usable, only no longer reported
+    assertTrue(filter.test(1, 0));
+    assertFalse(filter.test(1.05, 0.5));
+  }
+
+  @Test
+  void collectedFiltersAreDropped()
+  {
+    TelemetryScheduler scheduler = TelemetryScheduler.getInstance();
+    int                before    = scheduler.getFilterCount();
+    for (int i = 0; i < 100; i++)
+    {
+      new ChangeFilter("Test Collected " + i, DEADBAND, STALENESS).test(i, 0);
+    }
+    assertEquals(before + 100, scheduler.getFilterCount());
+
+    // Every bandwidth report prunes the filters collected so far
+    for (int attempt = 0; attempt < 20 && scheduler.getFilterCount() > before; attempt++)
+    {
+      System.gc();
+      report(scheduler);
+    }
+    assertEquals(before, scheduler.getFilterCount());
+  }
+
+  // two runs a report period apart, the first only starts the window
+  private void report(TelemetryScheduler scheduler)
+  {
+    frame.drive.timestamp += 1;
+    scheduler.run(frame);
+    frame.drive.timestamp += 2;
+    scheduler.run(frame);
+  }
+}
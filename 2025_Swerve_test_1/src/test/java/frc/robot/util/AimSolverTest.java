@@ -0,0 +1,77 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks {@link AimSolver} against closed form solutions for a shot at constant speed.
+ */
+class AimSolverTest
+{
+
+  private static final double TOLERANCE = 1e-3;
+
+  @Test
+  void stationaryRobotAimsAtTheTarget()
+  {
+    AimSolver solver  = AimSolver.constantSpeed(0.13, 12);
+    double    heading = solver.solve(2, 3, 0, 0, 8, 5.5);
+
+    assertEquals(Math.atan2(2.5, 6), heading, TOLERANCE);
+    assertEquals(Math.hypot(6, 2.5), solver.getDistance(), TOLERANCE);
+    assertEquals(Math.hypot(6, 2.5) / 12, solver.getTimeOfFlight(), TOLERANCE);
+    assertTrue(solver.isConverged());
+  }
+
+  @Test
+  void lateralMotionLeadsTheTarget()
+  {
+    // Driving left at 2 m/s past a target 10 m ahead with a 10 m/s shot. The virtual target is 2t to the right, so
+    // (10t)^2 = 10^2 + (2t)^2 and t = 10 / sqrt(96).
+    AimSolver solver  = AimSolver.constantSpeed(0, 10);
+    double    heading = solver.solve(0, 0, 0, 2, 10, 0);
+    double    time    = 10 / Math.sqrt(96);
+
+    assertEquals(time, solver.getTimeOfFlight(), TOLERANCE);
+    assertEquals(Math.atan2(-2 * time, 10), heading, TOLERANCE);
+    assertEquals(10 * time, solver.getDistance(), TOLERANCE);
+    assertTrue(solver.isConverged());
+
+    // The shot plus the robot's velocity reaches the target at the time of flight
+    assertEquals(10, 10 * Math.cos(heading) * time, TOLERANCE);
+    assertEquals(0, (10 * Math.sin(heading) + 2) * time, TOLERANCE);
+  }
+
+  @Test
+  void latencyProjectsTheRobotForward()
+  {
+    AimSolver solver = AimSolver.constantSpeed(0.5, 1e9);
+    solver.solve(0, 0, 0, 2, 10, 0);
+
+    // With an instant shot only the latency matters, the robot is 1 m further left when the heading takes effect
+    assertEquals(Math.atan2(-1, 10), solver.getHeading(), TOLERANCE);
+  }
+
+  @Test
+  void nonConvergenceReturnsAConsistentIterate()
+  {
+    // Driving away from the target faster than the shot, the time of flight grows every iteration
+    AimSolver solver  = AimSolver.constantSpeed(0, 1);
+    double    heading = solver.solve(0, 0, -3, 0, 10, 0);
+
+    assertFalse(solver.isConverged());
+    assertEquals(8, solver.getIterations());
+    assertTrue(Double.isFinite(heading));
+    // The heading and distance belong to the returned time of flight
+    double time = solver.getTimeOfFlight();
+    assertEquals(10 + 3 * time, solver.getDistance(), TOLERANCE);
+    assertEquals(0, heading, TOLERANCE);
+  }
+}
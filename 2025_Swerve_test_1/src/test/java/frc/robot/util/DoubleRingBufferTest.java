@@ -0,0 +1,141 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks {@link DoubleRingBuffer} against a plain copy of its window as the ring wraps around, and the bounds of
+ * {@link DoubleRingBuffer#get(int)}.
+ */
+class DoubleRingBufferTest
+{
+
+  private static final double TOLERANCE = 1e-9;
+  // Percentiles over [0, 10] in 20 bins
+  private static final double RANGE     = 10;
+  private static final int    BINS      = 20;
+
+  @Test
+  void filledWindowIsOldestFirst()
+  {
+    DoubleRingBuffer buffer = new DoubleRingBuffer(4);
+    double[]         out    = new double[4];
+
+    // Exactly full, the window has not moved yet
+    for (int i = 0; i < 4; i++)
+    {
+      buffer.add(i);
+    }
+    assertEquals(4, buffer.copyTo(out));
+    assertArrayEquals(new double[]{0, 1, 2, 3}, out);
+
+    // Wrapped twice and a half, the window starts part way through the array
+    for (int i = 4; i < 10; i++)
+    {
+      buffer.add(i);
+    }
+    assertEquals(4, buffer.size());
+    for (int i = 0; i < 4; i++)
+    {
+      assertEquals(6 + i, buffer.get(i));
+    }
+    assertEquals(4, buffer.copyTo(out));
+    assertArrayEquals(new double[]{6, 7, 8, 9}, out);
+    assertEquals(9, buffer.getLatest());
+  }
+
+  @Test
+  void getOutOfRangeThrows()
+  {
+    DoubleRingBuffer buffer = new DoubleRingBuffer(4);
+    assertThrows(IndexOutOfBoundsException.class, () -> buffer.get(0));
+
+    // Part full, only the added values can be read
+    buffer.add(1);
+    buffer.add(2);
+    assertEquals(2, buffer.get(1));
+    assertThrows(IndexOutOfBoundsException.class, () -> buffer.get(2));
+    assertThrows(IndexOutOfBoundsException.class, () -> buffer.get(-1));
+
+    // Wrapped, the capacity is the limit
+    for (int i = 0; i < 5; i++)
+    {
+      buffer.add(i);
+    }
+    assertEquals(4, buffer.get(3));
+    assertThrows(IndexOutOfBoundsException.class, () -> buffer.get(4));
+
+    buffer.clear();
+    assertThrows(IndexOutOfBoundsException.class, () -> buffer.get(0));
+  }
+
+  @Test
+  void statisticsFollowTheWindowAcrossWraps()
+  {
+    DoubleRingBuffer buffer   = new DoubleRingBuffer(7, 0, RANGE, BINS);
+    double[]         expected = new double[7];
+    double[]         out      = new double[7];
+    Random           random   = new Random(2024);
+
+    for (int n = 0; n < 200; n++)
+    {
+      double value = RANGE * random.nextDouble();
+      buffer.add(value);
+      // The window as a plain array, oldest first
+      int size = Math.min(n + 1, expected.length);
+      System.arraycopy(expected, size == expected.length ? 1 : 0, expected, 0, size - 1);
+      expected[size - 1] = value;
+
+      assertEquals(size, buffer.copyTo(out));
+      assertArrayEquals(Arrays.copyOf(expected, size), Arrays.copyOf(out, size), "window differs after " + n);
+      double[] sorted = Arrays.copyOf(expected, size);
+      Arrays.sort(sorted);
+      assertEquals(sorted[0], buffer.min(), "min after " + n);
+      assertEquals(sorted[size - 1], buffer.max(), "max after " + n);
+      assertEquals(Arrays.stream(sorted).average().getAsDouble(), buffer.mean(), TOLERANCE, "mean after " + n);
+      // The percentile is the upper edge of the bin holding the exact one, so at most a bin above it
+      for (double percentile : new double[]{0.1, 0.5, 0.9, 1})
+      {
+        double exact  = sorted[(int) Math.ceil(percentile * size) - 1];
+        double binned = buffer.percentile(percentile);
+        assertTrue(binned >= exact && binned <= exact + RANGE / BINS,
+                   percentile + " percentile " + binned + " is not in the bin of " + exact + " after " + n);
+      }
+    }
+  }
+
+  @Test
+  void clearEmptiesTheBuffer()
+  {
+    DoubleRingBuffer buffer = new DoubleRingBuffer(3, 0, RANGE, BINS);
+    for (int i = 0; i < 5; i++)
+    {
+      buffer.add(i);
+    }
+    buffer.clear();
+
+    assertEquals(0, buffer.size());
+    assertTrue(Double.isNaN(buffer.getLatest()));
+    assertTrue(Double.isNaN(buffer.min()));
+    assertTrue(Double.isNaN(buffer.max()));
+    assertTrue(Double.isNaN(buffer.mean()));
+    assertTrue(Double.isNaN(buffer.percentile(0.5)));
+
+    // Refilled, nothing from before the clear is left in the statistics
+    buffer.add(8);
+    assertEquals(8, buffer.min());
+    assertEquals(8, buffer.max());
+    assertEquals(8, buffer.mean());
+    assertEquals(8, buffer.percentile(0.5));
+  }
+}
@@ -0,0 +1,104 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import frc.robot.Constants.DrivebaseConstants;
+import java.util.Random;
+import java.util.function.DoubleUnaryOperator;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Feeds {@link FeedforwardEstimator} synthetic drive data from known gains with voltage noise, and checks that the fit
+ * converges when the data excite every gain and that the swap guard refuses one that never saw an acceleration.
+ */
+class FeedforwardEstimatorTest
+{
+
+  private static final double KS        = 0.15; // volts
+  private static final double KV        = 2.5; // volt seconds per meter
+  private static final double KA        = 0.4; // volt seconds squared per meter
+  private static final double NOISE     = 0.05; // volts
+  private static final double DT        = 0.02; // seconds
+  private static final int    DELAY     = 2; // samples
+  private static final int    LOOPS     = 3000; // a minute at 50Hz
+  private static final double TOLERANCE = 0.02;
+
+  @Test
+  void convergesOnExcitingData()
+  {
+    FeedforwardEstimator estimator = estimator();
+    // Back and forth with a bias, 2 m/s swings every 3 seconds
+    double omega = 2 * Math.PI / 3;
+    drive(estimator, t -> 2 * Math.sin(omega * t) + 0.5, t -> 2 * omega * Math.cos(omega * t), LOOPS);
+
+    assertEquals(KS, estimator.getGain(FeedforwardEstimator.KS), TOLERANCE);
+    assertEquals(KV, estimator.getGain(FeedforwardEstimator.KV), TOLERANCE);
+    assertEquals(KA, estimator.getGain(FeedforwardEstimator.KA), TOLERANCE);
+    assertEquals(NOISE, estimator.getResidual(), NOISE / 5);
+    assertTrue(confident(estimator), "well excited fit was not trusted");
+  }
+
+  @Test
+  void cruisingIsNotTrusted()
+  {
+    FeedforwardEstimator estimator = estimator();
+    drive(estimator, t -> 1.5, t -> 0, LOOPS);
+
+    // Constant speed only pins kS + 1.5 kV, the residual and so the intervals are small all the same
+    assertTrue(estimator.getInterval(FeedforwardEstimator.KS) < DrivebaseConstants.FEEDFORWARD_KS_INTERVAL);
+    assertTrue(estimator.getInterval(FeedforwardEstimator.KA) < DrivebaseConstants.FEEDFORWARD_KA_INTERVAL);
+    assertEquals(0.6, estimator.getGain(FeedforwardEstimator.KA), 1e-9);
+    assertFalse(confident(estimator), "fit without acceleration was trusted");
+  }
+
+  @Test
+  void fewSamplesAreNotTrusted()
+  {
+    FeedforwardEstimator estimator = estimator();
+    double               omega     = 2 * Math.PI / 3;
+    drive(estimator, t -> 2 * Math.sin(omega * t) + 0.5, t -> 2 * omega * Math.cos(omega * t),
+          DrivebaseConstants.FEEDFORWARD_MIN_SAMPLES / 2);
+    assertFalse(confident(estimator), "fit of " + estimator.getSampleCount() + " samples was trusted");
+
+    estimator.reset(KS, KV, KA);
+    assertFalse(confident(estimator), "reset fit was trusted");
+  }
+
+  // Starting off from the truth, trusted about as much as the robot trusts YAGSL's configured feedforward. No
+  // acceleration deadband, the synthetic acceleration has no noise to hide.
+  private static FeedforwardEstimator estimator()
+  {
+    return new FeedforwardEstimator(0.3, 2.0, 0.6, new double[]{0.04, Math.pow(2.0 / 3, 2), Math.pow(0.6 / 3, 2)},
+                                    DrivebaseConstants.FEEDFORWARD_FORGETTING, DELAY, 0);
+  }
+
+  private static boolean confident(FeedforwardEstimator estimator)
+  {
+    return estimator.isConfident(DrivebaseConstants.FEEDFORWARD_MIN_SAMPLES,
+                                 DrivebaseConstants.FEEDFORWARD_KS_INTERVAL,
+                                 DrivebaseConstants.FEEDFORWARD_KV_INTERVAL,
+                                 DrivebaseConstants.FEEDFORWARD_KA_INTERVAL);
+  }
+
+  // Voltage from the true gains plus noise, with the acceleration arriving DELAY samples late like the differentiator's
+  private static void drive(FeedforwardEstimator estimator, DoubleUnaryOperator velocity,
+                            DoubleUnaryOperator acceleration, int loops)
+  {
+    Random   random        = new Random(2024);
+    double[] accelerations = new double[loops];
+    for (int n = 0; n < loops; n++)
+    {
+      double t = n * DT;
+      double v = velocity.applyAsDouble(t);
+      accelerations[n] = acceleration.applyAsDouble(t);
+      double voltage = KS * Math.signum(v) + KV * v + KA * accelerations[n] + NOISE * random.nextGaussian();
+      estimator.update(voltage, v, n >= DELAY ? accelerations[n - DELAY] : 0, Math.abs(v) > 0.1);
+    }
+  }
+}
@@ -0,0 +1,134 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+/**
+ * Checks {@link PoseHistory} against {@link Pose2d#interpolate}, across the ring wrapping around and for timestamps
+ * outside the buffered window.
+ */
+class PoseHistoryTest
+{
+
+  private static final double TOLERANCE = 1e-9;
+
+  @Test
+  void emptyHistoryWritesNothing()
+  {
+    PoseHistory history = new PoseHistory(4);
+    double[]    out     = new double[PoseHistory.SAMPLE_SIZE];
+    Arrays.fill(out, 42);
+
+    assertFalse(history.sample(0, out));
+    assertArrayEquals(new double[]{42, 42, 42, 42, 42, 42}, out);
+    assertTrue(Double.isNaN(history.getOldestTimestamp()));
+    assertTrue(Double.isNaN(history.getLatestTimestamp()));
+
+    // Cleared is empty again
+    history.add(1, 1, 2, 0, 0, 0, 0);
+    history.clear();
+    assertFalse(history.sample(1, out));
+  }
+
+  @ParameterizedTest
+  @CsvSource({
+      // straight, an arc, a turn in place, and headings either side of +-pi
+      "0, 0, 0, 1, 0, 0",
+      "0, 0, 0, 1, 1, 1.5707963267948966",
+      "2, 3, 1, 2, 3, -0.5",
+      "1, -1, 3.0, 1.2, -0.8, -3.0",
+      "0, 0, -3.1, -0.5, 0.1, 3.1"})
+  void interpolatesLikePose2d(double x0, double y0, double theta0, double x1, double y1, double theta1)
+  {
+    PoseHistory history = new PoseHistory(4);
+    history.add(10, x0, y0, theta0, 1, 2, 3);
+    history.add(10.1, x1, y1, theta1, 3, 0, -1);
+    Pose2d   start = new Pose2d(x0, y0, new Rotation2d(theta0));
+    Pose2d   end   = new Pose2d(x1, y1, new Rotation2d(theta1));
+    double[] out   = new double[PoseHistory.SAMPLE_SIZE];
+
+    for (double t : new double[]{0.1, 0.25, 0.5, 0.9})
+    {
+      assertTrue(history.sample(10 + 0.1 * t, out));
+      assertPose(start.interpolate(end, t), out);
+      assertEquals(1 + 2 * t, out[PoseHistory.VX], TOLERANCE);
+      assertEquals(2 - 2 * t, out[PoseHistory.VY], TOLERANCE);
+      assertEquals(3 - 4 * t, out[PoseHistory.OMEGA], TOLERANCE);
+    }
+  }
+
+  @Test
+  void ringKeepsTheLatestSamplesAfterWrapping()
+  {
+    PoseHistory history = new PoseHistory(4);
+    for (int i = 0; i < 10; i++)
+    {
+      history.add(i, i, 0, 0, 0, 0, 0);
+    }
+    double[] out = new double[PoseHistory.SAMPLE_SIZE];
+
+    assertEquals(4, history.size());
+    assertEquals(6, history.getOldestTimestamp());
+    assertEquals(9, history.getLatestTimestamp());
+    // Every gap in the window, including the one across the end of the arrays
+    for (double timestamp = 6; timestamp <= 9; timestamp += 0.25)
+    {
+      assertTrue(history.sample(timestamp, out));
+      assertEquals(timestamp, out[PoseHistory.X], TOLERANCE);
+    }
+  }
+
+  @Test
+  void timestampsOutsideTheWindowClamp()
+  {
+    PoseHistory history = new PoseHistory(3);
+    for (int i = 0; i < 5; i++)
+    {
+      history.add(i, i, -i, 0.1 * i, i, 0, 0);
+    }
+    double[] out = new double[PoseHistory.SAMPLE_SIZE];
+
+    // Older than the oldest kept sample, including ones that were overwritten
+    assertTrue(history.sample(0.5, out));
+    assertArrayEquals(new double[]{2, -2, 0.2, 2, 0, 0}, out, TOLERANCE);
+    // Newer than the latest
+    assertTrue(history.sample(100, out));
+    assertArrayEquals(new double[]{4, -4, 0.4, 4, 0, 0}, out, TOLERANCE);
+  }
+
+  @Test
+  void samplesOutOfOrderAreIgnored()
+  {
+    PoseHistory history = new PoseHistory(4);
+    history.add(1, 1, 0, 0, 0, 0, 0);
+    history.add(2, 2, 0, 0, 0, 0, 0);
+    history.add(2, 5, 0, 0, 0, 0, 0);
+    history.add(1.5, 5, 0, 0, 0, 0, 0);
+    double[] out = new double[PoseHistory.SAMPLE_SIZE];
+
+    assertEquals(2, history.size());
+    assertTrue(history.sample(1.5, out));
+    assertEquals(1.5, out[PoseHistory.X], TOLERANCE);
+  }
+
+  private static void assertPose(Pose2d expected, double[] out)
+  {
+    assertEquals(expected.getX(), out[PoseHistory.X], TOLERANCE);
+    assertEquals(expected.getY(), out[PoseHistory.Y], TOLERANCE);
+    assertEquals(0, Math.IEEEremainder(expected.getRotation().getRadians() - out[PoseHistory.THETA], 2 * Math.PI),
+                 TOLERANCE);
+  }
+}
@@ -0,0 +1,141 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+import java.util.Random;
+import java.util.stream.Stream;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+/**
+ * Checks {@link PrimitiveSwerveKinematics} against {@link SwerveDriveKinematics} over randomized chassis speeds and
+ * module states, for a square, a rectangular and an off center drivebase.
+ */
+class PrimitiveSwerveKinematicsTest
+{
+
+  private static final int    SAMPLES   = 1000;
+  private static final double TOLERANCE = 1e-9;
+  private static final long   SEED      = 2025;
+
+  static Stream<double[][]> geometries()
+  {
+    return Stream.of(
+        new double[][]{{0.3, 0.3, -0.3, -0.3}, {0.3, -0.3, 0.3, -0.3}},
+        new double[][]{{0.35, 0.35, -0.35, -0.35}, {0.25, -0.25, 0.25, -0.25}},
+        new double[][]{{0.4, 0.3, -0.2, -0.3}, {0.28, -0.31, 0.26, -0.2}});
+  }
+
+  @ParameterizedTest
+  @MethodSource("geometries")
+  void inverseKinematicsMatchesWpilib(double[][] geometry)
+  {
+    PrimitiveSwerveKinematics primitive = new PrimitiveSwerveKinematics(geometry[0], geometry[1]);
+    SwerveDriveKinematics     wpilib    = wpilib(geometry);
+    double[]                  speeds    = new double[4];
+    double[]                  angles    = new double[4];
+    Random                    random    = new Random(SEED);
+
+    for (int n = 0; n < SAMPLES; n++)
+    {
+      ChassisSpeeds chassis = randomChassisSpeeds(random);
+      primitive.toModuleStates(chassis.vxMetersPerSecond, chassis.vyMetersPerSecond, chassis.omegaRadiansPerSecond,
+                               speeds, angles);
+      assertStatesEqual(wpilib.toSwerveModuleStates(chassis), speeds, angles);
+    }
+
+    // A stop keeps the last angles in both
+    primitive.toModuleStates(0, 0, 0, speeds, angles);
+    assertStatesEqual(wpilib.toSwerveModuleStates(new ChassisSpeeds()), speeds, angles);
+  }
+
+  @ParameterizedTest
+  @MethodSource("geometries")
+  void forwardKinematicsMatchesWpilib(double[][] geometry)
+  {
+    PrimitiveSwerveKinematics primitive = new PrimitiveSwerveKinematics(geometry[0], geometry[1]);
+    SwerveDriveKinematics     wpilib    = wpilib(geometry);
+    double[]                  speeds    = new double[4];
+    double[]                  angles    = new double[4];
+    double[]                  chassis   = new double[3];
+    SwerveModuleState[]       states    = new SwerveModuleState[4];
+    Random                    random    = new Random(SEED);
+
+    for (int n = 0; n < SAMPLES; n++)
+    {
+      // Independent module states, so the least squares fit has a residual
+      for (int i = 0; i < 4; i++)
+      {
+        speeds[i] = (random.nextDouble() * 2 - 1) * 5;
+        angles[i] = (random.nextDouble() * 2 - 1) * Math.PI;
+        states[i] = new SwerveModuleState(speeds[i], new Rotation2d(angles[i]));
+      }
+      primitive.toChassisSpeeds(speeds, angles, chassis);
+      ChassisSpeeds expected = wpilib.toChassisSpeeds(states);
+      assertEquals(expected.vxMetersPerSecond, chassis[0], TOLERANCE);
+      assertEquals(expected.vyMetersPerSecond, chassis[1], TOLERANCE);
+      assertEquals(expected.omegaRadiansPerSecond, chassis[2], TOLERANCE);
+    }
+  }
+
+  @ParameterizedTest
+  @MethodSource("geometries")
+  void desaturateMatchesWpilib(double[][] geometry)
+  {
+    PrimitiveSwerveKinematics primitive = new PrimitiveSwerveKinematics(geometry[0], geometry[1]);
+    SwerveDriveKinematics     wpilib    = wpilib(geometry);
+    double[]                  speeds    = new double[4];
+    double[]                  angles    = new double[4];
+    Random                    random    = new Random(SEED);
+
+    for (int n = 0; n < SAMPLES; n++)
+    {
+      ChassisSpeeds       chassis  = randomChassisSpeeds(random);
+      double              maxSpeed = 1 + random.nextDouble() * 4;
+      SwerveModuleState[] expected = wpilib.toSwerveModuleStates(chassis);
+      SwerveDriveKinematics.desaturateWheelSpeeds(expected, maxSpeed);
+      primitive.toModuleStates(chassis.vxMetersPerSecond, chassis.vyMetersPerSecond, chassis.omegaRadiansPerSecond,
+                               speeds, angles);
+      PrimitiveSwerveKinematics.desaturate(speeds, maxSpeed);
+      assertStatesEqual(expected, speeds, angles);
+    }
+  }
+
+  private static SwerveDriveKinematics wpilib(double[][] geometry)
+  {
+    Translation2d[] locations = new Translation2d[geometry[0].length];
+    for (int i = 0; i < locations.length; i++)
+    {
+      locations[i] = new Translation2d(geometry[0][i], geometry[1][i]);
+    }
+    return new SwerveDriveKinematics(locations);
+  }
+
+  // Up to 6 m/s and 4 pi rad/s, past what the modules can do so desaturation has work
+  private static ChassisSpeeds randomChassisSpeeds(Random random)
+  {
+    return new ChassisSpeeds((random.nextDouble() * 2 - 1) * 6,
+                             (random.nextDouble() * 2 - 1) * 6,
+                             (random.nextDouble() * 2 - 1) * 4 * Math.PI);
+  }
+
+  private static void assertStatesEqual(SwerveModuleState[] expected, double[] speeds, double[] angles)
+  {
+    for (int i = 0; i < expected.length; i++)
+    {
+      assertEquals(expected[i].speedMetersPerSecond, speeds[i], TOLERANCE, "module " + i + " speed");
+      assertEquals(0, MathUtil.angleModulus(expected[i].angle.getRadians() - angles[i]), TOLERANCE,
+                   "module " + i + " angle");
+    }
+  }
+}
@@ -0,0 +1,190 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.wpi.first.math.system.plant.DCMotor;
+import edu.wpi.first.math.util.Units;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Checks the {@link SwerveSetpointGenerator} motor model against the drive free speed, with the reduction and the wheel
+ * given as one YAGSL style conversion factor, and the acceleration, steering and reversal behavior step by step.
+ */
+class SwerveSetpointGeneratorTest
+{
+
+  private static final double  TOLERANCE      = 1e-9;
+  private static final double  WHEEL_DIAMETER = Units.inchesToMeters(3);
+  private static final double  OFFSET         = Units.inchesToMeters(14.75);
+  private static final double  MASS           = 55; // kg
+  private static final double  DT             = 0.02; // seconds
+  private static final DCMotor NEO            = DCMotor.getNEO(1);
+  // 5.36:1 frees at about 4.2 m/s and the current limit allows more than the traction limit up to about 2.6 m/s
+  private static final double  GEAR_RATIO     = 5.36;
+  private static final double  MAX_ACCEL      = 8; // m/s^2
+  private static final double  MAX_STEER      = Units.rotationsToRadians(3); // rad/s
+
+  @ParameterizedTest
+  @ValueSource(doubles = {5.36, 6.75, 16.9})
+  void freeSpeedMatchesDriveReduction(double gearRatio)
+  {
+    SwerveSetpointGenerator generator = generator(gearRatio, 10);
+    double                  expected  = NEO.freeSpeedRadPerSec / gearRatio * WHEEL_DIAMETER / 2;
+    assertEquals(expected, generator.getFreeSpeed(), TOLERANCE);
+  }
+
+  @Test
+  void accelerationIsLimited()
+  {
+    SwerveSetpointGenerator generator = generator(GEAR_RATIO, 3);
+    int                     steps     = stepUntil(generator, 2, 0, 0, 2);
+    // 2 m/s at 8 m/s^2 is 0.25s, the bisection only ever rounds the step down
+    assertTrue(steps >= 13, "reached 2 m/s in " + steps + " steps");
+  }
+
+  @Test
+  void steeringRateIsLimited()
+  {
+    SwerveSetpointGenerator generator = generator(GEAR_RATIO, 3);
+    stepUntil(generator, 1, 0, 0, 1);
+    // Turn the direction of travel by 60 degrees, more than one step of steering
+    double vx    = Math.cos(Math.PI / 3);
+    double vy    = Math.sin(Math.PI / 3);
+    int    steps = stepUntil(generator, vx, vy, 0, 1);
+    assertTrue(steps >= 3, "turned 60 degrees in " + steps + " steps");
+    for (double angle : generator.getModuleAngles())
+    {
+      assertEquals(0, axisError(angle, Math.PI / 3), TOLERANCE);
+    }
+  }
+
+  @Test
+  void stoppedModulesTurnInPlaceFirst()
+  {
+    SwerveSetpointGenerator generator = generator(GEAR_RATIO, 3);
+    double[]                previous  = new double[4];
+    boolean                 aligned   = false;
+    for (int n = 0; n < 50 && !aligned; n++)
+    {
+      System.arraycopy(generator.getModuleAngles(), 0, previous, 0, 4);
+      generator.generate(0, 1, 0, DT);
+      aligned = true;
+      for (int i = 0; i < 4; i++)
+      {
+        double angle = generator.getModuleAngles()[i];
+        assertTrue(axisError(angle, previous[i]) <= MAX_STEER * DT + TOLERANCE, "module " + i + " steered too fast");
+        aligned &= axisError(angle, Math.PI / 2) < TOLERANCE;
+      }
+      if (!aligned)
+      {
+        for (double speed : generator.getModuleSpeeds())
+        {
+          assertEquals(0, speed, "module drove before it was turned");
+        }
+      }
+    }
+    assertTrue(aligned, "modules never turned to the new direction");
+    stepUntil(generator, 0, 1, 0, 1);
+  }
+
+  @Test
+  void reversalStopsInsteadOfSweeping()
+  {
+    SwerveSetpointGenerator generator = generator(GEAR_RATIO, 3);
+    stepUntil(generator, 2, 0, 0, 2);
+    // Every module would reverse, so the robot brakes to a stop and drives back with the modules still on the X axis
+    stepUntil(generator, -2, 0, 0, 2);
+    assertEquals(-2, generator.getChassisVx(), TOLERANCE);
+  }
+
+  @Test
+  void maxVelocityAboveFreeSpeedIsCapped()
+  {
+    // 16.9:1 on a 3 inch wheel frees at about 1.34 m/s, far below 14.5 ft/s
+    SwerveSetpointGenerator generator = generator(16.9, Units.feetToMeters(14.5));
+    assertEquals(generator.getFreeSpeed(), generator.getMaxVelocity(), TOLERANCE);
+
+    driveForward(generator, generator.getFreeSpeed());
+    assertEquals(generator.getFreeSpeed(), generator.getChassisVx(), TOLERANCE);
+  }
+
+  @Test
+  void maxVelocityBelowFreeSpeedIsKept()
+  {
+    SwerveSetpointGenerator generator = generator(5.36, 3);
+    assertTrue(generator.getFreeSpeed() > 3);
+    assertEquals(3, generator.getMaxVelocity(), TOLERANCE);
+
+    driveForward(generator, 3);
+    assertEquals(3, generator.getChassisVx(), TOLERANCE);
+  }
+
+  private static SwerveSetpointGenerator generator(double gearRatio, double maxVelocity)
+  {
+    PrimitiveSwerveKinematics kinematics = new PrimitiveSwerveKinematics(new double[]{OFFSET, OFFSET, -OFFSET, -OFFSET},
+                                                                         new double[]{OFFSET, -OFFSET, OFFSET, -OFFSET});
+    return new SwerveSetpointGenerator(kinematics, NEO, Math.PI * WHEEL_DIAMETER / gearRatio, MASS, maxVelocity,
+                                       MAX_ACCEL, MAX_STEER, 40);
+  }
+
+  // step toward a command until the module speeds reach the given magnitude, checking every step against the
+  // acceleration and steering limits and, while the command is pure translation, against a sweep off its axis
+  private static int stepUntil(SwerveSetpointGenerator generator, double vx, double vy, double omega, double speed)
+  {
+    double[] previousSpeeds = new double[4];
+    double[] previousAngles = new double[4];
+    double   axis           = Math.atan2(vy, vx);
+    for (int n = 1; n <= 250; n++)
+    {
+      System.arraycopy(generator.getModuleSpeeds(), 0, previousSpeeds, 0, 4);
+      System.arraycopy(generator.getModuleAngles(), 0, previousAngles, 0, 4);
+      generator.generate(vx, vy, omega, DT);
+      boolean reached = true;
+      for (int i = 0; i < 4; i++)
+      {
+        double s = generator.getModuleSpeeds()[i];
+        double a = generator.getModuleAngles()[i];
+        // The limit is on the wheel speed, turning at a constant speed takes no drive acceleration
+        double change = Math.abs(Math.abs(s) - Math.abs(previousSpeeds[i]));
+        assertTrue(change <= MAX_ACCEL * DT + TOLERANCE, "module " + i + " changed by " + change + " m/s in a step");
+        assertTrue(axisError(a, previousAngles[i]) <= MAX_STEER * DT + TOLERANCE, "module " + i + " steered too fast");
+        if (Math.abs(previousSpeeds[i]) > TOLERANCE && omega == 0 && axisError(previousAngles[i], axis) < TOLERANCE)
+        {
+          assertEquals(0, axisError(a, axis), TOLERANCE, "module " + i + " swept off the axis of travel");
+        }
+        reached &= Math.abs(Math.abs(s) - speed) < TOLERANCE;
+      }
+      if (reached)
+      {
+        return n;
+      }
+    }
+    throw new AssertionError("never reached " + speed + " m/s");
+  }
+
+  // angle between two module headings, a module pointing backwards is on the same axis
+  private static double axisError(double a, double b)
+  {
+    return Math.abs(Math.IEEEremainder(a - b, Math.PI));
+  }
+
+  // full speed ahead for five seconds, no module may pass the limit on the way
+  private static void driveForward(SwerveSetpointGenerator generator, double limit)
+  {
+    for (int n = 0; n < 250; n++)
+    {
+      generator.generate(5, 0, 0, DT);
+      for (double speed : generator.getModuleSpeeds())
+      {
+        assertTrue(Math.abs(speed) <= limit + TOLERANCE, "module speed " + speed + " above " + limit);
+      }
+    }
+  }
+}